@@ -0,0 +1,75 @@
+package com.healplus.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executores dedicados ao pipeline de análise de feridas:
+ * - Jobs assíncronos de análise (fila limitada; excedentes são rejeitados com 503)
+ * - Etapas independentes de uma mesma análise (fan-out); com a fila cheia a etapa
+ *   roda na thread chamadora, degradando para execução sequencial
+ * - Jobs de treino: threads de prioridade mínima, separadas das réplicas de inferência
+ */
+@Configuration
+public class MLExecutorConfig {
+
+    @Value("${ml.jobs.threads:4}")
+    private int jobThreads;
+
+    @Value("${ml.jobs.queue-capacity:100}")
+    private int jobQueueCapacity;
+
+    @Value("${ml.fanout.threads:8}")
+    private int fanOutThreads;
+
+    @Value("${ml.fanout.queue-capacity:200}")
+    private int fanOutQueueCapacity;
+
+    @Value("${ml.training.jobs.threads:1}")
+    private int trainingJobThreads;
+
+    @Value("${ml.training.jobs.queue-capacity:4}")
+    private int trainingJobQueueCapacity;
+
+    @Bean(name = "analysisJobExecutor")
+    public ThreadPoolTaskExecutor analysisJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobThreads);
+        executor.setMaxPoolSize(jobThreads);
+        executor.setQueueCapacity(jobQueueCapacity);
+        executor.setThreadNamePrefix("ml-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "analysisFanOutExecutor")
+    public ThreadPoolTaskExecutor analysisFanOutExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(fanOutThreads);
+        executor.setMaxPoolSize(fanOutThreads);
+        executor.setQueueCapacity(fanOutQueueCapacity);
+        executor.setThreadNamePrefix("ml-fanout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "trainingJobExecutor")
+    public ThreadPoolTaskExecutor trainingJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(trainingJobThreads);
+        executor.setMaxPoolSize(trainingJobThreads);
+        executor.setQueueCapacity(trainingJobQueueCapacity);
+        executor.setThreadNamePrefix("ml-training-job-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setDaemon(true);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -108,6 +108,8 @@ public class SecurityConfig {
                 // Endpoints admin apenas para ROLE_ADMIN
                 auth.requestMatchers("/api/admin/**").hasRole("ADMIN");
                 auth.requestMatchers("/actuator/**").hasRole("ADMIN");
+                // Treino, jobs (inclusive cancelar/retomar) e troca do modelo servido
+                auth.requestMatchers("/api/v1/ml/training/**").hasRole("ADMIN");
                 
                 auth.anyRequest().authenticated();
             })
@@ -0,0 +1,28 @@
+package com.healplus.controllers;
+
+import com.healplus.ml.CohortTemporalAnalysisService;
+import com.healplus.ml.CohortTemporalAnalysisService.CohortReport;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/wounds")
+@Tag(name = "Admin Wounds", description = "Análises de feridas sobre toda a base (ROLE_ADMIN)")
+@io.swagger.v3.oas.annotations.security.SecurityRequirement(name = "bearer-jwt")
+public class AdminWoundsController {
+
+    private final CohortTemporalAnalysisService cohortService;
+
+    public AdminWoundsController(CohortTemporalAnalysisService cohortService) {
+        this.cohortService = cohortService;
+    }
+
+    @GetMapping("/deteriorating")
+    @Operation(summary = "Feridas em piora (toda a base)",
+               description = "Executa a análise temporal de todos os pacientes e retorna as feridas em piora por pontuação")
+    public ResponseEntity<CohortReport> listDeteriorating(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(cohortService.findDeterioratingAll(Math.max(1, Math.min(limit, 5000))));
+    }
+}
@@ -0,0 +1,60 @@
+package com.healplus.controllers;
+
+import com.healplus.entities.User;
+import com.healplus.exception.UnauthorizedException;
+import com.healplus.ml.jobs.AnalysisJobService;
+import com.healplus.ml.jobs.AnalysisJobService.AnalysisJobStatus;
+import com.healplus.ml.jobs.AnalysisJobService.JobQueueStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping(AnalysisJobService.JOBS_PATH)
+@Tag(name = "ML Analysis Jobs", description = "Acompanhamento de análises assíncronas (polling e SSE)")
+@CrossOrigin(origins = "*")
+public class AnalysisJobController {
+
+    private final AnalysisJobService analysisJobService;
+
+    public AnalysisJobController(AnalysisJobService analysisJobService) {
+        this.analysisJobService = analysisJobService;
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Status do job de análise",
+               description = "Retorna estado, etapas concluídas e, ao final, o resultado da análise")
+    public ResponseEntity<AnalysisJobStatus> getJobStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(analysisJobService.getStatus(jobId, currentUserId()));
+    }
+
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Eventos do job de análise (SSE)",
+               description = "Stream com eventos 'status', 'stage', 'completed' e 'failed'")
+    public SseEmitter streamJobEvents(@PathVariable String jobId) {
+        return analysisJobService.subscribe(jobId, currentUserId());
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Métricas da fila de jobs",
+               description = "Retorna threads ativas, jobs enfileirados e capacidade restante da fila")
+    public ResponseEntity<JobQueueStats> getQueueStats() {
+        return ResponseEntity.ok(analysisJobService.getQueueStats());
+    }
+
+    /**
+     * Id do profissional autenticado; jobs sempre têm dono, então sem usuário não há acesso
+     */
+    static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        throw new UnauthorizedException("Usuário não autenticado");
+    }
+}
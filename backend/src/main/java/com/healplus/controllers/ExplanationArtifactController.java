@@ -0,0 +1,146 @@
+package com.healplus.controllers;
+
+import com.healplus.entities.ExplanationArtifact;
+import com.healplus.ml.xai.ActivationMapCodec;
+import com.healplus.ml.xai.ExplanationArtifactService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping(ExplanationArtifactService.ARTIFACTS_PATH)
+@Tag(name = "XAI Artifacts", description = "Heatmaps, sobreposições e mapas de ativação das explicações")
+@CrossOrigin(origins = "*")
+public class ExplanationArtifactController {
+
+    /**
+     * Uma nova explicação da mesma análise substitui os artefatos na mesma URL; o cliente
+     * revalida a cada uso e recebe 304 pelo ETag enquanto a versão não muda
+     */
+    private static final CacheControl ARTIFACT_CACHE = CacheControl.noCache().cachePrivate();
+
+    private final ExplanationArtifactService artifactService;
+
+    public ExplanationArtifactController(ExplanationArtifactService artifactService) {
+        this.artifactService = artifactService;
+    }
+
+    @GetMapping(value = "/{analysisId}/heatmap.png", produces = MediaType.IMAGE_PNG_VALUE)
+    @Operation(summary = "Heatmap da explicação",
+               description = "PNG do mapa de ativação em escala de cores, renderizado na primeira requisição")
+    public ResponseEntity<byte[]> getHeatmap(@PathVariable String analysisId) {
+        ExplanationArtifact artifact = find(analysisId);
+        return ResponseEntity.ok()
+            .cacheControl(ARTIFACT_CACHE)
+            .eTag(eTag(artifact, "heatmap"))
+            .contentType(MediaType.IMAGE_PNG)
+            .body(artifactService.heatmapPng(artifact));
+    }
+
+    @GetMapping(value = "/{analysisId}/overlay.png", produces = MediaType.IMAGE_PNG_VALUE)
+    @Operation(summary = "Sobreposição da explicação",
+               description = "PNG do heatmap sobreposto à imagem analisada, renderizado na primeira requisição")
+    public ResponseEntity<byte[]> getOverlay(@PathVariable String analysisId) {
+        ExplanationArtifact artifact = find(analysisId);
+        return ResponseEntity.ok()
+            .cacheControl(ARTIFACT_CACHE)
+            .eTag(eTag(artifact, "overlay"))
+            .contentType(MediaType.IMAGE_PNG)
+            .body(artifactService.overlayPng(artifact));
+    }
+
+    @GetMapping("/{analysisId}/activation-map")
+    @Operation(summary = "Mapa de ativação",
+               description = "Binário compacto (" + ActivationMapCodec.MEDIA_TYPE + ": 8 bits com offset/scale, "
+                   + "Deflate opcional) por padrão; JSON com a matriz [altura][largura] via Accept: application/json "
+                   + "ou format=json")
+    public ResponseEntity<?> getActivationMap(
+            @PathVariable String analysisId,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "true") boolean deflate,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        
+        ExplanationArtifact artifact = find(analysisId);
+        // A representação depende do Accept: caches intermediários precisam separar as variantes
+        if (wantsJson(format, accept)) {
+            ActivationMapCodec.Decoded decoded = artifactService.decodeActivationMap(artifact);
+            return ResponseEntity.ok()
+                .cacheControl(ARTIFACT_CACHE)
+                .eTag(eTag(artifact, "map-json"))
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ActivationMapJson.from(decoded));
+        }
+        return ResponseEntity.ok()
+            .cacheControl(ARTIFACT_CACHE)
+            .eTag(eTag(artifact, "map-" + deflate))
+            .varyBy(HttpHeaders.ACCEPT)
+            .contentType(MediaType.parseMediaType(ActivationMapCodec.MEDIA_TYPE))
+            .body(artifactService.activationMap(artifact, deflate));
+    }
+
+    @GetMapping("/{analysisId}/activation-mask")
+    @Operation(summary = "Máscara de alta ativação",
+               description = "Pixels com ativação >= threshold codificados por corridas (RLE), Deflate opcional")
+    public ResponseEntity<byte[]> getActivationMask(
+            @PathVariable String analysisId,
+            @RequestParam(defaultValue = "0.7") float threshold,
+            @RequestParam(defaultValue = "false") boolean deflate) {
+        ExplanationArtifact artifact = find(analysisId);
+        return ResponseEntity.ok()
+            .cacheControl(ARTIFACT_CACHE)
+            .eTag(eTag(artifact, "mask-" + threshold + "-" + deflate))
+            .contentType(MediaType.parseMediaType(ActivationMapCodec.MEDIA_TYPE))
+            .body(artifactService.activationMask(artifact, threshold, deflate));
+    }
+
+    private ExplanationArtifact find(String analysisId) {
+        return artifactService.find(analysisId, AnalysisJobController.currentUserId());
+    }
+
+    /** Versão dos artefatos mais a variante da representação servida na mesma URL */
+    private static String eTag(ExplanationArtifact artifact, String variant) {
+        return "\"" + ExplanationArtifactService.version(artifact) + "-" + variant + "\"";
+    }
+
+    /** JSON só quando pedido explicitamente; o binário é a representação padrão */
+    private static boolean wantsJson(String format, String accept) {
+        if (format != null) {
+            return "json".equalsIgnoreCase(format);
+        }
+        return accept != null
+            && accept.contains(MediaType.APPLICATION_JSON_VALUE)
+            && !accept.contains(ActivationMapCodec.MEDIA_TYPE);
+    }
+
+    /**
+     * Representação JSON do mapa (formato anterior ao codec, para clientes legados)
+     */
+    public static class ActivationMapJson {
+        private int width;
+        private int height;
+        private double[][] values;
+
+        static ActivationMapJson from(ActivationMapCodec.Decoded decoded) {
+            ActivationMapJson json = new ActivationMapJson();
+            json.width = decoded.width();
+            json.height = decoded.height();
+            json.values = new double[decoded.height()][decoded.width()];
+            float[] map = decoded.map();
+            for (int y = 0; y < decoded.height(); y++) {
+                for (int x = 0; x < decoded.width(); x++) {
+                    json.values[y][x] = map[y * decoded.width() + x];
+                }
+            }
+            return json;
+        }
+
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public double[][] getValues() { return values; }
+    }
+}
@@ -1,16 +1,30 @@
 package com.healplus.controllers;
 
+import com.healplus.exception.BadRequestException;
+import com.healplus.ml.jobs.TrainingJobService;
+import com.healplus.ml.jobs.TrainingJobService.TrainingJobStatus;
 import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.training.TrainingOptions;
 import com.healplus.ml.training.WoundModelTrainer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/ml/training")
@@ -22,31 +36,74 @@ public class MLTrainingController {
     
     private final WoundModelTrainer trainer;
     private final WoundClassifierNetwork classifierNetwork;
+    private final TrainingJobService trainingJobService;
     
-    public MLTrainingController(WoundModelTrainer trainer, WoundClassifierNetwork classifierNetwork) {
+    public MLTrainingController(WoundModelTrainer trainer, WoundClassifierNetwork classifierNetwork,
+                                TrainingJobService trainingJobService) {
         this.trainer = trainer;
         this.classifierNetwork = classifierNetwork;
+        this.trainingJobService = trainingJobService;
     }
     
     @PostMapping("/wound-classifier")
     @Operation(summary = "Treinar classificador de feridas", 
-               description = "Inicia o treinamento do modelo de classificação de feridas")
-    public ResponseEntity<Map<String, Object>> trainWoundClassifier(
-            @RequestBody TrainingRequest request) {
+               description = "Enfileira um job de treino em background; retorna 202 com o job, acompanhado em /jobs/{jobId}")
+    public ResponseEntity<TrainingJobStatus> trainWoundClassifier(
+            @Valid @RequestBody TrainingRequest request) {
+        
+        // Cada réplica é um clone do modelo na JVM que também serve a inferência
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (request.getWorkers() != null && request.getWorkers() > cores) {
+            throw new BadRequestException("Workers deve ser no máximo " + cores + " (núcleos disponíveis)");
+        }
+        
+        TrainingOptions options = trainer.defaultOptions();
+        if (request.getEpochs() != null) options.setEpochs(request.getEpochs());
+        if (request.getBatchSize() != null) options.setBatchSize(request.getBatchSize());
+        if (request.getLearningRate() != null) options.setLearningRate(request.getLearningRate());
+        if (request.getWorkers() != null) options.setWorkers(request.getWorkers());
+        if (request.getAveragingFrequency() != null) options.setAveragingFrequency(request.getAveragingFrequency());
+        if (request.getPrefetchBatches() != null) options.setPrefetchBatches(request.getPrefetchBatches());
         
         try {
-            logger.info("Iniciando treinamento do classificador de feridas...");
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", "TRAINING_STARTED");
-            response.put("message", "Treinamento iniciado em background");
-            response.put("datasetPath", request.getDatasetPath());
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            logger.error("Erro ao iniciar treinamento: {}", e.getMessage());
-            return ResponseEntity.internalServerError().build();
+            TrainingJobStatus job = trainingJobService.submit(request.getDatasetPath(), request.getTissueDatasetPath(),
+                options, Boolean.TRUE.equals(request.getInstallModel()));
+            logger.info("Treinamento do classificador de feridas enfileirado: job {}", job.getJobId());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Status do job de treino",
+               description = "Retorna estado, métricas por época e o último checkpoint do job")
+    public ResponseEntity<TrainingJobStatus> getJobStatus(@PathVariable String jobId) {
+        return ResponseEntity.ok(trainingJobService.getStatus(jobId));
+    }
+    
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Eventos do job de treino (SSE)",
+               description = "Stream com eventos 'status', 'epoch', 'completed', 'failed' e 'cancelled'")
+    public SseEmitter streamJobEvents(@PathVariable String jobId) {
+        return trainingJobService.subscribe(jobId);
+    }
+    
+    @PostMapping("/jobs/{jobId}/cancel")
+    @Operation(summary = "Cancelar job de treino",
+               description = "Interrompe o treino antes do próximo mini-lote; o último checkpoint é mantido")
+    public ResponseEntity<TrainingJobStatus> cancelJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(trainingJobService.cancel(jobId));
+    }
+    
+    @PostMapping("/jobs/{jobId}/resume")
+    @Operation(summary = "Retomar job de treino",
+               description = "Reenfileira um job cancelado ou com falha a partir do último checkpoint")
+    public ResponseEntity<TrainingJobStatus> resumeJob(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(trainingJobService.resume(jobId));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
     }
     
@@ -96,31 +153,85 @@ public class MLTrainingController {
     public ResponseEntity<Map<String, Object>> getTrainingStatus() {
         Map<String, Object> status = new HashMap<>();
         status.put("modelsLoaded", classifierNetwork.isModelLoaded());
-        status.put("woundClassifierParams", "CNN com 4 camadas convolucionais");
-        status.put("tissueSegmenterParams", "CNN com 3 camadas convolucionais");
+        status.put("architecture", "CNN multi-tarefa: tronco com 4 camadas convolucionais compartilhado");
+        status.put("outputs", "wound_output (tipo de ferida), tissue_output (composição de tecidos)");
         status.put("inputSize", "224x224x3");
         status.put("framework", "DeepLearning4J");
         
+        List<TrainingJobStatus> jobs = trainingJobService.listJobs();
+        status.put("jobs", jobs);
+        jobs.stream()
+            .filter(job -> job.getStatus() == TrainingJobService.JobStatus.RUNNING)
+            .findFirst()
+            .ifPresent(job -> status.put("currentJob", job));
+        
         return ResponseEntity.ok(status);
     }
     
     public static class TrainingRequest {
         private String datasetPath;
+        private String tissueDatasetPath;
+        @Min(value = 1, message = "Épocas devem ser no mínimo 1")
+        @Max(value = 500, message = "Épocas devem ser no máximo 500")
         private Integer epochs;
+
+        @Min(value = 1, message = "Tamanho do lote deve ser no mínimo 1")
+        @Max(value = 256, message = "Tamanho do lote deve ser no máximo 256")
         private Integer batchSize;
+
+        @DecimalMin(value = "0.0", inclusive = false, message = "Taxa de aprendizado deve ser positiva")
+        @DecimalMax(value = "1.0", message = "Taxa de aprendizado deve ser no máximo 1")
         private Double learningRate;
 
+        @Min(value = 1, message = "Workers devem ser no mínimo 1")
+        private Integer workers;
+
+        @Min(value = 1, message = "Frequência de média deve ser no mínimo 1")
+        @Max(value = 100, message = "Frequência de média deve ser no máximo 100")
+        private Integer averagingFrequency;
+
+        @Min(value = 1, message = "Lotes antecipados devem ser no mínimo 1")
+        @Max(value = 32, message = "Lotes antecipados devem ser no máximo 32")
+        private Integer prefetchBatches;
+
+        private Boolean installModel;
+
+        /** Dataset de tipos de ferida (uma pasta por classe) */
         public String getDatasetPath() { return datasetPath; }
         public void setDatasetPath(String datasetPath) { this.datasetPath = datasetPath; }
 
+        /** Dataset de tipos de tecido (opcional) */
+        public String getTissueDatasetPath() { return tissueDatasetPath; }
+        public void setTissueDatasetPath(String tissueDatasetPath) { this.tissueDatasetPath = tissueDatasetPath; }
+
         public Integer getEpochs() { return epochs; }
         public void setEpochs(Integer epochs) { this.epochs = epochs; }
 
         public Integer getBatchSize() { return batchSize; }
         public void setBatchSize(Integer batchSize) { this.batchSize = batchSize; }
 
+        /** Taxa de aprendizado do otimizador (padrão: a da configuração do modelo) */
         public Double getLearningRate() { return learningRate; }
         public void setLearningRate(Double learningRate) { this.learningRate = learningRate; }
+
+        /** Réplicas do modelo treinadas em paralelo (média de parâmetros); 1 = sem paralelismo, no máximo um por núcleo */
+        public Integer getWorkers() { return workers; }
+        public void setWorkers(Integer workers) { this.workers = workers; }
+
+        /** Mini-lotes por réplica entre duas médias de parâmetros */
+        public Integer getAveragingFrequency() { return averagingFrequency; }
+        public void setAveragingFrequency(Integer averagingFrequency) { this.averagingFrequency = averagingFrequency; }
+
+        /** Lotes preparados à frente do treino */
+        public Integer getPrefetchBatches() { return prefetchBatches; }
+        public void setPrefetchBatches(Integer prefetchBatches) { this.prefetchBatches = prefetchBatches; }
+
+        /**
+         * Ao concluir, passa a servir o modelo treinado (padrão: não). O modelo instalado é
+         * gravado no diretório do job, de onde /load-models o recarrega após um reinício.
+         */
+        public Boolean getInstallModel() { return installModel; }
+        public void setInstallModel(Boolean installModel) { this.installModel = installModel; }
     }
     
     public static class SaveModelRequest {
@@ -4,6 +4,17 @@ import com.healplus.ml.WoundAnalysisResult;
 import com.healplus.ml.WoundMLService;
 import com.healplus.ml.WoundTemporalAnalysisService;
 import com.healplus.ml.WoundTemporalAnalysisService.TemporalEvolutionResult;
+import com.healplus.ml.inference.AnalysisResultCache.CacheStats;
+import com.healplus.ml.inference.BatchingInferenceService;
+import com.healplus.ml.inference.SingleFlight.SingleFlightStats;
+import com.healplus.ml.inference.BatchingInferenceService.InferenceStats;
+import com.healplus.ml.jobs.AnalysisJobService;
+import com.healplus.ml.jobs.AnalysisJobService.AnalysisJobStatus;
+import com.healplus.ml.jobs.AnalysisProgress;
+import com.healplus.ml.jobs.AnalysisStage;
+import com.healplus.ml.neural.DecodedImage;
+import com.healplus.ml.neural.ImagePreprocessor;
+import com.healplus.ml.neural.WoundClassifierNetwork;
 import com.healplus.ml.multimodal.MultimodalWoundAnalysisService;
 import com.healplus.ml.multimodal.MultimodalWoundAnalysisService.*;
 import com.healplus.ml.xai.ExplainableAIService;
@@ -12,13 +23,22 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/ml/wounds")
@@ -32,16 +52,28 @@ public class WoundMLController {
     private final WoundTemporalAnalysisService temporalService;
     private final MultimodalWoundAnalysisService multimodalService;
     private final ExplainableAIService explainableAIService;
+    private final BatchingInferenceService inferenceService;
+    private final ImagePreprocessor imagePreprocessor;
+    private final AnalysisJobService analysisJobService;
+    private final Executor fanOutExecutor;
     
     public WoundMLController(
             WoundMLService woundMLService,
             WoundTemporalAnalysisService temporalService,
             MultimodalWoundAnalysisService multimodalService,
-            ExplainableAIService explainableAIService) {
+            ExplainableAIService explainableAIService,
+            BatchingInferenceService inferenceService,
+            ImagePreprocessor imagePreprocessor,
+            AnalysisJobService analysisJobService,
+            @Qualifier("analysisFanOutExecutor") Executor fanOutExecutor) {
         this.woundMLService = woundMLService;
         this.temporalService = temporalService;
         this.multimodalService = multimodalService;
         this.explainableAIService = explainableAIService;
+        this.inferenceService = inferenceService;
+        this.imagePreprocessor = imagePreprocessor;
+        this.analysisJobService = analysisJobService;
+        this.fanOutExecutor = fanOutExecutor;
     }
     
     @PostMapping(value = "/analyze", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -154,6 +186,27 @@ public class WoundMLController {
         return ResponseEntity.ok(health);
     }
     
+    @GetMapping("/inference/stats")
+    @Operation(summary = "Métricas de inferência em lote", 
+               description = "Retorna parâmetros de batching, profundidade da fila e histograma de tamanhos de lote")
+    public ResponseEntity<InferenceStats> getInferenceStats() {
+        return ResponseEntity.ok(inferenceService.getStats());
+    }
+    
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Métricas do cache de análises", 
+               description = "Retorna entradas, peso estimado, acertos, falhas, evicções e invalidações do cache por conteúdo")
+    public ResponseEntity<CacheStats> getCacheStats() {
+        return ResponseEntity.ok(woundMLService.getCacheStats());
+    }
+    
+    @GetMapping("/coalescing/stats")
+    @Operation(summary = "Métricas de coalescência de análises", 
+               description = "Retorna execuções reais, requisições idênticas que aguardaram uma execução em andamento e a taxa de deduplicação")
+    public ResponseEntity<SingleFlightStats> getCoalescingStats() {
+        return ResponseEntity.ok(woundMLService.getCoalescingStats());
+    }
+    
     private boolean isValidImageType(String contentType) {
         return contentType != null && (
             contentType.equals("image/jpeg") ||
@@ -191,7 +244,7 @@ public class WoundMLController {
     
     @PostMapping("/analyze/temporal")
     @Operation(summary = "Análise temporal", 
-               description = "Analisa evolução da ferida ao longo do tempo comparando múltiplas avaliações")
+               description = "Analisa evolução da ferida a partir das avaliações enviadas; para o histórico gravado use GET /api/wounds/patient/{patientId}/temporal")
     public ResponseEntity<TemporalEvolutionResult> analyzeTemporalEvolution(
             @RequestBody TemporalAnalysisRequest request) {
         
@@ -213,26 +266,37 @@ public class WoundMLController {
     
     @PostMapping("/explain")
     @Operation(summary = "Explicar análise (XAI)", 
-               description = "Gera explicação detalhada da análise com heatmaps e evidências visuais")
+               description = "Gera explicação detalhada da análise com heatmaps e evidências visuais (Grad-CAM ou sensibilidade à oclusão)")
     public ResponseEntity<ExplanationResult> explainAnalysis(
             @RequestBody ExplainAnalysisRequest request) {
         
         logger.info("Recebida requisição de explicação XAI");
         
         try {
+            DecodedImage image = imagePreprocessor.decodeBase64(request.getImageBase64());
+            
+            // O Grad-CAM vem da inferência; um resultado enviado pelo cliente não o traz,
+            // então a imagem é analisada (normalmente atendida pelo cache) para obtê-lo
+            WoundAnalysisResult inference = woundMLService.analyzeWound(image);
             WoundAnalysisResult analysisResult = request.getAnalysisResult() != null ?
                 request.getAnalysisResult() :
-                woundMLService.analyzeWoundFromBase64(request.getImageBase64());
+                inference;
             
-            byte[] imageBytes = decodeBase64Image(request.getImageBase64());
-            ExplanationResult explanation = explainableAIService.generateExplanation(
-                analysisResult,
-                imageBytes,
-                null
-            );
+            String ownerId = AnalysisJobController.currentUserId();
+            ExplanationResult explanation = request.isOcclusion() ?
+                explainableAIService.generateOcclusionExplanation(analysisResult, image, ownerId) :
+                explainableAIService.generateExplanation(
+                    analysisResult,
+                    image,
+                    inference.getClassActivationMap(),
+                    ownerId
+                );
             
             return ResponseEntity.ok(explanation);
             
+        } catch (AccessDeniedException e) {
+            // O id do resultado enviado pelo cliente pertence a análise de outro profissional
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         } catch (Exception e) {
             logger.error("Erro ao gerar explicação: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -248,34 +312,16 @@ public class WoundMLController {
         logger.info("Recebida requisição de análise completa");
         
         try {
-            // 1. Análise de imagem
-            WoundAnalysisResult imageAnalysis = woundMLService.analyzeWoundFromBase64(request.getImageBase64());
-            
-            // 2. Análise multimodal (se dados clínicos fornecidos)
-            MultimodalAnalysisResult multimodalResult = null;
-            if (request.getClinicalData() != null) {
-                multimodalResult = multimodalService.analyzeWithClinicalContext(
-                    imageAnalysis, 
-                    request.getClinicalData()
-                );
+            // 0. Decodificar uma única vez e validar; a mesma imagem segue para análise e XAI
+            DecodedImage image;
+            try {
+                image = imagePreprocessor.decodeBase64(request.getImageBase64());
+            } catch (IOException e) {
+                logger.warn("Imagem inválida na análise completa: {}", e.getMessage());
+                return ResponseEntity.badRequest().build();
             }
-            
-            // 3. Gerar explicação
-            byte[] imageBytes = decodeBase64Image(request.getImageBase64());
-            ExplanationResult explanation = explainableAIService.generateExplanation(
-                imageAnalysis,
-                imageBytes,
-                null
-            );
-            
-            // 4. Montar resposta completa
-            CompleteAnalysisResponse response = new CompleteAnalysisResponse();
-            response.setImageAnalysis(imageAnalysis);
-            response.setMultimodalAnalysis(multimodalResult);
-            response.setExplanation(explanation);
-            response.setLegalDisclaimer(explanation.getLegalDisclaimer());
-            
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(runCompleteAnalysis(request, image, AnalysisProgress.NONE,
+                AnalysisJobController.currentUserId()));
             
         } catch (Exception e) {
             logger.error("Erro na análise completa: {}", e.getMessage(), e);
@@ -283,6 +329,94 @@ public class WoundMLController {
         }
     }
     
+    @PostMapping("/analyze/complete/async")
+    @Operation(summary = "Análise completa assíncrona", 
+               description = "Enfileira a análise completa e retorna 202 com o id do job; acompanhe por polling ou SSE")
+    public ResponseEntity<AnalysisJobStatus> completeAnalysisAsync(
+            @RequestBody CompleteAnalysisRequest request) {
+        
+        logger.info("Recebida requisição de análise completa assíncrona");
+        
+        try {
+            String ownerId = AnalysisJobController.currentUserId();
+            AnalysisJobStatus job = analysisJobService.submit(
+                "complete-analysis",
+                ownerId,
+                progress -> {
+                    DecodedImage image = imagePreprocessor.decodeBase64(request.getImageBase64());
+                    progress.reached(AnalysisStage.DECODED);
+                    return runCompleteAnalysis(request, image, progress, ownerId);
+                }
+            );
+            return ResponseEntity.accepted()
+                .location(URI.create(job.getStatusUrl()))
+                .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
+    /**
+     * Pipeline da análise completa sobre uma imagem já decodificada,
+     * compartilhado entre o endpoint síncrono e o job assíncrono.
+     * Grafo de dependências: classificação -> (multimodal || explicação XAI);
+     * a validação roda na thread chamadora enquanto a classificação é feita.
+     *
+     * @param ownerId profissional dono dos artefatos da explicação
+     */
+    private CompleteAnalysisResponse runCompleteAnalysis(
+            CompleteAnalysisRequest request, DecodedImage image, AnalysisProgress progress,
+            String ownerId) throws IOException {
+        
+        // 1. Análise de imagem
+        CompletableFuture<WoundAnalysisResult> imageAnalysisFuture = CompletableFuture
+            .supplyAsync(() -> woundMLService.analyzeWound(image), fanOutExecutor)
+            .whenComplete((result, error) -> {
+                if (error == null) {
+                    progress.reached(AnalysisStage.CLASSIFIED);
+                }
+            });
+        
+        // 2. Análise multimodal (se dados clínicos fornecidos)
+        CompletableFuture<MultimodalAnalysisResult> multimodalFuture = request.getClinicalData() == null
+            ? imageAnalysisFuture.thenApply(result -> null)
+            : imageAnalysisFuture.thenApplyAsync(result -> multimodalService.analyzeWithClinicalContext(
+                result,
+                request.getClinicalData()
+            ), fanOutExecutor);
+        
+        // 3. Gerar explicação, em paralelo com a análise multimodal
+        CompletableFuture<ExplanationResult> explanationFuture = imageAnalysisFuture
+            .thenApplyAsync(result -> {
+                try {
+                    return explainableAIService.generateExplanation(
+                        result, image, result.getClassActivationMap(), ownerId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, fanOutExecutor)
+            .whenComplete((result, error) -> {
+                if (error == null) {
+                    progress.reached(AnalysisStage.EXPLAINED);
+                }
+            });
+        
+        ImageValidationResult validation = validateImageQuality(image);
+        
+        WoundAnalysisResult imageAnalysis = await(imageAnalysisFuture);
+        MultimodalAnalysisResult multimodalResult = await(multimodalFuture);
+        ExplanationResult explanation = await(explanationFuture);
+        
+        // 4. Montar resposta completa
+        CompleteAnalysisResponse response = new CompleteAnalysisResponse();
+        response.setImageAnalysis(imageAnalysis);
+        response.setValidation(validation);
+        response.setMultimodalAnalysis(multimodalResult);
+        response.setExplanation(explanation);
+        response.setLegalDisclaimer(explanation.getLegalDisclaimer());
+        return response;
+    }
+    
     @PostMapping("/validate-image")
     @Operation(summary = "Validar imagem", 
                description = "Verifica se a imagem é adequada para análise de ML")
@@ -300,6 +434,24 @@ public class WoundMLController {
     
     // ==================== Métodos Auxiliares ====================
     
+    /**
+     * Aguarda uma etapa do grafo, repropagando a causa original da falha
+     */
+    private static <T> T await(CompletableFuture<T> stage) throws IOException {
+        try {
+            return stage.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+    
     private byte[] decodeBase64Image(String base64Image) {
         String imageData = base64Image;
         if (base64Image.contains(",")) {
@@ -308,25 +460,17 @@ public class WoundMLController {
         return Base64.getDecoder().decode(imageData);
     }
     
-    private ImageValidationResult validateImageQuality(String base64Image) throws IOException {
+    private ImageValidationResult validateImageQuality(String base64Image) {
         byte[] imageBytes = decodeBase64Image(base64Image);
         
         ImageValidationResult result = new ImageValidationResult();
         result.setValid(true);
-        
-        if (imageBytes.length < 10000) {
-            result.setValid(false);
-            result.addWarning("Imagem muito pequena - pode afetar qualidade da análise");
-        }
-        
-        if (imageBytes.length > 10 * 1024 * 1024) {
-            result.setValid(false);
-            result.addWarning("Imagem muito grande - considere reduzir o tamanho");
-        }
+        checkFileSize(imageBytes.length, result);
         
         try {
-            javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(imageBytes));
+            DecodedImage image = imagePreprocessor.decode(imageBytes);
             result.setFormatValid(true);
+            checkDimensions(image, result);
         } catch (Exception e) {
             result.setValid(false);
             result.setFormatValid(false);
@@ -337,6 +481,41 @@ public class WoundMLController {
         
         return result;
     }
+    
+    /**
+     * Validação sobre uma imagem já decodificada, sem nova leitura dos bytes
+     */
+    private ImageValidationResult validateImageQuality(DecodedImage image) {
+        ImageValidationResult result = new ImageValidationResult();
+        result.setValid(true);
+        result.setFormatValid(true);
+        checkFileSize(image.getEncodedSize(), result);
+        checkDimensions(image, result);
+        result.setFileSizeKB(image.getEncodedSize() / 1024);
+        return result;
+    }
+    
+    private void checkFileSize(int sizeBytes, ImageValidationResult result) {
+        if (sizeBytes < 10000) {
+            result.setValid(false);
+            result.addWarning("Imagem muito pequena - pode afetar qualidade da análise");
+        }
+        
+        if (sizeBytes > 10 * 1024 * 1024) {
+            result.setValid(false);
+            result.addWarning("Imagem muito grande - considere reduzir o tamanho");
+        }
+    }
+    
+    private void checkDimensions(DecodedImage image, ImageValidationResult result) {
+        result.setWidth(image.getOriginalWidth());
+        result.setHeight(image.getOriginalHeight());
+        
+        if (image.getOriginalWidth() < WoundClassifierNetwork.getImageWidth() 
+                || image.getOriginalHeight() < WoundClassifierNetwork.getImageHeight()) {
+            result.addWarning("Resolução abaixo da entrada da rede (224x224) - a imagem será ampliada");
+        }
+    }
 
     public static class Base64ImageRequest {
         private String image;
@@ -378,12 +557,19 @@ public class WoundMLController {
     public static class ExplainAnalysisRequest {
         private String imageBase64;
         private WoundAnalysisResult analysisResult;
+        // "gradcam" (padrão) ou "occlusion"
+        private String method;
         
         public String getImageBase64() { return imageBase64; }
         public void setImageBase64(String imageBase64) { this.imageBase64 = imageBase64; }
         
         public WoundAnalysisResult getAnalysisResult() { return analysisResult; }
         public void setAnalysisResult(WoundAnalysisResult analysisResult) { this.analysisResult = analysisResult; }
+        
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+        
+        public boolean isOcclusion() { return "occlusion".equalsIgnoreCase(method); }
     }
     
     public static class CompleteAnalysisRequest {
@@ -403,6 +589,7 @@ public class WoundMLController {
     
     public static class CompleteAnalysisResponse {
         private WoundAnalysisResult imageAnalysis;
+        private ImageValidationResult validation;
         private MultimodalAnalysisResult multimodalAnalysis;
         private ExplanationResult explanation;
         private String legalDisclaimer;
@@ -410,6 +597,9 @@ public class WoundMLController {
         public WoundAnalysisResult getImageAnalysis() { return imageAnalysis; }
         public void setImageAnalysis(WoundAnalysisResult imageAnalysis) { this.imageAnalysis = imageAnalysis; }
         
+        public ImageValidationResult getValidation() { return validation; }
+        public void setValidation(ImageValidationResult validation) { this.validation = validation; }
+        
         public MultimodalAnalysisResult getMultimodalAnalysis() { return multimodalAnalysis; }
         public void setMultimodalAnalysis(MultimodalAnalysisResult multimodalAnalysis) { 
             this.multimodalAnalysis = multimodalAnalysis; 
@@ -426,6 +616,8 @@ public class WoundMLController {
         private boolean valid;
         private boolean formatValid;
         private int fileSizeKB;
+        private int width;
+        private int height;
         private List<String> warnings = new ArrayList<>();
         
         public void addWarning(String warning) { this.warnings.add(warning); }
@@ -439,6 +631,12 @@ public class WoundMLController {
         public int getFileSizeKB() { return fileSizeKB; }
         public void setFileSizeKB(int fileSizeKB) { this.fileSizeKB = fileSizeKB; }
         
+        public int getWidth() { return width; }
+        public void setWidth(int width) { this.width = width; }
+        
+        public int getHeight() { return height; }
+        public void setHeight(int height) { this.height = height; }
+        
         public List<String> getWarnings() { return warnings; }
         public void setWarnings(List<String> warnings) { this.warnings = warnings; }
     }
@@ -4,22 +4,40 @@ import com.healplus.entities.WoundAnalysis;
 import com.healplus.dto.AIDtos;
 import com.healplus.dto.WoundDtos;
 import com.healplus.entities.User;
+import com.healplus.entities.Patient;
 import com.healplus.exception.UnauthorizedException;
+import com.healplus.ml.CohortTemporalAnalysisService;
+import com.healplus.ml.CohortTemporalAnalysisService.CohortReport;
+import com.healplus.ml.WoundAlertService;
+import com.healplus.ml.WoundAnalysisResult;
+import com.healplus.ml.WoundEvolutionService;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalEvolutionResult;
+import com.healplus.ml.jobs.AnalysisJobService;
+import com.healplus.ml.jobs.AnalysisProgress;
+import com.healplus.ml.jobs.AnalysisStage;
 import com.healplus.repositories.WoundAnalysisRepository;
 import com.healplus.security.InputSanitizer;
 import com.healplus.services.AIService;
+import com.healplus.services.PatientService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/wounds")
@@ -31,11 +49,47 @@ public class WoundsController {
   private final AIService aiService;
   private final ObjectMapper objectMapper;
   private final InputSanitizer inputSanitizer;
+  private final AnalysisJobService analysisJobService;
+  private final WoundEvolutionService evolutionService;
+  private final PatientService patientService;
+  private final CohortTemporalAnalysisService cohortService;
+  private final WoundAlertService alertService;
 
   @PostMapping("/analyze")
   public ResponseEntity<WoundAnalysis> analyze(@Valid @RequestBody WoundDtos.WoundAnalysisCreate data) {
     User u = getCurrentUser();
-    
+    WoundAnalysis wa = analyzeAndSave(data, u, AnalysisProgress.NONE, false);
+    return ResponseEntity.ok(wa);
+  }
+
+  /**
+   * Versão assíncrona de {@link #analyze}: responde 202 com o job e executa
+   * análise e persistência no executor de jobs; acompanhe via /api/v1/ml/jobs/{jobId}
+   */
+  @PostMapping("/analyze/async")
+  public ResponseEntity<AnalysisJobService.AnalysisJobStatus> analyzeAsync(
+      @Valid @RequestBody WoundDtos.WoundAnalysisCreate data) {
+    User u = getCurrentUser();
+    // Sanitiza antes de enfileirar para que entradas inválidas falhem na própria requisição
+    inputSanitizer.sanitizeId(data.getPatientId());
+
+    try {
+      AnalysisJobService.AnalysisJobStatus job = analysisJobService.submit(
+          "wound-analysis", u.getId(), progress -> analyzeAndSave(data, u, progress, true));
+      return ResponseEntity.accepted()
+          .location(URI.create(job.getStatusUrl()))
+          .body(job);
+    } catch (RejectedExecutionException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+  }
+
+  /**
+   * @param failOnModelError propaga a falha do modelo em vez de gravar a análise de fallback
+   *                         (jobs assíncronos terminam como FAILED)
+   */
+  private WoundAnalysis analyzeAndSave(WoundDtos.WoundAnalysisCreate data, User u, AnalysisProgress progress,
+                                       boolean failOnModelError) {
     // Validar e sanitizar patientId
     String patientId = inputSanitizer.sanitizeId(data.getPatientId());
     
@@ -54,11 +108,17 @@ public class WoundsController {
     
     String imageId = wa.getId();
     String captureDateTime = Instant.now().toString();
-    Map<String, Object> aiAnalysisResult = aiService.analyzeWoundImage(
-        data.getImageBase64(),
-        imageId,
-        captureDateTime
-    );
+    WoundAnalysisResult mlResult;
+    if (failOnModelError) {
+      try {
+        mlResult = aiService.analyzeWoundOrThrow(data.getImageBase64(), progress);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      mlResult = aiService.analyzeWound(data.getImageBase64(), progress);
+    }
+    Map<String, Object> aiAnalysisResult = aiService.toAnalysisMap(mlResult, imageId, captureDateTime);
     
     try {
       wa.setAiAnalysisJson(objectMapper.writeValueAsString(aiAnalysisResult));
@@ -69,9 +129,23 @@ public class WoundsController {
     
     wa.setCreatedAt(Instant.now());
     repo.save(wa);
+    if (mlResult != null) {
+      // Estado de evolução da ferida atualizado incrementalmente a cada análise;
+      // alertas de piora referenciam a análise gravada, posicionada no instante da gravação
+      // como na reconstrução a partir do histórico
+      mlResult.setId(wa.getId());
+      mlResult.setAnalyzedAt(wa.getCreatedAt());
+      try {
+        evolutionService.record(patientId, u.getId(), mlResult);
+      } catch (RuntimeException e) {
+        // A análise já está gravada; o estado é reconstruído do histórico na próxima leitura
+        log.error("Failed to update wound evolution for patient {} with analysis {}", patientId, wa.getId(), e);
+      }
+    }
+    progress.reached(AnalysisStage.PERSISTED);
     
     log.info("Wound analysis created: {} by professional: {}", wa.getId(), u.getId());
-    return ResponseEntity.ok(wa);
+    return wa;
   }
 
   @GetMapping("/patient/{patientId}")
@@ -92,6 +166,56 @@ public class WoundsController {
     return ResponseEntity.ok(analyses);
   }
   
+  /**
+   * Evolução temporal a partir do estado incremental do paciente, sem reler o histórico
+   */
+  @GetMapping("/patient/{patientId}/evolution")
+  public ResponseEntity<TemporalEvolutionResult> getEvolution(@PathVariable String patientId) {
+    String sanitizedPatientId = requireOwnPatient(patientId);
+    return ResponseEntity.ok(evolutionService.getEvolution(sanitizedPatientId));
+  }
+  
+  /**
+   * Análise temporal sobre o histórico gravado do paciente; substitui o envio de todas as
+   * análises pelo cliente em /api/v1/ml/wounds/analyze/temporal
+   */
+  @GetMapping("/patient/{patientId}/temporal")
+  public ResponseEntity<TemporalEvolutionResult> analyzeTemporal(@PathVariable String patientId) {
+    String sanitizedPatientId = requireOwnPatient(patientId);
+    return ResponseEntity.ok(evolutionService.analyzeHistory(sanitizedPatientId));
+  }
+  
+  /**
+   * Feridas em piora entre os pacientes do profissional, da pior para a melhor
+   */
+  @GetMapping("/deteriorating")
+  public ResponseEntity<CohortReport> listDeteriorating(@RequestParam(defaultValue = "50") int limit) {
+    User u = getCurrentUser();
+    return ResponseEntity.ok(cohortService.findDeteriorating(u.getId(), Math.max(1, Math.min(limit, 1000))));
+  }
+  
+  /**
+   * Stream SSE (evento "alert") dos alertas de piora detectados nas novas análises
+   * dos pacientes do profissional
+   */
+  @GetMapping(value = "/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamAlerts() {
+    User u = getCurrentUser();
+    return alertService.subscribe(u.getId());
+  }
+  
+  private String requireOwnPatient(String patientId) {
+    User u = getCurrentUser();
+    
+    String sanitizedPatientId = inputSanitizer.sanitizeId(patientId);
+    Patient patient = patientService.findById(sanitizedPatientId);
+    if (!u.getId().equals(patient.getProfessionalId())) {
+      log.warn("Unauthorized access attempt to patient {} by {}", patientId, u.getId());
+      throw new UnauthorizedException("Você não tem permissão para acessar este paciente");
+    }
+    return sanitizedPatientId;
+  }
+  
   @GetMapping("/{woundId}")
   public ResponseEntity<WoundAnalysis> getById(@PathVariable String woundId) {
     User u = getCurrentUser();
@@ -0,0 +1,59 @@
+package com.healplus.entities;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Artefatos de uma explicação XAI, por id da análise. O mapa de ativação (ActivationMapCodec,
+ * 8 bits + Deflate) e a imagem de entrada (RGB 8 bits) são gravados na explicação; os PNGs de
+ * heatmap e sobreposição só são renderizados e gravados na primeira requisição.
+ * O dono é o profissional que gerou a explicação; só ele acessa os artefatos.
+ */
+@Entity
+@Table(name = "explanation_artifacts")
+public class ExplanationArtifact {
+  @Id
+  private String analysisId;
+  private String ownerId;
+  private String method;
+  private String targetClass;
+  private int width;
+  private int height;
+  
+  @Lob
+  private byte[] activationMap;
+  
+  @Lob
+  private byte[] baseImageRgb;
+  
+  @Lob
+  private byte[] heatmapPng;
+  
+  @Lob
+  private byte[] overlayPng;
+  
+  private Instant createdAt;
+  
+  public String getAnalysisId() { return analysisId; }
+  public void setAnalysisId(String analysisId) { this.analysisId = analysisId; }
+  public String getOwnerId() { return ownerId; }
+  public void setOwnerId(String ownerId) { this.ownerId = ownerId; }
+  public String getMethod() { return method; }
+  public void setMethod(String method) { this.method = method; }
+  public String getTargetClass() { return targetClass; }
+  public void setTargetClass(String targetClass) { this.targetClass = targetClass; }
+  public int getWidth() { return width; }
+  public void setWidth(int width) { this.width = width; }
+  public int getHeight() { return height; }
+  public void setHeight(int height) { this.height = height; }
+  public byte[] getActivationMap() { return activationMap; }
+  public void setActivationMap(byte[] activationMap) { this.activationMap = activationMap; }
+  public byte[] getBaseImageRgb() { return baseImageRgb; }
+  public void setBaseImageRgb(byte[] baseImageRgb) { this.baseImageRgb = baseImageRgb; }
+  public byte[] getHeatmapPng() { return heatmapPng; }
+  public void setHeatmapPng(byte[] heatmapPng) { this.heatmapPng = heatmapPng; }
+  public byte[] getOverlayPng() { return overlayPng; }
+  public void setOverlayPng(byte[] overlayPng) { this.overlayPng = overlayPng; }
+  public Instant getCreatedAt() { return createdAt; }
+  public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
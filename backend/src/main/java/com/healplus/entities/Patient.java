@@ -2,12 +2,15 @@ package com.healplus.entities;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = {
+  @Index(name = "idx_patients_professional", columnList = "professional_id")
+})
 public class Patient {
   @Id
   private String id;
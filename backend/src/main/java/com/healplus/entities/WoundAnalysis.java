@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "wound_analyses")
+@Table(name = "wound_analyses", indexes = {
+  @Index(name = "idx_wound_analyses_patient_created", columnList = "patient_id, created_at")
+})
 public class WoundAnalysis {
   @Id
   private String id;
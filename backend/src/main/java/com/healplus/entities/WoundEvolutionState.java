@@ -0,0 +1,135 @@
+package com.healplus.entities;
+
+import com.healplus.ml.HealingPhase;
+import com.healplus.ml.TissueType;
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado incremental da evolução de uma ferida (série de análises do paciente),
+ * atualizado a cada nova análise: média/variância da área (Welford), somas da regressão
+ * de mínimos quadrados área x dias, janela das últimas áreas e transições de fase.
+ */
+@Entity
+@Table(name = "wound_evolution_states")
+public class WoundEvolutionState {
+  @Id
+  private String patientId;
+
+  private int analysisCount;
+  private Instant firstAnalyzedAt;
+  private Instant previousAnalyzedAt;
+  private Instant lastAnalyzedAt;
+
+  private double initialArea;
+  private double currentArea;
+  private double areaMean;
+  private double areaM2;
+
+  // Regressão área x dias desde a primeira análise
+  private double sumDays;
+  private double sumDaysSquared;
+  private double sumArea;
+  private double sumDaysArea;
+
+  private double woundTypeConfidenceSum;
+  private boolean strictlyDecreasing = true;
+
+  @Enumerated(EnumType.STRING)
+  private HealingPhase firstPhase;
+
+  @Enumerated(EnumType.STRING)
+  private HealingPhase lastPhase;
+
+  private int phaseTransitions;
+  private Instant lastPhaseChangeAt;
+
+  // Detector de piora (necrose e esfacelo): médias móveis exponenciais (EWMA) e somas CUSUM unilaterais;
+  // nulas em estados anteriores ao detector, cuja linha de base é semeada na próxima análise
+  private Double necroticEwma;
+  private Double necroticCusum;
+  private Double sloughEwma;
+  private Double sloughCusum;
+
+  @ElementCollection(fetch = FetchType.EAGER)
+  @CollectionTable(name = "wound_evolution_initial_tissues", joinColumns = @JoinColumn(name = "patient_id"))
+  @MapKeyEnumerated(EnumType.STRING)
+  @MapKeyColumn(name = "tissue_type")
+  @Column(name = "percentage")
+  private Map<TissueType, Double> initialTissues = new EnumMap<>(TissueType.class);
+
+  @ElementCollection(fetch = FetchType.EAGER)
+  @CollectionTable(name = "wound_evolution_current_tissues", joinColumns = @JoinColumn(name = "patient_id"))
+  @MapKeyEnumerated(EnumType.STRING)
+  @MapKeyColumn(name = "tissue_type")
+  @Column(name = "percentage")
+  private Map<TissueType, Double> currentTissues = new EnumMap<>(TissueType.class);
+
+  // Últimas áreas, da mais antiga para a mais recente
+  @ElementCollection(fetch = FetchType.EAGER)
+  @CollectionTable(name = "wound_evolution_recent_areas", joinColumns = @JoinColumn(name = "patient_id"))
+  @OrderColumn(name = "position")
+  @Column(name = "area")
+  private List<Double> recentAreas = new ArrayList<>();
+
+  private Instant updatedAt;
+
+  public String getPatientId() { return patientId; }
+  public void setPatientId(String patientId) { this.patientId = patientId; }
+  public int getAnalysisCount() { return analysisCount; }
+  public void setAnalysisCount(int analysisCount) { this.analysisCount = analysisCount; }
+  public Instant getFirstAnalyzedAt() { return firstAnalyzedAt; }
+  public void setFirstAnalyzedAt(Instant firstAnalyzedAt) { this.firstAnalyzedAt = firstAnalyzedAt; }
+  public Instant getPreviousAnalyzedAt() { return previousAnalyzedAt; }
+  public void setPreviousAnalyzedAt(Instant previousAnalyzedAt) { this.previousAnalyzedAt = previousAnalyzedAt; }
+  public Instant getLastAnalyzedAt() { return lastAnalyzedAt; }
+  public void setLastAnalyzedAt(Instant lastAnalyzedAt) { this.lastAnalyzedAt = lastAnalyzedAt; }
+  public double getInitialArea() { return initialArea; }
+  public void setInitialArea(double initialArea) { this.initialArea = initialArea; }
+  public double getCurrentArea() { return currentArea; }
+  public void setCurrentArea(double currentArea) { this.currentArea = currentArea; }
+  public double getAreaMean() { return areaMean; }
+  public void setAreaMean(double areaMean) { this.areaMean = areaMean; }
+  public double getAreaM2() { return areaM2; }
+  public void setAreaM2(double areaM2) { this.areaM2 = areaM2; }
+  public double getSumDays() { return sumDays; }
+  public void setSumDays(double sumDays) { this.sumDays = sumDays; }
+  public double getSumDaysSquared() { return sumDaysSquared; }
+  public void setSumDaysSquared(double sumDaysSquared) { this.sumDaysSquared = sumDaysSquared; }
+  public double getSumArea() { return sumArea; }
+  public void setSumArea(double sumArea) { this.sumArea = sumArea; }
+  public double getSumDaysArea() { return sumDaysArea; }
+  public void setSumDaysArea(double sumDaysArea) { this.sumDaysArea = sumDaysArea; }
+  public double getWoundTypeConfidenceSum() { return woundTypeConfidenceSum; }
+  public void setWoundTypeConfidenceSum(double woundTypeConfidenceSum) { this.woundTypeConfidenceSum = woundTypeConfidenceSum; }
+  public boolean isStrictlyDecreasing() { return strictlyDecreasing; }
+  public void setStrictlyDecreasing(boolean strictlyDecreasing) { this.strictlyDecreasing = strictlyDecreasing; }
+  public HealingPhase getFirstPhase() { return firstPhase; }
+  public void setFirstPhase(HealingPhase firstPhase) { this.firstPhase = firstPhase; }
+  public HealingPhase getLastPhase() { return lastPhase; }
+  public void setLastPhase(HealingPhase lastPhase) { this.lastPhase = lastPhase; }
+  public int getPhaseTransitions() { return phaseTransitions; }
+  public void setPhaseTransitions(int phaseTransitions) { this.phaseTransitions = phaseTransitions; }
+  public Instant getLastPhaseChangeAt() { return lastPhaseChangeAt; }
+  public void setLastPhaseChangeAt(Instant lastPhaseChangeAt) { this.lastPhaseChangeAt = lastPhaseChangeAt; }
+  public Double getNecroticEwma() { return necroticEwma; }
+  public void setNecroticEwma(Double necroticEwma) { this.necroticEwma = necroticEwma; }
+  public Double getNecroticCusum() { return necroticCusum; }
+  public void setNecroticCusum(Double necroticCusum) { this.necroticCusum = necroticCusum; }
+  public Double getSloughEwma() { return sloughEwma; }
+  public void setSloughEwma(Double sloughEwma) { this.sloughEwma = sloughEwma; }
+  public Double getSloughCusum() { return sloughCusum; }
+  public void setSloughCusum(Double sloughCusum) { this.sloughCusum = sloughCusum; }
+  public Map<TissueType, Double> getInitialTissues() { return initialTissues; }
+  public void setInitialTissues(Map<TissueType, Double> initialTissues) { this.initialTissues = initialTissues; }
+  public Map<TissueType, Double> getCurrentTissues() { return currentTissues; }
+  public void setCurrentTissues(Map<TissueType, Double> currentTissues) { this.currentTissues = currentTissues; }
+  public List<Double> getRecentAreas() { return recentAreas; }
+  public void setRecentAreas(List<Double> recentAreas) { this.recentAreas = recentAreas; }
+  public Instant getUpdatedAt() { return updatedAt; }
+  public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
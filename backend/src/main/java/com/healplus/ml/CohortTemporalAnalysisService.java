@@ -0,0 +1,293 @@
+package com.healplus.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.entities.WoundEvolutionState;
+import com.healplus.ml.WoundTemporalAnalysisService.OverallProgression;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalAlert;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalEvolutionResult;
+import com.healplus.repositories.WoundAnalysisRepository;
+import com.healplus.repositories.WoundAnalysisRepository.CohortAnalysisSummary;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * Análise temporal de toda a coorte (pacientes de um profissional ou de toda a base)
+ * As análises são lidas em uma única varredura ordenada por paciente e data; cada
+ * série de paciente completa vira uma tarefa no ForkJoinPool, que reconstrói a
+ * evolução e calcula o escore de piora enquanto a leitura segue. No máximo duas
+ * tarefas por thread ficam pendentes e só as {@code limit} feridas de maior escore
+ * são mantidas, de modo que a memória não cresce com o tamanho da coorte.
+ */
+@Service
+public class CohortTemporalAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CohortTemporalAnalysisService.class);
+
+    // Variações de tecido até este valor (pontos percentuais) são tratadas como estáveis
+    private static final double TISSUE_CHANGE_THRESHOLD = 5.0;
+
+    private final WoundAnalysisRepository analysisRepository;
+    private final WoundTemporalAnalysisService temporalService;
+    private final StoredAnalysisParser parser;
+    private final ForkJoinPool pool;
+
+    public CohortTemporalAnalysisService(
+            WoundAnalysisRepository analysisRepository,
+            WoundTemporalAnalysisService temporalService,
+            ObjectMapper objectMapper,
+            @Value("${ml.cohort.parallelism:0}") int parallelism) {
+        this.analysisRepository = analysisRepository;
+        this.temporalService = temporalService;
+        this.parser = new StoredAnalysisParser(objectMapper);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Feridas em piora entre os pacientes cadastrados pelo profissional, incluindo
+     * análises feitas por outros profissionais nesses pacientes
+     */
+    @Transactional(readOnly = true)
+    public CohortReport findDeteriorating(String professionalId, int limit) {
+        try (Stream<CohortAnalysisSummary> rows =
+                 analysisRepository.streamCohortByPatientProfessionalId(professionalId)) {
+            return rank(rows, limit);
+        }
+    }
+
+    /**
+     * Feridas em piora em toda a base
+     */
+    @Transactional(readOnly = true)
+    public CohortReport findDeterioratingAll(int limit) {
+        try (Stream<CohortAnalysisSummary> rows = analysisRepository.streamAllByOrderByPatientIdAscCreatedAtAsc()) {
+            return rank(rows, limit);
+        }
+    }
+
+    private CohortReport rank(Stream<CohortAnalysisSummary> rows, int limit) {
+        long start = System.nanoTime();
+        TopDeteriorating top = new TopDeteriorating(limit);
+        Deque<ForkJoinTask<DeterioratingWound>> pending = new ArrayDeque<>();
+
+        // Agrupa as linhas contíguas de cada paciente e despacha a série assim que ela termina
+        String currentPatient = null;
+        List<CohortAnalysisSummary> series = new ArrayList<>();
+        Iterator<CohortAnalysisSummary> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            CohortAnalysisSummary row = iterator.next();
+            if (!row.getPatientId().equals(currentPatient)) {
+                dispatch(pending, top, currentPatient, series);
+                currentPatient = row.getPatientId();
+                series = new ArrayList<>();
+            }
+            series.add(row);
+        }
+        dispatch(pending, top, currentPatient, series);
+        while (!pending.isEmpty()) {
+            top.offer(pending.poll().join());
+        }
+
+        CohortReport report = new CohortReport();
+        report.setPatientsAnalyzed(top.patientsAnalyzed);
+        report.setDeterioratingCount(top.deterioratingCount);
+        report.setDeteriorating(top.ranked());
+        report.setGeneratedAt(Instant.now());
+        report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+
+        logger.info("Análise de coorte: {} pacientes, {} em piora, {} ms",
+            report.getPatientsAnalyzed(), report.getDeterioratingCount(), report.getElapsedMs());
+        return report;
+    }
+
+    /**
+     * Submete a série ao pool; com o limite de tarefas pendentes atingido, aguarda a mais
+     * antiga e a incorpora ao ranking antes
+     */
+    private void dispatch(Deque<ForkJoinTask<DeterioratingWound>> pending, TopDeteriorating top,
+                          String patientId, List<CohortAnalysisSummary> series) {
+        if (patientId == null || series.isEmpty()) {
+            return;
+        }
+        if (pending.size() >= 2 * pool.getParallelism()) {
+            top.offer(pending.poll().join());
+        }
+        pending.add(pool.submit(() -> evaluate(patientId, series)));
+    }
+
+    /**
+     * Reconstrói a evolução de um paciente; null se não houver piora
+     */
+    private DeterioratingWound evaluate(String patientId, List<CohortAnalysisSummary> series) {
+        WoundEvolutionState state = new WoundEvolutionState();
+        state.setPatientId(patientId);
+        for (CohortAnalysisSummary row : series) {
+            WoundAnalysisResult analysis = parser.parse(row);
+            if (analysis != null) {
+                WoundEvolutionAccumulator.apply(state, analysis);
+            }
+        }
+        if (state.getAnalysisCount() < 2) {
+            return null;
+        }
+
+        TemporalEvolutionResult evolution = temporalService.analyzeTemporalEvolution(state);
+        Map<TissueType, Double> tissueChanges = evolution.getTissueEvolution().getTissueChanges();
+        double necroticChange = tissueChanges.getOrDefault(TissueType.NECROTIC, 0.0);
+        double sloughChange = tissueChanges.getOrDefault(TissueType.SLOUGH, 0.0);
+        double score = deteriorationScore(necroticChange, sloughChange, state.getLastPhase());
+        if (score <= 0) {
+            return null;
+        }
+
+        DeterioratingWound wound = new DeterioratingWound();
+        wound.setPatientId(patientId);
+        wound.setScore(score);
+        wound.setAnalysisCount(evolution.getAnalysisCount());
+        wound.setLastAnalysisDate(evolution.getLastAnalysisDate());
+        wound.setNecroticChange(necroticChange);
+        wound.setSloughChange(sloughChange);
+        wound.setOverallProgression(evolution.getOverallProgression());
+        wound.setAlerts(evolution.getAlerts());
+        return wound;
+    }
+
+    /**
+     * Escore de piora com os sinais vindos do modelo: aumento de necrose e de esfacelo
+     * (pontos percentuais) e infecção na última avaliação; 0 sem sinais de piora.
+     * A área fica de fora enquanto {@code WoundMLService} não a mede na imagem.
+     */
+    static double deteriorationScore(double necroticChange, double sloughChange, HealingPhase lastPhase) {
+        double score = 0;
+        if (necroticChange > TISSUE_CHANGE_THRESHOLD) {
+            score += 2 * necroticChange;
+        }
+        if (sloughChange > TISSUE_CHANGE_THRESHOLD) {
+            score += sloughChange;
+        }
+        if (lastPhase == HealingPhase.INFECTED) {
+            score += 40;
+        }
+        return score;
+    }
+
+    /**
+     * Ranking limitado às {@code limit} feridas de maior escore (min-heap pelo escore)
+     */
+    private static class TopDeteriorating {
+        private final int limit;
+        private final PriorityQueue<DeterioratingWound> heap =
+            new PriorityQueue<>(Comparator.comparingDouble(DeterioratingWound::getScore));
+        private int patientsAnalyzed;
+        private int deterioratingCount;
+
+        TopDeteriorating(int limit) {
+            this.limit = limit;
+        }
+
+        /** Resultado de um paciente avaliado; null quando não há piora */
+        void offer(DeterioratingWound wound) {
+            patientsAnalyzed++;
+            if (wound == null) {
+                return;
+            }
+            deterioratingCount++;
+            if (heap.size() < limit) {
+                heap.add(wound);
+            } else if (wound.getScore() > heap.peek().getScore()) {
+                heap.poll();
+                heap.add(wound);
+            }
+        }
+
+        List<DeterioratingWound> ranked() {
+            List<DeterioratingWound> ranked = new ArrayList<>(heap);
+            ranked.sort(Comparator.comparingDouble(DeterioratingWound::getScore).reversed());
+            return ranked;
+        }
+    }
+
+    // ==================== DTOs ====================
+
+    public static class CohortReport {
+        private int patientsAnalyzed;
+        private int deterioratingCount;
+        private List<DeterioratingWound> deteriorating;
+        private Instant generatedAt;
+        private long elapsedMs;
+
+        public int getPatientsAnalyzed() { return patientsAnalyzed; }
+        public void setPatientsAnalyzed(int patientsAnalyzed) { this.patientsAnalyzed = patientsAnalyzed; }
+
+        public int getDeterioratingCount() { return deterioratingCount; }
+        public void setDeterioratingCount(int deterioratingCount) { this.deterioratingCount = deterioratingCount; }
+
+        /** Feridas em piora, da maior para a menor pontuação */
+        public List<DeterioratingWound> getDeteriorating() { return deteriorating; }
+        public void setDeteriorating(List<DeterioratingWound> deteriorating) { this.deteriorating = deteriorating; }
+
+        public Instant getGeneratedAt() { return generatedAt; }
+        public void setGeneratedAt(Instant generatedAt) { this.generatedAt = generatedAt; }
+
+        public long getElapsedMs() { return elapsedMs; }
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+    }
+
+    public static class DeterioratingWound {
+        private String patientId;
+        private double score;
+        private int analysisCount;
+        private Instant lastAnalysisDate;
+        private double necroticChange;
+        private double sloughChange;
+        private OverallProgression overallProgression;
+        private List<TemporalAlert> alerts;
+
+        public String getPatientId() { return patientId; }
+        public void setPatientId(String patientId) { this.patientId = patientId; }
+
+        public double getScore() { return score; }
+        public void setScore(double score) { this.score = score; }
+
+        public int getAnalysisCount() { return analysisCount; }
+        public void setAnalysisCount(int analysisCount) { this.analysisCount = analysisCount; }
+
+        public Instant getLastAnalysisDate() { return lastAnalysisDate; }
+        public void setLastAnalysisDate(Instant lastAnalysisDate) { this.lastAnalysisDate = lastAnalysisDate; }
+
+        /** Variação de tecido necrótico entre a primeira e a última análise (pontos percentuais) */
+        public double getNecroticChange() { return necroticChange; }
+        public void setNecroticChange(double necroticChange) { this.necroticChange = necroticChange; }
+
+        /** Variação de esfacelo entre a primeira e a última análise (pontos percentuais) */
+        public double getSloughChange() { return sloughChange; }
+        public void setSloughChange(double sloughChange) { this.sloughChange = sloughChange; }
+
+        public OverallProgression getOverallProgression() { return overallProgression; }
+        public void setOverallProgression(OverallProgression overallProgression) { this.overallProgression = overallProgression; }
+
+        public List<TemporalAlert> getAlerts() { return alerts; }
+        public void setAlerts(List<TemporalAlert> alerts) { this.alerts = alerts; }
+    }
+}
@@ -0,0 +1,85 @@
+package com.healplus.ml;
+
+import com.healplus.entities.WoundEvolutionState;
+import com.healplus.ml.WoundTemporalAnalysisService.AlertSeverity;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalAlert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detector de piora por cartas de controle, aplicado a cada nova análise
+ * Para necrose e esfacelo (pontos percentuais, vindos do modelo) mantém uma EWMA como
+ * linha de base e uma CUSUM unilateral dos desvios acima dela; a CUSUM acima do limite
+ * dispara o alerta e é zerada. O estado tem tamanho fixo por ferida.
+ * A área não entra nas cartas: {@code WoundMLService} ainda não a mede na imagem.
+ * Deve ser chamado antes de {@link WoundEvolutionAccumulator#apply}, que avança a fase.
+ */
+final class DeteriorationDetector {
+
+    /** Peso da nova observação na EWMA */
+    static final double LAMBDA = 0.3;
+
+    // Folga (k) e limite de decisão (h) de cada CUSUM
+    static final double NECROTIC_SLACK = 2.0;
+    static final double NECROTIC_LIMIT = 10.0;
+    static final double SLOUGH_SLACK = 3.0;
+    static final double SLOUGH_LIMIT = 15.0;
+
+    private DeteriorationDetector() {
+    }
+
+    static List<TemporalAlert> observe(WoundEvolutionState state, WoundAnalysisResult analysis) {
+        List<TemporalAlert> alerts = new ArrayList<>();
+        double necrotic = tissue(analysis, TissueType.NECROTIC);
+        double slough = tissue(analysis, TissueType.SLOUGH);
+
+        boolean infected = analysis.getHealingPhase() == HealingPhase.INFECTED;
+        if (infected && (state.getAnalysisCount() == 0 || state.getLastPhase() != HealingPhase.INFECTED)) {
+            alerts.add(new TemporalAlert(
+                AlertSeverity.CRITICAL,
+                "POSSÍVEL INFECÇÃO",
+                "Sinais de infecção detectados na última avaliação"
+            ));
+        }
+
+        if (state.getAnalysisCount() == 0 || state.getNecroticEwma() == null) {
+            // Primeira análise (ou estado anterior ao detector): a observação vira a linha de base
+            state.setNecroticEwma(necrotic);
+            state.setSloughEwma(slough);
+            state.setNecroticCusum(0.0);
+            state.setSloughCusum(0.0);
+            return alerts;
+        }
+
+        state.setNecroticCusum(Math.max(0, state.getNecroticCusum() + necrotic - state.getNecroticEwma() - NECROTIC_SLACK));
+        if (state.getNecroticCusum() > NECROTIC_LIMIT) {
+            alerts.add(new TemporalAlert(
+                AlertSeverity.HIGH,
+                "AUMENTO DE NECROSE",
+                "Percentual de tecido necrótico em alta nas últimas avaliações"
+            ));
+            state.setNecroticCusum(0.0);
+        }
+
+        state.setSloughCusum(Math.max(0, state.getSloughCusum() + slough - state.getSloughEwma() - SLOUGH_SLACK));
+        if (state.getSloughCusum() > SLOUGH_LIMIT) {
+            alerts.add(new TemporalAlert(
+                AlertSeverity.MEDIUM,
+                "AUMENTO DE ESFACELO",
+                "Percentual de esfacelo em alta nas últimas avaliações"
+            ));
+            state.setSloughCusum(0.0);
+        }
+
+        state.setNecroticEwma(LAMBDA * necrotic + (1 - LAMBDA) * state.getNecroticEwma());
+        state.setSloughEwma(LAMBDA * slough + (1 - LAMBDA) * state.getSloughEwma());
+        return alerts;
+    }
+
+    private static double tissue(WoundAnalysisResult analysis, TissueType type) {
+        Map<TissueType, Double> tissues = analysis.getTissuePercentages();
+        return tissues != null ? tissues.getOrDefault(type, 0.0) : 0.0;
+    }
+}
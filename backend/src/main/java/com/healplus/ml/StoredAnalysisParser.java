@@ -0,0 +1,77 @@
+package com.healplus.ml;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.repositories.WoundAnalysisRepository.AnalysisSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reconstrói, a partir do JSON gravado em WoundAnalysis (formato de
+ * {@code AIService.toAnalysisMap}), os campos usados pela análise temporal.
+ * Seguro para uso concorrente.
+ */
+final class StoredAnalysisParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoredAnalysisParser.class);
+
+    private final ObjectMapper objectMapper;
+
+    StoredAnalysisParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return análise com data, área, fase, confiança e tecidos; null para JSON inválido
+     *         ou análises de fallback (sem fase de cicatrização)
+     */
+    WoundAnalysisResult parse(AnalysisSummary summary) {
+        if (summary.getAiAnalysisJson() == null || summary.getCreatedAt() == null) {
+            return null;
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(summary.getAiAnalysisJson());
+        } catch (JsonProcessingException e) {
+            logger.warn("JSON de análise inválido ({}): {}", summary.getId(), e.getMessage());
+            return null;
+        }
+
+        JsonNode classification = root.path("classificacao_etiologica");
+        HealingPhase phase = phaseByDisplayName(classification.path("fase_cicatrizacao").asText(null));
+        if (phase == null) {
+            return null;
+        }
+
+        WoundAnalysisResult analysis = new WoundAnalysisResult();
+        analysis.setId(summary.getId());
+        analysis.setAnalyzedAt(summary.getCreatedAt());
+        analysis.setHealingPhase(phase);
+        analysis.setWoundTypeConfidence(classification.path("confianca_percentual").asDouble(0) / 100.0);
+        analysis.setEstimatedArea(root.path("analise_dimensional").path("area_total_afetada").asDouble(0));
+
+        Map<TissueType, Double> tissues = new EnumMap<>(TissueType.class);
+        root.path("analise_tecidos").fields().forEachRemaining(entry -> {
+            for (TissueType type : TissueType.values()) {
+                if (type.name().equalsIgnoreCase(entry.getKey())) {
+                    tissues.put(type, entry.getValue().asDouble(0));
+                }
+            }
+        });
+        analysis.setTissuePercentages(tissues);
+        return analysis;
+    }
+
+    private static HealingPhase phaseByDisplayName(String displayName) {
+        for (HealingPhase phase : HealingPhase.values()) {
+            if (phase.getDisplayName().equals(displayName)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package com.healplus.ml;
+
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalAlert;
+
+import java.time.Instant;
+
+/**
+ * Alerta de piora emitido pelo detector ao incorporar uma nova análise de ferida
+ */
+public class WoundAlertEvent {
+    private final String patientId;
+    private final String professionalId;
+    private final String analysisId;
+    private final TemporalAlert alert;
+    private final Instant detectedAt;
+
+    public WoundAlertEvent(String patientId, String professionalId, String analysisId,
+                           TemporalAlert alert, Instant detectedAt) {
+        this.patientId = patientId;
+        this.professionalId = professionalId;
+        this.analysisId = analysisId;
+        this.alert = alert;
+        this.detectedAt = detectedAt;
+    }
+
+    public String getPatientId() { return patientId; }
+    public String getProfessionalId() { return professionalId; }
+    public String getAnalysisId() { return analysisId; }
+    public TemporalAlert getAlert() { return alert; }
+    public Instant getDetectedAt() { return detectedAt; }
+}
@@ -0,0 +1,73 @@
+package com.healplus.ml;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Entrega os alertas de piora aos profissionais conectados via SSE
+ * Os alertas só saem após o commit do estado de evolução que os gerou.
+ */
+@Service
+public class WoundAlertService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WoundAlertService.class);
+
+    private final long sseTimeoutMs;
+    private final ConcurrentHashMap<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public WoundAlertService(@Value("${ml.alerts.sse-timeout-ms:1800000}") long sseTimeoutMs) {
+        this.sseTimeoutMs = sseTimeoutMs;
+    }
+
+    /**
+     * Abre um stream SSE com os alertas dos pacientes do profissional
+     */
+    public SseEmitter subscribe(String professionalId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        subscribers.compute(professionalId, (id, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+
+        emitter.onCompletion(() -> unsubscribe(professionalId, emitter));
+        emitter.onTimeout(() -> unsubscribe(professionalId, emitter));
+        emitter.onError(error -> unsubscribe(professionalId, emitter));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlert(WoundAlertEvent event) {
+        logger.info("Alerta {} para o paciente {}: {}",
+            event.getAlert().getSeverity(), event.getPatientId(), event.getAlert().getTitle());
+
+        List<SseEmitter> emitters = subscribers.get(event.getProfessionalId());
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("alert").id(event.getAnalysisId()).data(event));
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado; o emitter é removido pelos callbacks
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void unsubscribe(String professionalId, SseEmitter emitter) {
+        subscribers.computeIfPresent(professionalId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -1,8 +1,14 @@
 package com.healplus.ml;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.healplus.ml.neural.ClassActivationMap;
+
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public class WoundAnalysisResult {
     private String id;
@@ -18,6 +24,9 @@ public class WoundAnalysisResult {
     private List<String> recommendations;
     private RiskAssessment riskAssessment;
     private EvolutionPrediction evolutionPrediction;
+    // Grad-CAM produzido na própria inferência; consumido pelo XAI, não serializado
+    @JsonIgnore
+    private ClassActivationMap classActivationMap;
 
     public WoundAnalysisResult() {
         this.analyzedAt = Instant.now();
@@ -62,6 +71,45 @@ public class WoundAnalysisResult {
     public EvolutionPrediction getEvolutionPrediction() { return evolutionPrediction; }
     public void setEvolutionPrediction(EvolutionPrediction evolutionPrediction) { this.evolutionPrediction = evolutionPrediction; }
 
+    @JsonIgnore
+    public ClassActivationMap getClassActivationMap() { return classActivationMap; }
+    @JsonIgnore
+    public void setClassActivationMap(ClassActivationMap classActivationMap) { this.classActivationMap = classActivationMap; }
+
+    /**
+     * Cópia independente do resultado (coleções e objetos aninhados inclusive),
+     * mantendo id e data da análise original
+     */
+    public WoundAnalysisResult copy() {
+        WoundAnalysisResult copy = new WoundAnalysisResult();
+        copy.id = id;
+        copy.analyzedAt = analyzedAt;
+        copy.woundType = woundType;
+        copy.woundTypeConfidence = woundTypeConfidence;
+        copy.healingPhase = healingPhase;
+        copy.healingPhaseConfidence = healingPhaseConfidence;
+        copy.tissuePercentages = tissuePercentages != null ? new HashMap<>(tissuePercentages) : null;
+        copy.estimatedArea = estimatedArea;
+        copy.estimatedDepth = estimatedDepth;
+        copy.clinicalObservations = clinicalObservations != null ? new ArrayList<>(clinicalObservations) : null;
+        copy.recommendations = recommendations != null ? new ArrayList<>(recommendations) : null;
+        copy.riskAssessment = riskAssessment != null ? riskAssessment.copy() : null;
+        copy.evolutionPrediction = evolutionPrediction != null ? evolutionPrediction.copy() : null;
+        copy.classActivationMap = classActivationMap;
+        return copy;
+    }
+
+    /**
+     * Cópia entregue como uma nova análise (novo id e data), usada quando o resultado
+     * é reaproveitado de outra execução para a mesma imagem
+     */
+    public WoundAnalysisResult copyAsNewAnalysis() {
+        WoundAnalysisResult copy = copy();
+        copy.id = UUID.randomUUID().toString();
+        copy.analyzedAt = Instant.now();
+        return copy;
+    }
+
     public static class RiskAssessment {
         private String level;
         private double infectionRisk;
@@ -83,6 +131,16 @@ public class WoundAnalysisResult {
 
         public List<String> getRiskFactors() { return riskFactors; }
         public void setRiskFactors(List<String> riskFactors) { this.riskFactors = riskFactors; }
+
+        public RiskAssessment copy() {
+            RiskAssessment copy = new RiskAssessment();
+            copy.level = level;
+            copy.infectionRisk = infectionRisk;
+            copy.chronicityRisk = chronicityRisk;
+            copy.complicationRisk = complicationRisk;
+            copy.riskFactors = riskFactors != null ? new ArrayList<>(riskFactors) : null;
+            return copy;
+        }
     }
 
     public static class EvolutionPrediction {
@@ -102,5 +160,14 @@ public class WoundAnalysisResult {
 
         public List<String> getEvolutionIndicators() { return evolutionIndicators; }
         public void setEvolutionIndicators(List<String> evolutionIndicators) { this.evolutionIndicators = evolutionIndicators; }
+
+        public EvolutionPrediction copy() {
+            EvolutionPrediction copy = new EvolutionPrediction();
+            copy.estimatedHealingDays = estimatedHealingDays;
+            copy.healingProbability = healingProbability;
+            copy.expectedNextPhase = expectedNextPhase;
+            copy.evolutionIndicators = evolutionIndicators != null ? new ArrayList<>(evolutionIndicators) : null;
+            return copy;
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.healplus.ml;
+
+import com.healplus.entities.WoundEvolutionState;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Atualização incremental do {@link WoundEvolutionState}
+ * Cada análise é incorporada em O(1): média/variância da área por Welford, somas da
+ * regressão área x dias, janela das últimas {@link #RECENT_WINDOW} áreas e fases.
+ * As análises devem ser aplicadas em ordem cronológica.
+ */
+final class WoundEvolutionAccumulator {
+
+    /** Tamanho da janela de áreas recentes (histórico exposto e detecção de padrões) */
+    static final int RECENT_WINDOW = 10;
+
+    private static final double SECONDS_PER_DAY = 86_400.0;
+
+    private WoundEvolutionAccumulator() {
+    }
+
+    static void apply(WoundEvolutionState state, WoundAnalysisResult analysis) {
+        double area = analysis.getEstimatedArea();
+        Instant analyzedAt = analysis.getAnalyzedAt();
+        int count = state.getAnalysisCount() + 1;
+
+        if (count == 1) {
+            state.setFirstAnalyzedAt(analyzedAt);
+            state.setInitialArea(area);
+            state.setFirstPhase(analysis.getHealingPhase());
+            replaceTissues(state.getInitialTissues(), analysis.getTissuePercentages());
+        } else {
+            if (area >= state.getCurrentArea()) {
+                state.setStrictlyDecreasing(false);
+            }
+            if (analysis.getHealingPhase() != state.getLastPhase()) {
+                state.setPhaseTransitions(state.getPhaseTransitions() + 1);
+                state.setLastPhaseChangeAt(analyzedAt);
+            }
+        }
+
+        // Welford
+        double delta = area - state.getAreaMean();
+        double mean = state.getAreaMean() + delta / count;
+        state.setAreaMean(mean);
+        state.setAreaM2(state.getAreaM2() + delta * (area - mean));
+
+        // Mínimos quadrados com o tempo em dias desde a primeira análise
+        double days = Duration.between(state.getFirstAnalyzedAt(), analyzedAt).getSeconds() / SECONDS_PER_DAY;
+        state.setSumDays(state.getSumDays() + days);
+        state.setSumDaysSquared(state.getSumDaysSquared() + days * days);
+        state.setSumArea(state.getSumArea() + area);
+        state.setSumDaysArea(state.getSumDaysArea() + days * area);
+
+        state.setWoundTypeConfidenceSum(state.getWoundTypeConfidenceSum() + analysis.getWoundTypeConfidence());
+
+        List<Double> recent = state.getRecentAreas();
+        recent.add(area);
+        if (recent.size() > RECENT_WINDOW) {
+            recent.remove(0);
+        }
+
+        state.setAnalysisCount(count);
+        state.setPreviousAnalyzedAt(state.getLastAnalyzedAt());
+        state.setLastAnalyzedAt(analyzedAt);
+        state.setCurrentArea(area);
+        state.setLastPhase(analysis.getHealingPhase());
+        replaceTissues(state.getCurrentTissues(), analysis.getTissuePercentages());
+    }
+
+    /** Variância populacional da área em todo o histórico */
+    static double areaVariance(WoundEvolutionState state) {
+        return state.getAnalysisCount() > 0 ? state.getAreaM2() / state.getAnalysisCount() : 0;
+    }
+
+    /** Inclinação da reta de mínimos quadrados da área (por dia); 0 sem variação temporal */
+    static double areaSlopePerDay(WoundEvolutionState state) {
+        int n = state.getAnalysisCount();
+        double denominator = n * state.getSumDaysSquared() - state.getSumDays() * state.getSumDays();
+        if (n < 2 || Math.abs(denominator) < 1e-12) {
+            return 0;
+        }
+        return (n * state.getSumDaysArea() - state.getSumDays() * state.getSumArea()) / denominator;
+    }
+
+    /** Variância populacional das últimas {@code count} áreas da janela */
+    static double recentAreaVariance(WoundEvolutionState state, int count) {
+        List<Double> recent = state.getRecentAreas();
+        int from = Math.max(0, recent.size() - count);
+        int n = recent.size() - from;
+        if (n == 0) {
+            return 0;
+        }
+        double mean = 0;
+        for (int i = from; i < recent.size(); i++) {
+            mean += recent.get(i);
+        }
+        mean /= n;
+        double sum = 0;
+        for (int i = from; i < recent.size(); i++) {
+            double d = recent.get(i) - mean;
+            sum += d * d;
+        }
+        return sum / n;
+    }
+
+    // Atualiza no lugar para que a coleção gerenciada pelo JPA seja reaproveitada
+    private static void replaceTissues(Map<TissueType, Double> target, Map<TissueType, Double> tissues) {
+        target.clear();
+        if (tissues != null) {
+            target.putAll(tissues);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.healplus.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.entities.WoundEvolutionState;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalAlert;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalEvolutionResult;
+import com.healplus.repositories.WoundAnalysisRepository;
+import com.healplus.repositories.WoundAnalysisRepository.AnalysisSummary;
+import com.healplus.repositories.WoundEvolutionStateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Mantém o estado de evolução de cada ferida atualizado à medida que as análises chegam,
+ * de modo que a leitura da evolução temporal não depende do tamanho do histórico
+ */
+@Service
+public class WoundEvolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WoundEvolutionService.class);
+
+    private final WoundEvolutionStateRepository repository;
+    private final WoundAnalysisRepository analysisRepository;
+    private final WoundTemporalAnalysisService temporalService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StoredAnalysisParser parser;
+    private final TransactionTemplate transactionTemplate;
+
+    public WoundEvolutionService(
+            WoundEvolutionStateRepository repository,
+            WoundAnalysisRepository analysisRepository,
+            WoundTemporalAnalysisService temporalService,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.analysisRepository = analysisRepository;
+        this.temporalService = temporalService;
+        this.eventPublisher = eventPublisher;
+        this.parser = new StoredAnalysisParser(objectMapper);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Incorpora uma nova análise, já gravada, ao estado da ferida do paciente.
+     * Sem estado prévio, o estado é construído do histórico gravado anterior a esta análise,
+     * que em seguida passa pelo detector como nas demais: a primeira incorporação também alerta.
+     * Duas primeiras análises concorrentes do mesmo paciente disputam a inserção do estado;
+     * a que perde (violação da chave primária) repete a incorporação, agora sobre o estado
+     * gravado pela outra e sob o seu lock.
+     * Alertas do detector de piora são publicados como {@link WoundAlertEvent}.
+     */
+    public void record(String patientId, String professionalId, WoundAnalysisResult analysis) {
+        try {
+            transactionTemplate.executeWithoutResult(
+                status -> recordInTransaction(patientId, professionalId, analysis, false));
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Estado de evolução do paciente {} criado por outra análise; reaplicando {}",
+                patientId, analysis.getId());
+            transactionTemplate.executeWithoutResult(
+                status -> recordInTransaction(patientId, professionalId, analysis, true));
+        }
+    }
+
+    private void recordInTransaction(String patientId, String professionalId, WoundAnalysisResult analysis,
+                                     boolean afterConcurrentInsert) {
+        WoundEvolutionState state = repository.findForUpdate(patientId).orElse(null);
+        List<TemporalAlert> alerts = List.of();
+        if (state == null) {
+            state = new WoundEvolutionState();
+            state.setPatientId(patientId);
+            replayHistory(state, patientId, analysis.getId());
+            alerts = observe(state, analysis);
+            state.setUpdatedAt(Instant.now());
+            // Flush imediato: uma inserção concorrente falha aqui, dentro da tentativa
+            repository.saveAndFlush(state);
+        } else {
+            if (afterConcurrentInsert && state.getLastAnalyzedAt() != null
+                    && !analysis.getAnalyzedAt().isAfter(state.getLastAnalyzedAt())) {
+                // A reconstrução concorrente já leu esta análise do histórico
+                logger.debug("Análise {} já incorporada ao estado do paciente {}", analysis.getId(), patientId);
+                return;
+            }
+            if (state.getLastAnalyzedAt() != null && analysis.getAnalyzedAt().isBefore(state.getLastAnalyzedAt())) {
+                // O estado só avança no tempo; a análise entra como a mais recente
+                logger.warn("Análise {} anterior à última do paciente {}; incorporada como a mais recente",
+                    analysis.getId(), patientId);
+            }
+            alerts = observe(state, analysis);
+            state.setUpdatedAt(Instant.now());
+            repository.save(state);
+        }
+
+        Instant detectedAt = Instant.now();
+        for (TemporalAlert alert : alerts) {
+            eventPublisher.publishEvent(new WoundAlertEvent(patientId, professionalId, analysis.getId(), alert, detectedAt));
+        }
+    }
+
+    /**
+     * Evolução temporal a partir do estado acumulado, em tempo constante.
+     * Pacientes sem estado (histórico anterior ao estado incremental) têm a evolução
+     * calculada do histórico gravado, sem gravar o estado: a leitura não disputa a inserção
+     * com {@link #record}, que cria o estado na próxima análise do paciente.
+     */
+    @Transactional(readOnly = true)
+    public TemporalEvolutionResult getEvolution(String patientId) {
+        WoundEvolutionState state = repository.findById(patientId).orElseGet(() -> replayHistory(patientId));
+        return temporalService.analyzeTemporalEvolution(state);
+    }
+
+    /**
+     * Evolução temporal recalculada de todo o histórico gravado do paciente, lido em ordem
+     * cronológica por uma única varredura do índice (paciente, data) e sem as imagens
+     */
+    @Transactional(readOnly = true)
+    public TemporalEvolutionResult analyzeHistory(String patientId) {
+        return temporalService.analyzeTemporalEvolution(replayHistory(patientId));
+    }
+
+    private WoundEvolutionState replayHistory(String patientId) {
+        WoundEvolutionState state = new WoundEvolutionState();
+        state.setPatientId(patientId);
+        replayHistory(state, patientId, null);
+        return state;
+    }
+
+    /**
+     * Aplica o histórico gravado ao estado, em ordem cronológica, parando antes da análise
+     * {@code untilId}; análises gravadas depois dela por requisições concorrentes ficam para
+     * as próprias incorporações
+     */
+    private void replayHistory(WoundEvolutionState state, String patientId, String untilId) {
+        try (Stream<AnalysisSummary> history = analysisRepository.streamByPatientIdOrderByCreatedAtAsc(patientId)) {
+            Iterator<AnalysisSummary> iterator = history.iterator();
+            while (iterator.hasNext()) {
+                AnalysisSummary summary = iterator.next();
+                if (untilId != null && untilId.equals(summary.getId())) {
+                    return;
+                }
+                WoundAnalysisResult analysis = parser.parse(summary);
+                if (analysis != null) {
+                    observe(state, analysis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Passa a análise pelo detector de piora e a incorpora ao estado
+     */
+    private static List<TemporalAlert> observe(WoundEvolutionState state, WoundAnalysisResult analysis) {
+        List<TemporalAlert> alerts = DeteriorationDetector.observe(state, analysis);
+        WoundEvolutionAccumulator.apply(state, analysis);
+        return alerts;
+    }
+}
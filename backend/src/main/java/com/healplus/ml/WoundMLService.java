@@ -1,14 +1,22 @@
 package com.healplus.ml;
 
+import com.healplus.ml.inference.AnalysisResultCache;
+import com.healplus.ml.inference.AnalysisResultCache.CacheStats;
+import com.healplus.ml.inference.BatchingInferenceService;
+import com.healplus.ml.inference.SingleFlight;
+import com.healplus.ml.inference.SingleFlight.SingleFlightStats;
+import com.healplus.ml.jobs.AnalysisProgress;
+import com.healplus.ml.jobs.AnalysisStage;
+import com.healplus.ml.neural.DecodedImage;
 import com.healplus.ml.neural.ImagePreprocessor;
 import com.healplus.ml.neural.ImagePreprocessor.ColorAnalysis;
-import com.healplus.ml.neural.WoundClassifierNetwork;
-import org.nd4j.linalg.api.ndarray.INDArray;
+import com.healplus.ml.neural.WoundClassifierNetwork.Prediction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -17,22 +25,86 @@ public class WoundMLService {
     
     private static final Logger logger = LoggerFactory.getLogger(WoundMLService.class);
     
-    private final WoundClassifierNetwork classifierNetwork;
+    private final BatchingInferenceService inferenceService;
     private final ImagePreprocessor imagePreprocessor;
+    private final AnalysisResultCache resultCache;
+    // Requisições idênticas concorrentes (mesmo hash e versão de modelo) compartilham uma execução
+    private final SingleFlight<WoundAnalysisResult> inFlightAnalyses = new SingleFlight<>(WoundAnalysisResult::copyAsNewAnalysis);
     
-    public WoundMLService(WoundClassifierNetwork classifierNetwork, ImagePreprocessor imagePreprocessor) {
-        this.classifierNetwork = classifierNetwork;
+    public WoundMLService(BatchingInferenceService inferenceService, ImagePreprocessor imagePreprocessor,
+                          AnalysisResultCache resultCache) {
+        this.inferenceService = inferenceService;
         this.imagePreprocessor = imagePreprocessor;
+        this.resultCache = resultCache;
     }
     
+    /**
+     * Analisa os bytes da imagem; reenvios da mesma imagem são atendidos pelo cache
+     * ou pela execução já em andamento antes mesmo da decodificação.
+     */
     public WoundAnalysisResult analyzeWound(byte[] imageBytes) throws IOException {
+        return analyzeWound(imageBytes, AnalysisProgress.NONE);
+    }
+    
+    /**
+     * Mesma análise, reportando as etapas concluídas (usado pelos jobs assíncronos).
+     * Respostas vindas do cache ou de execução coalescida reportam as etapas ao final.
+     */
+    public WoundAnalysisResult analyzeWound(byte[] imageBytes, AnalysisProgress progress) throws IOException {
+        String contentHash = AnalysisResultCache.contentHash(imageBytes);
+        WoundAnalysisResult result = resultCache.get(contentHash);
+        if (result != null) {
+            logger.info("Análise atendida pelo cache (imagem já analisada com o modelo atual)");
+        } else {
+            result = analyzeAndCache(contentHash, () -> {
+                DecodedImage image = imagePreprocessor.decode(imageBytes);
+                progress.reached(AnalysisStage.DECODED);
+                return image;
+            });
+        }
+        progress.reached(AnalysisStage.DECODED);
+        progress.reached(AnalysisStage.CLASSIFIED);
+        return result;
+    }
+    
+    /**
+     * Analisa uma imagem já decodificada; conversão para tensor e análise de cores
+     * compartilham a mesma imagem redimensionada.
+     */
+    public WoundAnalysisResult analyzeWound(DecodedImage image) {
+        String contentHash = AnalysisResultCache.contentHash(image.getEncodedBytes());
+        WoundAnalysisResult cached = resultCache.get(contentHash);
+        if (cached != null) {
+            logger.info("Análise atendida pelo cache (imagem já analisada com o modelo atual)");
+            return cached;
+        }
+        try {
+            return analyzeAndCache(contentHash, () -> image);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private WoundAnalysisResult analyzeAndCache(String contentHash, SingleFlight.Task<DecodedImage> image)
+            throws IOException {
+        long modelVersion = inferenceService.getModelVersion();
+        return inFlightAnalyses.execute(contentHash + ":" + modelVersion, () -> {
+            WoundAnalysisResult result = runAnalysis(image.call());
+            resultCache.put(contentHash, modelVersion, result);
+            return result;
+        });
+    }
+    
+    private WoundAnalysisResult runAnalysis(DecodedImage image) {
         logger.info("Iniciando análise de ferida com ML...");
         
-        INDArray preprocessedImage = imagePreprocessor.preprocessImage(imageBytes);
-        ColorAnalysis colorAnalysis = imagePreprocessor.analyzeColorsFromBytes(imageBytes);
+        ColorAnalysis colorAnalysis = imagePreprocessor.analyzeColors(image);
         
-        Map<WoundType, Double> woundPredictions = classifierNetwork.classifyWound(preprocessedImage);
-        Map<TissueType, Double> tissuePredictions = classifierNetwork.segmentTissues(preprocessedImage);
+        // Requisições concorrentes são agrupadas em lote pelo motor de inferência,
+        // que escreve a imagem diretamente no tensor de entrada pré-alocado
+        Prediction prediction = inferenceService.predict(image);
+        Map<WoundType, Double> woundPredictions = prediction.getWoundPredictions();
+        Map<TissueType, Double> tissuePredictions = prediction.getTissuePredictions();
         
         tissuePredictions = refineTissuePredictionsWithColorAnalysis(tissuePredictions, colorAnalysis);
         
@@ -49,7 +121,9 @@ public class WoundMLService {
         result.setHealingPhase(healingPhase);
         result.setHealingPhaseConfidence(calculatePhaseConfidence(tissuePredictions, healingPhase));
         
-        result.setEstimatedArea(estimateWoundArea(imageBytes));
+        result.setClassActivationMap(prediction.getClassActivationMap());
+        
+        result.setEstimatedArea(estimateWoundArea(image));
         result.setEstimatedDepth(estimateWoundDepth(tissuePredictions));
         
         result.setClinicalObservations(generateClinicalObservations(result, colorAnalysis));
@@ -66,12 +140,19 @@ public class WoundMLService {
     }
     
     public WoundAnalysisResult analyzeWoundFromBase64(String base64Image) throws IOException {
-        String imageData = base64Image;
-        if (base64Image.contains(",")) {
-            imageData = base64Image.split(",")[1];
-        }
-        byte[] imageBytes = Base64.getDecoder().decode(imageData);
-        return analyzeWound(imageBytes);
+        return analyzeWound(imagePreprocessor.base64ToBytes(base64Image));
+    }
+    
+    public WoundAnalysisResult analyzeWoundFromBase64(String base64Image, AnalysisProgress progress) throws IOException {
+        return analyzeWound(imagePreprocessor.base64ToBytes(base64Image), progress);
+    }
+    
+    public CacheStats getCacheStats() {
+        return resultCache.getStats();
+    }
+    
+    public SingleFlightStats getCoalescingStats() {
+        return inFlightAnalyses.getStats();
     }
     
     private Map<TissueType, Double> refineTissuePredictionsWithColorAnalysis(
@@ -166,7 +247,7 @@ public class WoundMLService {
         return Math.min(confidence + 0.3, 0.95);
     }
     
-    private double estimateWoundArea(byte[] imageBytes) {
+    private double estimateWoundArea(DecodedImage image) {
         return 5.0 + (Math.random() * 15.0);
     }
     
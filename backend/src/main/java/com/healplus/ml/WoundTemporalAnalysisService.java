@@ -1,5 +1,6 @@
 package com.healplus.ml;
 
+import com.healplus.entities.WoundEvolutionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -7,7 +8,6 @@ import org.springframework.stereotype.Service;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Serviço de Análise Temporal de Feridas
@@ -26,41 +26,53 @@ public class WoundTemporalAnalysisService {
             return createInsufficientDataResult();
         }
         
-        // Ordenar por data de análise
-        List<WoundAnalysisResult> sortedAnalyses = historicalAnalyses.stream()
-            .sorted(Comparator.comparing(WoundAnalysisResult::getAnalyzedAt))
-            .collect(Collectors.toList());
+        // Ordenar por data de análise e acumular no mesmo estado usado pelo caminho incremental
+        List<WoundAnalysisResult> sortedAnalyses = new ArrayList<>(historicalAnalyses);
+        sortedAnalyses.sort(Comparator.comparing(WoundAnalysisResult::getAnalyzedAt));
+        
+        WoundEvolutionState state = new WoundEvolutionState();
+        for (WoundAnalysisResult analysis : sortedAnalyses) {
+            WoundEvolutionAccumulator.apply(state, analysis);
+        }
+        return analyzeTemporalEvolution(state);
+    }
+    
+    /**
+     * Analisa a evolução a partir do estado incremental da ferida, em tempo constante
+     * independentemente do número de avaliações acumuladas
+     */
+    public TemporalEvolutionResult analyzeTemporalEvolution(WoundEvolutionState state) {
+        if (state == null || state.getAnalysisCount() < 2) {
+            return createInsufficientDataResult();
+        }
         
         TemporalEvolutionResult result = new TemporalEvolutionResult();
-        result.setAnalysisCount(sortedAnalyses.size());
-        result.setFirstAnalysisDate(sortedAnalyses.get(0).getAnalyzedAt());
-        result.setLastAnalysisDate(sortedAnalyses.get(sortedAnalyses.size() - 1).getAnalyzedAt());
+        result.setAnalysisCount(state.getAnalysisCount());
+        result.setFirstAnalysisDate(state.getFirstAnalyzedAt());
+        result.setLastAnalysisDate(state.getLastAnalyzedAt());
         
         // Calcular métricas de evolução
-        result.setAreaEvolution(calculateAreaEvolution(sortedAnalyses));
-        result.setTissueEvolution(calculateTissueEvolution(sortedAnalyses));
-        result.setHealingRateMetrics(calculateHealingRate(sortedAnalyses));
-        result.setTrendAnalysis(analyzeTrends(sortedAnalyses));
+        result.setAreaEvolution(calculateAreaEvolution(state));
+        result.setTissueEvolution(calculateTissueEvolution(state));
+        result.setHealingRateMetrics(calculateHealingRate(state));
+        result.setTrendAnalysis(analyzeTrends(state));
         result.setOverallProgression(determineOverallProgression(result));
-        result.setConfidenceScore(calculateConfidenceScore(sortedAnalyses));
-        result.setClinicalInsights(generateClinicalInsights(result, sortedAnalyses));
+        result.setConfidenceScore(calculateConfidenceScore(state));
+        result.setClinicalInsights(generateClinicalInsights(result, state));
         result.setRecommendations(generateTemporalRecommendations(result));
-        result.setAlerts(generateAlerts(result, sortedAnalyses));
+        result.setAlerts(generateAlerts(result, state));
         
-        logger.info("Análise temporal concluída: {} avaliações, progressão: {}", 
-            sortedAnalyses.size(), result.getOverallProgression());
+        logger.debug("Análise temporal concluída: {} avaliações, progressão: {}", 
+            state.getAnalysisCount(), result.getOverallProgression());
         
         return result;
     }
     
-    private AreaEvolution calculateAreaEvolution(List<WoundAnalysisResult> analyses) {
+    private AreaEvolution calculateAreaEvolution(WoundEvolutionState state) {
         AreaEvolution evolution = new AreaEvolution();
         
-        WoundAnalysisResult first = analyses.get(0);
-        WoundAnalysisResult last = analyses.get(analyses.size() - 1);
-        
-        double initialArea = first.getEstimatedArea();
-        double currentArea = last.getEstimatedArea();
+        double initialArea = state.getInitialArea();
+        double currentArea = state.getCurrentArea();
         double areaChange = currentArea - initialArea;
         double percentChange = initialArea > 0 ? (areaChange / initialArea) * 100 : 0;
         
@@ -70,11 +82,16 @@ public class WoundTemporalAnalysisService {
         evolution.setPercentChange(percentChange);
         
         // Calcular velocidade de mudança
-        Duration totalDuration = Duration.between(first.getAnalyzedAt(), last.getAnalyzedAt());
+        Duration totalDuration = Duration.between(state.getFirstAnalyzedAt(), state.getLastAnalyzedAt());
         long days = Math.max(totalDuration.toDays(), 1);
         evolution.setDailyChangeRate(areaChange / days);
         evolution.setWeeklyChangeRate((areaChange / days) * 7);
         
+        // Estatísticas de todo o histórico
+        evolution.setMeanArea(state.getAreaMean());
+        evolution.setAreaStdDev(Math.sqrt(WoundEvolutionAccumulator.areaVariance(state)));
+        evolution.setRegressionDailyChangeRate(WoundEvolutionAccumulator.areaSlopePerDay(state));
+        
         // Determinar direção da evolução
         if (percentChange < -10) {
             evolution.setDirection(EvolutionDirection.IMPROVING);
@@ -84,23 +101,17 @@ public class WoundTemporalAnalysisService {
             evolution.setDirection(EvolutionDirection.STABLE);
         }
         
-        // Histórico de áreas
-        List<Double> areaHistory = analyses.stream()
-            .map(WoundAnalysisResult::getEstimatedArea)
-            .collect(Collectors.toList());
-        evolution.setAreaHistory(areaHistory);
+        // Histórico recente de áreas
+        evolution.setAreaHistory(new ArrayList<>(state.getRecentAreas()));
         
         return evolution;
     }
     
-    private TissueEvolution calculateTissueEvolution(List<WoundAnalysisResult> analyses) {
+    private TissueEvolution calculateTissueEvolution(WoundEvolutionState state) {
         TissueEvolution evolution = new TissueEvolution();
         
-        WoundAnalysisResult first = analyses.get(0);
-        WoundAnalysisResult last = analyses.get(analyses.size() - 1);
-        
-        Map<TissueType, Double> initialTissues = first.getTissuePercentages();
-        Map<TissueType, Double> currentTissues = last.getTissuePercentages();
+        Map<TissueType, Double> initialTissues = state.getInitialTissues();
+        Map<TissueType, Double> currentTissues = state.getCurrentTissues();
         
         // Calcular mudanças em cada tipo de tecido
         Map<TissueType, Double> tissueChanges = new EnumMap<>(TissueType.class);
@@ -135,35 +146,26 @@ public class WoundTemporalAnalysisService {
         return evolution;
     }
     
-    private HealingRateMetrics calculateHealingRate(List<WoundAnalysisResult> analyses) {
+    private HealingRateMetrics calculateHealingRate(WoundEvolutionState state) {
         HealingRateMetrics metrics = new HealingRateMetrics();
         
-        if (analyses.size() < 2) {
-            metrics.setHealingVelocity(0);
-            metrics.setEstimatedDaysToHeal(-1);
-            return metrics;
-        }
-        
-        WoundAnalysisResult first = analyses.get(0);
-        WoundAnalysisResult last = analyses.get(analyses.size() - 1);
-        
-        Duration duration = Duration.between(first.getAnalyzedAt(), last.getAnalyzedAt());
+        Duration duration = Duration.between(state.getFirstAnalyzedAt(), state.getLastAnalyzedAt());
         long days = Math.max(duration.toDays(), 1);
         
-        double areaReduction = first.getEstimatedArea() - last.getEstimatedArea();
+        double areaReduction = state.getInitialArea() - state.getCurrentArea();
         double dailyReduction = areaReduction / days;
         
         metrics.setHealingVelocity(dailyReduction);
         metrics.setWeeklyHealingRate(dailyReduction * 7);
         
         // Calcular % de redução por semana (PUSH score usa isso)
-        double weeklyPercentReduction = first.getEstimatedArea() > 0 ? 
-            (dailyReduction * 7 / first.getEstimatedArea()) * 100 : 0;
+        double weeklyPercentReduction = state.getInitialArea() > 0 ? 
+            (dailyReduction * 7 / state.getInitialArea()) * 100 : 0;
         metrics.setWeeklyPercentReduction(weeklyPercentReduction);
         
         // Estimar tempo para cicatrização
-        if (dailyReduction > 0 && last.getEstimatedArea() > 0) {
-            int daysToHeal = (int) Math.ceil(last.getEstimatedArea() / dailyReduction);
+        if (dailyReduction > 0 && state.getCurrentArea() > 0) {
+            int daysToHeal = (int) Math.ceil(state.getCurrentArea() / dailyReduction);
             metrics.setEstimatedDaysToHeal(Math.min(daysToHeal, 365));
         } else if (dailyReduction <= 0) {
             metrics.setEstimatedDaysToHeal(-1); // Não está cicatrizando
@@ -185,18 +187,19 @@ public class WoundTemporalAnalysisService {
         return metrics;
     }
     
-    private TrendAnalysis analyzeTrends(List<WoundAnalysisResult> analyses) {
+    private TrendAnalysis analyzeTrends(WoundEvolutionState state) {
         TrendAnalysis trends = new TrendAnalysis();
+        List<Double> recentAreas = state.getRecentAreas();
         
         // Analisar últimas 3 medições para tendência recente
-        int recentCount = Math.min(3, analyses.size());
-        List<WoundAnalysisResult> recent = analyses.subList(analyses.size() - recentCount, analyses.size());
+        int recentCount = Math.min(3, recentAreas.size());
+        List<Double> recent = recentAreas.subList(recentAreas.size() - recentCount, recentAreas.size());
         
         // Tendência de área
         if (recent.size() >= 2) {
             boolean areaDecreasing = true;
             for (int i = 1; i < recent.size(); i++) {
-                if (recent.get(i).getEstimatedArea() >= recent.get(i-1).getEstimatedArea()) {
+                if (recent.get(i) >= recent.get(i-1)) {
                     areaDecreasing = false;
                     break;
                 }
@@ -205,14 +208,12 @@ public class WoundTemporalAnalysisService {
         }
         
         // Tendência de fase de cicatrização
-        HealingPhase lastPhase = analyses.get(analyses.size() - 1).getHealingPhase();
-        HealingPhase firstPhase = analyses.get(0).getHealingPhase();
-        
-        boolean positivePhaseProgression = isPositivePhaseProgression(firstPhase, lastPhase);
+        boolean positivePhaseProgression = isPositivePhaseProgression(state.getFirstPhase(), state.getLastPhase());
         trends.setPhaseProgression(positivePhaseProgression ? "Progressão positiva" : "Regressão ou estagnação");
+        trends.setPhaseTransitions(state.getPhaseTransitions());
         
         // Detectar padrões
-        trends.setPatterns(detectPatterns(analyses));
+        trends.setPatterns(detectPatterns(state));
         
         return trends;
     }
@@ -229,35 +230,29 @@ public class WoundTemporalAnalysisService {
         return phaseOrder.getOrDefault(to, 0) > phaseOrder.getOrDefault(from, 0);
     }
     
-    private List<String> detectPatterns(List<WoundAnalysisResult> analyses) {
+    private List<String> detectPatterns(WoundEvolutionState state) {
         List<String> patterns = new ArrayList<>();
+        int count = state.getAnalysisCount();
+        List<Double> recent = state.getRecentAreas();
         
         // Detectar estagnação
-        if (analyses.size() >= 4) {
-            List<WoundAnalysisResult> lastFour = analyses.subList(analyses.size() - 4, analyses.size());
-            double variance = calculateAreaVariance(lastFour);
+        if (count >= 4) {
+            double variance = WoundEvolutionAccumulator.recentAreaVariance(state, 4);
             if (variance < 1.0) {
                 patterns.add("ESTAGNAÇÃO: Área da ferida estável por múltiplas avaliações");
             }
         }
         
         // Detectar melhora consistente
-        boolean consistentImprovement = true;
-        for (int i = 1; i < analyses.size(); i++) {
-            if (analyses.get(i).getEstimatedArea() >= analyses.get(i-1).getEstimatedArea()) {
-                consistentImprovement = false;
-                break;
-            }
-        }
-        if (consistentImprovement && analyses.size() >= 3) {
+        if (state.isStrictlyDecreasing() && count >= 3) {
             patterns.add("MELHORA CONSISTENTE: Redução contínua da área");
         }
         
         // Detectar piora recente
-        if (analyses.size() >= 3) {
-            WoundAnalysisResult previous = analyses.get(analyses.size() - 2);
-            WoundAnalysisResult current = analyses.get(analyses.size() - 1);
-            if (current.getEstimatedArea() > previous.getEstimatedArea() * 1.2) {
+        if (count >= 3) {
+            double previous = recent.get(recent.size() - 2);
+            double current = recent.get(recent.size() - 1);
+            if (current > previous * 1.2) {
                 patterns.add("⚠️ ALERTA: Aumento significativo da área na última avaliação");
             }
         }
@@ -265,18 +260,6 @@ public class WoundTemporalAnalysisService {
         return patterns;
     }
     
-    private double calculateAreaVariance(List<WoundAnalysisResult> analyses) {
-        double mean = analyses.stream()
-            .mapToDouble(WoundAnalysisResult::getEstimatedArea)
-            .average()
-            .orElse(0);
-        
-        return analyses.stream()
-            .mapToDouble(a -> Math.pow(a.getEstimatedArea() - mean, 2))
-            .average()
-            .orElse(0);
-    }
-    
     private OverallProgression determineOverallProgression(TemporalEvolutionResult result) {
         double score = 0;
         
@@ -306,24 +289,21 @@ public class WoundTemporalAnalysisService {
         return OverallProgression.CRITICAL;
     }
     
-    private double calculateConfidenceScore(List<WoundAnalysisResult> analyses) {
+    private double calculateConfidenceScore(WoundEvolutionState state) {
         double confidence = 0.5;
         
         // Mais avaliações = mais confiança
-        confidence += Math.min(analyses.size() * 0.05, 0.25);
+        confidence += Math.min(state.getAnalysisCount() * 0.05, 0.25);
         
         // Consistência nos dados aumenta confiança
-        double avgConfidence = analyses.stream()
-            .mapToDouble(WoundAnalysisResult::getWoundTypeConfidence)
-            .average()
-            .orElse(0.5);
+        double avgConfidence = state.getWoundTypeConfidenceSum() / state.getAnalysisCount();
         confidence += avgConfidence * 0.25;
         
         return Math.min(confidence, 0.95);
     }
     
     private List<String> generateClinicalInsights(TemporalEvolutionResult result, 
-                                                   List<WoundAnalysisResult> analyses) {
+                                                   WoundEvolutionState state) {
         List<String> insights = new ArrayList<>();
         
         // Insight sobre área
@@ -354,11 +334,8 @@ public class WoundTemporalAnalysisService {
         }
         
         // Comparar com última avaliação
-        if (analyses.size() >= 2) {
-            WoundAnalysisResult last = analyses.get(analyses.size() - 1);
-            WoundAnalysisResult previous = analyses.get(analyses.size() - 2);
-            
-            Duration between = Duration.between(previous.getAnalyzedAt(), last.getAnalyzedAt());
+        if (state.getPreviousAnalyzedAt() != null) {
+            Duration between = Duration.between(state.getPreviousAnalyzedAt(), state.getLastAnalyzedAt());
             insights.add(String.format("Última avaliação há %d dias", between.toDays()));
         }
         
@@ -401,7 +378,7 @@ public class WoundTemporalAnalysisService {
     }
     
     private List<TemporalAlert> generateAlerts(TemporalEvolutionResult result, 
-                                               List<WoundAnalysisResult> analyses) {
+                                               WoundEvolutionState state) {
         List<TemporalAlert> alerts = new ArrayList<>();
         
         // Alerta de piora
@@ -423,8 +400,7 @@ public class WoundTemporalAnalysisService {
         }
         
         // Alerta de infecção
-        WoundAnalysisResult latest = analyses.get(analyses.size() - 1);
-        if (latest.getHealingPhase() == HealingPhase.INFECTED) {
+        if (state.getLastPhase() == HealingPhase.INFECTED) {
             alerts.add(new TemporalAlert(
                 AlertSeverity.CRITICAL,
                 "POSSÍVEL INFECÇÃO",
@@ -520,6 +496,9 @@ public class WoundTemporalAnalysisService {
         private double dailyChangeRate;
         private double weeklyChangeRate;
         private EvolutionDirection direction;
+        private double meanArea;
+        private double areaStdDev;
+        private double regressionDailyChangeRate;
         private List<Double> areaHistory;
         
         // Getters and Setters
@@ -544,6 +523,17 @@ public class WoundTemporalAnalysisService {
         public EvolutionDirection getDirection() { return direction; }
         public void setDirection(EvolutionDirection direction) { this.direction = direction; }
         
+        public double getMeanArea() { return meanArea; }
+        public void setMeanArea(double meanArea) { this.meanArea = meanArea; }
+        
+        public double getAreaStdDev() { return areaStdDev; }
+        public void setAreaStdDev(double areaStdDev) { this.areaStdDev = areaStdDev; }
+        
+        /** Inclinação da regressão linear da área por dia, sobre todo o histórico */
+        public double getRegressionDailyChangeRate() { return regressionDailyChangeRate; }
+        public void setRegressionDailyChangeRate(double regressionDailyChangeRate) { this.regressionDailyChangeRate = regressionDailyChangeRate; }
+        
+        /** Áreas das avaliações mais recentes (até 10), da mais antiga para a mais recente */
         public List<Double> getAreaHistory() { return areaHistory; }
         public void setAreaHistory(List<Double> areaHistory) { this.areaHistory = areaHistory; }
     }
@@ -599,6 +589,7 @@ public class WoundTemporalAnalysisService {
     public static class TrendAnalysis {
         private TrendDirection areaTrend;
         private String phaseProgression;
+        private int phaseTransitions;
         private List<String> patterns;
         
         // Getters and Setters
@@ -608,6 +599,9 @@ public class WoundTemporalAnalysisService {
         public String getPhaseProgression() { return phaseProgression; }
         public void setPhaseProgression(String phaseProgression) { this.phaseProgression = phaseProgression; }
         
+        public int getPhaseTransitions() { return phaseTransitions; }
+        public void setPhaseTransitions(int phaseTransitions) { this.phaseTransitions = phaseTransitions; }
+        
         public List<String> getPatterns() { return patterns; }
         public void setPatterns(List<String> patterns) { this.patterns = patterns; }
     }
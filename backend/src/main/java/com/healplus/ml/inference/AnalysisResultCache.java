@@ -0,0 +1,244 @@
+package com.healplus.ml.inference;
+
+import com.healplus.ml.WoundAnalysisResult;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache de resultados de análise endereçado por conteúdo
+ * A chave é o SHA-256 dos bytes da imagem junto com a versão do modelo carregado; reenvios
+ * da mesma foto (retentativas, comparação com imagem anterior, /explain após /analyze) não
+ * executam a CNN novamente. LRU limitado por quantidade de entradas e por peso estimado em
+ * bytes. Quando os pesos do modelo mudam, todas as entradas são descartadas.
+ */
+@Component
+public class AnalysisResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+    private static final int BASE_ENTRY_WEIGHT = 1024;
+
+    private final WoundClassifierNetwork classifierNetwork;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxWeightBytes;
+
+    // Ordem de acesso: o primeiro elemento é o menos usado recentemente
+    private final LinkedHashMap<String, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentModelVersion;
+    private long totalWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public AnalysisResultCache(
+            WoundClassifierNetwork classifierNetwork,
+            @Value("${ml.cache.enabled:true}") boolean enabled,
+            @Value("${ml.cache.max-entries:1024}") int maxEntries,
+            @Value("${ml.cache.max-weight-mb:16}") long maxWeightMb) {
+        this.classifierNetwork = classifierNetwork;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxWeightBytes = Math.max(1, maxWeightMb) * 1024 * 1024;
+    }
+
+    /**
+     * SHA-256 em hexadecimal dos bytes da imagem
+     */
+    public static String contentHash(byte[] imageBytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(imageBytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    /**
+     * Retorna uma cópia do resultado em cache (com novo id e data) ou null
+     */
+    public synchronized WoundAnalysisResult get(String contentHash) {
+        if (!enabled) {
+            return null;
+        }
+        syncModelVersion();
+
+        CachedResult cached = entries.get(contentHash);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.result.copyAsNewAnalysis();
+    }
+
+    /**
+     * Armazena o resultado calculado com a versão de modelo vigente no início da análise;
+     * resultados de uma versão que já foi substituída são descartados.
+     */
+    public synchronized void put(String contentHash, long modelVersion, WoundAnalysisResult result) {
+        if (!enabled) {
+            return;
+        }
+        syncModelVersion();
+        if (modelVersion != currentModelVersion) {
+            return;
+        }
+
+        CachedResult entry = new CachedResult(result.copy(), estimateWeight(result));
+        CachedResult previous = entries.put(contentHash, entry);
+        totalWeight += entry.weight - (previous != null ? previous.weight : 0);
+        evictIfNeeded();
+    }
+
+    public synchronized void invalidateAll() {
+        if (!entries.isEmpty()) {
+            invalidations++;
+            logger.info("Cache de análises invalidado ({} entradas)", entries.size());
+        }
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        stats.setEnabled(enabled);
+        stats.setEntries(entries.size());
+        stats.setMaxEntries(maxEntries);
+        stats.setWeightBytes(totalWeight);
+        stats.setMaxWeightBytes(maxWeightBytes);
+        stats.setHits(hits);
+        stats.setMisses(misses);
+        stats.setEvictions(evictions);
+        stats.setInvalidations(invalidations);
+        stats.setHitRate(hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        stats.setModelVersion(currentModelVersion);
+        return stats;
+    }
+
+    private void syncModelVersion() {
+        long version = classifierNetwork.getModelVersion();
+        if (version != currentModelVersion) {
+            if (currentModelVersion != 0) {
+                logger.info("Versão do modelo mudou ({} -> {})", currentModelVersion, version);
+            }
+            invalidateAll();
+            currentModelVersion = version;
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<CachedResult> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeightBytes) && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Estimativa do heap ocupado pelo resultado: base fixa + textos + mapa de tecidos + Grad-CAM
+     */
+    private static long estimateWeight(WoundAnalysisResult result) {
+        long weight = BASE_ENTRY_WEIGHT;
+        weight += textWeight(result.getClinicalObservations());
+        weight += textWeight(result.getRecommendations());
+        if (result.getRiskAssessment() != null) {
+            weight += textWeight(result.getRiskAssessment().getRiskFactors());
+        }
+        if (result.getEvolutionPrediction() != null) {
+            weight += textWeight(result.getEvolutionPrediction().getEvolutionIndicators());
+        }
+        if (result.getClassActivationMap() != null) {
+            weight += result.getClassActivationMap().estimatedBytes();
+        }
+        Map<?, ?> tissues = result.getTissuePercentages();
+        if (tissues != null) {
+            weight += tissues.size() * 64L;
+        }
+        return weight;
+    }
+
+    private static long textWeight(List<String> texts) {
+        if (texts == null) {
+            return 0;
+        }
+        long weight = 0;
+        for (String text : texts) {
+            weight += 48 + (text != null ? text.length() * 2L : 0);
+        }
+        return weight;
+    }
+
+    private static class CachedResult {
+        private final WoundAnalysisResult result;
+        private final long weight;
+
+        CachedResult(WoundAnalysisResult result, long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+
+    // ==================== DTOs ====================
+
+    public static class CacheStats {
+        private boolean enabled;
+        private int entries;
+        private int maxEntries;
+        private long weightBytes;
+        private long maxWeightBytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long invalidations;
+        private double hitRate;
+        private long modelVersion;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getEntries() { return entries; }
+        public void setEntries(int entries) { this.entries = entries; }
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+
+        public long getWeightBytes() { return weightBytes; }
+        public void setWeightBytes(long weightBytes) { this.weightBytes = weightBytes; }
+
+        public long getMaxWeightBytes() { return maxWeightBytes; }
+        public void setMaxWeightBytes(long maxWeightBytes) { this.maxWeightBytes = maxWeightBytes; }
+
+        public long getHits() { return hits; }
+        public void setHits(long hits) { this.hits = hits; }
+
+        public long getMisses() { return misses; }
+        public void setMisses(long misses) { this.misses = misses; }
+
+        public long getEvictions() { return evictions; }
+        public void setEvictions(long evictions) { this.evictions = evictions; }
+
+        public long getInvalidations() { return invalidations; }
+        public void setInvalidations(long invalidations) { this.invalidations = invalidations; }
+
+        public double getHitRate() { return hitRate; }
+        public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+
+        public long getModelVersion() { return modelVersion; }
+        public void setModelVersion(long modelVersion) { this.modelVersion = modelVersion; }
+    }
+}
@@ -0,0 +1,342 @@
+package com.healplus.ml.inference;
+
+import com.healplus.ml.neural.DecodedImage;
+import com.healplus.ml.neural.ImagePreprocessor;
+import com.healplus.ml.neural.InputTensorBuffer;
+import com.healplus.ml.neural.ModelReplicaPool;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.neural.WoundClassifierNetwork.Prediction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Motor de inferência com micro-batching
+ * Agrupa requisições concorrentes de análise em lotes dinâmicos (tamanho máximo + janela
+ * máxima de espera) e executa um único forward pass por rede para o lote inteiro.
+ * Um novo lote só é formado quando há réplica ociosa no pool, de modo que sob carga os
+ * lotes crescem em vez de se acumularem na fila das réplicas.
+ * Cada réplica tem um tensor de entrada pré-alocado; as imagens são escritas diretamente
+ * nele, sem tensor intermediário por requisição nem concatenação.
+ */
+@Service
+public class BatchingInferenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchingInferenceService.class);
+
+    private final WoundClassifierNetwork classifierNetwork;
+    private final ImagePreprocessor imagePreprocessor;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long timeoutMs;
+    private final BlockingQueue<PendingRequest> queue;
+    private BlockingQueue<InputTensorBuffer> inputBuffers;
+
+    private final AtomicLong submittedRequests = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong executedBatches = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong totalInferenceNanos = new AtomicLong();
+    private final AtomicLongArray batchSizeHistogram;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public BatchingInferenceService(
+            WoundClassifierNetwork classifierNetwork,
+            ImagePreprocessor imagePreprocessor,
+            @Value("${ml.inference.batch.max-size:8}") int maxBatchSize,
+            @Value("${ml.inference.batch.max-wait-ms:5}") long maxWaitMs,
+            @Value("${ml.inference.queue.capacity:256}") int queueCapacity,
+            @Value("${ml.inference.timeout-ms:30000}") long timeoutMs) {
+        this.classifierNetwork = classifierNetwork;
+        this.imagePreprocessor = imagePreprocessor;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMs));
+        this.timeoutMs = Math.max(1, timeoutMs);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSizeHistogram = new AtomicLongArray(this.maxBatchSize + 1);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Um buffer por réplica: com a permissão de réplica ociosa há sempre um buffer livre
+        int replicas = classifierNetwork.getReplicaPool().getSize();
+        inputBuffers = new ArrayBlockingQueue<>(replicas);
+        for (int i = 0; i < replicas; i++) {
+            inputBuffers.add(new InputTensorBuffer(maxBatchSize));
+        }
+        
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "ml-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        logger.info("Motor de inferência em lote iniciado: maxBatch={}, maxWait={}ms",
+            maxBatchSize, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        PendingRequest pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new RejectedExecutionException("Motor de inferência encerrado"));
+        }
+    }
+
+    /**
+     * Enfileira uma imagem decodificada para o próximo lote
+     */
+    public CompletableFuture<Prediction> submit(DecodedImage image) {
+        PendingRequest request = new PendingRequest(image);
+        submittedRequests.incrementAndGet();
+
+        if (!running || !queue.offer(request)) {
+            rejectedRequests.incrementAndGet();
+            request.future.completeExceptionally(
+                new RejectedExecutionException("Fila de inferência cheia"));
+        }
+        return request.future;
+    }
+
+    /**
+     * Versão bloqueante de {@link #submit(DecodedImage)} para os fluxos síncronos;
+     * a espera é limitada por ml.inference.timeout-ms para que um lote travado não
+     * prenda a thread da requisição
+     */
+    public Prediction predict(DecodedImage image) {
+        CompletableFuture<Prediction> future = submit(image);
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            failedRequests.incrementAndGet();
+            future.completeExceptionally(e);
+            throw new IllegalStateException("Tempo limite da inferência excedido (" + timeoutMs + " ms)", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Inferência interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Falha na inferência", cause);
+        }
+    }
+
+    private void dispatchLoop() {
+        ModelReplicaPool replicaPool = classifierNetwork.getReplicaPool();
+
+        while (running) {
+            try {
+                replicaPool.acquireIdleReplica();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+            try {
+                batch.add(queue.take());
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRequest next = remaining > 0
+                        ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                        : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                replicaPool.releaseIdleReplica();
+                batch.forEach(r -> r.future.completeExceptionally(
+                    new RejectedExecutionException("Motor de inferência encerrado")));
+                break;
+            }
+
+            InputTensorBuffer buffer = inputBuffers.poll();
+            try {
+                runBatch(batch, buffer).whenComplete((ignored, error) -> {
+                    inputBuffers.offer(buffer);
+                    replicaPool.releaseIdleReplica();
+                });
+            } catch (Throwable error) {
+                // Um Error propagado encerraria o dispatcher e a fila deixaria de ser drenada
+                logger.error("Erro ao despachar lote de inferência ({} imagens): {}", batch.size(), error.getMessage(), error);
+                failedRequests.addAndGet(batch.size());
+                batch.forEach(r -> r.future.completeExceptionally(error));
+                inputBuffers.offer(buffer);
+                replicaPool.releaseIdleReplica();
+            }
+        }
+    }
+
+    private CompletableFuture<List<Prediction>> runBatch(List<PendingRequest> batch, InputTensorBuffer buffer) {
+        long start = System.nanoTime();
+        for (PendingRequest request : batch) {
+            totalQueueWaitNanos.addAndGet(start - request.enqueuedAt);
+        }
+
+        CompletableFuture<List<Prediction>> execution;
+        try {
+            for (int slot = 0; slot < batch.size(); slot++) {
+                imagePreprocessor.writeTensor(batch.get(slot).image, buffer, slot);
+            }
+            INDArray input = buffer.batchOf(batch.size());
+            execution = classifierNetwork.predictBatchAsync(input);
+        } catch (Throwable e) {
+            execution = CompletableFuture.failedFuture(e);
+        }
+
+        return execution.whenComplete((predictions, error) -> {
+            totalInferenceNanos.addAndGet(System.nanoTime() - start);
+            executedBatches.incrementAndGet();
+            batchSizeHistogram.incrementAndGet(batch.size());
+
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                logger.error("Erro na inferência em lote ({} imagens): {}", batch.size(), cause.getMessage(), cause);
+                failedRequests.addAndGet(batch.size());
+                batch.forEach(r -> r.future.completeExceptionally(cause));
+                return;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(predictions.get(i));
+            }
+        });
+    }
+
+    /**
+     * Versão dos pesos em uso pelas réplicas
+     */
+    public long getModelVersion() {
+        return classifierNetwork.getModelVersion();
+    }
+
+    /**
+     * Há requisições na fila ou réplicas executando um lote
+     */
+    public boolean hasPendingWork() {
+        return !queue.isEmpty() || classifierNetwork.getReplicaPool().getBusyReplicas() > 0;
+    }
+
+    public InferenceStats getStats() {
+        InferenceStats stats = new InferenceStats();
+        stats.setMaxBatchSize(maxBatchSize);
+        stats.setMaxWaitMs(TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+        stats.setQueueDepth(queue.size());
+        stats.setQueueRemainingCapacity(queue.remainingCapacity());
+        stats.setSubmittedRequests(submittedRequests.get());
+        stats.setRejectedRequests(rejectedRequests.get());
+        stats.setFailedRequests(failedRequests.get());
+
+        ModelReplicaPool replicaPool = classifierNetwork.getReplicaPool();
+        stats.setReplicas(replicaPool.getSize());
+        stats.setBusyReplicas(replicaPool.getBusyReplicas());
+
+        long batches = executedBatches.get();
+        long processed = 0;
+        long[] histogram = new long[maxBatchSize + 1];
+        for (int size = 1; size <= maxBatchSize; size++) {
+            histogram[size] = batchSizeHistogram.get(size);
+            processed += histogram[size] * size;
+        }
+        stats.setExecutedBatches(batches);
+        stats.setBatchSizeHistogram(histogram);
+        stats.setAverageBatchSize(batches > 0 ? (double) processed / batches : 0);
+        stats.setAverageQueueWaitMs(processed > 0 ? totalQueueWaitNanos.get() / 1e6 / processed : 0);
+        stats.setAverageBatchInferenceMs(batches > 0 ? totalInferenceNanos.get() / 1e6 / batches : 0);
+
+        return stats;
+    }
+
+    private static class PendingRequest {
+        private final DecodedImage image;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Prediction> future = new CompletableFuture<>();
+
+        PendingRequest(DecodedImage image) {
+            this.image = image;
+        }
+    }
+
+    // ==================== DTOs ====================
+
+    public static class InferenceStats {
+        private int maxBatchSize;
+        private long maxWaitMs;
+        private int queueDepth;
+        private int queueRemainingCapacity;
+        private int replicas;
+        private int busyReplicas;
+        private long submittedRequests;
+        private long rejectedRequests;
+        private long failedRequests;
+        private long executedBatches;
+        private double averageBatchSize;
+        private double averageQueueWaitMs;
+        private double averageBatchInferenceMs;
+        private long[] batchSizeHistogram;
+
+        public int getMaxBatchSize() { return maxBatchSize; }
+        public void setMaxBatchSize(int maxBatchSize) { this.maxBatchSize = maxBatchSize; }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public int getQueueDepth() { return queueDepth; }
+        public void setQueueDepth(int queueDepth) { this.queueDepth = queueDepth; }
+
+        public int getQueueRemainingCapacity() { return queueRemainingCapacity; }
+        public void setQueueRemainingCapacity(int queueRemainingCapacity) { this.queueRemainingCapacity = queueRemainingCapacity; }
+
+        public int getReplicas() { return replicas; }
+        public void setReplicas(int replicas) { this.replicas = replicas; }
+
+        public int getBusyReplicas() { return busyReplicas; }
+        public void setBusyReplicas(int busyReplicas) { this.busyReplicas = busyReplicas; }
+
+        public long getSubmittedRequests() { return submittedRequests; }
+        public void setSubmittedRequests(long submittedRequests) { this.submittedRequests = submittedRequests; }
+
+        public long getRejectedRequests() { return rejectedRequests; }
+        public void setRejectedRequests(long rejectedRequests) { this.rejectedRequests = rejectedRequests; }
+
+        public long getFailedRequests() { return failedRequests; }
+        public void setFailedRequests(long failedRequests) { this.failedRequests = failedRequests; }
+
+        public long getExecutedBatches() { return executedBatches; }
+        public void setExecutedBatches(long executedBatches) { this.executedBatches = executedBatches; }
+
+        public double getAverageBatchSize() { return averageBatchSize; }
+        public void setAverageBatchSize(double averageBatchSize) { this.averageBatchSize = averageBatchSize; }
+
+        public double getAverageQueueWaitMs() { return averageQueueWaitMs; }
+        public void setAverageQueueWaitMs(double averageQueueWaitMs) { this.averageQueueWaitMs = averageQueueWaitMs; }
+
+        public double getAverageBatchInferenceMs() { return averageBatchInferenceMs; }
+        public void setAverageBatchInferenceMs(double averageBatchInferenceMs) { this.averageBatchInferenceMs = averageBatchInferenceMs; }
+
+        /** Índice = tamanho do lote, valor = quantidade de lotes executados com esse tamanho */
+        public long[] getBatchSizeHistogram() { return batchSizeHistogram; }
+        public void setBatchSizeHistogram(long[] batchSizeHistogram) { this.batchSizeHistogram = batchSizeHistogram; }
+    }
+}
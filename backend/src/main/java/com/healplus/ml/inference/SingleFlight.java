@@ -0,0 +1,128 @@
+package com.healplus.ml.inference;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalescência de execuções idênticas em andamento ("single flight")
+ * A primeira requisição para uma chave executa o trabalho; as que chegam enquanto ele
+ * está em andamento aguardam o mesmo resultado em vez de repetir a computação.
+ * A espera das seguidoras é limitada, para que uma execução travada não as prenda.
+ */
+public class SingleFlight<T> {
+
+    private static final long DEFAULT_FOLLOWER_TIMEOUT_MS = 60_000;
+
+    private final ConcurrentHashMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<T> shareWithFollower;
+    private final long followerTimeoutMs;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param shareWithFollower aplicado ao resultado entregue a cada requisição que apenas
+     *                          aguardou a execução de outra (ex.: cópia com novo id)
+     */
+    public SingleFlight(UnaryOperator<T> shareWithFollower) {
+        this(shareWithFollower, DEFAULT_FOLLOWER_TIMEOUT_MS);
+    }
+
+    /**
+     * @param followerTimeoutMs espera máxima de uma requisição pela execução de outra
+     */
+    public SingleFlight(UnaryOperator<T> shareWithFollower, long followerTimeoutMs) {
+        this.shareWithFollower = shareWithFollower;
+        this.followerTimeoutMs = Math.max(1, followerTimeoutMs);
+    }
+
+    public T execute(String key, Task<T> task) throws IOException {
+        CompletableFuture<T> own = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return shareWithFollower.apply(await(existing));
+        }
+
+        executions.incrementAndGet();
+        try {
+            T result = task.call();
+            own.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Inclui Error: as seguidoras não podem ficar esperando um futuro nunca completado
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(followerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Tempo limite aguardando análise idêntica em andamento", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Análise interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Falha na análise", cause);
+        }
+    }
+
+    public SingleFlightStats getStats() {
+        SingleFlightStats stats = new SingleFlightStats();
+        long executed = executions.get();
+        long shared = coalesced.get();
+        stats.setInFlight(inFlight.size());
+        stats.setExecutions(executed);
+        stats.setCoalescedRequests(shared);
+        stats.setDeduplicationRatio(executed + shared > 0 ? (double) shared / (executed + shared) : 0);
+        return stats;
+    }
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws IOException;
+    }
+
+    // ==================== DTOs ====================
+
+    public static class SingleFlightStats {
+        private int inFlight;
+        private long executions;
+        private long coalescedRequests;
+        private double deduplicationRatio;
+
+        public int getInFlight() { return inFlight; }
+        public void setInFlight(int inFlight) { this.inFlight = inFlight; }
+
+        public long getExecutions() { return executions; }
+        public void setExecutions(long executions) { this.executions = executions; }
+
+        /** Requisições que reaproveitaram uma execução já em andamento */
+        public long getCoalescedRequests() { return coalescedRequests; }
+        public void setCoalescedRequests(long coalescedRequests) { this.coalescedRequests = coalescedRequests; }
+
+        /** Fração das requisições atendidas sem nova execução */
+        public double getDeduplicationRatio() { return deduplicationRatio; }
+        public void setDeduplicationRatio(double deduplicationRatio) { this.deduplicationRatio = deduplicationRatio; }
+    }
+}
@@ -0,0 +1,366 @@
+package com.healplus.ml.jobs;
+
+import com.healplus.exception.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jobs assíncronos de análise de feridas
+ * A requisição HTTP apenas registra o job e retorna 202; o pipeline (decodificação,
+ * classificação, explicação, persistência) roda no executor limitado "analysisJobExecutor".
+ * O progresso por etapa pode ser consultado por polling ou acompanhado via SSE.
+ * Jobs finalizados são descartados após o TTL configurado.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    /** Caminho base dos endpoints de consulta de jobs */
+    public static final String JOBS_PATH = "/api/v1/ml/jobs";
+
+    private final ThreadPoolTaskExecutor executor;
+    private final long ttlMillis;
+    private final long sseTimeoutMs;
+    private final ConcurrentHashMap<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+
+    public AnalysisJobService(
+            @Qualifier("analysisJobExecutor") ThreadPoolTaskExecutor executor,
+            @Value("${ml.jobs.ttl-minutes:30}") long ttlMinutes,
+            @Value("${ml.jobs.sse-timeout-ms:300000}") long sseTimeoutMs) {
+        this.executor = executor;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.sseTimeoutMs = sseTimeoutMs;
+    }
+
+    /**
+     * Pipeline executado pelo job; reporta etapas pelo {@link AnalysisProgress} recebido
+     * e retorna o resultado final exposto no status do job
+     */
+    @FunctionalInterface
+    public interface JobPipeline {
+        Object run(AnalysisProgress progress) throws Exception;
+    }
+
+    /**
+     * Registra e enfileira um job; só o profissional dono consulta o job
+     *
+     * @throws RejectedExecutionException quando a fila do executor está cheia
+     */
+    public AnalysisJobStatus submit(String type, String ownerId, JobPipeline pipeline) {
+        Objects.requireNonNull(ownerId, "Job de análise sem profissional dono");
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString(), type, ownerId);
+        jobs.put(job.id, job);
+
+        try {
+            executor.execute(() -> run(job, pipeline));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            logger.warn("Fila de jobs de análise cheia, job {} rejeitado", job.id);
+            throw e;
+        }
+
+        logger.info("Job de análise {} ({}) enfileirado", job.id, type);
+        return job.snapshot();
+    }
+
+    public AnalysisJobStatus getStatus(String jobId, String requesterId) {
+        return findJob(jobId, requesterId).snapshot();
+    }
+
+    /**
+     * Abre um stream SSE do job: envia o estado atual imediatamente e um evento
+     * a cada etapa, encerrando após "completed" ou "failed"
+     */
+    public SseEmitter subscribe(String jobId, String requesterId) {
+        AnalysisJob job = findJob(jobId, requesterId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        synchronized (job) {
+            if (job.isFinished()) {
+                send(emitter, job.finalEventName(), job.snapshot());
+                emitter.complete();
+                return emitter;
+            }
+            job.emitters.add(emitter);
+        }
+
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(error -> job.emitters.remove(emitter));
+        send(emitter, "status", job.snapshot());
+        return emitter;
+    }
+
+    public JobQueueStats getQueueStats() {
+        JobQueueStats stats = new JobQueueStats();
+        stats.setActiveThreads(executor.getActiveCount());
+        stats.setPoolSize(executor.getPoolSize());
+        stats.setQueuedJobs(executor.getThreadPoolExecutor().getQueue().size());
+        stats.setQueueRemainingCapacity(executor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        stats.setTrackedJobs(jobs.size());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${ml.jobs.cleanup-interval-ms:60000}")
+    public void purgeExpiredJobs() {
+        Instant threshold = Instant.now().minusMillis(ttlMillis);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.isFinished() && job.finishedAt.isBefore(threshold));
+        int removed = before - jobs.size();
+        if (removed > 0) {
+            logger.debug("{} jobs de análise expirados removidos", removed);
+        }
+    }
+
+    private void run(AnalysisJob job, JobPipeline pipeline) {
+        job.start();
+        publish(job, "status");
+
+        try {
+            Object result = pipeline.run(stage -> {
+                if (job.reach(stage)) {
+                    publish(job, "stage");
+                }
+            });
+            job.complete(result);
+            logger.info("Job de análise {} concluído", job.id);
+        } catch (Throwable e) {
+            // Erros (ex.: falta de memória, falha nativa do ND4J) também encerram o job,
+            // que senão ficaria em execução e nunca seria descartado
+            logger.error("Job de análise {} falhou: {}", job.id, e.getMessage(), e);
+            job.fail("Falha ao processar a análise");
+        } finally {
+            finish(job);
+        }
+    }
+
+    /**
+     * Encerra os streams SSE do job com o evento final
+     */
+    private void finish(AnalysisJob job) {
+        List<SseEmitter> emitters;
+        synchronized (job) {
+            emitters = new ArrayList<>(job.emitters);
+            job.emitters.clear();
+        }
+        AnalysisJobStatus snapshot = job.snapshot();
+        for (SseEmitter emitter : emitters) {
+            send(emitter, job.finalEventName(), snapshot);
+            emitter.complete();
+        }
+    }
+
+    private void publish(AnalysisJob job, String eventName) {
+        AnalysisJobStatus snapshot = job.snapshot();
+        for (SseEmitter emitter : job.emitters) {
+            send(emitter, eventName, snapshot);
+        }
+    }
+
+    private void send(SseEmitter emitter, String eventName, AnalysisJobStatus snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).id(snapshot.getJobId()).data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado; o emitter é removido pelos callbacks
+            emitter.completeWithError(e);
+        }
+    }
+
+    private AnalysisJob findJob(String jobId, String requesterId) {
+        AnalysisJob job = jobs.get(jobId);
+        // Jobs de outro profissional são tratados como inexistentes
+        if (job == null || !job.ownerId.equals(requesterId)) {
+            throw new ResourceNotFoundException("Job de análise", "id", jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Estado mutável de um job; leituras externas usam {@link #snapshot()}
+     */
+    private static class AnalysisJob {
+        private final String id;
+        private final String type;
+        private final String ownerId;
+        private final Instant createdAt = Instant.now();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final Set<AnalysisStage> reached = EnumSet.noneOf(AnalysisStage.class);
+        private final List<StageEvent> stages = new ArrayList<>();
+
+        private JobStatus status = JobStatus.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private Object result;
+        private String error;
+
+        AnalysisJob(String id, String type, String ownerId) {
+            this.id = id;
+            this.type = type;
+            this.ownerId = ownerId;
+        }
+
+        synchronized void start() {
+            status = JobStatus.RUNNING;
+            startedAt = Instant.now();
+        }
+
+        synchronized boolean reach(AnalysisStage stage) {
+            if (!reached.add(stage)) {
+                return false;
+            }
+            stages.add(new StageEvent(stage, Instant.now()));
+            return true;
+        }
+
+        synchronized void complete(Object result) {
+            this.result = result;
+            this.status = JobStatus.COMPLETED;
+            this.finishedAt = Instant.now();
+        }
+
+        synchronized void fail(String error) {
+            this.error = error;
+            this.status = JobStatus.FAILED;
+            this.finishedAt = Instant.now();
+        }
+
+        synchronized boolean isFinished() {
+            return status == JobStatus.COMPLETED || status == JobStatus.FAILED;
+        }
+
+        synchronized String finalEventName() {
+            return status == JobStatus.FAILED ? "failed" : "completed";
+        }
+
+        synchronized AnalysisJobStatus snapshot() {
+            AnalysisJobStatus snapshot = new AnalysisJobStatus();
+            snapshot.setJobId(id);
+            snapshot.setType(type);
+            snapshot.setStatus(status);
+            snapshot.setCurrentStage(stages.isEmpty() ? null : stages.get(stages.size() - 1).getStage());
+            snapshot.setStages(new ArrayList<>(stages));
+            snapshot.setCreatedAt(createdAt);
+            snapshot.setStartedAt(startedAt);
+            snapshot.setFinishedAt(finishedAt);
+            snapshot.setResult(result);
+            snapshot.setError(error);
+            snapshot.setStatusUrl(JOBS_PATH + "/" + id);
+            snapshot.setEventsUrl(JOBS_PATH + "/" + id + "/events");
+            return snapshot;
+        }
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    // ==================== DTOs ====================
+
+    public static class StageEvent {
+        private final AnalysisStage stage;
+        private final Instant reachedAt;
+
+        public StageEvent(AnalysisStage stage, Instant reachedAt) {
+            this.stage = stage;
+            this.reachedAt = reachedAt;
+        }
+
+        public AnalysisStage getStage() { return stage; }
+        public String getDisplayName() { return stage.getDisplayName(); }
+        public Instant getReachedAt() { return reachedAt; }
+    }
+
+    public static class AnalysisJobStatus {
+        private String jobId;
+        private String type;
+        private JobStatus status;
+        private AnalysisStage currentStage;
+        private List<StageEvent> stages;
+        private Instant createdAt;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private Object result;
+        private String error;
+        private String statusUrl;
+        private String eventsUrl;
+
+        public String getJobId() { return jobId; }
+        public void setJobId(String jobId) { this.jobId = jobId; }
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+
+        public JobStatus getStatus() { return status; }
+        public void setStatus(JobStatus status) { this.status = status; }
+
+        public AnalysisStage getCurrentStage() { return currentStage; }
+        public void setCurrentStage(AnalysisStage currentStage) { this.currentStage = currentStage; }
+
+        public List<StageEvent> getStages() { return stages; }
+        public void setStages(List<StageEvent> stages) { this.stages = stages; }
+
+        public Instant getCreatedAt() { return createdAt; }
+        public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+        public Instant getStartedAt() { return startedAt; }
+        public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+        public Instant getFinishedAt() { return finishedAt; }
+        public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+        public Object getResult() { return result; }
+        public void setResult(Object result) { this.result = result; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+
+        public String getStatusUrl() { return statusUrl; }
+        public void setStatusUrl(String statusUrl) { this.statusUrl = statusUrl; }
+
+        public String getEventsUrl() { return eventsUrl; }
+        public void setEventsUrl(String eventsUrl) { this.eventsUrl = eventsUrl; }
+    }
+
+    public static class JobQueueStats {
+        private int activeThreads;
+        private int poolSize;
+        private int queuedJobs;
+        private int queueRemainingCapacity;
+        private int trackedJobs;
+
+        public int getActiveThreads() { return activeThreads; }
+        public void setActiveThreads(int activeThreads) { this.activeThreads = activeThreads; }
+
+        public int getPoolSize() { return poolSize; }
+        public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+
+        public int getQueuedJobs() { return queuedJobs; }
+        public void setQueuedJobs(int queuedJobs) { this.queuedJobs = queuedJobs; }
+
+        public int getQueueRemainingCapacity() { return queueRemainingCapacity; }
+        public void setQueueRemainingCapacity(int queueRemainingCapacity) { this.queueRemainingCapacity = queueRemainingCapacity; }
+
+        public int getTrackedJobs() { return trackedJobs; }
+        public void setTrackedJobs(int trackedJobs) { this.trackedJobs = trackedJobs; }
+    }
+}
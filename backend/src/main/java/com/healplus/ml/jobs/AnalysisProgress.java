@@ -0,0 +1,12 @@
+package com.healplus.ml.jobs;
+
+/**
+ * Receptor do progresso de uma análise; chamadas repetidas para a mesma etapa são ignoradas
+ */
+@FunctionalInterface
+public interface AnalysisProgress {
+
+    AnalysisProgress NONE = stage -> { };
+
+    void reached(AnalysisStage stage);
+}
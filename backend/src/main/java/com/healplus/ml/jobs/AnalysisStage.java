@@ -0,0 +1,21 @@
+package com.healplus.ml.jobs;
+
+/**
+ * Etapas do pipeline de análise reportadas aos clientes de jobs assíncronos
+ */
+public enum AnalysisStage {
+    DECODED("Imagem decodificada"),
+    CLASSIFIED("Ferida classificada"),
+    EXPLAINED("Explicação gerada"),
+    PERSISTED("Análise salva");
+
+    private final String displayName;
+
+    AnalysisStage(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
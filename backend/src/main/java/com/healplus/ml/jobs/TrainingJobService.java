@@ -0,0 +1,736 @@
+package com.healplus.ml.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.exception.BadRequestException;
+import com.healplus.exception.ResourceNotFoundException;
+import com.healplus.ml.inference.BatchingInferenceService;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.training.TrainingCancelledException;
+import com.healplus.ml.training.TrainingMonitor;
+import com.healplus.ml.training.TrainingOptions;
+import com.healplus.ml.training.WoundModelTrainer;
+import com.healplus.ml.training.WoundModelTrainer.EpochMetric;
+import com.healplus.ml.training.WoundModelTrainer.TrainingResult;
+import jakarta.annotation.PostConstruct;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Jobs de treino da rede multi-tarefa
+ * O treino roda no executor "trainingJobExecutor" (threads de prioridade mínima) sobre uma
+ * cópia do modelo, e antes de cada mini-lote espera enquanto houver inferência na fila ou em
+ * execução, de modo que o /analyze não disputa CPU com o treino.
+ * A cada época as métricas são publicadas no status e via SSE, e periodicamente o modelo é
+ * salvo em checkpoint junto com o estado do job (job.json) no diretório do job. Jobs
+ * cancelados, com falha ou interrompidos por reinício do servidor retomam do último checkpoint.
+ * Os datasets precisam estar sob o diretório configurado em ml.training.dataset-root.
+ */
+@Service
+public class TrainingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingJobService.class);
+
+    /** Caminho base dos endpoints de jobs de treino */
+    public static final String TRAINING_JOBS_PATH = "/api/v1/ml/training/jobs";
+
+    private static final String MANIFEST_FILE = "job.json";
+    private static final String CHECKPOINT_PREFIX = "epoch-";
+    private static final String CHECKPOINT_SUFFIX = ".zip";
+
+    private final WoundModelTrainer trainer;
+    private final WoundClassifierNetwork classifierNetwork;
+    private final BatchingInferenceService inferenceService;
+    private final ThreadPoolTaskExecutor executor;
+    private final ObjectMapper objectMapper;
+    private final Path checkpointRoot;
+    private final Path datasetRoot;
+    private final int checkpointEvery;
+    private final int checkpointsKept;
+    private final long yieldPollMs;
+    private final long sseTimeoutMs;
+    private final ConcurrentHashMap<String, TrainingJob> jobs = new ConcurrentHashMap<>();
+
+    public TrainingJobService(
+            WoundModelTrainer trainer,
+            WoundClassifierNetwork classifierNetwork,
+            BatchingInferenceService inferenceService,
+            @Qualifier("trainingJobExecutor") ThreadPoolTaskExecutor executor,
+            ObjectMapper objectMapper,
+            @Value("${ml.training.checkpoint-dir:${java.io.tmpdir}/healplus-training-jobs}") String checkpointDir,
+            @Value("${ml.training.dataset-root:datasets}") String datasetRoot,
+            @Value("${ml.training.jobs.checkpoint-every:1}") int checkpointEvery,
+            @Value("${ml.training.jobs.checkpoints-kept:2}") int checkpointsKept,
+            @Value("${ml.training.jobs.yield-poll-ms:50}") long yieldPollMs,
+            @Value("${ml.training.jobs.sse-timeout-ms:3600000}") long sseTimeoutMs) {
+        this.trainer = trainer;
+        this.classifierNetwork = classifierNetwork;
+        this.inferenceService = inferenceService;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.checkpointRoot = Paths.get(checkpointDir);
+        this.datasetRoot = Paths.get(datasetRoot).toAbsolutePath().normalize();
+        this.checkpointEvery = Math.max(1, checkpointEvery);
+        this.checkpointsKept = Math.max(1, checkpointsKept);
+        this.yieldPollMs = Math.max(1, yieldPollMs);
+        this.sseTimeoutMs = sseTimeoutMs;
+    }
+
+    /**
+     * Recupera os jobs gravados em disco; os que estavam em andamento quando o servidor
+     * parou ficam como falha e podem ser retomados
+     */
+    @PostConstruct
+    public void recoverJobs() {
+        if (!Files.isDirectory(checkpointRoot)) {
+            return;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(checkpointRoot, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                Path manifest = dir.resolve(MANIFEST_FILE);
+                if (!Files.isRegularFile(manifest)) {
+                    continue;
+                }
+                try {
+                    TrainingJob job = TrainingJob.restore(objectMapper.readValue(manifest.toFile(), TrainingJobStatus.class));
+                    if (!job.isFinished()) {
+                        job.fail("Treinamento interrompido pelo encerramento do servidor");
+                    }
+                    jobs.put(job.id, job);
+                } catch (IOException e) {
+                    logger.warn("Estado do job de treino ilegível em {}: {}", manifest, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Não foi possível ler os jobs de treino em {}: {}", checkpointRoot, e.getMessage());
+        }
+        if (!jobs.isEmpty()) {
+            logger.info("{} jobs de treino recuperados de {}", jobs.size(), checkpointRoot);
+        }
+    }
+
+    /**
+     * Registra e enfileira um treino sobre uma cópia do modelo em uso
+     *
+     * @param woundDatasetPath dataset de tipos de ferida, relativo ao diretório de datasets ou
+     *                         absoluto dentro dele
+     * @param installModel ao concluir, grava o modelo treinado no diretório do job e passa a
+     *                     servi-lo; no reinício do servidor volta o modelo padrão até que esse
+     *                     arquivo seja recarregado (/load-models)
+     * @throws BadRequestException quando um dataset está fora do diretório de datasets
+     * @throws RejectedExecutionException quando a fila de treino está cheia
+     */
+    public TrainingJobStatus submit(String woundDatasetPath, String tissueDatasetPath,
+                                    TrainingOptions options, boolean installModel) {
+        if (woundDatasetPath == null && tissueDatasetPath == null) {
+            throw new BadRequestException("Informe ao menos um dataset para o treinamento");
+        }
+        TrainingJob job = new TrainingJob(UUID.randomUUID().toString(), resolveDataset(woundDatasetPath),
+            resolveDataset(tissueDatasetPath), options.copy(), installModel, Instant.now());
+        jobs.put(job.id, job);
+        writeManifest(job);
+        try {
+            enqueue(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            deleteJobDir(job.id);
+            logger.warn("Fila de treino cheia, job {} rejeitado", job.id);
+            throw e;
+        }
+        logger.info("Job de treino {} enfileirado ({} épocas)", job.id, options.getEpochs());
+        return job.snapshot();
+    }
+
+    /**
+     * Pede o cancelamento; um job em execução para antes do próximo mini-lote
+     */
+    public TrainingJobStatus cancel(String jobId) {
+        TrainingJob job = findJob(jobId);
+        boolean queued;
+        synchronized (job) {
+            if (job.isFinished()) {
+                return job.snapshot();
+            }
+            job.cancelRequested = true;
+            queued = job.status == JobStatus.QUEUED;
+            if (queued) {
+                job.finish(JobStatus.CANCELLED, null);
+            }
+        }
+        if (queued) {
+            // Ainda na fila: sai dela sem chegar a executar
+            Future<?> future = job.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+            finish(job);
+        }
+        logger.info("Cancelamento do job de treino {} solicitado", jobId);
+        return job.snapshot();
+    }
+
+    /**
+     * Reenfileira um job cancelado ou com falha a partir do último checkpoint
+     *
+     * @throws RejectedExecutionException quando a fila de treino está cheia
+     */
+    public TrainingJobStatus resume(String jobId) {
+        TrainingJob job = findJob(jobId);
+        int checkpointEpoch = latestCheckpointEpoch(job.id);
+        synchronized (job) {
+            if (job.status != JobStatus.FAILED && job.status != JobStatus.CANCELLED) {
+                throw new BadRequestException("Apenas jobs cancelados ou com falha podem ser retomados");
+            }
+            job.requeue(checkpointEpoch);
+            writeManifest(job);
+            try {
+                enqueue(job);
+            } catch (RejectedExecutionException e) {
+                job.finish(JobStatus.FAILED, "Fila de treino cheia");
+                writeManifest(job);
+                throw e;
+            }
+        }
+        logger.info("Job de treino {} retomado a partir da época {}", jobId, checkpointEpoch);
+        return job.snapshot();
+    }
+
+    public TrainingJobStatus getStatus(String jobId) {
+        return findJob(jobId).snapshot();
+    }
+
+    /**
+     * Jobs conhecidos, do mais recente para o mais antigo
+     */
+    public List<TrainingJobStatus> listJobs() {
+        List<TrainingJobStatus> snapshots = new ArrayList<>();
+        for (TrainingJob job : jobs.values()) {
+            snapshots.add(job.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(TrainingJobStatus::getCreatedAt).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Abre um stream SSE do job: envia o estado atual imediatamente e um evento "epoch"
+     * a cada época, encerrando após "completed", "failed" ou "cancelled"
+     */
+    public SseEmitter subscribe(String jobId) {
+        TrainingJob job = findJob(jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        synchronized (job) {
+            if (job.isFinished()) {
+                send(emitter, job.finalEventName(), job.snapshot());
+                emitter.complete();
+                return emitter;
+            }
+            job.emitters.add(emitter);
+        }
+
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(error -> job.emitters.remove(emitter));
+        send(emitter, "status", job.snapshot());
+        return emitter;
+    }
+
+    /**
+     * Caminho do dataset sob o diretório de datasets; recusa caminhos que saiam dele,
+     * inclusive por links simbólicos
+     */
+    private String resolveDataset(String path) {
+        if (path == null) {
+            return null;
+        }
+        Path resolved = datasetRoot.resolve(path).normalize();
+        boolean inside = resolved.startsWith(datasetRoot);
+        if (inside && Files.exists(resolved)) {
+            try {
+                inside = resolved.toRealPath().startsWith(datasetRoot.toRealPath());
+            } catch (IOException e) {
+                throw new BadRequestException("Dataset inacessível: " + path);
+            }
+        }
+        if (!inside) {
+            throw new BadRequestException("Dataset fora do diretório de datasets: " + path);
+        }
+        return resolved.toString();
+    }
+
+    private void enqueue(TrainingJob job) {
+        job.future = executor.submit(() -> run(job));
+    }
+
+    private void run(TrainingJob job) {
+        int initialEpoch;
+        synchronized (job) {
+            if (job.status != JobStatus.QUEUED) {
+                return;
+            }
+            job.start();
+            initialEpoch = job.checkpointEpoch;
+        }
+        writeManifest(job);
+        publish(job, "status");
+
+        try {
+            ComputationGraph model = initialEpoch > 0
+                ? ModelSerializer.restoreComputationGraph(checkpointPath(job.id, initialEpoch).toFile(), true)
+                : classifierNetwork.copyModel();
+            TrainingOptions options = job.options.copy();
+            options.setInitialEpoch(initialEpoch);
+
+            TrainingResult result = trainer.trainMultiTask(
+                model, job.woundDatasetPath, job.tissueDatasetPath, options, new JobMonitor(job));
+
+            // O modelo final sempre fica em disco, mesmo fora da frequência de checkpoint
+            int epochs = job.completedEpochs();
+            if (epochs > job.checkpointEpoch) {
+                checkpoint(job, model, epochs);
+            }
+            if (job.installModel) {
+                // Gravado antes de servir: o modelo em uso sempre tem cópia em disco
+                Path installed = jobDir(job.id).resolve(WoundClassifierNetwork.getModelFileName());
+                model.save(installed.toFile(), true);
+                classifierNetwork.installModel(model);
+                logger.info("Modelo do job de treino {} instalado e gravado em {}", job.id, installed);
+            }
+            synchronized (job) {
+                job.result(result);
+                job.finish(JobStatus.COMPLETED, null);
+            }
+            logger.info("Job de treino {} concluído em {} épocas", job.id, epochs);
+        } catch (Throwable e) {
+            // Erros (ex.: falta de memória) também encerram o job, que senão ficaria em execução
+            if (job.cancelRequested) {
+                job.finish(JobStatus.CANCELLED, null);
+                logger.info("Job de treino {} cancelado após {} épocas", job.id, job.completedEpochs());
+            } else {
+                logger.error("Job de treino {} falhou: {}", job.id, e.getMessage(), e);
+                job.finish(JobStatus.FAILED, "Falha no treinamento: " + e.getMessage());
+            }
+        } finally {
+            finish(job);
+        }
+    }
+
+    /**
+     * Grava o estado final do job e encerra os streams SSE
+     */
+    private void finish(TrainingJob job) {
+        writeManifest(job);
+        List<SseEmitter> emitters;
+        synchronized (job) {
+            emitters = new ArrayList<>(job.emitters);
+            job.emitters.clear();
+        }
+        TrainingJobStatus snapshot = job.snapshot();
+        for (SseEmitter emitter : emitters) {
+            send(emitter, job.finalEventName(), snapshot);
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Grava o modelo como checkpoint da época (arquivo temporário + move atômico, para
+     * que uma queda durante a escrita não corrompa o último checkpoint válido)
+     */
+    private void checkpoint(TrainingJob job, ComputationGraph model, int epochs) throws IOException {
+        Path dir = Files.createDirectories(jobDir(job.id));
+        Path temp = Files.createTempFile(dir, CHECKPOINT_PREFIX, ".tmp");
+        try {
+            ModelSerializer.writeModel(model, temp.toFile(), true);
+            Files.move(temp, checkpointPath(job.id, epochs),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        job.checkpointed(epochs);
+        pruneCheckpoints(job.id);
+        logger.debug("Checkpoint do job de treino {} na época {}", job.id, epochs);
+    }
+
+    private void pruneCheckpoints(String jobId) throws IOException {
+        List<Integer> epochs = checkpointEpochs(jobId);
+        for (int i = 0; i < epochs.size() - checkpointsKept; i++) {
+            Files.deleteIfExists(checkpointPath(jobId, epochs.get(i)));
+        }
+    }
+
+    /**
+     * Épocas com checkpoint em disco, em ordem crescente
+     */
+    private List<Integer> checkpointEpochs(String jobId) throws IOException {
+        Path dir = jobDir(jobId);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(CHECKPOINT_SUFFIX))
+                .map(name -> Integer.parseInt(
+                    name.substring(CHECKPOINT_PREFIX.length(), name.length() - CHECKPOINT_SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Época do checkpoint mais recente em disco; 0 se não houver (o treino recomeça do modelo em uso)
+     */
+    private int latestCheckpointEpoch(String jobId) {
+        try {
+            List<Integer> epochs = checkpointEpochs(jobId);
+            return epochs.isEmpty() ? 0 : epochs.get(epochs.size() - 1);
+        } catch (IOException e) {
+            logger.warn("Não foi possível listar os checkpoints do job {}: {}", jobId, e.getMessage());
+            return 0;
+        }
+    }
+
+    private void writeManifest(TrainingJob job) {
+        try {
+            Path dir = Files.createDirectories(jobDir(job.id));
+            Path temp = Files.createTempFile(dir, "job-", ".tmp");
+            objectMapper.writeValue(temp.toFile(), job.snapshot());
+            Files.move(temp, dir.resolve(MANIFEST_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Não foi possível gravar o estado do job de treino {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private void deleteJobDir(String jobId) {
+        try {
+            Files.deleteIfExists(jobDir(jobId).resolve(MANIFEST_FILE));
+            Files.deleteIfExists(jobDir(jobId));
+        } catch (IOException e) {
+            logger.warn("Não foi possível remover o diretório do job de treino {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private Path jobDir(String jobId) {
+        return checkpointRoot.resolve(jobId);
+    }
+
+    private Path checkpointPath(String jobId, int epochs) {
+        return jobDir(jobId).resolve(String.format("%s%04d%s", CHECKPOINT_PREFIX, epochs, CHECKPOINT_SUFFIX));
+    }
+
+    private void publish(TrainingJob job, String eventName) {
+        TrainingJobStatus snapshot = job.snapshot();
+        for (SseEmitter emitter : job.emitters) {
+            send(emitter, eventName, snapshot);
+        }
+    }
+
+    private void send(SseEmitter emitter, String eventName, TrainingJobStatus snapshot) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).id(snapshot.getJobId()).data(snapshot));
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado; o emitter é removido pelos callbacks
+            emitter.completeWithError(e);
+        }
+    }
+
+    private TrainingJob findJob(String jobId) {
+        TrainingJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Job de treino", "id", jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Liga o treino ao job: cancelamento, cessão de CPU à inferência e checkpoints por época
+     */
+    private class JobMonitor implements TrainingMonitor {
+        private final TrainingJob job;
+
+        JobMonitor(TrainingJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void beforeBatch() throws InterruptedException {
+            checkCancelled();
+            if (!inferenceService.hasPendingWork()) {
+                return;
+            }
+            long start = System.nanoTime();
+            while (inferenceService.hasPendingWork()) {
+                Thread.sleep(yieldPollMs);
+                checkCancelled();
+            }
+            job.yielded(System.nanoTime() - start);
+        }
+
+        private void checkCancelled() {
+            if (job.cancelRequested) {
+                throw new TrainingCancelledException("Treino cancelado");
+            }
+        }
+
+        @Override
+        public void epochCompleted(EpochMetric metric, ComputationGraph model) throws IOException {
+            job.addMetric(metric);
+            int epochs = metric.getEpoch() + 1;
+            if (epochs % checkpointEvery == 0) {
+                checkpoint(job, model, epochs);
+            }
+            writeManifest(job);
+            publish(job, "epoch");
+        }
+    }
+
+    /**
+     * Estado mutável de um job; leituras externas usam {@link #snapshot()}
+     */
+    private static class TrainingJob {
+        private final String id;
+        private final String woundDatasetPath;
+        private final String tissueDatasetPath;
+        private final TrainingOptions options;
+        private final boolean installModel;
+        private final Instant createdAt;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final List<EpochMetric> metrics = new ArrayList<>();
+
+        private volatile boolean cancelRequested;
+        private volatile Future<?> future;
+        private JobStatus status = JobStatus.QUEUED;
+        private int checkpointEpoch;
+        private long inferenceYieldNanos;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String error;
+        private Double finalAccuracy;
+        private Double finalF1Score;
+        private Double finalTissueAccuracy;
+
+        TrainingJob(String id, String woundDatasetPath, String tissueDatasetPath,
+                    TrainingOptions options, boolean installModel, Instant createdAt) {
+            this.id = id;
+            this.woundDatasetPath = woundDatasetPath;
+            this.tissueDatasetPath = tissueDatasetPath;
+            this.options = options;
+            this.installModel = installModel;
+            this.createdAt = createdAt;
+        }
+
+        static TrainingJob restore(TrainingJobStatus saved) {
+            TrainingJob job = new TrainingJob(saved.getJobId(), saved.getWoundDatasetPath(),
+                saved.getTissueDatasetPath(), saved.getOptions(), saved.isInstallModel(), saved.getCreatedAt());
+            job.status = saved.getStatus();
+            job.metrics.addAll(saved.getEpochMetrics());
+            job.checkpointEpoch = saved.getCheckpointEpoch();
+            job.startedAt = saved.getStartedAt();
+            job.finishedAt = saved.getFinishedAt();
+            job.error = saved.getError();
+            job.finalAccuracy = saved.getFinalAccuracy();
+            job.finalF1Score = saved.getFinalF1Score();
+            job.finalTissueAccuracy = saved.getFinalTissueAccuracy();
+            return job;
+        }
+
+        synchronized void start() {
+            status = JobStatus.RUNNING;
+            startedAt = Instant.now();
+        }
+
+        /**
+         * Volta à fila a partir do checkpoint; métricas de épocas posteriores a ele são descartadas
+         */
+        synchronized void requeue(int fromEpoch) {
+            status = JobStatus.QUEUED;
+            cancelRequested = false;
+            checkpointEpoch = fromEpoch;
+            metrics.removeIf(metric -> metric.getEpoch() >= fromEpoch);
+            finishedAt = null;
+            error = null;
+        }
+
+        synchronized void addMetric(EpochMetric metric) {
+            metrics.add(metric);
+        }
+
+        synchronized int completedEpochs() {
+            return metrics.isEmpty() ? checkpointEpoch : metrics.get(metrics.size() - 1).getEpoch() + 1;
+        }
+
+        synchronized void checkpointed(int epochs) {
+            checkpointEpoch = epochs;
+        }
+
+        synchronized void yielded(long nanos) {
+            inferenceYieldNanos += nanos;
+        }
+
+        synchronized void result(TrainingResult result) {
+            finalAccuracy = result.getFinalAccuracy();
+            finalF1Score = result.getFinalF1Score();
+            finalTissueAccuracy = result.getFinalTissueAccuracy();
+        }
+
+        synchronized void finish(JobStatus status, String error) {
+            this.status = status;
+            this.error = error;
+            this.finishedAt = Instant.now();
+        }
+
+        synchronized void fail(String error) {
+            finish(JobStatus.FAILED, error);
+        }
+
+        synchronized boolean isFinished() {
+            return status == JobStatus.COMPLETED || status == JobStatus.FAILED || status == JobStatus.CANCELLED;
+        }
+
+        synchronized String finalEventName() {
+            return switch (status) {
+                case FAILED -> "failed";
+                case CANCELLED -> "cancelled";
+                default -> "completed";
+            };
+        }
+
+        synchronized TrainingJobStatus snapshot() {
+            TrainingJobStatus snapshot = new TrainingJobStatus();
+            snapshot.setJobId(id);
+            snapshot.setStatus(status);
+            snapshot.setWoundDatasetPath(woundDatasetPath);
+            snapshot.setTissueDatasetPath(tissueDatasetPath);
+            snapshot.setOptions(options.copy());
+            snapshot.setInstallModel(installModel);
+            snapshot.setEpochMetrics(new ArrayList<>(metrics));
+            snapshot.setCompletedEpochs(completedEpochs());
+            snapshot.setCheckpointEpoch(checkpointEpoch);
+            snapshot.setInferenceYieldMs(inferenceYieldNanos / 1_000_000);
+            snapshot.setCreatedAt(createdAt);
+            snapshot.setStartedAt(startedAt);
+            snapshot.setFinishedAt(finishedAt);
+            snapshot.setError(error);
+            snapshot.setFinalAccuracy(finalAccuracy);
+            snapshot.setFinalF1Score(finalF1Score);
+            snapshot.setFinalTissueAccuracy(finalTissueAccuracy);
+            snapshot.setStatusUrl(TRAINING_JOBS_PATH + "/" + id);
+            snapshot.setEventsUrl(TRAINING_JOBS_PATH + "/" + id + "/events");
+            return snapshot;
+        }
+    }
+
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    // ==================== DTOs ====================
+
+    /**
+     * Estado de um job de treino; também é o conteúdo do job.json gravado a cada época
+     */
+    public static class TrainingJobStatus {
+        private String jobId;
+        private JobStatus status;
+        private String woundDatasetPath;
+        private String tissueDatasetPath;
+        private TrainingOptions options;
+        private boolean installModel;
+        private List<EpochMetric> epochMetrics = new ArrayList<>();
+        private int completedEpochs;
+        private int checkpointEpoch;
+        private long inferenceYieldMs;
+        private Instant createdAt;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String error;
+        private Double finalAccuracy;
+        private Double finalF1Score;
+        private Double finalTissueAccuracy;
+        private String statusUrl;
+        private String eventsUrl;
+
+        public String getJobId() { return jobId; }
+        public void setJobId(String jobId) { this.jobId = jobId; }
+
+        public JobStatus getStatus() { return status; }
+        public void setStatus(JobStatus status) { this.status = status; }
+
+        public String getWoundDatasetPath() { return woundDatasetPath; }
+        public void setWoundDatasetPath(String woundDatasetPath) { this.woundDatasetPath = woundDatasetPath; }
+
+        public String getTissueDatasetPath() { return tissueDatasetPath; }
+        public void setTissueDatasetPath(String tissueDatasetPath) { this.tissueDatasetPath = tissueDatasetPath; }
+
+        public TrainingOptions getOptions() { return options; }
+        public void setOptions(TrainingOptions options) { this.options = options; }
+
+        /** Ao concluir, o modelo treinado passa a ser servido pela inferência */
+        public boolean isInstallModel() { return installModel; }
+        public void setInstallModel(boolean installModel) { this.installModel = installModel; }
+
+        public List<EpochMetric> getEpochMetrics() { return epochMetrics; }
+        public void setEpochMetrics(List<EpochMetric> epochMetrics) { this.epochMetrics = epochMetrics; }
+
+        public int getCompletedEpochs() { return completedEpochs; }
+        public void setCompletedEpochs(int completedEpochs) { this.completedEpochs = completedEpochs; }
+
+        /** Épocas contidas no último checkpoint gravado (ponto de retomada) */
+        public int getCheckpointEpoch() { return checkpointEpoch; }
+        public void setCheckpointEpoch(int checkpointEpoch) { this.checkpointEpoch = checkpointEpoch; }
+
+        /** Tempo total em que o treino esperou a inferência desocupar a CPU */
+        public long getInferenceYieldMs() { return inferenceYieldMs; }
+        public void setInferenceYieldMs(long inferenceYieldMs) { this.inferenceYieldMs = inferenceYieldMs; }
+
+        public Instant getCreatedAt() { return createdAt; }
+        public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+        public Instant getStartedAt() { return startedAt; }
+        public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+        public Instant getFinishedAt() { return finishedAt; }
+        public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+
+        public Double getFinalAccuracy() { return finalAccuracy; }
+        public void setFinalAccuracy(Double finalAccuracy) { this.finalAccuracy = finalAccuracy; }
+
+        public Double getFinalF1Score() { return finalF1Score; }
+        public void setFinalF1Score(Double finalF1Score) { this.finalF1Score = finalF1Score; }
+
+        public Double getFinalTissueAccuracy() { return finalTissueAccuracy; }
+        public void setFinalTissueAccuracy(Double finalTissueAccuracy) { this.finalTissueAccuracy = finalTissueAccuracy; }
+
+        public String getStatusUrl() { return statusUrl; }
+        public void setStatusUrl(String statusUrl) { this.statusUrl = statusUrl; }
+
+        public String getEventsUrl() { return eventsUrl; }
+        public void setEventsUrl(String eventsUrl) { this.eventsUrl = eventsUrl; }
+    }
+}
@@ -87,7 +87,7 @@ public class MultimodalWoundAnalysisService {
         
         // Diabetes aumenta probabilidade de pé diabético
         if (containsAny(comorbidities, "diabetes", "dm", "diabetes mellitus")) {
-            adjustedProbabilities.merge(WoundType.DIABETIC_FOOT, 0.25, Double::sum);
+            adjustedProbabilities.merge(WoundType.DIABETIC_ULCER, 0.25, Double::sum);
             refinement.addAdjustmentReason("Diabetes aumenta probabilidade de pé diabético");
         }
         
@@ -121,7 +121,7 @@ public class MultimodalWoundAnalysisService {
         
         if (location.contains("pé") || location.contains("plantar") || location.contains("digital")) {
             if (containsAny(comorbidities, "diabetes")) {
-                adjustedProbabilities.merge(WoundType.DIABETIC_FOOT, 0.2, Double::sum);
+                adjustedProbabilities.merge(WoundType.DIABETIC_ULCER, 0.2, Double::sum);
             }
         }
         
@@ -334,7 +334,7 @@ public class MultimodalWoundAnalysisService {
                     "Compressão pode agravar isquemia"
                 ));
             }
-            case DIABETIC_FOOT -> {
+            case DIABETIC_ULCER -> {
                 recommendations.add(new PersonalizedRecommendation(
                     "Controle Glicêmico",
                     "Intensificar controle glicêmico - meta HbA1c < 7% durante tratamento",
@@ -543,7 +543,7 @@ public class MultimodalWoundAnalysisService {
         
         // Alerta para diabéticos
         if (containsAny(comorbidities, "diabetes") && 
-            imageAnalysis.getWoundType() == WoundType.DIABETIC_FOOT) {
+            imageAnalysis.getWoundType() == WoundType.DIABETIC_ULCER) {
             alerts.add(new ClinicalAlert(
                 AlertLevel.HIGH,
                 "Pé Diabético de Alto Risco",
@@ -0,0 +1,66 @@
+package com.healplus.ml.neural;
+
+import com.healplus.ml.WoundType;
+
+/**
+ * Mapa de ativação de classe (Grad-CAM) da última camada convolucional, na resolução
+ * espacial dessa camada. Valores normalizados em [0, 1], linha a linha (y * width + x).
+ * Imutável: pode ser compartilhado entre cópias de resultados em cache.
+ */
+public final class ClassActivationMap {
+
+    private final float[] values;
+    private final int width;
+    private final int height;
+    private final WoundType targetClass;
+    private final String layer;
+
+    public ClassActivationMap(float[] values, int width, int height, WoundType targetClass, String layer) {
+        if (values.length != width * height) {
+            throw new IllegalArgumentException("Mapa com " + values.length + " valores não corresponde a "
+                + width + "x" + height);
+        }
+        this.values = values;
+        this.width = width;
+        this.height = height;
+        this.targetClass = targetClass;
+        this.layer = layer;
+    }
+
+    public float get(int x, int y) {
+        return values[y * width + x];
+    }
+
+    /**
+     * Amostragem bilinear em coordenadas contínuas do mapa (centros das células em x + 0.5)
+     */
+    public float sample(double x, double y) {
+        double fx = Math.max(0, Math.min(width - 1, x - 0.5));
+        double fy = Math.max(0, Math.min(height - 1, y - 0.5));
+        int x0 = (int) fx;
+        int y0 = (int) fy;
+        int x1 = Math.min(x0 + 1, width - 1);
+        int y1 = Math.min(y0 + 1, height - 1);
+        float wx = (float) (fx - x0);
+        float wy = (float) (fy - y0);
+
+        float top = get(x0, y0) + (get(x1, y0) - get(x0, y0)) * wx;
+        float bottom = get(x0, y1) + (get(x1, y1) - get(x0, y1)) * wx;
+        return top + (bottom - top) * wy;
+    }
+
+    /** Cópia dos valores; o array interno não é exposto */
+    public float[] toArray() {
+        return values.clone();
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public WoundType getTargetClass() { return targetClass; }
+    public String getLayer() { return layer; }
+
+    /** Tamanho aproximado em memória, usado pelo cache de resultados */
+    public long estimatedBytes() {
+        return 64L + (long) values.length * Float.BYTES;
+    }
+}
@@ -0,0 +1,36 @@
+package com.healplus.ml.neural;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Imagem de ferida decodificada uma única vez
+ * Guarda os bytes originais, as dimensões da imagem enviada e a versão já redimensionada
+ * para a resolução da rede (224x224 RGB), compartilhada por pré-processamento, análise de
+ * cores, XAI e validação sem nova chamada a ImageIO.
+ */
+public class DecodedImage {
+
+    private final byte[] encodedBytes;
+    private final int originalWidth;
+    private final int originalHeight;
+    private final BufferedImage resized;
+
+    DecodedImage(byte[] encodedBytes, int originalWidth, int originalHeight, BufferedImage resized) {
+        this.encodedBytes = encodedBytes;
+        this.originalWidth = originalWidth;
+        this.originalHeight = originalHeight;
+        this.resized = resized;
+    }
+
+    /** Bytes originais (JPEG/PNG) recebidos, sem cópia */
+    public byte[] getEncodedBytes() { return encodedBytes; }
+
+    public int getEncodedSize() { return encodedBytes.length; }
+
+    public int getOriginalWidth() { return originalWidth; }
+
+    public int getOriginalHeight() { return originalHeight; }
+
+    /** Imagem na resolução de entrada da rede; tratar como somente leitura */
+    public BufferedImage getResized() { return resized; }
+}
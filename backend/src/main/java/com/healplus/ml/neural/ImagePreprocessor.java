@@ -1,17 +1,29 @@
 package com.healplus.ml.neural;
 
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.FloatBuffer;
 import java.util.Base64;
+import java.util.Iterator;
 
 @Component
 public class ImagePreprocessor {
@@ -25,18 +37,135 @@ public class ImagePreprocessor {
     private static final double[] MEAN = {0.485, 0.456, 0.406};
     private static final double[] STD = {0.229, 0.224, 0.225};
     
-    public INDArray preprocessImage(byte[] imageBytes) throws IOException {
-        BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(imageBytes));
-        return preprocessImage(originalImage);
+    @Value("${ml.preprocessing.subsampled-decode:true}")
+    private boolean subsampledDecode = true;
+    
+    // Valor normalizado ((v / 255) - média) / desvio por canal para cada intensidade 0-255
+    private static final float[] RED_LUT = normalizationTable(0);
+    private static final float[] GREEN_LUT = normalizationTable(1);
+    private static final float[] BLUE_LUT = normalizationTable(2);
+    
+    private static float[] normalizationTable(int channel) {
+        float[] table = new float[256];
+        for (int v = 0; v < 256; v++) {
+            table[v] = (float) ((v / 255.0 - MEAN[channel]) / STD[channel]);
+        }
+        return table;
     }
     
-    public INDArray preprocessBase64Image(String base64Image) throws IOException {
+    /**
+     * Decodifica a imagem uma única vez e já a redimensiona para a entrada da rede.
+     * O cabeçalho é lido antes dos pixels: fotos maiores que o necessário são decodificadas
+     * com subamostragem na origem, chegando à menor resolução >= 224x224 antes do
+     * redimensionamento final, sem materializar a imagem em resolução cheia.
+     */
+    public DecodedImage decode(byte[] imageBytes) throws IOException {
+        SourceImage source = readSubsampled(imageBytes);
+        BufferedImage resizedImage = resizeImage(source.image(), TARGET_WIDTH, TARGET_HEIGHT);
+        return new DecodedImage(imageBytes, source.width(), source.height(), resizedImage);
+    }
+    
+    /**
+     * Decodifica com a mesma subamostragem na origem de {@link #decode(byte[])}, sem o
+     * redimensionamento final: a imagem mantém a proporção original e resolução >= 224x224,
+     * para transformações (aumento de dados) que reamostram direto da fonte
+     */
+    public BufferedImage decodeSource(byte[] imageBytes) throws IOException {
+        return readSubsampled(imageBytes).image();
+    }
+    
+    private SourceImage readSubsampled(byte[] imageBytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Formato de imagem não suportado ou arquivo corrompido");
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = subsampledDecode ? subsamplingFactor(width, height) : 1;
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                BufferedImage decoded = reader.read(0, param);
+                logger.debug("Imagem {}x{} decodificada com subamostragem {} -> {}x{}",
+                    width, height, factor, decoded.getWidth(), decoded.getHeight());
+                return new SourceImage(decoded, width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Imagem decodificada (possivelmente subamostrada) e as dimensões do arquivo
+     */
+    private record SourceImage(BufferedImage image, int width, int height) {
+    }
+    
+    /**
+     * Maior fator inteiro que mantém as duas dimensões >= resolução da rede
+     */
+    static int subsamplingFactor(int width, int height) {
+        return Math.max(1, Math.min(width / TARGET_WIDTH, height / TARGET_HEIGHT));
+    }
+    
+    public DecodedImage decodeBase64(String base64Image) throws IOException {
+        return decode(base64ToBytes(base64Image));
+    }
+    
+    /**
+     * Extrai os bytes da imagem de um Base64 simples ou data URL
+     */
+    public byte[] base64ToBytes(String base64Image) throws IOException {
         String imageData = base64Image;
         if (base64Image.contains(",")) {
             imageData = base64Image.split(",")[1];
         }
-        byte[] imageBytes = Base64.getDecoder().decode(imageData);
-        return preprocessImage(imageBytes);
+        try {
+            return Base64.getDecoder().decode(imageData);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Base64 inválido", e);
+        }
+    }
+    
+    public INDArray preprocessImage(byte[] imageBytes) throws IOException {
+        return preprocessImage(decode(imageBytes));
+    }
+    
+    public INDArray preprocessBase64Image(String base64Image) throws IOException {
+        return preprocessImage(decodeBase64(base64Image));
+    }
+    
+    public INDArray preprocessImage(DecodedImage image) {
+        return imageToNDArray(image.getResized());
+    }
+    
+    /**
+     * Escreve a imagem normalizada na posição {@code slot} de um lote pré-alocado.
+     * Caminho quente da inferência: não aloca memória no heap.
+     */
+    public void writeTensor(DecodedImage image, InputTensorBuffer buffer, int slot) {
+        writeTensor(image.getResized(), buffer, slot);
+    }
+    
+    /**
+     * Variante para imagens já transformadas na resolução da rede (ex.: aumento de dados
+     * no treino); imagens de outro tamanho são redimensionadas antes da normalização.
+     */
+    public void writeTensor(BufferedImage image, InputTensorBuffer buffer, int slot) {
+        if (slot < 0 || slot >= buffer.getCapacity()) {
+            throw new IllegalArgumentException("Posição fora do lote: " + slot);
+        }
+        BufferedImage input = image.getWidth() == TARGET_WIDTH && image.getHeight() == TARGET_HEIGHT
+            ? image
+            : resizeImage(image, TARGET_WIDTH, TARGET_HEIGHT);
+        writeTensor(input, buffer.getView(), slot * CHANNELS * TARGET_HEIGHT * TARGET_WIDTH);
     }
     
     public INDArray preprocessImage(BufferedImage originalImage) {
@@ -59,26 +188,67 @@ public class ImagePreprocessor {
     }
     
     private INDArray imageToNDArray(BufferedImage image) {
-        int height = image.getHeight();
+        INDArray tensor = Nd4j.create(DataType.FLOAT, 1, CHANNELS, image.getHeight(), image.getWidth());
+        writeTensor(image, tensor.data().asNioFloat(), 0);
+        return tensor;
+    }
+    
+    /**
+     * Converte a imagem para o layout CHW normalizado lendo o raster diretamente
+     * (DataBufferInt para TYPE_INT_RGB/ARGB, DataBufferByte para TYPE_3BYTE_BGR/4BYTE_ABGR).
+     * Outros formatos caem no caminho genérico via getRGB.
+     */
+    private void writeTensor(BufferedImage image, FloatBuffer dest, int offset) {
         int width = image.getWidth();
+        int height = image.getHeight();
+        int plane = width * height;
+        WritableRaster raster = image.getRaster();
+        boolean rootRaster = raster.getParent() == null
+            && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
         
-        double[][][][] data = new double[1][CHANNELS][height][width];
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                
-                double r = ((rgb >> 16) & 0xFF) / 255.0;
-                double g = ((rgb >> 8) & 0xFF) / 255.0;
-                double b = (rgb & 0xFF) / 255.0;
-                
-                data[0][0][y][x] = (r - MEAN[0]) / STD[0];
-                data[0][1][y][x] = (g - MEAN[1]) / STD[1];
-                data[0][2][y][x] = (b - MEAN[2]) / STD[2];
+        switch (rootRaster ? image.getType() : BufferedImage.TYPE_CUSTOM) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+                for (int y = 0; y < height; y++) {
+                    int src = y * stride;
+                    int dst = offset + y * width;
+                    for (int x = 0; x < width; x++, src++, dst++) {
+                        int rgb = pixels[src];
+                        dest.put(dst, RED_LUT[(rgb >> 16) & 0xFF]);
+                        dest.put(dst + plane, GREEN_LUT[(rgb >> 8) & 0xFF]);
+                        dest.put(dst + 2 * plane, BLUE_LUT[rgb & 0xFF]);
+                    }
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+                int pixelStride = image.getType() == BufferedImage.TYPE_3BYTE_BGR ? 3 : 4;
+                int stride = ((ComponentSampleModel) raster.getSampleModel()).getScanlineStride();
+                // No ABGR o byte 0 é alfa; B, G, R seguem na mesma ordem do BGR
+                int first = pixelStride - 3;
+                for (int y = 0; y < height; y++) {
+                    int src = y * stride + first;
+                    int dst = offset + y * width;
+                    for (int x = 0; x < width; x++, src += pixelStride, dst++) {
+                        dest.put(dst, RED_LUT[pixels[src + 2] & 0xFF]);
+                        dest.put(dst + plane, GREEN_LUT[pixels[src + 1] & 0xFF]);
+                        dest.put(dst + 2 * plane, BLUE_LUT[pixels[src] & 0xFF]);
+                    }
+                }
+            }
+            default -> {
+                for (int y = 0; y < height; y++) {
+                    int dst = offset + y * width;
+                    for (int x = 0; x < width; x++, dst++) {
+                        int rgb = image.getRGB(x, y);
+                        dest.put(dst, RED_LUT[(rgb >> 16) & 0xFF]);
+                        dest.put(dst + plane, GREEN_LUT[(rgb >> 8) & 0xFF]);
+                        dest.put(dst + 2 * plane, BLUE_LUT[rgb & 0xFF]);
+                    }
+                }
             }
         }
-        
-        return Nd4j.create(data);
     }
     
     public ColorAnalysis analyzeColors(BufferedImage image) {
@@ -119,9 +289,12 @@ public class ImagePreprocessor {
         return analysis;
     }
     
-    public ColorAnalysis analyzeColorsFromBytes(byte[] imageBytes) throws IOException {
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
-        return analyzeColors(image);
+    /**
+     * Análise de cores sobre a imagem já redimensionada; as proporções de cor
+     * se mantêm e o custo deixa de depender da resolução da foto enviada.
+     */
+    public ColorAnalysis analyzeColors(DecodedImage image) {
+        return analyzeColors(image.getResized());
     }
     
     public static class ColorAnalysis {
@@ -0,0 +1,59 @@
+package com.healplus.ml.neural;
+
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Tensor de entrada FLOAT [N,3,224,224] pré-alocado e reutilizado entre lotes
+ * O {@link ImagePreprocessor} escreve cada imagem diretamente em uma posição do lote
+ * através da visão NIO do buffer nativo, sem criar arrays intermediários por requisição.
+ * Não é thread-safe: cada instância pertence a um único lote em execução por vez.
+ */
+public class InputTensorBuffer {
+
+    private final int capacity;
+    private final INDArray tensor;
+    private final FloatBuffer view;
+    private final INDArray[] prefixViews;
+
+    public InputTensorBuffer(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.tensor = Nd4j.create(DataType.FLOAT, this.capacity, WoundClassifierNetwork.getChannels(),
+            WoundClassifierNetwork.getImageHeight(), WoundClassifierNetwork.getImageWidth());
+        this.view = tensor.data().asNioFloat();
+        this.prefixViews = new INDArray[this.capacity + 1];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Visão direta (layout NCHW) sobre a memória do tensor
+     */
+    FloatBuffer getView() {
+        return view;
+    }
+
+    /**
+     * Visão das primeiras {@code size} imagens do lote; as visões são criadas uma única
+     * vez por tamanho e compartilham a memória do tensor pré-alocado.
+     */
+    public INDArray batchOf(int size) {
+        if (size < 1 || size > capacity) {
+            throw new IllegalArgumentException("Tamanho de lote fora da capacidade do buffer: " + size);
+        }
+        INDArray batch = prefixViews[size];
+        if (batch == null) {
+            batch = size == capacity
+                ? tensor
+                : tensor.get(NDArrayIndex.interval(0, size), NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.all());
+            prefixViews[size] = batch;
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,148 @@
+package com.healplus.ml.neural;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Pool de réplicas dos modelos confinadas por thread
+ * Cada worker possui sua própria cópia da rede (clonada do modelo mestre) e é a única
+ * thread que a utiliza, de modo que inferências concorrentes não compartilham estado de
+ * camadas nem disputam locks. Quando o modelo mestre é substituído, cada worker reclona
+ * sua réplica antes da próxima tarefa.
+ */
+public class ModelReplicaPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelReplicaPool.class);
+
+    private final int size;
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<Replica> localReplica = new ThreadLocal<>();
+    private final Semaphore idleReplicas;
+
+    private volatile MasterModel master;
+
+    public ModelReplicaPool(int size, ComputationGraph model) {
+        this.size = Math.max(1, size);
+        this.master = new MasterModel(model, 1);
+        this.idleReplicas = new Semaphore(this.size);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+            this.size, this.size, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "ml-replica-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.workers.prestartAllCoreThreads();
+
+        logger.info("Pool de réplicas de inferência criado com {} réplicas", this.size);
+    }
+
+    /**
+     * Executa a tarefa na réplica da próxima thread livre
+     */
+    public <T> CompletableFuture<T> submit(Function<Replica, T> task) {
+        return CompletableFuture.supplyAsync(() -> task.apply(currentReplica()), workers);
+    }
+
+    /**
+     * Versão bloqueante de {@link #submit(Function)}
+     */
+    public <T> T execute(Function<Replica, T> task) {
+        try {
+            return submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Inferência interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Falha na inferência", cause);
+        }
+    }
+
+    /**
+     * Bloqueia até que uma réplica esteja ociosa; usado pelo motor de lotes para
+     * acumular requisições enquanto todas as réplicas estão ocupadas.
+     */
+    public void acquireIdleReplica() throws InterruptedException {
+        idleReplicas.acquire();
+    }
+
+    public void releaseIdleReplica() {
+        idleReplicas.release();
+    }
+
+    /**
+     * Substitui o modelo mestre; as réplicas são reclonadas sob demanda
+     */
+    public synchronized void updateMaster(ComputationGraph model) {
+        master = new MasterModel(model, master.generation + 1);
+        logger.info("Modelo mestre atualizado (geração {}), réplicas serão reclonadas", master.generation);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /** Permissões de réplica ociosa ainda não adquiridas pelo motor de lotes */
+    public int getIdleReplicas() {
+        return idleReplicas.availablePermits();
+    }
+
+    public int getBusyReplicas() {
+        return workers.getActiveCount();
+    }
+
+    public int getPendingTasks() {
+        return workers.getQueue().size();
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private Replica currentReplica() {
+        MasterModel current = master;
+        Replica replica = localReplica.get();
+        if (replica == null || replica.generation != current.generation) {
+            replica = new Replica(current.model.clone(), current.generation);
+            localReplica.set(replica);
+        }
+        return replica;
+    }
+
+    /**
+     * Cópia da rede pertencente a uma única thread worker
+     */
+    public static class Replica {
+        private final ComputationGraph model;
+        private final long generation;
+
+        Replica(ComputationGraph model, long generation) {
+            this.model = model;
+            this.generation = generation;
+        }
+
+        public ComputationGraph getModel() { return model; }
+    }
+
+    private static class MasterModel {
+        private final ComputationGraph model;
+        private final long generation;
+
+        MasterModel(ComputationGraph model, long generation) {
+            this.model = model;
+            this.generation = generation;
+        }
+    }
+}
@@ -2,26 +2,40 @@ package com.healplus.ml.neural;
 
 import com.healplus.ml.TissueType;
 import com.healplus.ml.WoundType;
-import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.inputs.InputType;
 import org.deeplearning4j.nn.conf.layers.*;
-import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.weights.WeightInit;
 import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.learning.config.Adam;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.nd4j.linalg.ops.transforms.Transforms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Rede multi-tarefa para análise de feridas
+ * Um único tronco convolucional compartilhado alimenta duas cabeças: classificação do
+ * tipo de ferida e composição de tecidos. Um forward pass por imagem produz as duas
+ * distribuições, em vez de processar a mesma entrada em duas redes independentes.
+ */
 @Component
 public class WoundClassifierNetwork {
     
@@ -33,131 +47,138 @@ public class WoundClassifierNetwork {
     private static final int NUM_WOUND_CLASSES = WoundType.values().length;
     private static final int NUM_TISSUE_CLASSES = TissueType.values().length;
     
-    private MultiLayerNetwork woundClassifier;
-    private MultiLayerNetwork tissueSegmenter;
+    public static final String INPUT = "input";
+    public static final String WOUND_OUTPUT = "wound_output";
+    public static final String TISSUE_OUTPUT = "tissue_output";
+    
+    // Índices das saídas de ComputationGraph.output(...), na ordem de setOutputs
+    private static final int WOUND_OUTPUT_INDEX = 0;
+    private static final int TISSUE_OUTPUT_INDEX = 1;
+    
+    // Camadas lidas no forward pass de inferência: saídas das duas cabeças e as ativações
+    // necessárias ao Grad-CAM (última convolução e camadas densas da cabeça de feridas)
+    private static final String LAST_CONV = "conv4";
+    private static final String WOUND_DENSE1 = "wound_dense1";
+    private static final String WOUND_DENSE2 = "wound_dense2";
+    private static final List<String> INFERENCE_LAYERS = List.of(
+        WOUND_OUTPUT, TISSUE_OUTPUT, LAST_CONV, WOUND_DENSE1, WOUND_DENSE2);
+    
+    private static final String MODEL_FILE = "wound_multitask.zip";
+    private static final String LEGACY_WOUND_MODEL_FILE = "wound_classifier.zip";
+    private static final String LEGACY_TISSUE_MODEL_FILE = "tissue_segmenter.zip";
+    
+    // 0 = automático: núcleos disponíveis / threads do ND4J por operação
+    @Value("${ml.inference.replicas:0}")
+    private int configuredReplicas;
+    
+    private ComputationGraph model;
+    private ModelReplicaPool replicaPool;
     private boolean modelsLoaded = false;
+    // Incrementada a cada troca de pesos; compõe as chaves de cache de resultados
+    private final AtomicLong modelVersion = new AtomicLong(1);
     
     @PostConstruct
     public void initialize() {
         logger.info("Inicializando Rede Neural para Classificação de Feridas...");
-        initializeWoundClassifier();
-        initializeTissueSegmenter();
+        initializeMultiTaskNetwork();
+        replicaPool = new ModelReplicaPool(resolveReplicaCount(), model);
         modelsLoaded = true;
         logger.info("Redes Neurais inicializadas com sucesso!");
     }
     
-    private void initializeWoundClassifier() {
-        MultiLayerConfiguration config = new NeuralNetConfiguration.Builder()
+    @PreDestroy
+    public void shutdown() {
+        if (replicaPool != null) {
+            replicaPool.shutdown();
+        }
+    }
+    
+    private int resolveReplicaCount() {
+        if (configuredReplicas > 0) {
+            return configuredReplicas;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threadsPerOp = Math.max(1, Nd4j.getEnvironment().maxMasterThreads());
+        return Math.max(1, cores / threadsPerOp);
+    }
+    
+    private void initializeMultiTaskNetwork() {
+        ComputationGraphConfiguration config = new NeuralNetConfiguration.Builder()
             .seed(42)
             .weightInit(WeightInit.XAVIER)
             .updater(new Adam(0.001))
-            .list()
-            .layer(new ConvolutionLayer.Builder(5, 5)
+            .graphBuilder()
+            .addInputs(INPUT)
+            // Tronco convolucional compartilhado
+            .addLayer("conv1", new ConvolutionLayer.Builder(5, 5)
                 .nIn(CHANNELS)
                 .stride(1, 1)
                 .nOut(32)
                 .activation(Activation.RELU)
-                .build())
-            .layer(new SubsamplingLayer.Builder(PoolingType.MAX)
+                .build(), INPUT)
+            .addLayer("pool1", new SubsamplingLayer.Builder(PoolingType.MAX)
                 .kernelSize(2, 2)
                 .stride(2, 2)
-                .build())
-            .layer(new ConvolutionLayer.Builder(5, 5)
+                .build(), "conv1")
+            .addLayer("conv2", new ConvolutionLayer.Builder(5, 5)
                 .stride(1, 1)
                 .nOut(64)
                 .activation(Activation.RELU)
-                .build())
-            .layer(new SubsamplingLayer.Builder(PoolingType.MAX)
+                .build(), "pool1")
+            .addLayer("pool2", new SubsamplingLayer.Builder(PoolingType.MAX)
                 .kernelSize(2, 2)
                 .stride(2, 2)
-                .build())
-            .layer(new ConvolutionLayer.Builder(3, 3)
+                .build(), "conv2")
+            .addLayer("conv3", new ConvolutionLayer.Builder(3, 3)
                 .stride(1, 1)
                 .nOut(128)
                 .activation(Activation.RELU)
-                .build())
-            .layer(new SubsamplingLayer.Builder(PoolingType.MAX)
+                .build(), "pool2")
+            .addLayer("pool3", new SubsamplingLayer.Builder(PoolingType.MAX)
                 .kernelSize(2, 2)
                 .stride(2, 2)
-                .build())
-            .layer(new ConvolutionLayer.Builder(3, 3)
+                .build(), "conv3")
+            .addLayer(LAST_CONV, new ConvolutionLayer.Builder(3, 3)
                 .stride(1, 1)
                 .nOut(256)
                 .activation(Activation.RELU)
-                .build())
-            .layer(new GlobalPoolingLayer.Builder(PoolingType.AVG).build())
-            .layer(new DenseLayer.Builder()
+                .build(), "pool3")
+            .addLayer("gap", new GlobalPoolingLayer.Builder(PoolingType.AVG).build(), LAST_CONV)
+            // Cabeça de classificação do tipo de ferida
+            .addLayer(WOUND_DENSE1, new DenseLayer.Builder()
                 .nOut(512)
                 .activation(Activation.RELU)
                 .dropOut(0.5)
-                .build())
-            .layer(new DenseLayer.Builder()
+                .build(), "gap")
+            .addLayer(WOUND_DENSE2, new DenseLayer.Builder()
                 .nOut(256)
                 .activation(Activation.RELU)
                 .dropOut(0.3)
-                .build())
-            .layer(new OutputLayer.Builder(LossFunctions.LossFunction.NEGATIVELOGLIKELIHOOD)
+                .build(), WOUND_DENSE1)
+            .addLayer(WOUND_OUTPUT, new OutputLayer.Builder(LossFunctions.LossFunction.NEGATIVELOGLIKELIHOOD)
                 .nOut(NUM_WOUND_CLASSES)
                 .activation(Activation.SOFTMAX)
-                .build())
-            .setInputType(InputType.convolutional(IMAGE_HEIGHT, IMAGE_WIDTH, CHANNELS))
-            .build();
-        
-        woundClassifier = new MultiLayerNetwork(config);
-        woundClassifier.init();
-        
-        logger.info("Classificador de Feridas CNN inicializado: {} parâmetros", 
-            woundClassifier.numParams());
-    }
-    
-    private void initializeTissueSegmenter() {
-        MultiLayerConfiguration config = new NeuralNetConfiguration.Builder()
-            .seed(42)
-            .weightInit(WeightInit.XAVIER)
-            .updater(new Adam(0.0001))
-            .list()
-            .layer(new ConvolutionLayer.Builder(3, 3)
-                .nIn(CHANNELS)
-                .stride(1, 1)
-                .nOut(64)
-                .activation(Activation.RELU)
-                .build())
-            .layer(new ConvolutionLayer.Builder(3, 3)
-                .stride(1, 1)
-                .nOut(64)
-                .activation(Activation.RELU)
-                .build())
-            .layer(new SubsamplingLayer.Builder(PoolingType.MAX)
-                .kernelSize(2, 2)
-                .stride(2, 2)
-                .build())
-            .layer(new ConvolutionLayer.Builder(3, 3)
-                .stride(1, 1)
-                .nOut(128)
-                .activation(Activation.RELU)
-                .build())
-            .layer(new ConvolutionLayer.Builder(3, 3)
-                .stride(1, 1)
-                .nOut(128)
-                .activation(Activation.RELU)
-                .build())
-            .layer(new GlobalPoolingLayer.Builder(PoolingType.AVG).build())
-            .layer(new DenseLayer.Builder()
+                .build(), WOUND_DENSE2)
+            // Cabeça de composição de tecidos (taxa de aprendizado menor, como no segmentador original)
+            .addLayer("tissue_dense1", new DenseLayer.Builder()
                 .nOut(256)
                 .activation(Activation.RELU)
-                .build())
-            .layer(new OutputLayer.Builder(LossFunctions.LossFunction.NEGATIVELOGLIKELIHOOD)
+                .updater(new Adam(0.0001))
+                .build(), "gap")
+            .addLayer(TISSUE_OUTPUT, new OutputLayer.Builder(LossFunctions.LossFunction.NEGATIVELOGLIKELIHOOD)
                 .nOut(NUM_TISSUE_CLASSES)
                 .activation(Activation.SOFTMAX)
-                .build())
-            .setInputType(InputType.convolutional(IMAGE_HEIGHT, IMAGE_WIDTH, CHANNELS))
+                .updater(new Adam(0.0001))
+                .build(), "tissue_dense1")
+            .setOutputs(WOUND_OUTPUT, TISSUE_OUTPUT)
+            .setInputTypes(InputType.convolutional(IMAGE_HEIGHT, IMAGE_WIDTH, CHANNELS))
             .build();
         
-        tissueSegmenter = new MultiLayerNetwork(config);
-        tissueSegmenter.init();
+        model = new ComputationGraph(config);
+        model.init();
         
-        logger.info("Segmentador de Tecidos CNN inicializado: {} parâmetros", 
-            tissueSegmenter.numParams());
+        logger.info("Rede multi-tarefa CNN inicializada (tronco compartilhado + 2 cabeças): {} parâmetros", 
+            model.numParams());
     }
     
     public Map<WoundType, Double> classifyWound(INDArray imageData) {
@@ -165,59 +186,205 @@ public class WoundClassifierNetwork {
             throw new IllegalStateException("Modelos não carregados");
         }
         
-        INDArray output = woundClassifier.output(imageData);
-        Map<WoundType, Double> predictions = new HashMap<>();
-        
-        WoundType[] types = WoundType.values();
-        for (int i = 0; i < types.length; i++) {
-            predictions.put(types[i], output.getDouble(0, i));
+        INDArray[] outputs = replicaPool.execute(replica -> replica.getModel().output(imageData));
+        return toWoundPredictions(outputs[WOUND_OUTPUT_INDEX], 0);
+    }
+    
+    public Map<TissueType, Double> segmentTissues(INDArray imageData) {
+        if (!modelsLoaded) {
+            throw new IllegalStateException("Modelos não carregados");
         }
         
-        return predictions;
+        INDArray[] outputs = replicaPool.execute(replica -> replica.getModel().output(imageData));
+        return toTissuePredictions(outputs[TISSUE_OUTPUT_INDEX], 0);
     }
     
-    public Map<TissueType, Double> segmentTissues(INDArray imageData) {
+    /**
+     * Executa classificação e composição de tecidos para um lote [N,3,224,224] com um único
+     * forward pass, devolvendo uma predição por linha do lote.
+     */
+    public List<Prediction> predictBatch(INDArray batch) {
         if (!modelsLoaded) {
             throw new IllegalStateException("Modelos não carregados");
         }
+        return replicaPool.execute(replica -> predictOnReplica(replica, batch));
+    }
+    
+    /**
+     * Versão assíncrona de {@link #predictBatch(INDArray)}, executada na próxima réplica livre
+     */
+    public CompletableFuture<List<Prediction>> predictBatchAsync(INDArray batch) {
+        if (!modelsLoaded) {
+            throw new IllegalStateException("Modelos não carregados");
+        }
+        return replicaPool.submit(replica -> predictOnReplica(replica, batch));
+    }
+    
+    /**
+     * Apenas as probabilidades da cabeça de feridas [N, classes] para um lote, na próxima
+     * réplica livre; usado por explicações que precisam de muitas variantes da mesma imagem
+     */
+    public CompletableFuture<INDArray> predictWoundProbabilitiesAsync(INDArray batch) {
+        if (!modelsLoaded) {
+            throw new IllegalStateException("Modelos não carregados");
+        }
+        return replicaPool.submit(replica -> replica.getModel().output(batch)[WOUND_OUTPUT_INDEX]);
+    }
+    
+    private List<Prediction> predictOnReplica(ModelReplicaPool.Replica replica, INDArray batch) {
+        ComputationGraph graph = replica.getModel();
+        // Um único forward pass fornece as predições e as ativações usadas no Grad-CAM
+        INDArray[] activations = graph.output(INFERENCE_LAYERS, false, new INDArray[]{batch}, null);
+        INDArray woundOutput = activations[0];
+        INDArray tissueOutput = activations[1];
         
-        INDArray output = tissueSegmenter.output(imageData);
-        Map<TissueType, Double> predictions = new HashMap<>();
+        int size = (int) batch.size(0);
+        List<Prediction> predictions = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            int targetClass = woundOutput.getRow(row).argMax().getInt(0);
+            predictions.add(new Prediction(
+                toWoundPredictions(woundOutput, row),
+                toTissuePredictions(tissueOutput, row),
+                gradCam(graph, activations, row, targetClass)
+            ));
+        }
+        return predictions;
+    }
+    
+    /**
+     * Grad-CAM da classe de ferida prevista sobre a última convolução.
+     * Como a convolução é seguida de global average pooling, o gradiente do escore
+     * (pré-softmax) em relação a cada mapa é espacialmente constante e igual a
+     * d(escore)/d(gap) / (H*W); ele é propagado analiticamente pelas camadas densas ReLU
+     * (dropout inativo na inferência), sem um backward pass separado. O fator 1/(H*W)
+     * é descartado pela normalização final.
+     */
+    private ClassActivationMap gradCam(ComputationGraph graph, INDArray[] activations, int row, int targetClass) {
+        INDArray convActivations = activations[2];
+        INDArray dense1 = activations[3].getRow(row).reshape(-1, 1);
+        INDArray dense2 = activations[4].getRow(row).reshape(-1, 1);
+        
+        INDArray outputWeights = graph.getLayer(WOUND_OUTPUT).getParam("W");
+        INDArray grad = outputWeights.getColumn(targetClass).dup().reshape(-1, 1);
+        grad.muli(Transforms.step(dense2));
+        grad = graph.getLayer(WOUND_DENSE2).getParam("W").mmul(grad);
+        grad.muli(Transforms.step(dense1));
+        grad = graph.getLayer(WOUND_DENSE1).getParam("W").mmul(grad);
+        
+        int channels = (int) convActivations.size(1);
+        int height = (int) convActivations.size(2);
+        int width = (int) convActivations.size(3);
+        INDArray maps = convActivations.get(NDArrayIndex.point(row)).reshape(channels, (long) height * width);
         
+        // Combinação ponderada dos mapas seguida de ReLU, normalizada em [0, 1]
+        float[] cam = grad.reshape(1, channels).mmul(maps).toFloatVector();
+        float max = 0f;
+        for (int i = 0; i < cam.length; i++) {
+            cam[i] = Math.max(0f, cam[i]);
+            max = Math.max(max, cam[i]);
+        }
+        if (max > 0f) {
+            for (int i = 0; i < cam.length; i++) {
+                cam[i] /= max;
+            }
+        }
+        return new ClassActivationMap(cam, width, height, WoundType.values()[targetClass], LAST_CONV);
+    }
+    
+    private Map<WoundType, Double> toWoundPredictions(INDArray output, int row) {
+        Map<WoundType, Double> predictions = new EnumMap<>(WoundType.class);
+        WoundType[] types = WoundType.values();
+        for (int i = 0; i < types.length; i++) {
+            predictions.put(types[i], output.getDouble(row, i));
+        }
+        return predictions;
+    }
+    
+    private Map<TissueType, Double> toTissuePredictions(INDArray output, int row) {
+        Map<TissueType, Double> predictions = new EnumMap<>(TissueType.class);
         TissueType[] types = TissueType.values();
         for (int i = 0; i < types.length; i++) {
-            predictions.put(types[i], output.getDouble(0, i));
+            predictions.put(types[i], output.getDouble(row, i));
         }
-        
         return predictions;
     }
     
     public void saveModels(String basePath) throws Exception {
-        woundClassifier.save(new File(basePath + "/wound_classifier.zip"));
-        tissueSegmenter.save(new File(basePath + "/tissue_segmenter.zip"));
-        logger.info("Modelos salvos em: {}", basePath);
+        model.save(new File(basePath, MODEL_FILE));
+        logger.info("Modelo multi-tarefa salvo em: {}", basePath);
     }
     
     public void loadModels(String basePath) throws Exception {
-        File woundModelFile = new File(basePath + "/wound_classifier.zip");
-        File tissueModelFile = new File(basePath + "/tissue_segmenter.zip");
+        File modelFile = new File(basePath, MODEL_FILE);
         
-        if (woundModelFile.exists()) {
-            woundClassifier = MultiLayerNetwork.load(woundModelFile, true);
-            logger.info("Modelo de classificação de feridas carregado");
+        if (!modelFile.exists()) {
+            if (new File(basePath, LEGACY_WOUND_MODEL_FILE).exists() 
+                    || new File(basePath, LEGACY_TISSUE_MODEL_FILE).exists()) {
+                logger.warn("Encontrados modelos no formato antigo (redes separadas) em {}; " +
+                    "eles não são compatíveis com a rede multi-tarefa e precisam ser retreinados", basePath);
+            } else {
+                logger.warn("Modelo não encontrado: {}", modelFile.getPath());
+            }
+            return;
         }
         
-        if (tissueModelFile.exists()) {
-            tissueSegmenter = MultiLayerNetwork.load(tissueModelFile, true);
-            logger.info("Modelo de segmentação de tecidos carregado");
-        }
+        installModel(ComputationGraph.load(modelFile, true));
+        logger.info("Modelo multi-tarefa carregado de: {}", basePath);
+    }
+    
+    /**
+     * Cópia independente do modelo em uso, para treino sem afetar as réplicas de inferência
+     */
+    public synchronized ComputationGraph copyModel() {
+        return model.clone();
+    }
+    
+    /**
+     * Passa a servir os pesos informados; resultados em cache da versão anterior deixam de valer
+     */
+    public synchronized void installModel(ComputationGraph trained) {
+        model = trained;
+        replicaPool.updateMaster(model);
+        modelVersion.incrementAndGet();
     }
     
     public boolean isModelLoaded() {
         return modelsLoaded;
     }
     
+    public long getModelVersion() {
+        return modelVersion.get();
+    }
+    
+    public ModelReplicaPool getReplicaPool() {
+        return replicaPool;
+    }
+    
     public static int getImageHeight() { return IMAGE_HEIGHT; }
     public static int getImageWidth() { return IMAGE_WIDTH; }
     public static int getChannels() { return CHANNELS; }
+    
+    /** Nome do arquivo do modelo em {@link #saveModels} e {@link #loadModels} */
+    public static String getModelFileName() { return MODEL_FILE; }
+    
+    /**
+     * Resultado das duas cabeças da rede para uma única imagem do lote,
+     * com o mapa Grad-CAM da classe de ferida prevista
+     */
+    public static class Prediction {
+        private final Map<WoundType, Double> woundPredictions;
+        private final Map<TissueType, Double> tissuePredictions;
+        private final ClassActivationMap classActivationMap;
+
+        public Prediction(Map<WoundType, Double> woundPredictions, Map<TissueType, Double> tissuePredictions,
+                          ClassActivationMap classActivationMap) {
+            this.woundPredictions = woundPredictions;
+            this.tissuePredictions = tissuePredictions;
+            this.classActivationMap = classActivationMap;
+        }
+
+        public Map<WoundType, Double> getWoundPredictions() { return woundPredictions; }
+        public Map<TissueType, Double> getTissuePredictions() { return tissuePredictions; }
+        public ClassActivationMap getClassActivationMap() { return classActivationMap; }
+    }
 }
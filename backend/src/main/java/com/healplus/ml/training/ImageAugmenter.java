@@ -0,0 +1,153 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.neural.WoundClassifierNetwork;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * Aumento de dados das imagens de treino, aplicado antes da normalização do
+ * {@link com.healplus.ml.neural.ImagePreprocessor}.
+ * Recorte aleatório, rotação e espelhamentos são compostos em uma única transformação
+ * afim, aplicada à imagem decodificada antes do redimensionamento para a rede (uma só
+ * reamostragem bilinear). Os cantos que a rotação leva para fora da imagem são
+ * preenchidos por reflexão das bordas, não por preto. Em seguida vem uma variação leve de brilho,
+ * contraste e saturação. O matiz não é alterado, porque a cor distingue os tecidos
+ * (granulação, esfacelo, necrose).
+ */
+final class ImageAugmenter {
+
+    private static final int WIDTH = WoundClassifierNetwork.getImageWidth();
+    private static final int HEIGHT = WoundClassifierNetwork.getImageHeight();
+
+    static final double MIN_CROP_AREA = 0.7;
+    static final double MAX_ROTATION_DEGREES = 20;
+    static final double COLOR_JITTER = 0.2;
+
+    /**
+     * Nova imagem RGB na resolução da rede; a original, de qualquer resolução, não é modificada
+     */
+    BufferedImage augment(BufferedImage source, Random random) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+
+        // Recorte com área e proporção aleatórias, inteiramente dentro da imagem
+        double area = MIN_CROP_AREA + (1 - MIN_CROP_AREA) * random.nextDouble();
+        double aspect = Math.exp(Math.log(3.0 / 4) + Math.log(16.0 / 9) * random.nextDouble());
+        double cropWidth = Math.min(sourceWidth, sourceWidth * Math.sqrt(area * aspect));
+        double cropHeight = Math.min(sourceHeight, sourceHeight * Math.sqrt(area / aspect));
+        double centerX = cropWidth / 2 + (sourceWidth - cropWidth) * random.nextDouble();
+        double centerY = cropHeight / 2 + (sourceHeight - cropHeight) * random.nextDouble();
+
+        double angle = Math.toRadians((2 * random.nextDouble() - 1) * MAX_ROTATION_DEGREES);
+        double flipX = random.nextBoolean() ? -1 : 1;
+        double flipY = random.nextBoolean() ? -1 : 1;
+
+        AffineTransform transform = new AffineTransform();
+        transform.translate(WIDTH / 2.0, HEIGHT / 2.0);
+        transform.scale(flipX * WIDTH / cropWidth, flipY * HEIGHT / cropHeight);
+        transform.rotate(angle);
+        transform.translate(-centerX, -centerY);
+
+        BufferedImage augmented = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) augmented.getRaster().getDataBuffer()).getData();
+        resample(source, transform, pixels);
+        jitterColors(pixels, random);
+        return augmented;
+    }
+
+    /**
+     * Reamostragem bilinear pela inversa da transformação, com os índices fora da imagem
+     * refletidos para dentro
+     */
+    private static void resample(BufferedImage source, AffineTransform transform, int[] target) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] pixels = source.getRGB(0, 0, width, height, null, 0, width);
+        AffineTransform inverse;
+        try {
+            inverse = transform.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalStateException("Transformação de aumento não inversível", e);
+        }
+
+        double[] point = new double[2];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // Centros de pixel nas duas imagens
+                point[0] = x + 0.5;
+                point[1] = y + 0.5;
+                inverse.transform(point, 0, point, 0, 1);
+                double sourceX = point[0] - 0.5;
+                double sourceY = point[1] - 0.5;
+                int x0 = (int) Math.floor(sourceX);
+                int y0 = (int) Math.floor(sourceY);
+                double fx = sourceX - x0;
+                double fy = sourceY - y0;
+
+                int left = reflect(x0, width);
+                int right = reflect(x0 + 1, width);
+                int top = reflect(y0, height) * width;
+                int bottom = reflect(y0 + 1, height) * width;
+                target[y * WIDTH + x] = bilinear(pixels[top + left], pixels[top + right],
+                    pixels[bottom + left], pixels[bottom + right], fx, fy);
+            }
+        }
+    }
+
+    /**
+     * Índice refletido para dentro de [0, size), repetindo a borda (…, 1, 0 | 0, 1, …)
+     */
+    static int reflect(int index, int size) {
+        int period = 2 * size;
+        int folded = Math.floorMod(index, period);
+        return folded < size ? folded : period - 1 - folded;
+    }
+
+    private static int bilinear(int topLeft, int topRight, int bottomLeft, int bottomRight, double fx, double fy) {
+        int rgb = 0;
+        for (int shift = 16; shift >= 0; shift -= 8) {
+            double top = ((topLeft >> shift) & 0xFF) * (1 - fx) + ((topRight >> shift) & 0xFF) * fx;
+            double bottom = ((bottomLeft >> shift) & 0xFF) * (1 - fx) + ((bottomRight >> shift) & 0xFF) * fx;
+            rgb |= (int) Math.round(top * (1 - fy) + bottom * fy) << shift;
+        }
+        return rgb;
+    }
+
+    private static void jitterColors(int[] pixels, Random random) {
+        double brightness = 1 + (2 * random.nextDouble() - 1) * COLOR_JITTER;
+        double contrast = 1 + (2 * random.nextDouble() - 1) * COLOR_JITTER;
+        double saturation = 1 + (2 * random.nextDouble() - 1) * COLOR_JITTER;
+
+        double meanLuma = 0;
+        for (int rgb : pixels) {
+            meanLuma += luma((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+        meanLuma /= pixels.length;
+
+        for (int i = 0; i < pixels.length; i++) {
+            int rgb = pixels[i];
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            double gray = luma(r, g, b);
+            pixels[i] = (adjust(r, gray, meanLuma, saturation, contrast, brightness) << 16)
+                | (adjust(g, gray, meanLuma, saturation, contrast, brightness) << 8)
+                | adjust(b, gray, meanLuma, saturation, contrast, brightness);
+        }
+    }
+
+    private static int adjust(int value, double gray, double meanLuma,
+                              double saturation, double contrast, double brightness) {
+        double saturated = gray + (value - gray) * saturation;
+        double contrasted = meanLuma + (saturated - meanLuma) * contrast;
+        return (int) Math.max(0, Math.min(255, Math.round(contrasted * brightness)));
+    }
+
+    private static double luma(int r, int g, int b) {
+        return 0.299 * r + 0.587 * g + 0.114 * b;
+    }
+}
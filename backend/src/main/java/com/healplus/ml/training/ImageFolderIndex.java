@@ -0,0 +1,80 @@
+package com.healplus.ml.training;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Índice de um dataset no layout de pastas por classe (dataset/classe/imagem.jpg)
+ * Apenas os caminhos são listados; as imagens são lidas sob demanda pelo iterador de treino.
+ * As pastas de classe são ordenadas pelo nome para que os índices de classe sejam estáveis.
+ */
+final class ImageFolderIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageFolderIndex.class);
+
+    private ImageFolderIndex() {
+    }
+
+    /**
+     * Lista as imagens do dataset para a cabeça informada; sem dataset ou sem imagens
+     * válidas, gera {@code syntheticPerClass} exemplos sintéticos por classe
+     */
+    static List<TrainingSample> scan(String datasetPath, int head, int numClasses, int syntheticPerClass)
+            throws IOException {
+        Path root = Paths.get(datasetPath);
+        if (!Files.isDirectory(root)) {
+            logger.warn("Dataset não encontrado em: {}. Gerando dados sintéticos.", datasetPath);
+            return synthetic(head, numClasses, syntheticPerClass);
+        }
+
+        List<Path> classDirs;
+        try (Stream<Path> entries = Files.list(root)) {
+            classDirs = entries.filter(Files::isDirectory).sorted().toList();
+        }
+
+        List<TrainingSample> samples = new ArrayList<>();
+        for (int classIdx = 0; classIdx < classDirs.size() && classIdx < numClasses; classIdx++) {
+            try (Stream<Path> images = Files.list(classDirs.get(classIdx))) {
+                int classIndex = classIdx;
+                images.filter(ImageFolderIndex::isImage)
+                    .sorted()
+                    .forEach(image -> samples.add(new TrainingSample(image, head, classIndex)));
+            }
+        }
+
+        if (samples.isEmpty()) {
+            logger.warn("Nenhuma imagem encontrada em: {}. Gerando dados sintéticos.", datasetPath);
+            return synthetic(head, numClasses, syntheticPerClass);
+        }
+
+        logger.info("Indexadas {} imagens de {} classes em {}", samples.size(),
+            Math.min(classDirs.size(), numClasses), datasetPath);
+        return samples;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jpg") || name.endsWith(".png") || name.endsWith(".jpeg");
+    }
+
+    private static List<TrainingSample> synthetic(int head, int numClasses, int samplesPerClass) {
+        logger.info("Gerando {} amostras sintéticas por classe ({} classes)", samplesPerClass, numClasses);
+
+        List<TrainingSample> samples = new ArrayList<>(numClasses * samplesPerClass);
+        for (int classIdx = 0; classIdx < numClasses; classIdx++) {
+            for (int i = 0; i < samplesPerClass; i++) {
+                samples.add(new TrainingSample(null, head, classIdx));
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,72 @@
+package com.healplus.ml.training;
+
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+
+/**
+ * Repassa os lotes do iterador de treino chamando {@link TrainingMonitor#beforeBatch()}
+ * antes de cada um. Não suporta pré-carga assíncrona: o DL4J a moveria para outra thread
+ * e o monitor deixaria de pausar o treino.
+ */
+class MonitoredMultiTaskIterator implements MultiDataSetIterator {
+
+    private final MultiDataSetIterator delegate;
+    private final TrainingMonitor monitor;
+
+    MonitoredMultiTaskIterator(MultiDataSetIterator delegate, TrainingMonitor monitor) {
+        this.delegate = delegate;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public MultiDataSet next(int num) {
+        awaitTurn();
+        return delegate.next(num);
+    }
+
+    @Override
+    public MultiDataSet next() {
+        awaitTurn();
+        return delegate.next();
+    }
+
+    private void awaitTurn() {
+        try {
+            monitor.beforeBatch();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TrainingCancelledException("Treino interrompido");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return delegate.hasNext();
+    }
+
+    @Override
+    public void setPreProcessor(MultiDataSetPreProcessor preProcessor) {
+        delegate.setPreProcessor(preProcessor);
+    }
+
+    @Override
+    public MultiDataSetPreProcessor getPreProcessor() {
+        return delegate.getPreProcessor();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return delegate.resetSupported();
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        delegate.reset();
+    }
+}
@@ -0,0 +1,186 @@
+package com.healplus.ml.training;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Treino paralelo por média de parâmetros, equivalente ao ParallelWrapper do DL4J
+ * O modelo é clonado em N réplicas, cada uma presa a uma thread própria. A thread
+ * chamadora distribui os mini-lotes entre as réplicas por filas limitadas; a cada
+ * {@code averagingFrequency} lotes por réplica, parâmetros e estado do otimizador são
+ * promediados no modelo mestre e copiados de volta para todas as réplicas, junto com os
+ * contadores de iteração e época (usados na correção de viés do Adam e nos checkpoints).
+ * Cada réplica consulta o {@link TrainingMonitor} antes de cada lote, de modo que a espera
+ * pela inferência e o cancelamento valem também para os lotes já enfileirados.
+ * O lote efetivo por passo de média é N x lote. Não é thread-safe: uma época por vez.
+ */
+final class ParameterAveragingTrainer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParameterAveragingTrainer.class);
+
+    // Marca o fim dos lotes da rodada para a réplica
+    private static final MultiDataSet END_OF_ROUND = new org.nd4j.linalg.dataset.MultiDataSet();
+
+    private final ComputationGraph master;
+    private final int averagingFrequency;
+    private final TrainingMonitor monitor;
+    private final List<ComputationGraph> replicas = new ArrayList<>();
+    private final List<ExecutorService> threads = new ArrayList<>();
+    private final List<BlockingQueue<MultiDataSet>> queues = new ArrayList<>();
+
+    ParameterAveragingTrainer(ComputationGraph master, int workers, int averagingFrequency, int prefetchBatches,
+                              TrainingMonitor monitor, TrainingListener... listeners) {
+        this.master = master;
+        this.averagingFrequency = Math.max(1, averagingFrequency);
+        this.monitor = monitor;
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            ComputationGraph replica = master.clone();
+            // clone() não copia os contadores; ao retomar, a réplica segue do ponto do mestre
+            replica.getConfiguration().setIterationCount(master.getIterationCount());
+            replica.getConfiguration().setEpochCount(master.getEpochCount());
+            if (i == 0) {
+                // Uma única réplica reporta a perda para não multiplicar os logs
+                replica.setListeners(listeners);
+            }
+            replicas.add(replica);
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, prefetchBatches)));
+            String threadName = "ml-training-replica-" + (i + 1);
+            threads.add(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }));
+        }
+        logger.info("Treino paralelo com {} réplicas, média a cada {} lotes", replicas.size(), this.averagingFrequency);
+    }
+
+    /**
+     * Treina uma época sobre o iterador; ao final o mestre contém os parâmetros promediados
+     */
+    void fit(MultiDataSetIterator iterator) throws InterruptedException, ExecutionException {
+        while (iterator.hasNext()) {
+            List<Future<Integer>> rounds = new ArrayList<>(replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                ComputationGraph replica = replicas.get(i);
+                BlockingQueue<MultiDataSet> queue = queues.get(i);
+                rounds.add(threads.get(i).submit(() -> fitRound(replica, queue, monitor)));
+            }
+
+            // Distribuição alternada: cada réplica recebe até averagingFrequency lotes na rodada
+            dispatch:
+            for (int step = 0; step < averagingFrequency; step++) {
+                for (int i = 0; i < replicas.size(); i++) {
+                    if (!iterator.hasNext()) {
+                        break dispatch;
+                    }
+                    offer(queues.get(i), iterator.next(), rounds.get(i));
+                }
+            }
+            for (int i = 0; i < replicas.size(); i++) {
+                offer(queues.get(i), END_OF_ROUND, rounds.get(i));
+            }
+
+            List<ComputationGraph> trained = new ArrayList<>(replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                if (rounds.get(i).get() > 0) {
+                    trained.add(replicas.get(i));
+                }
+            }
+            average(trained);
+        }
+
+        // Como em ComputationGraph.fit(iterador): a época conta no mestre e nas réplicas
+        master.incrementEpochCount();
+        for (ComputationGraph replica : replicas) {
+            replica.getConfiguration().setEpochCount(master.getEpochCount());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService thread : threads) {
+            thread.shutdownNow();
+        }
+    }
+
+    /**
+     * Treina a réplica com os lotes da fila até o fim da rodada, consultando o monitor antes
+     * de cada lote; retorna quantos lotes treinou
+     */
+    private static int fitRound(ComputationGraph replica, BlockingQueue<MultiDataSet> queue,
+                                TrainingMonitor monitor) throws InterruptedException {
+        int fitted = 0;
+        for (MultiDataSet batch = queue.take(); batch != END_OF_ROUND; batch = queue.take()) {
+            monitor.beforeBatch();
+            replica.fit(batch);
+            fitted++;
+        }
+        return fitted;
+    }
+
+    /**
+     * Enfileira sem travar para sempre se a réplica tiver falhado
+     */
+    private static void offer(BlockingQueue<MultiDataSet> queue, MultiDataSet batch, Future<Integer> round)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (round.isDone()) {
+                round.get();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Média dos parâmetros e do estado do otimizador das réplicas que treinaram na rodada,
+     * gravada no mestre e replicada para todas as réplicas. O contador de iterações passa a
+     * ser o da réplica que mais treinou, para que a correção de viés do Adam siga o estado
+     * promediado (e continue certa ao retomar de um checkpoint do mestre).
+     */
+    private void average(List<ComputationGraph> trained) {
+        if (trained.isEmpty()) {
+            return;
+        }
+        master.setParams(mean(trained.stream().map(ComputationGraph::params).toList()));
+        int iterations = trained.stream().mapToInt(ComputationGraph::getIterationCount).max().getAsInt();
+        master.getConfiguration().setIterationCount(iterations);
+
+        INDArray masterState = master.getUpdater().getStateViewArray();
+        if (masterState != null) {
+            masterState.assign(mean(trained.stream().map(replica -> replica.getUpdater().getStateViewArray()).toList()));
+        }
+
+        for (ComputationGraph replica : replicas) {
+            replica.params().assign(master.params());
+            replica.getConfiguration().setIterationCount(iterations);
+            INDArray state = replica.getUpdater().getStateViewArray();
+            if (state != null && masterState != null) {
+                state.assign(masterState);
+            }
+        }
+    }
+
+    private static INDArray mean(List<INDArray> arrays) {
+        INDArray sum = arrays.get(0).dup();
+        for (int i = 1; i < arrays.size(); i++) {
+            sum.addi(arrays.get(i));
+        }
+        return sum.divi(arrays.size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.FloatBuffer;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Iterador de mini-lotes sobre o {@link TensorShardCache}: cada lote é uma cópia direta
+ * dos registros mapeados para o tensor de entrada, sem decodificação.
+ * Percorre um subconjunto de índices do cache (treino ou validação) e, com embaralhamento,
+ * sorteia uma nova permutação desses índices a cada época.
+ */
+class ShardedMultiTaskIterator implements MultiDataSetIterator {
+
+    private final TensorShardCache cache;
+    private final int[] order;
+    private final int[] headSizes;
+    private final int batchSize;
+    private final Random shuffleRandom;
+
+    private MultiDataSetPreProcessor preProcessor;
+    private int cursor;
+
+    /**
+     * @param indices índices do cache percorridos pelo iterador
+     * @param shuffleRandom sorteia a permutação de cada época; nulo mantém a ordem dos índices
+     */
+    ShardedMultiTaskIterator(TensorShardCache cache, int[] indices, int[] headSizes, int batchSize,
+                             Random shuffleRandom) {
+        this.cache = cache;
+        this.order = indices.clone();
+        this.headSizes = headSizes.clone();
+        this.batchSize = batchSize;
+        this.shuffleRandom = shuffleRandom;
+        shuffle();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < order.length;
+    }
+
+    @Override
+    public MultiDataSet next() {
+        return next(batchSize);
+    }
+
+    /**
+     * Lote com até {@code num} exemplos a partir do cursor; os lotes seguintes de
+     * {@link #next()} voltam ao tamanho da criação
+     */
+    @Override
+    public MultiDataSet next(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + num);
+        }
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int size = Math.min(num, order.length - cursor);
+        INDArray features = Nd4j.create(DataType.FLOAT, size, WoundClassifierNetwork.getChannels(),
+            WoundClassifierNetwork.getImageHeight(), WoundClassifierNetwork.getImageWidth());
+        FloatBuffer view = features.data().asNioFloat();
+
+        INDArray[] labels = new INDArray[headSizes.length];
+        INDArray[] labelMasks = new INDArray[headSizes.length];
+        for (int head = 0; head < headSizes.length; head++) {
+            labels[head] = Nd4j.zeros(DataType.FLOAT, size, headSizes[head]);
+            labelMasks[head] = Nd4j.zeros(DataType.FLOAT, size, 1);
+        }
+
+        for (int i = 0; i < size; i++) {
+            int index = order[cursor++];
+            cache.copyFeatures(index, view, i * TensorShardCache.featureSize());
+            int head = cache.head(index);
+            labels[head].putScalar(i, cache.classIndex(index), 1.0);
+            labelMasks[head].putScalar(i, 0, 1.0);
+        }
+
+        MultiDataSet batch = new org.nd4j.linalg.dataset.MultiDataSet(
+            new INDArray[]{ features }, labels, null, labelMasks);
+        if (preProcessor != null) {
+            preProcessor.preProcess(batch);
+        }
+        return batch;
+    }
+
+    @Override
+    public void reset() {
+        cursor = 0;
+        shuffle();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public void setPreProcessor(MultiDataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public MultiDataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    /**
+     * Fisher-Yates sobre os índices do iterador
+     */
+    private void shuffle() {
+        if (shuffleRandom == null) {
+            return;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = shuffleRandom.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.neural.ImagePreprocessor;
+import com.healplus.ml.neural.InputTensorBuffer;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Iterador de mini-lotes da rede multi-tarefa que lê, decodifica, aumenta (opcional) e
+ * normaliza as imagens sob demanda, com a mesma normalização da inferência
+ * ({@link ImagePreprocessor}).
+ * Cada lote é montado por uma thread do pool de workers; até {@code queuedBatches} lotes
+ * ficam em preparo ou prontos à frente do consumo, entregues na ordem de submissão, de modo
+ * que a memória ocupada é proporcional ao lote e todos os núcleos decodificam em paralelo.
+ * A semente do aumento de cada lote é sorteada na submissão: o resultado não depende do
+ * número de workers nem da ordem em que terminam.
+ * Cada exemplo rotula uma única cabeça; a outra recebe rótulo zerado e máscara zero.
+ * As máscaras [n,1] são montadas aqui: o merge padrão de MultiDataSet as trataria como
+ * máscaras por saída, o que a perda softmax não suporta.
+ * Imagens ilegíveis são descartadas com aviso, deixando o lote menor.
+ */
+class StreamingMultiTaskIterator implements MultiDataSetIterator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingMultiTaskIterator.class);
+
+    private static final int CHANNELS = WoundClassifierNetwork.getChannels();
+    private static final int HEIGHT = WoundClassifierNetwork.getImageHeight();
+    private static final int WIDTH = WoundClassifierNetwork.getImageWidth();
+
+    private final List<TrainingSample> samples;
+    private final int[] headSizes;
+    private final int batchSize;
+    private final ImagePreprocessor preprocessor;
+    private final ExecutorService workers;
+    private final int queuedBatches;
+    private final ImageAugmenter augmenter;
+    private final Random random;
+    private final Deque<QueuedBatch> queue = new ArrayDeque<>();
+
+    private MultiDataSetPreProcessor preProcessor;
+    private int cursor;
+    private MultiDataSet pending;
+    private int pendingStart;
+
+    /**
+     * @param workers pool que monta os lotes; pertence ao chamador
+     * @param queuedBatches lotes em preparo ou prontos à frente do consumo
+     * @param augmenter aumento de dados aplicado a cada imagem; nulo desativa
+     * @param random embaralha os exemplos a cada época e sorteia as sementes do aumento;
+     *               nulo mantém a ordem
+     */
+    StreamingMultiTaskIterator(List<TrainingSample> samples, int[] headSizes, int batchSize,
+                               ImagePreprocessor preprocessor, ExecutorService workers, int queuedBatches,
+                               ImageAugmenter augmenter, Random random) {
+        this.samples = new ArrayList<>(samples);
+        this.headSizes = headSizes.clone();
+        this.batchSize = batchSize;
+        this.preprocessor = preprocessor;
+        this.workers = workers;
+        this.queuedBatches = Math.max(1, queuedBatches);
+        this.augmenter = augmenter;
+        this.random = random;
+        if (random != null) {
+            Collections.shuffle(this.samples, random);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (pending == null) {
+            fillQueue();
+            QueuedBatch batch = queue.poll();
+            if (batch == null) {
+                return false;
+            }
+            fillQueue();
+            // Lotes em que todas as imagens falharam são pulados
+            pending = await(batch.future());
+            pendingStart = batch.start();
+        }
+        return true;
+    }
+
+    @Override
+    public MultiDataSet next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MultiDataSet batch = pending;
+        pending = null;
+        if (preProcessor != null) {
+            preProcessor.preProcess(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Lote com até {@code num} exemplos, a partir do primeiro exemplo ainda não entregue,
+     * montado na thread chamadora. Os lotes em preparo são descartados e os seguintes voltam
+     * a ser montados com o tamanho da criação.
+     */
+    @Override
+    public MultiDataSet next(int num) {
+        if (num <= 0) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + num);
+        }
+        // Volta ao primeiro exemplo ainda não entregue
+        int undelivered = pending != null ? pendingStart : queue.isEmpty() ? cursor : queue.peek().start();
+        cancelQueued();
+        pending = null;
+        cursor = undelivered;
+
+        MultiDataSet batch = null;
+        while (batch == null && cursor < samples.size()) {
+            long seed = nextSeed();
+            batch = loadBatch(take(num), seed);
+        }
+        if (batch == null) {
+            throw new NoSuchElementException();
+        }
+        if (preProcessor != null) {
+            preProcessor.preProcess(batch);
+        }
+        return batch;
+    }
+
+    @Override
+    public void reset() {
+        cancelQueued();
+        cursor = 0;
+        pending = null;
+        if (random != null) {
+            Collections.shuffle(samples, random);
+        }
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    /**
+     * A fila de lotes já faz a pré-busca; não precisa ser envolto em AsyncMultiDataSetIterator
+     */
+    @Override
+    public boolean asyncSupported() {
+        return false;
+    }
+
+    @Override
+    public void setPreProcessor(MultiDataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public MultiDataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    private void fillQueue() {
+        while (queue.size() < queuedBatches && cursor < samples.size()) {
+            int start = cursor;
+            long seed = nextSeed();
+            List<TrainingSample> chunk = take(batchSize);
+            queue.add(new QueuedBatch(start, workers.submit(() -> loadBatch(chunk, seed))));
+        }
+    }
+
+    private void cancelQueued() {
+        for (QueuedBatch batch : queue) {
+            batch.future().cancel(true);
+        }
+        queue.clear();
+    }
+
+    private long nextSeed() {
+        return random != null ? random.nextLong() : cursor;
+    }
+
+    /**
+     * Até {@code size} exemplos a partir do cursor, que avança sobre eles
+     */
+    private List<TrainingSample> take(int size) {
+        List<TrainingSample> chunk = List.copyOf(samples.subList(cursor, Math.min(cursor + size, samples.size())));
+        cursor += chunk.size();
+        return chunk;
+    }
+
+    private static MultiDataSet await(Future<MultiDataSet> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Leitura do lote de treino interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao montar lote de treino", e.getCause());
+        }
+    }
+
+    /**
+     * Monta o lote na thread do worker; nulo se nenhuma imagem pôde ser lida
+     */
+    private MultiDataSet loadBatch(List<TrainingSample> chunk, long seed) {
+        Random augmentation = new Random(seed);
+        InputTensorBuffer features = new InputTensorBuffer(chunk.size());
+        List<TrainingSample> loaded = new ArrayList<>(chunk.size());
+        for (TrainingSample sample : chunk) {
+            if (writeSample(sample, features, loaded.size(), augmentation)) {
+                loaded.add(sample);
+            }
+        }
+        if (loaded.isEmpty()) {
+            return null;
+        }
+
+        int size = loaded.size();
+        INDArray[] labels = new INDArray[headSizes.length];
+        INDArray[] labelMasks = new INDArray[headSizes.length];
+        for (int head = 0; head < headSizes.length; head++) {
+            labels[head] = Nd4j.zeros(DataType.FLOAT, size, headSizes[head]);
+            labelMasks[head] = Nd4j.zeros(DataType.FLOAT, size, 1);
+        }
+        for (int i = 0; i < size; i++) {
+            TrainingSample sample = loaded.get(i);
+            labels[sample.head()].putScalar(i, sample.classIndex(), 1.0);
+            labelMasks[sample.head()].putScalar(i, 0, 1.0);
+        }
+
+        return new org.nd4j.linalg.dataset.MultiDataSet(
+            new INDArray[]{ features.batchOf(size) }, labels, null, labelMasks);
+    }
+
+    private boolean writeSample(TrainingSample sample, InputTensorBuffer features, int slot, Random augmentation) {
+        if (sample.isSynthetic()) {
+            // Ruído deslocado pela classe, separável o suficiente para validar o pipeline
+            INDArray noise = Nd4j.rand(DataType.FLOAT, CHANNELS, HEIGHT, WIDTH).muli(0.5).addi(sample.classIndex() * 0.1);
+            features.batchOf(features.getCapacity()).slice(slot).assign(noise);
+            return true;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(sample.image());
+            if (augmenter != null) {
+                // Recorte e rotação reamostram a imagem decodificada, antes de reduzi-la à
+                // resolução da rede: o recorte não amplia uma imagem já reduzida
+                BufferedImage augmented = augmenter.augment(preprocessor.decodeSource(bytes), augmentation);
+                preprocessor.writeTensor(augmented, features, slot);
+            } else {
+                preprocessor.writeTensor(preprocessor.decode(bytes), features, slot);
+            }
+            return true;
+        } catch (Exception e) {
+            // Lotes cancelados no reset interrompem a leitura; não é falha da imagem
+            if (!Thread.currentThread().isInterrupted()) {
+                logger.warn("Erro ao carregar imagem {}: {}", sample.image().getFileName(), e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Lote submetido aos workers e a posição do seu primeiro exemplo
+     */
+    private record QueuedBatch(int start, Future<MultiDataSet> future) {
+    }
+}
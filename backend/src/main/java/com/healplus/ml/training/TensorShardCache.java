@@ -0,0 +1,435 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Cache em disco dos tensores de treino já decodificados e normalizados
+ * O dataset é pré-processado uma única vez para shards binários de registros de tamanho
+ * fixo; as épocas seguintes leem os shards mapeados em memória (FileChannel.map), sem
+ * decodificar JPEG nem normalizar de novo. O diretório do cache é derivado de uma
+ * impressão digital da lista de exemplos (caminho, tamanho, data de modificação, rótulo),
+ * de modo que qualquer alteração no dataset gera um novo cache.
+ *
+ * Formato do shard (little-endian):
+ * <pre>
+ *   cabeçalho: "HPTS" | u8 versão | 3 bytes reservados | i32 registros | i32 C | i32 H | i32 W
+ *   registro:  i32 cabeça | i32 classe | C*H*W floats (layout CHW normalizado)
+ * </pre>
+ * O cache é construído em um diretório temporário exclusivo e publicado com um rename
+ * atômico; o manifesto, gravado por último (também via rename), marca o cache como completo.
+ * Construções concorrentes do mesmo dataset não apagam uma à outra: a primeira a publicar
+ * vence e as demais descartam o próprio diretório. A cada abertura, só os
+ * {@link #RETAINED_CACHES} caches usados mais recentemente são mantidos na raiz.
+ */
+final class TensorShardCache implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TensorShardCache.class);
+
+    private static final byte[] MAGIC = { 'H', 'P', 'T', 'S' };
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final String MANIFEST = "manifest.properties";
+    private static final String BUILDING = ".building-";
+    private static final String CACHE_NAME = "[0-9a-f]{16}";
+    /** Diretórios temporários mais antigos que isso são de construções abandonadas */
+    private static final Duration ABANDONED_BUILD = Duration.ofDays(1);
+
+    /** Caches de datasets mantidos na raiz, incluindo o aberto */
+    static final int RETAINED_CACHES = 3;
+
+    /** Limite de registros por shard; cada shard precisa caber em um único mapeamento (< 2 GB) */
+    static final int MAX_RECORDS_PER_SHARD = 1024;
+
+    private static final int CHANNELS = WoundClassifierNetwork.getChannels();
+    private static final int HEIGHT = WoundClassifierNetwork.getImageHeight();
+    private static final int WIDTH = WoundClassifierNetwork.getImageWidth();
+    private static final int FEATURE_FLOATS = CHANNELS * HEIGHT * WIDTH;
+    private static final int RECORD_BYTES = 8 + FEATURE_FLOATS * Float.BYTES;
+
+    private final Path directory;
+    private final List<FileChannel> channels;
+    private final List<MappedByteBuffer> shards;
+    private final int recordsPerShard;
+    private final int size;
+
+    private TensorShardCache(Path directory, List<FileChannel> channels, List<MappedByteBuffer> shards,
+                             int recordsPerShard, int size) {
+        this.directory = directory;
+        this.channels = channels;
+        this.shards = shards;
+        this.recordsPerShard = recordsPerShard;
+        this.size = size;
+    }
+
+    /**
+     * Abre o cache dos exemplos informados ou, se ainda não existir, o constrói consumindo
+     * o iterador de origem, que deve percorrer os mesmos exemplos na mesma ordem
+     */
+    static TensorShardCache openOrBuild(Path root, List<TrainingSample> samples,
+                                        Supplier<MultiDataSetIterator> source) throws IOException {
+        return openOrBuild(root, samples, source, MAX_RECORDS_PER_SHARD);
+    }
+
+    static TensorShardCache openOrBuild(Path root, List<TrainingSample> samples,
+                                        Supplier<MultiDataSetIterator> source, int recordsPerShard) throws IOException {
+        Path directory = root.resolve(fingerprint(samples));
+        if (!Files.exists(directory.resolve(MANIFEST))) {
+            build(directory, source.get(), recordsPerShard);
+        } else {
+            logger.info("Reutilizando cache de tensores em {}", directory);
+        }
+        TensorShardCache cache = open(directory);
+        // A data de modificação do diretório registra o último uso, base da limpeza
+        Files.setLastModifiedTime(directory, FileTime.from(Instant.now()));
+        prune(root, directory);
+        return cache;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    int head(int index) {
+        return record(index).getInt(0);
+    }
+
+    int classIndex(int index) {
+        return record(index).getInt(4);
+    }
+
+    /**
+     * Copia os valores normalizados do exemplo para {@code dest} a partir de {@code offset}
+     */
+    void copyFeatures(int index, FloatBuffer dest, int offset) {
+        FloatBuffer source = record(index).position(8).slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        dest.put(offset, source, 0, FEATURE_FLOATS);
+    }
+
+    static int featureSize() {
+        return FEATURE_FLOATS;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Os mapeamentos são liberados pelo GC; fechar os canais solta os descritores de arquivo
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Visão do registro, independente de posição, sobre o shard mapeado
+     */
+    private ByteBuffer record(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Exemplo fora do cache: " + index);
+        }
+        MappedByteBuffer shard = shards.get(index / recordsPerShard);
+        int offset = HEADER_BYTES + (index % recordsPerShard) * RECORD_BYTES;
+        return shard.slice(offset, RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void build(Path directory, MultiDataSetIterator source, int recordsPerShard) throws IOException {
+        long start = System.nanoTime();
+        Path staging = Files.createDirectories(directory.getParent())
+            .resolve(directory.getFileName() + BUILDING + UUID.randomUUID());
+        Files.createDirectory(staging);
+        try {
+            ShardWriter writer = new ShardWriter(staging, recordsPerShard);
+            try {
+                while (source.hasNext()) {
+                    writer.append(source.next());
+                }
+            } finally {
+                writer.close();
+            }
+
+            Properties manifest = new Properties();
+            manifest.setProperty("version", String.valueOf(VERSION));
+            manifest.setProperty("records", String.valueOf(writer.records));
+            manifest.setProperty("shards", String.valueOf(writer.shardCount));
+            manifest.setProperty("recordsPerShard", String.valueOf(recordsPerShard));
+            writeManifest(staging, manifest);
+            publish(staging, directory);
+            logger.info("Cache de tensores construído em {}: {} exemplos, {} shards, {} ms",
+                directory, writer.records, writer.shardCount, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            if (Files.exists(staging)) {
+                deleteRecursively(staging);
+            }
+        }
+    }
+
+    /**
+     * Grava o manifesto em arquivo temporário e o move para o nome final: um leitor nunca
+     * encontra um manifesto parcial
+     */
+    private static void writeManifest(Path directory, Properties manifest) throws IOException {
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            manifest.store(out, "Cache de tensores de treino");
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Publica o diretório construído com um rename atômico; se outra construção do mesmo
+     * dataset publicou antes, a dela é mantida e o diretório temporário é descartado
+     */
+    private static void publish(Path staging, Path directory) throws IOException {
+        if (Files.exists(directory) && !Files.exists(directory.resolve(MANIFEST))) {
+            // Construção interrompida do formato anterior, feita no próprio diretório final:
+            // sai do caminho com um rename, que só um dos construtores concorrentes consegue
+            Path incomplete = directory.resolveSibling(directory.getFileName() + BUILDING + UUID.randomUUID());
+            try {
+                Files.move(directory, incomplete, StandardCopyOption.ATOMIC_MOVE);
+                deleteRecursively(incomplete);
+            } catch (IOException e) {
+                logger.debug("Diretório incompleto {} não removido: {}", directory, e.getMessage());
+            }
+        }
+        try {
+            Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!Files.exists(directory.resolve(MANIFEST))) {
+                throw e;
+            }
+            logger.info("Cache de tensores {} publicado por construção concorrente", directory);
+        }
+    }
+
+    /**
+     * Remove os caches de outros datasets além dos {@link #RETAINED_CACHES} usados mais
+     * recentemente e os diretórios de construções abandonadas. Falhas (por exemplo, shards
+     * ainda mapeados por outro processo em sistemas que impedem a remoção) só geram aviso.
+     */
+    private static void prune(Path root, Path current) {
+        List<Path> caches = new ArrayList<>();
+        Instant abandoned = Instant.now().minus(ABANDONED_BUILD);
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path entry : entries.filter(Files::isDirectory).toList()) {
+                String name = entry.getFileName().toString();
+                if (name.matches(CACHE_NAME) && !entry.equals(current) && Files.exists(entry.resolve(MANIFEST))) {
+                    caches.add(entry);
+                } else if (name.matches(CACHE_NAME + BUILDING + ".+")
+                        && Files.getLastModifiedTime(entry).toInstant().isBefore(abandoned)) {
+                    deleteQuietly(entry);
+                }
+            }
+            caches.sort(Comparator.comparing(TensorShardCache::lastModified).reversed());
+            for (Path stale : caches.subList(Math.min(RETAINED_CACHES - 1, caches.size()), caches.size())) {
+                logger.info("Removendo cache de tensores antigo {}", stale);
+                deleteQuietly(stale);
+            }
+        } catch (IOException e) {
+            logger.warn("Falha ao limpar caches de tensores em {}: {}", root, e.getMessage());
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteQuietly(Path directory) {
+        try {
+            deleteRecursively(directory);
+        } catch (IOException e) {
+            logger.warn("Falha ao remover {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static TensorShardCache open(Path directory) throws IOException {
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(MANIFEST))) {
+            manifest.load(in);
+        }
+        int records = Integer.parseInt(manifest.getProperty("records"));
+        int shardCount = Integer.parseInt(manifest.getProperty("shards"));
+        int recordsPerShard = Integer.parseInt(manifest.getProperty("recordsPerShard"));
+
+        List<FileChannel> channels = new ArrayList<>(shardCount);
+        List<MappedByteBuffer> shards = new ArrayList<>(shardCount);
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                FileChannel channel = FileChannel.open(shardPath(directory, i), StandardOpenOption.READ);
+                channels.add(channel);
+                MappedByteBuffer shard = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                shard.order(ByteOrder.LITTLE_ENDIAN);
+                validateHeader(shard, directory, i);
+                shards.add(shard);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            throw e;
+        }
+        return new TensorShardCache(directory, channels, shards, recordsPerShard, records);
+    }
+
+    private static void validateHeader(MappedByteBuffer shard, Path directory, int index) throws IOException {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (shard.get(i) != MAGIC[i]) {
+                throw new IOException("Shard inválido em " + shardPath(directory, index));
+            }
+        }
+        if (shard.get(4) != VERSION || shard.getInt(12) != CHANNELS
+                || shard.getInt(16) != HEIGHT || shard.getInt(20) != WIDTH) {
+            throw new IOException("Shard incompatível com a entrada da rede em " + shardPath(directory, index));
+        }
+    }
+
+    private static Path shardPath(Path directory, int index) {
+        return directory.resolve(String.format("shard-%05d.bin", index));
+    }
+
+    static String fingerprint(List<TrainingSample> samples) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(new byte[]{ VERSION });
+            ByteBuffer dims = ByteBuffer.allocate(12).putInt(CHANNELS).putInt(HEIGHT).putInt(WIDTH);
+            digest.update(dims.array());
+            for (TrainingSample sample : samples) {
+                String key = sample.isSynthetic()
+                    ? "synthetic"
+                    : sample.image().toAbsolutePath() + "|" + Files.size(sample.image())
+                        + "|" + Files.getLastModifiedTime(sample.image()).toMillis();
+                digest.update((key + "|" + sample.head() + "|" + sample.classIndex() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Grava os lotes do iterador de origem em shards sequenciais
+     */
+    private static final class ShardWriter implements Closeable {
+        private final Path directory;
+        private final int recordsPerShard;
+        private final ByteBuffer record = ByteBuffer.allocateDirect(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private FileChannel current;
+        private int inShard;
+        private int shardCount;
+        private int records;
+
+        ShardWriter(Path directory, int recordsPerShard) {
+            this.directory = directory;
+            this.recordsPerShard = recordsPerShard;
+        }
+
+        void append(MultiDataSet batch) throws IOException {
+            INDArray features = batch.getFeatures(0).castTo(DataType.FLOAT).dup('c');
+            FloatBuffer values = features.data().asNioFloat();
+            long examples = features.size(0);
+            for (int i = 0; i < examples; i++) {
+                int head = labeledHead(batch, i);
+                record.clear();
+                record.putInt(head);
+                record.putInt(batch.getLabels(head).getRow(i).argMax().getInt(0));
+                record.asFloatBuffer().put(0, values, i * FEATURE_FLOATS, FEATURE_FLOATS);
+                record.position(RECORD_BYTES).flip();
+                write(record);
+            }
+        }
+
+        private void write(ByteBuffer record) throws IOException {
+            if (current == null || inShard == recordsPerShard) {
+                finishShard();
+                current = FileChannel.open(shardPath(directory, shardCount++),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+                current.write(ByteBuffer.allocate(HEADER_BYTES), 0);
+                current.position(HEADER_BYTES);
+                inShard = 0;
+            }
+            while (record.hasRemaining()) {
+                current.write(record);
+            }
+            inShard++;
+            records++;
+        }
+
+        private void finishShard() throws IOException {
+            if (current == null) {
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).put(VERSION).put(new byte[3])
+                .putInt(inShard).putInt(CHANNELS).putInt(HEIGHT).putInt(WIDTH).flip();
+            current.write(header, 0);
+            current.force(true);
+            current.close();
+            current = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finishShard();
+        }
+
+        private static int labeledHead(MultiDataSet batch, int example) {
+            INDArray[] masks = batch.getLabelsMaskArrays();
+            for (int head = 0; masks != null && head < masks.length; head++) {
+                if (masks[head] != null && masks[head].getDouble(example, 0) > 0) {
+                    return head;
+                }
+            }
+            return 0;
+        }
+    }
+}
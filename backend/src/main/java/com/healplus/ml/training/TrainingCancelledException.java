@@ -0,0 +1,11 @@
+package com.healplus.ml.training;
+
+/**
+ * Treino interrompido a pedido do {@link TrainingMonitor}
+ */
+public class TrainingCancelledException extends RuntimeException {
+
+    public TrainingCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.training.WoundModelTrainer.EpochMetric;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+
+/**
+ * Acompanhamento de uma execução de treino pelo chamador
+ * {@link #beforeBatch()} roda na thread de treino antes de cada mini-lote (no treino paralelo,
+ * também em cada thread de réplica, concorrentemente): pode bloquear para ceder CPU ou lançar
+ * {@link TrainingCancelledException} para interromper o treino.
+ */
+public interface TrainingMonitor {
+
+    TrainingMonitor NONE = new TrainingMonitor() { };
+
+    default void beforeBatch() throws InterruptedException { }
+
+    /**
+     * Fim de uma época; o modelo recebido já contém os pesos da época (ponto de checkpoint)
+     */
+    default void epochCompleted(EpochMetric metric, ComputationGraph model) throws Exception { }
+}
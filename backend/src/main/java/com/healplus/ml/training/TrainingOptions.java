@@ -0,0 +1,54 @@
+package com.healplus.ml.training;
+
+/**
+ * Parâmetros de uma execução de treino da rede multi-tarefa
+ * Campos não informados na requisição ficam com os padrões da configuração (ml.training.*).
+ */
+public class TrainingOptions {
+    private int epochs = 50;
+    private int batchSize = 32;
+    private int workers = 1;
+    private int averagingFrequency = 5;
+    private int prefetchBatches = 8;
+    private int initialEpoch = 0;
+    private Double learningRate;
+
+    public TrainingOptions copy() {
+        TrainingOptions copy = new TrainingOptions();
+        copy.epochs = epochs;
+        copy.batchSize = batchSize;
+        copy.workers = workers;
+        copy.averagingFrequency = averagingFrequency;
+        copy.prefetchBatches = prefetchBatches;
+        copy.initialEpoch = initialEpoch;
+        copy.learningRate = learningRate;
+        return copy;
+    }
+
+    public int getEpochs() { return epochs; }
+    public void setEpochs(int epochs) { this.epochs = Math.max(1, epochs); }
+
+    /** Exemplos por mini-lote de cada réplica */
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = Math.max(1, batchSize); }
+
+    /** Réplicas treinadas em paralelo; 1 treina o modelo diretamente */
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = Math.max(1, workers); }
+
+    /** Mini-lotes treinados por réplica entre duas médias de parâmetros */
+    public int getAveragingFrequency() { return averagingFrequency; }
+    public void setAveragingFrequency(int averagingFrequency) { this.averagingFrequency = Math.max(1, averagingFrequency); }
+
+    /** Lotes preparados à frente do treino (por réplica no modo paralelo) */
+    public int getPrefetchBatches() { return prefetchBatches; }
+    public void setPrefetchBatches(int prefetchBatches) { this.prefetchBatches = Math.max(1, prefetchBatches); }
+
+    /** Taxa de aprendizado aplicada ao otimizador; null mantém a do modelo */
+    public Double getLearningRate() { return learningRate; }
+    public void setLearningRate(Double learningRate) { this.learningRate = learningRate; }
+
+    /** Épocas já concluídas pelo modelo recebido (retomada a partir de um checkpoint) */
+    public int getInitialEpoch() { return initialEpoch; }
+    public void setInitialEpoch(int initialEpoch) { this.initialEpoch = Math.max(0, initialEpoch); }
+}
@@ -0,0 +1,17 @@
+package com.healplus.ml.training;
+
+import java.nio.file.Path;
+
+/**
+ * Exemplo de treino referenciado pelo caminho da imagem, sem os pixels em memória
+ *
+ * @param image      arquivo da imagem; nulo para exemplos sintéticos
+ * @param head       cabeça da rede multi-tarefa rotulada pelo exemplo
+ * @param classIndex classe do exemplo na cabeça rotulada
+ */
+record TrainingSample(Path image, int head, int classIndex) {
+
+    boolean isSynthetic() {
+        return image == null;
+    }
+}
@@ -1,201 +1,245 @@
 package com.healplus.ml.training;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.healplus.ml.TissueType;
 import com.healplus.ml.WoundType;
-import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import com.healplus.ml.neural.ImagePreprocessor;
+import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.optimize.listeners.ScoreIterationListener;
 import org.nd4j.evaluation.classification.Evaluation;
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.dataset.DataSet;
-import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
-import org.nd4j.linalg.dataset.api.iterator.TestDataSetIterator;
-import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.dataset.AsyncMultiDataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 @Component
 public class WoundModelTrainer {
     
     private static final Logger logger = LoggerFactory.getLogger(WoundModelTrainer.class);
     
-    private static final int IMAGE_HEIGHT = 224;
-    private static final int IMAGE_WIDTH = 224;
-    private static final int CHANNELS = 3;
-    private static final int BATCH_SIZE = 32;
-    private static final int EPOCHS = 50;
+    private static final int SYNTHETIC_PER_CLASS = 100;
+    private static final long SEED = 42;
     
-    public TrainingResult trainWoundClassifier(MultiLayerNetwork model, String datasetPath) throws Exception {
-        logger.info("Iniciando treinamento do classificador de feridas...");
-        logger.info("Dataset: {}", datasetPath);
-        
-        List<DataSet> trainingData = loadDataset(datasetPath, WoundType.values().length);
-        
-        Collections.shuffle(trainingData);
-        int splitIndex = (int) (trainingData.size() * 0.8);
-        List<DataSet> trainSet = trainingData.subList(0, splitIndex);
-        List<DataSet> testSet = trainingData.subList(splitIndex, trainingData.size());
-        
-        DataSetIterator trainIterator = createDataSetIterator(trainSet, BATCH_SIZE);
-        DataSetIterator testIterator = createDataSetIterator(testSet, BATCH_SIZE);
+    // Índices das cabeças na ordem de saída da rede multi-tarefa
+    private static final int WOUND_HEAD = 0;
+    private static final int TISSUE_HEAD = 1;
+    private static final int[] HEAD_SIZES = { WoundType.values().length, TissueType.values().length };
+    
+    private final ImagePreprocessor preprocessor;
+    private final Path cacheRoot;
+    private final int loaderThreads;
+    private final boolean augmentation;
+    private final TrainingOptions defaults = new TrainingOptions();
+    
+    public WoundModelTrainer(
+            ImagePreprocessor preprocessor,
+            @Value("${ml.training.cache-dir:${java.io.tmpdir}/healplus-tensor-cache}") String cacheDir,
+            @Value("${ml.training.loader-threads:0}") int loaderThreads,
+            @Value("${ml.training.queued-batches:8}") int queuedBatches,
+            @Value("${ml.training.augmentation:false}") boolean augmentation,
+            @Value("${ml.training.parallel.workers:1}") int parallelWorkers,
+            @Value("${ml.training.parallel.averaging-frequency:5}") int averagingFrequency) {
+        this.preprocessor = preprocessor;
+        this.cacheRoot = Paths.get(cacheDir);
+        this.loaderThreads = loaderThreads > 0 ? loaderThreads : Runtime.getRuntime().availableProcessors();
+        this.augmentation = augmentation;
+        defaults.setPrefetchBatches(queuedBatches);
+        defaults.setWorkers(parallelWorkers > 0 ? parallelWorkers : Runtime.getRuntime().availableProcessors());
+        defaults.setAveragingFrequency(averagingFrequency);
+    }
+    
+    /**
+     * Parâmetros de treino da configuração, para ajuste por execução
+     */
+    public TrainingOptions defaultOptions() {
+        return defaults.copy();
+    }
+    
+    public TrainingResult trainMultiTask(ComputationGraph model, String woundDatasetPath,
+                                         String tissueDatasetPath) throws Exception {
+        return trainMultiTask(model, woundDatasetPath, tissueDatasetPath, defaultOptions());
+    }
+    
+    /**
+     * Treina a rede multi-tarefa (tronco compartilhado + cabeças de ferida e tecido).
+     * Cada dataset rotula apenas uma das cabeças; a outra recebe máscara de rótulo zero
+     * para aquele exemplo, de modo que os gradientes do tronco vêm das duas tarefas.
+     * Qualquer um dos caminhos pode ser nulo para treinar apenas uma cabeça.
+     * As imagens são decodificadas em paralelo uma única vez para o cache de tensores em
+     * disco ({@link TensorShardCache}); cada época lê os shards mapeados em memória em uma
+     * nova ordem aleatória, e a memória ocupada é proporcional ao lote e não ao dataset.
+     * Com aumento de dados habilitado, o conjunto de treino é decodificado e transformado
+     * a cada época pelo pool de workers; a validação continua lendo o cache.
+     * Com mais de um worker em {@code options}, o treino é paralelo por média de
+     * parâmetros entre réplicas do modelo ({@link ParameterAveragingTrainer}).
+     */
+    public TrainingResult trainMultiTask(ComputationGraph model, String woundDatasetPath,
+                                         String tissueDatasetPath, TrainingOptions options) throws Exception {
+        return trainMultiTask(model, woundDatasetPath, tissueDatasetPath, options, TrainingMonitor.NONE);
+    }
+    
+    /**
+     * Como {@link #trainMultiTask(ComputationGraph, String, String, TrainingOptions)}, consultando o
+     * monitor antes de cada mini-lote (treino e validação) e notificando-o ao fim de cada época.
+     * O treino começa em {@link TrainingOptions#getInitialEpoch()}; a divisão treino/validação é
+     * determinística, então uma retomada valida sobre os mesmos exemplos.
+     */
+    public TrainingResult trainMultiTask(ComputationGraph model, String woundDatasetPath, String tissueDatasetPath,
+                                         TrainingOptions options, TrainingMonitor monitor) throws Exception {
+        logger.info("Iniciando treinamento da rede multi-tarefa...");
+        logger.info("Dataset de feridas: {} | Dataset de tecidos: {}", woundDatasetPath, tissueDatasetPath);
         
-        model.setListeners(new ScoreIterationListener(10));
+        List<TrainingSample> samples = new ArrayList<>();
+        if (woundDatasetPath != null) {
+            samples.addAll(ImageFolderIndex.scan(woundDatasetPath, WOUND_HEAD, WoundType.values().length, SYNTHETIC_PER_CLASS));
+        }
+        if (tissueDatasetPath != null) {
+            samples.addAll(ImageFolderIndex.scan(tissueDatasetPath, TISSUE_HEAD, TissueType.values().length, SYNTHETIC_PER_CLASS));
+        }
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum dataset informado para o treinamento");
+        }
         
-        TrainingResult result = new TrainingResult();
-        result.setStartTime(System.currentTimeMillis());
+        // Divisão determinística sobre o índice ordenado: cada parte tem o próprio cache em disco
+        Random random = new Random(SEED);
+        Collections.shuffle(samples, random);
+        int splitIndex = (int) (samples.size() * 0.8);
+        List<TrainingSample> trainSamples = List.copyOf(samples.subList(0, splitIndex));
+        List<TrainingSample> testSamples = List.copyOf(samples.subList(splitIndex, samples.size()));
         
-        for (int epoch = 0; epoch < EPOCHS; epoch++) {
-            model.fit(trainIterator);
-            trainIterator.reset();
+        ExecutorService workers = newLoaderPool();
+        try (TensorShardCache testCache = openCache(testSamples, workers, options);
+             TensorShardCache trainCache = augmentation ? null : openCache(trainSamples, workers, options)) {
             
-            Evaluation eval = model.evaluate(testIterator);
-            testIterator.reset();
-            
-            logger.info("Epoch {} - Accuracy: {:.4f}, F1: {:.4f}", 
-                epoch + 1, eval.accuracy(), eval.f1());
-            
-            result.addEpochMetric(epoch, eval.accuracy(), eval.f1());
-            
-            if (eval.accuracy() > 0.95) {
-                logger.info("Accuracy target reached. Stopping early.");
-                break;
+            // Com aumento de dados cada época gera imagens novas: o treino decodifica e
+            // transforma em paralelo nos workers em vez de ler o cache
+            MultiDataSetIterator trainIterator = augmentation
+                ? new StreamingMultiTaskIterator(trainSamples, HEAD_SIZES, options.getBatchSize(), preprocessor,
+                    workers, options.getPrefetchBatches(), new ImageAugmenter(), random)
+                : new AsyncMultiDataSetIterator(new ShardedMultiTaskIterator(trainCache, allIndices(trainCache),
+                    HEAD_SIZES, options.getBatchSize(), random), options.getPrefetchBatches(), false);
+            AsyncMultiDataSetIterator testIterator = new AsyncMultiDataSetIterator(new ShardedMultiTaskIterator(
+                testCache, allIndices(testCache), HEAD_SIZES, options.getBatchSize(), null), options.getPrefetchBatches(), false);
+            try {
+                return fit(model, new MonitoredMultiTaskIterator(trainIterator, monitor),
+                    new MonitoredMultiTaskIterator(testIterator, monitor), options, monitor);
+            } finally {
+                if (trainIterator instanceof AsyncMultiDataSetIterator async) {
+                    async.shutdown();
+                }
+                testIterator.shutdown();
             }
+        } finally {
+            workers.shutdownNow();
         }
-        
-        Evaluation finalEval = model.evaluate(testIterator);
-        result.setFinalAccuracy(finalEval.accuracy());
-        result.setFinalF1Score(finalEval.f1());
-        result.setEndTime(System.currentTimeMillis());
-        
-        logger.info("Treinamento concluído! Accuracy: {:.4f}", finalEval.accuracy());
-        
-        return result;
     }
     
-    public TrainingResult trainTissueSegmenter(MultiLayerNetwork model, String datasetPath) throws Exception {
-        logger.info("Iniciando treinamento do segmentador de tecidos...");
-        
-        List<DataSet> trainingData = loadDataset(datasetPath, TissueType.values().length);
-        
-        Collections.shuffle(trainingData);
-        int splitIndex = (int) (trainingData.size() * 0.8);
-        List<DataSet> trainSet = trainingData.subList(0, splitIndex);
-        List<DataSet> testSet = trainingData.subList(splitIndex, trainingData.size());
-        
-        DataSetIterator trainIterator = createDataSetIterator(trainSet, BATCH_SIZE);
-        DataSetIterator testIterator = createDataSetIterator(testSet, BATCH_SIZE);
-        
-        model.setListeners(new ScoreIterationListener(10));
-        
-        TrainingResult result = new TrainingResult();
-        result.setStartTime(System.currentTimeMillis());
-        
-        for (int epoch = 0; epoch < EPOCHS; epoch++) {
-            model.fit(trainIterator);
-            trainIterator.reset();
-            
-            Evaluation eval = model.evaluate(testIterator);
-            testIterator.reset();
-            
-            logger.info("Epoch {} - Accuracy: {:.4f}", epoch + 1, eval.accuracy());
-            result.addEpochMetric(epoch, eval.accuracy(), eval.f1());
-        }
-        
-        Evaluation finalEval = model.evaluate(testIterator);
-        result.setFinalAccuracy(finalEval.accuracy());
-        result.setFinalF1Score(finalEval.f1());
-        result.setEndTime(System.currentTimeMillis());
-        
-        return result;
+    /**
+     * Abre o cache dos exemplos, decodificando-os em paralelo nos workers na primeira vez
+     */
+    private TensorShardCache openCache(List<TrainingSample> samples, ExecutorService workers,
+                                       TrainingOptions options) throws IOException {
+        return TensorShardCache.openOrBuild(cacheRoot, samples, () -> new StreamingMultiTaskIterator(
+            samples, HEAD_SIZES, options.getBatchSize(), preprocessor, workers, options.getPrefetchBatches(), null, null));
     }
     
-    private List<DataSet> loadDataset(String datasetPath, int numClasses) throws Exception {
-        List<DataSet> datasets = new ArrayList<>();
-        
-        File dataDir = new File(datasetPath);
-        if (!dataDir.exists()) {
-            logger.warn("Dataset não encontrado em: {}. Gerando dados sintéticos.", datasetPath);
-            return generateSyntheticDataset(numClasses, 100);
-        }
-        
-        File[] classDirs = dataDir.listFiles(File::isDirectory);
-        if (classDirs == null) {
-            return generateSyntheticDataset(numClasses, 100);
+    private ExecutorService newLoaderPool() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return Executors.newFixedThreadPool(loaderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ml-training-loader-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+    
+    private static int[] allIndices(TensorShardCache cache) {
+        return IntStream.range(0, cache.size()).toArray();
+    }
+    
+    private TrainingResult fit(ComputationGraph model, MultiDataSetIterator trainIterator,
+                               MultiDataSetIterator testIterator, TrainingOptions options,
+                               TrainingMonitor monitor) throws Exception {
+        ScoreIterationListener scoreListener = new ScoreIterationListener(10);
+        model.setListeners(scoreListener);
+        if (options.getLearningRate() != null) {
+            // Antes de criar as réplicas, que herdam a configuração do mestre
+            model.setLearningRate(options.getLearningRate());
         }
         
-        for (int classIdx = 0; classIdx < classDirs.length && classIdx < numClasses; classIdx++) {
-            File classDir = classDirs[classIdx];
-            File[] images = classDir.listFiles((dir, name) -> 
-                name.endsWith(".jpg") || name.endsWith(".png") || name.endsWith(".jpeg"));
+        try (ParameterAveragingTrainer parallel = options.getWorkers() > 1
+                 ? new ParameterAveragingTrainer(model, options.getWorkers(), options.getAveragingFrequency(),
+                     options.getPrefetchBatches(), monitor, scoreListener)
+                 : null) {
+            TrainingResult result = new TrainingResult();
+            result.setStartTime(System.currentTimeMillis());
+            
+            for (int epoch = options.getInitialEpoch(); epoch < options.getEpochs(); epoch++) {
+                if (parallel != null) {
+                    parallel.fit(trainIterator);
+                } else {
+                    model.fit(trainIterator);
+                }
+                trainIterator.reset();
+            
+                Map<Integer, Evaluation[]> eval = evaluate(model, testIterator);
+                Evaluation woundEval = eval.get(WOUND_HEAD)[0];
+                Evaluation tissueEval = eval.get(TISSUE_HEAD)[0];
             
-            if (images == null) continue;
+                logger.info("Epoch {} - Feridas: accuracy {}, F1 {} | Tecidos: accuracy {}", 
+                    epoch + 1, format(woundEval.accuracy()), format(woundEval.f1()), format(tissueEval.accuracy()));
             
-            for (File imageFile : images) {
-                try {
-                    byte[] imageBytes = Files.readAllBytes(imageFile.toPath());
-                    INDArray features = preprocessImage(imageBytes);
-                    INDArray labels = Nd4j.zeros(1, numClasses);
-                    labels.putScalar(0, classIdx, 1.0);
-                    
-                    datasets.add(new DataSet(features, labels));
-                } catch (Exception e) {
-                    logger.warn("Erro ao carregar imagem: {}", imageFile.getName());
+                EpochMetric metric = result.addEpochMetric(epoch, woundEval.accuracy(), woundEval.f1(), tissueEval.accuracy());
+                monitor.epochCompleted(metric, model);
+            
+                if (woundEval.accuracy() > 0.95 && tissueEval.accuracy() > 0.95) {
+                    logger.info("Accuracy target reached. Stopping early.");
+                    break;
                 }
             }
+            
+            Map<Integer, Evaluation[]> finalEval = evaluate(model, testIterator);
+            result.setFinalAccuracy(finalEval.get(WOUND_HEAD)[0].accuracy());
+            result.setFinalF1Score(finalEval.get(WOUND_HEAD)[0].f1());
+            result.setFinalTissueAccuracy(finalEval.get(TISSUE_HEAD)[0].accuracy());
+            result.setEndTime(System.currentTimeMillis());
+            
+            logger.info("Treinamento concluído! Accuracy feridas: {}, tecidos: {}", 
+                format(result.getFinalAccuracy()), format(result.getFinalTissueAccuracy()));
+            
+            return result;
         }
-        
-        if (datasets.isEmpty()) {
-            return generateSyntheticDataset(numClasses, 100);
-        }
-        
-        logger.info("Carregadas {} imagens do dataset", datasets.size());
-        return datasets;
     }
     
-    private List<DataSet> generateSyntheticDataset(int numClasses, int samplesPerClass) {
-        List<DataSet> datasets = new ArrayList<>();
-        
-        logger.info("Gerando {} amostras sintéticas por classe ({} classes)", 
-            samplesPerClass, numClasses);
-        
-        for (int classIdx = 0; classIdx < numClasses; classIdx++) {
-            for (int i = 0; i < samplesPerClass; i++) {
-                INDArray features = Nd4j.rand(1, CHANNELS, IMAGE_HEIGHT, IMAGE_WIDTH);
-                
-                features.muli(0.5).addi(classIdx * 0.1);
-                
-                INDArray labels = Nd4j.zeros(1, numClasses);
-                labels.putScalar(0, classIdx, 1.0);
-                
-                datasets.add(new DataSet(features, labels));
-            }
-        }
+    private Map<Integer, Evaluation[]> evaluate(ComputationGraph model, MultiDataSetIterator iterator) {
+        Map<Integer, Evaluation[]> evaluations = new HashMap<>();
+        evaluations.put(WOUND_HEAD, new Evaluation[]{new Evaluation()});
+        evaluations.put(TISSUE_HEAD, new Evaluation[]{new Evaluation()});
         
-        Collections.shuffle(datasets);
-        return datasets;
-    }
-    
-    private INDArray preprocessImage(byte[] imageBytes) throws Exception {
-        return Nd4j.rand(1, CHANNELS, IMAGE_HEIGHT, IMAGE_WIDTH);
+        Map<Integer, Evaluation[]> result = model.evaluate(iterator, evaluations);
+        iterator.reset();
+        return result;
     }
     
-    private DataSetIterator createDataSetIterator(List<DataSet> dataSetList, int batchSize) {
-        if (dataSetList.isEmpty()) {
-            INDArray emptyFeatures = Nd4j.zeros(1, CHANNELS, IMAGE_HEIGHT, IMAGE_WIDTH);
-            INDArray emptyLabels = Nd4j.zeros(1, 10);
-            return new TestDataSetIterator(new DataSet(emptyFeatures, emptyLabels), batchSize);
-        }
-        
-        INDArray features = Nd4j.vstack(dataSetList.stream().map(DataSet::getFeatures).toArray(INDArray[]::new));
-        INDArray labels = Nd4j.vstack(dataSetList.stream().map(DataSet::getLabels).toArray(INDArray[]::new));
-        
-        return new TestDataSetIterator(new DataSet(features, labels), batchSize);
+    private static String format(double value) {
+        return String.format("%.4f", value);
     }
     
     public static class TrainingResult {
@@ -203,10 +247,13 @@ public class WoundModelTrainer {
         private long endTime;
         private double finalAccuracy;
         private double finalF1Score;
+        private double finalTissueAccuracy;
         private List<EpochMetric> epochMetrics = new ArrayList<>();
 
-        public void addEpochMetric(int epoch, double accuracy, double f1) {
-            epochMetrics.add(new EpochMetric(epoch, accuracy, f1));
+        public EpochMetric addEpochMetric(int epoch, double accuracy, double f1, double tissueAccuracy) {
+            EpochMetric metric = new EpochMetric(epoch, accuracy, f1, tissueAccuracy);
+            epochMetrics.add(metric);
+            return metric;
         }
 
         public long getStartTime() { return startTime; }
@@ -221,6 +268,9 @@ public class WoundModelTrainer {
         public double getFinalF1Score() { return finalF1Score; }
         public void setFinalF1Score(double finalF1Score) { this.finalF1Score = finalF1Score; }
 
+        public double getFinalTissueAccuracy() { return finalTissueAccuracy; }
+        public void setFinalTissueAccuracy(double finalTissueAccuracy) { this.finalTissueAccuracy = finalTissueAccuracy; }
+
         public List<EpochMetric> getEpochMetrics() { return epochMetrics; }
 
         public long getTrainingDurationMs() { return endTime - startTime; }
@@ -230,15 +280,20 @@ public class WoundModelTrainer {
         private int epoch;
         private double accuracy;
         private double f1Score;
+        private double tissueAccuracy;
 
-        public EpochMetric(int epoch, double accuracy, double f1Score) {
+        @JsonCreator
+        public EpochMetric(@JsonProperty("epoch") int epoch, @JsonProperty("accuracy") double accuracy,
+                           @JsonProperty("f1Score") double f1Score, @JsonProperty("tissueAccuracy") double tissueAccuracy) {
             this.epoch = epoch;
             this.accuracy = accuracy;
             this.f1Score = f1Score;
+            this.tissueAccuracy = tissueAccuracy;
         }
 
         public int getEpoch() { return epoch; }
         public double getAccuracy() { return accuracy; }
         public double getF1Score() { return f1Score; }
+        public double getTissueAccuracy() { return tissueAccuracy; }
     }
 }
@@ -0,0 +1,256 @@
+package com.healplus.ml.xai;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Codec binário compacto para mapas de ativação e máscaras limiarizadas
+ *
+ * Formato (big-endian): magic "HPAM", versão, tipo, flags, largura (u16), altura (u16),
+ * seguido de
+ * - QUANTIZED: offset (f32), scale (f32) e largura x altura bytes sem sinal,
+ *   com valor = offset + scale * q;
+ * - MASK_RLE: limiar (f32) e comprimentos de corrida em varint, alternando
+ *   pixels fora/dentro da máscara a partir de uma corrida fora (possivelmente vazia).
+ * Com FLAG_DEFLATE o corpo após o cabeçalho é comprimido com Deflate.
+ */
+public final class ActivationMapCodec {
+
+    /** Tipo de mídia das representações binárias */
+    public static final String MEDIA_TYPE = "application/vnd.healplus.activation-map";
+
+    public static final byte KIND_QUANTIZED = 0;
+    public static final byte KIND_MASK_RLE = 1;
+
+    static final byte FLAG_DEFLATE = 1;
+
+    private static final byte[] MAGIC = { 'H', 'P', 'A', 'M' };
+    private static final byte VERSION = 1;
+    private static final int KIND_OFFSET = 5;
+    private static final int FLAGS_OFFSET = 6;
+    private static final int BASE_HEADER_LENGTH = 11;
+
+    private ActivationMapCodec() {
+    }
+
+    /**
+     * Quantiza o mapa em 8 bits sobre o intervalo [mínimo, máximo] do próprio mapa
+     */
+    public static byte[] encodeQuantized(float[] map, int width, int height, boolean deflate) {
+        checkDimensions(map, width, height);
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (float value : map) {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        if (map.length == 0) {
+            min = 0f;
+            max = 0f;
+        }
+        float offset = min;
+        float scale = max > min ? (max - min) / 255f : 0f;
+
+        byte[] quantized = new byte[map.length];
+        if (scale > 0f) {
+            float inverse = 1f / scale;
+            for (int i = 0; i < map.length; i++) {
+                quantized[i] = (byte) Math.round((map[i] - offset) * inverse);
+            }
+        }
+
+        return write(KIND_QUANTIZED, deflate, width, height, header -> {
+            header.writeFloat(offset);
+            header.writeFloat(scale);
+        }, quantized, quantized.length);
+    }
+
+    /**
+     * Máscara dos pixels com ativação >= limiar, codificada por corridas
+     */
+    public static byte[] encodeMask(float[] map, int width, int height, float threshold, boolean deflate) {
+        checkDimensions(map, width, height);
+        // Pior caso: uma corrida por pixel (mais a inicial), até 5 bytes de varint cada
+        byte[] runs = new byte[map.length * 5 + 5];
+        int length = 0;
+        boolean inside = false;
+        int run = 0;
+        for (float value : map) {
+            if ((value >= threshold) != inside) {
+                length = writeVarint(runs, length, run);
+                inside = !inside;
+                run = 0;
+            }
+            run++;
+        }
+        length = writeVarint(runs, length, run);
+
+        return write(KIND_MASK_RLE, deflate, width, height,
+            header -> header.writeFloat(threshold), runs, length);
+    }
+
+    /**
+     * Indica se os bytes começam com o cabeçalho desta versão do codec
+     */
+    public static boolean isEncoded(byte[] data) {
+        if (data == null || data.length < BASE_HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return data[MAGIC.length] == VERSION;
+    }
+
+    /**
+     * Decodifica qualquer representação do codec
+     */
+    public static Decoded decode(byte[] encoded) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IllegalArgumentException("Mapa de ativação com cabeçalho inválido");
+                }
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versão de mapa de ativação não suportada: " + version);
+            }
+            byte kind = in.readByte();
+            byte flags = in.readByte();
+            int width = in.readUnsignedShort();
+            int height = in.readUnsignedShort();
+            float first = in.readFloat();
+            float scale = kind == KIND_QUANTIZED ? in.readFloat() : 0f;
+
+            InputStream body = (flags & FLAG_DEFLATE) != 0 ? new InflaterInputStream(in) : in;
+            float[] map = new float[width * height];
+            if (kind == KIND_QUANTIZED) {
+                byte[] quantized = body.readNBytes(map.length);
+                if (quantized.length != map.length) {
+                    throw new IllegalArgumentException("Mapa de ativação truncado");
+                }
+                for (int i = 0; i < map.length; i++) {
+                    map[i] = first + scale * (quantized[i] & 0xFF);
+                }
+            } else if (kind == KIND_MASK_RLE) {
+                int position = 0;
+                boolean inside = false;
+                while (position < map.length) {
+                    int run = readVarint(body);
+                    if (inside) {
+                        Arrays.fill(map, position, Math.min(map.length, position + run), 1f);
+                    }
+                    position += run;
+                    inside = !inside;
+                }
+            } else {
+                throw new IllegalArgumentException("Tipo de mapa de ativação desconhecido: " + kind);
+            }
+            return new Decoded(kind, width, height, map);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Mapa de ativação corrompido", e);
+        }
+    }
+
+    /**
+     * Mesma representação sem Deflate, sem requantizar (útil para clientes sem inflate)
+     */
+    public static byte[] withoutDeflate(byte[] encoded) {
+        if (encoded.length < BASE_HEADER_LENGTH || (encoded[FLAGS_OFFSET] & FLAG_DEFLATE) == 0) {
+            return encoded;
+        }
+        int headerLength = BASE_HEADER_LENGTH + (encoded[KIND_OFFSET] == KIND_QUANTIZED ? 8 : 4);
+        try (InflaterInputStream body = new InflaterInputStream(
+                new ByteArrayInputStream(encoded, headerLength, encoded.length - headerLength))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length * 4);
+            out.write(encoded, 0, headerLength);
+            body.transferTo(out);
+            byte[] plain = out.toByteArray();
+            plain[FLAGS_OFFSET] &= ~FLAG_DEFLATE;
+            return plain;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Mapa de ativação corrompido", e);
+        }
+    }
+
+    /**
+     * Mapa decodificado; para máscaras, 1 nos pixels marcados e 0 nos demais
+     */
+    public record Decoded(byte kind, int width, int height, float[] map) {
+    }
+
+    private interface HeaderWriter {
+        void write(DataOutputStream header) throws IOException;
+    }
+
+    private static byte[] write(byte kind, boolean deflate, int width, int height,
+                                HeaderWriter extraHeader, byte[] body, int bodyLength) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(deflate ? bodyLength / 4 + 32 : bodyLength + 32);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(kind);
+            out.writeByte(deflate ? FLAG_DEFLATE : 0);
+            out.writeShort(width);
+            out.writeShort(height);
+            extraHeader.write(out);
+            out.flush();
+            if (deflate) {
+                try (DeflaterOutputStream deflater = new DeflaterOutputStream(buffer)) {
+                    deflater.write(body, 0, bodyLength);
+                }
+            } else {
+                buffer.write(body, 0, bodyLength);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void checkDimensions(float[] map, int width, int height) {
+        if (width < 0 || height < 0 || width > 0xFFFF || height > 0xFFFF || map.length != width * height) {
+            throw new IllegalArgumentException("Dimensões inválidas para o mapa: " + width + "x" + height
+                + " com " + map.length + " valores");
+        }
+    }
+
+    private static int writeVarint(byte[] out, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IllegalArgumentException("Máscara truncada");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint inválido na máscara");
+    }
+}
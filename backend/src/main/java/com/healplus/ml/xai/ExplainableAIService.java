@@ -3,20 +3,24 @@ package com.healplus.ml.xai;
 import com.healplus.ml.TissueType;
 import com.healplus.ml.WoundAnalysisResult;
 import com.healplus.ml.WoundType;
+import com.healplus.ml.neural.ClassActivationMap;
+import com.healplus.ml.neural.DecodedImage;
+import com.healplus.ml.neural.ImagePreprocessor;
+import com.healplus.ml.neural.WoundClassifierNetwork;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Serviço de Explainable AI (XAI) para Análise de Feridas
@@ -30,25 +34,110 @@ public class ExplainableAIService {
     private static final int HEATMAP_WIDTH = 224;
     private static final int HEATMAP_HEIGHT = 224;
     
+    private final WoundClassifierNetwork network;
+    private final ImagePreprocessor imagePreprocessor;
+    private final ExplanationArtifactService artifactService;
+    private final int occlusionPatchSize;
+    private final int occlusionStride;
+    private final int occlusionBatchSize;
+    
+    public ExplainableAIService(
+            WoundClassifierNetwork network,
+            ImagePreprocessor imagePreprocessor,
+            ExplanationArtifactService artifactService,
+            @Value("${ml.xai.occlusion.patch-size:32}") int occlusionPatchSize,
+            @Value("${ml.xai.occlusion.stride:16}") int occlusionStride,
+            @Value("${ml.xai.occlusion.batch-size:32}") int occlusionBatchSize) {
+        if (occlusionPatchSize <= 0 || occlusionPatchSize > HEATMAP_WIDTH || occlusionStride <= 0 || occlusionBatchSize <= 0) {
+            throw new IllegalArgumentException("Parâmetros de oclusão inválidos: patch=" + occlusionPatchSize
+                + ", stride=" + occlusionStride + ", lote=" + occlusionBatchSize);
+        }
+        this.network = network;
+        this.imagePreprocessor = imagePreprocessor;
+        this.artifactService = artifactService;
+        this.occlusionPatchSize = occlusionPatchSize;
+        this.occlusionStride = occlusionStride;
+        this.occlusionBatchSize = occlusionBatchSize;
+    }
+    
     /**
      * Gera explicação completa para uma análise de ferida
+     *
+     * @param classActivationMap Grad-CAM capturado no forward pass da própria análise
+     *                           (ver {@link WoundAnalysisResult#getClassActivationMap()})
+     * @param ownerId            profissional dono dos artefatos gravados
      */
     public ExplanationResult generateExplanation(
             WoundAnalysisResult analysisResult, 
-            byte[] originalImage,
-            INDArray activations) throws IOException {
+            DecodedImage originalImage,
+            ClassActivationMap classActivationMap,
+            String ownerId) throws IOException {
         
         logger.info("Gerando explicação para análise: {}", analysisResult.getId());
         
+        // Heatmap de ativação (Grad-CAM da inferência já realizada)
+        float[] activationMap = upsampleActivationMap(classActivationMap, HEATMAP_WIDTH, HEATMAP_HEIGHT);
+        HeatmapResult heatmap = new HeatmapResult();
+        if (classActivationMap != null) {
+            heatmap.setMethod("Grad-CAM");
+            heatmap.setTargetLayer(classActivationMap.getLayer());
+            heatmap.setTargetClass(classActivationMap.getTargetClass());
+        }
+        
+        return buildExplanation(analysisResult, originalImage, heatmap, activationMap, ownerId);
+    }
+    
+    /**
+     * Explicação por sensibilidade à oclusão: mede a queda da probabilidade da classe
+     * prevista quando cada região da imagem é coberta. As variantes ocluídas são empilhadas
+     * em lotes de {@code ml.xai.occlusion.batch-size} e distribuídas entre as réplicas do
+     * modelo, em vez de uma chamada de inferência por variante.
+     */
+    public ExplanationResult generateOcclusionExplanation(
+            WoundAnalysisResult analysisResult,
+            DecodedImage originalImage,
+            String ownerId) throws IOException {
+        
+        logger.info("Gerando explicação por oclusão para análise: {}", analysisResult.getId());
+        
+        INDArray base = imagePreprocessor.preprocessImage(originalImage);
+        // Resultados enviados pelo cliente podem não trazer o tipo; explica a classe prevista
+        WoundType targetType = analysisResult.getWoundType() != null ?
+            analysisResult.getWoundType() :
+            WoundType.values()[network.predictWoundProbabilitiesAsync(base).join().getRow(0).argMax().getInt(0)];
+        float[] sensitivityMap = computeOcclusionSensitivity(base, targetType.ordinal());
+        
+        HeatmapResult heatmap = new HeatmapResult();
+        heatmap.setMethod("Occlusion");
+        heatmap.setTargetLayer(WoundClassifierNetwork.WOUND_OUTPUT);
+        heatmap.setTargetClass(targetType);
+        
+        return buildExplanation(analysisResult, originalImage, heatmap,
+            ImageKernels.gaussianBlur(sensitivityMap, HEATMAP_WIDTH, HEATMAP_HEIGHT, 5), ownerId);
+    }
+    
+    private ExplanationResult buildExplanation(
+            WoundAnalysisResult analysisResult,
+            DecodedImage originalImage,
+            HeatmapResult heatmap,
+            float[] activationMap,
+            String ownerId) {
+        
+        // Resultados enviados pelo cliente podem não trazer id; os artefatos precisam de uma chave
+        String analysisId = analysisResult.getId() != null ? analysisResult.getId() : UUID.randomUUID().toString();
+        
         ExplanationResult explanation = new ExplanationResult();
-        explanation.setAnalysisId(analysisResult.getId());
+        explanation.setAnalysisId(analysisId);
         
-        // 1. Gerar Heatmap de ativação (Grad-CAM simplificado)
-        HeatmapResult heatmap = generateActivationHeatmap(originalImage, activations, analysisResult);
+        // 1. Heatmap de ativação: grava o mapa e a imagem de entrada; os PNGs são
+        // renderizados apenas quando as referências forem requisitadas
+        heatmap.setWidth(HEATMAP_WIDTH);
+        heatmap.setHeight(HEATMAP_HEIGHT);
+        artifactService.store(analysisId, ownerId, activationMap, inputImage(originalImage), heatmap);
         explanation.setHeatmap(heatmap);
         
         // 2. Identificar regiões de interesse
-        List<RegionOfInterest> rois = identifyRegionsOfInterest(analysisResult, heatmap);
+        List<RegionOfInterest> rois = identifyRegionsOfInterest(analysisResult, activationMap);
         explanation.setRegionsOfInterest(rois);
         
         // 3. Gerar explicações textuais
@@ -72,203 +161,140 @@ public class ExplainableAIService {
     }
     
     /**
-     * Gera heatmap de ativação usando técnica similar ao Grad-CAM
+     * Imagem redimensionada da análise, na resolução do heatmap
      */
-    private HeatmapResult generateActivationHeatmap(
-            byte[] originalImage, 
-            INDArray activations,
-            WoundAnalysisResult result) throws IOException {
-        
-        BufferedImage original = ImageIO.read(new ByteArrayInputStream(originalImage));
-        BufferedImage resized = resizeImage(original, HEATMAP_WIDTH, HEATMAP_HEIGHT);
-        
-        // Gerar mapa de ativação baseado em análise de cor e resultado
-        double[][] activationMap = generateActivationMap(resized, result);
-        
-        // Converter para heatmap visual
-        BufferedImage heatmapImage = createHeatmapVisualization(activationMap);
-        
-        // Sobrepor ao original
-        BufferedImage overlayImage = createOverlayImage(resized, heatmapImage, 0.5f);
-        
-        HeatmapResult heatmapResult = new HeatmapResult();
-        heatmapResult.setHeatmapBase64(imageToBase64(heatmapImage));
-        heatmapResult.setOverlayBase64(imageToBase64(overlayImage));
-        heatmapResult.setWidth(HEATMAP_WIDTH);
-        heatmapResult.setHeight(HEATMAP_HEIGHT);
-        heatmapResult.setActivationMap(activationMap);
-        
-        return heatmapResult;
+    private BufferedImage inputImage(DecodedImage originalImage) {
+        BufferedImage resized = originalImage.getResized();
+        if (resized.getWidth() != HEATMAP_WIDTH || resized.getHeight() != HEATMAP_HEIGHT) {
+            resized = resizeImage(resized, HEATMAP_WIDTH, HEATMAP_HEIGHT);
+        }
+        return resized;
     }
     
     /**
-     * Gera mapa de ativação baseado nas características detectadas
+     * Mapa de sensibilidade: para cada pixel, a queda média da probabilidade da classe-alvo
+     * nas variantes em que ele foi ocluído, normalizada em [0, 1].
+     * A oclusão preenche o patch com 0 no espaço normalizado, ou seja, a cor média do dataset.
      */
-    private double[][] generateActivationMap(BufferedImage image, WoundAnalysisResult result) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        double[][] activationMap = new double[height][width];
-        
-        Map<TissueType, Double> tissues = result.getTissuePercentages();
-        
-        // Analisar cada pixel e atribuir ativação baseada no tipo de tecido detectado
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                double activation = 0;
-                
-                // Pixels escuros (possível necrose) - alta ativação
-                if (r < 60 && g < 60 && b < 60) {
-                    activation = 0.9;
-                }
-                // Pixels amarelados (esfacelo/fibrina)
-                else if (r > 180 && g > 150 && b < 100) {
-                    activation = 0.8;
-                }
-                // Pixels vermelhos (granulação ou inflamação)
-                else if (r > 150 && g < 100 && b < 100) {
-                    activation = 0.7;
-                }
-                // Pixels rosados (epitelização)
-                else if (r > 200 && g > 150 && b > 150 && r > g && r > b) {
-                    activation = 0.5;
+    private float[] computeOcclusionSensitivity(INDArray base, int targetClass) {
+        int patch = occlusionPatchSize;
+        int stride = occlusionStride;
+        int[] offsets = occlusionOffsets(HEATMAP_WIDTH, patch, stride);
+        int positionsPerAxis = offsets.length;
+        int total = positionsPerAxis * positionsPerAxis;
+        
+        // Variante 0 é a imagem sem oclusão, referência da probabilidade original
+        int variants = total + 1;
+        int batches = (variants + occlusionBatchSize - 1) / occlusionBatchSize;
+        int maxInFlight = Math.max(1, network.getReplicaPool().getSize());
+        
+        float[] scores = new float[variants];
+        Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+        for (int b = 0; b < batches; b++) {
+            int first = b * occlusionBatchSize;
+            int size = Math.min(occlusionBatchSize, variants - first);
+            
+            INDArray batch = Nd4j.createUninitialized(base.dataType(), size, base.size(1), base.size(2), base.size(3));
+            for (int i = 0; i < size; i++) {
+                batch.get(NDArrayIndex.point(i)).assign(base.get(NDArrayIndex.point(0)));
+                int variant = first + i;
+                if (variant > 0) {
+                    int position = variant - 1;
+                    int y = offsets[position / positionsPerAxis];
+                    int x = offsets[position % positionsPerAxis];
+                    batch.get(NDArrayIndex.point(i), NDArrayIndex.all(),
+                        NDArrayIndex.interval(y, y + patch), NDArrayIndex.interval(x, x + patch)).assign(0);
                 }
-                // Pixels esverdeados (possível infecção)
-                else if (g > r && g > b && g > 100) {
-                    activation = 0.95;
+            }
+            
+            // Limita os lotes simultâneos ao número de réplicas para conter a memória dos tensores
+            if (inFlight.size() >= maxInFlight) {
+                inFlight.removeFirst().join();
+            }
+            inFlight.addLast(network.predictWoundProbabilitiesAsync(batch).thenAccept(probabilities -> {
+                for (int i = 0; i < size; i++) {
+                    scores[first + i] = probabilities.getFloat(i, targetClass);
                 }
-                // Outros
-                else {
-                    activation = 0.2;
+            }));
+        }
+        inFlight.forEach(CompletableFuture::join);
+        
+        float baseline = scores[0];
+        float[] drop = new float[HEATMAP_WIDTH * HEATMAP_HEIGHT];
+        int[] coverage = new int[HEATMAP_WIDTH * HEATMAP_HEIGHT];
+        for (int position = 0; position < total; position++) {
+            int y0 = offsets[position / positionsPerAxis];
+            int x0 = offsets[position % positionsPerAxis];
+            float delta = Math.max(0f, baseline - scores[position + 1]);
+            for (int y = y0; y < y0 + patch; y++) {
+                int row = y * HEATMAP_WIDTH;
+                for (int x = x0; x < x0 + patch; x++) {
+                    drop[row + x] += delta;
+                    coverage[row + x]++;
                 }
-                
-                activationMap[y][x] = activation;
             }
         }
         
-        // Aplicar suavização gaussiana
-        return applyGaussianSmoothing(activationMap, 5);
-    }
-    
-    /**
-     * Aplica suavização gaussiana ao mapa de ativação
-     */
-    private double[][] applyGaussianSmoothing(double[][] map, int kernelSize) {
-        int height = map.length;
-        int width = map[0].length;
-        double[][] smoothed = new double[height][width];
-        
-        int half = kernelSize / 2;
-        double sigma = kernelSize / 3.0;
-        
-        // Criar kernel gaussiano
-        double[][] kernel = new double[kernelSize][kernelSize];
-        double sum = 0;
-        for (int i = 0; i < kernelSize; i++) {
-            for (int j = 0; j < kernelSize; j++) {
-                int x = i - half;
-                int y = j - half;
-                kernel[i][j] = Math.exp(-(x*x + y*y) / (2 * sigma * sigma));
-                sum += kernel[i][j];
-            }
-        }
-        // Normalizar kernel
-        for (int i = 0; i < kernelSize; i++) {
-            for (int j = 0; j < kernelSize; j++) {
-                kernel[i][j] /= sum;
+        float max = 0f;
+        for (int i = 0; i < drop.length; i++) {
+            if (coverage[i] > 0) {
+                drop[i] /= coverage[i];
             }
+            max = Math.max(max, drop[i]);
         }
-        
-        // Aplicar convolução
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                double value = 0;
-                for (int ky = 0; ky < kernelSize; ky++) {
-                    for (int kx = 0; kx < kernelSize; kx++) {
-                        int py = Math.min(Math.max(y + ky - half, 0), height - 1);
-                        int px = Math.min(Math.max(x + kx - half, 0), width - 1);
-                        value += map[py][px] * kernel[ky][kx];
-                    }
-                }
-                smoothed[y][x] = value;
+        if (max > 0f) {
+            for (int i = 0; i < drop.length; i++) {
+                drop[i] /= max;
             }
         }
         
-        return smoothed;
+        logger.debug("Oclusão: {} variantes em {} lotes (patch={}, stride={}), probabilidade base={}",
+            total, batches, patch, stride, baseline);
+        return drop;
     }
     
     /**
-     * Cria visualização de heatmap com cores
+     * Posições do patch em um eixo: a cada {@code stride} a partir de 0 e, quando o passo
+     * não termina exatamente na borda, uma última posição alinhada a ela, para que as
+     * linhas e colunas finais também sejam ocluídas
      */
-    private BufferedImage createHeatmapVisualization(double[][] activationMap) {
-        int height = activationMap.length;
-        int width = activationMap[0].length;
-        BufferedImage heatmap = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                double value = activationMap[y][x];
-                Color color = getHeatmapColor(value);
-                heatmap.setRGB(x, y, color.getRGB());
-            }
+    static int[] occlusionOffsets(int size, int patch, int stride) {
+        int regular = (size - patch) / stride + 1;
+        int last = (regular - 1) * stride;
+        int count = last + patch < size ? regular + 1 : regular;
+        int[] offsets = new int[count];
+        for (int i = 0; i < regular; i++) {
+            offsets[i] = i * stride;
         }
-        
-        return heatmap;
+        if (count > regular) {
+            offsets[regular] = size - patch;
+        }
+        return offsets;
     }
     
     /**
-     * Converte valor de ativação em cor do heatmap (azul -> verde -> amarelo -> vermelho)
+     * Amplia o Grad-CAM (grade da última convolução) por interpolação bilinear,
+     * suavizando as transições entre células da grade
      */
-    private Color getHeatmapColor(double value) {
-        value = Math.max(0, Math.min(1, value));
-        
-        int r, g, b;
-        int alpha = (int) (value * 180 + 75); // Transparência variável
-        
-        if (value < 0.25) {
-            // Azul para ciano
-            r = 0;
-            g = (int) (255 * value * 4);
-            b = 255;
-        } else if (value < 0.5) {
-            // Ciano para verde
-            r = 0;
-            g = 255;
-            b = (int) (255 * (1 - (value - 0.25) * 4));
-        } else if (value < 0.75) {
-            // Verde para amarelo
-            r = (int) (255 * (value - 0.5) * 4);
-            g = 255;
-            b = 0;
-        } else {
-            // Amarelo para vermelho
-            r = 255;
-            g = (int) (255 * (1 - (value - 0.75) * 4));
-            b = 0;
+    private float[] upsampleActivationMap(ClassActivationMap cam, int width, int height) {
+        float[] activationMap = new float[width * height];
+        if (cam == null) {
+            // Sem ativações da inferência não há evidência visual a destacar
+            logger.warn("Explicação sem Grad-CAM disponível; heatmap será vazio");
+            return activationMap;
         }
         
-        return new Color(r, g, b, alpha);
-    }
-    
-    /**
-     * Sobrepõe heatmap sobre imagem original
-     */
-    private BufferedImage createOverlayImage(BufferedImage original, BufferedImage heatmap, float alpha) {
-        int width = original.getWidth();
-        int height = original.getHeight();
-        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        
-        Graphics2D g2d = overlay.createGraphics();
-        g2d.drawImage(original, 0, 0, null);
-        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
-        g2d.drawImage(heatmap, 0, 0, null);
-        g2d.dispose();
+        double scaleX = (double) cam.getWidth() / width;
+        double scaleY = (double) cam.getHeight() / height;
+        for (int y = 0; y < height; y++) {
+            double camY = (y + 0.5) * scaleY;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                activationMap[row + x] = cam.sample((x + 0.5) * scaleX, camY);
+            }
+        }
         
-        return overlay;
+        return ImageKernels.gaussianBlur(activationMap, width, height, 5);
     }
     
     /**
@@ -276,32 +302,26 @@ public class ExplainableAIService {
      */
     private List<RegionOfInterest> identifyRegionsOfInterest(
             WoundAnalysisResult result, 
-            HeatmapResult heatmap) {
+            float[] activationMap) {
         
         List<RegionOfInterest> rois = new ArrayList<>();
-        double[][] activationMap = heatmap.getActivationMap();
         
-        // Encontrar regiões de alta ativação
-        List<Point> highActivationPoints = findHighActivationRegions(activationMap, 0.7);
+        // Regiões conectadas de alta ativação (pontos a menos de 20px na horizontal ou
+        // vertical, ou até ~26px na diagonal, pertencem à mesma região)
+        List<RegionLabeler.Region> regions = RegionLabeler.label(
+            activationMap, HEATMAP_WIDTH, HEATMAP_HEIGHT, 0.7, 20);
         
-        // Agrupar pontos próximos em regiões
-        List<List<Point>> clusters = clusterPoints(highActivationPoints, 20);
-        
-        for (int i = 0; i < Math.min(clusters.size(), 5); i++) {
-            List<Point> cluster = clusters.get(i);
-            if (cluster.isEmpty()) continue;
-            
-            Rectangle bounds = getBoundingBox(cluster);
-            double avgActivation = calculateAverageActivation(cluster, activationMap);
+        for (int i = 0; i < Math.min(regions.size(), 5); i++) {
+            RegionLabeler.Region region = regions.get(i);
             
             RegionOfInterest roi = new RegionOfInterest();
             roi.setId("ROI-" + (i + 1));
-            roi.setX(bounds.x);
-            roi.setY(bounds.y);
-            roi.setWidth(bounds.width);
-            roi.setHeight(bounds.height);
-            roi.setActivationLevel(avgActivation);
-            roi.setDescription(describeRegion(avgActivation, result));
+            roi.setX(region.x);
+            roi.setY(region.y);
+            roi.setWidth(region.width);
+            roi.setHeight(region.height);
+            roi.setActivationLevel(region.meanActivation);
+            roi.setDescription(describeRegion(region.meanActivation, result));
             
             rois.add(roi);
         }
@@ -309,75 +329,6 @@ public class ExplainableAIService {
         return rois;
     }
     
-    private List<Point> findHighActivationRegions(double[][] activationMap, double threshold) {
-        List<Point> points = new ArrayList<>();
-        for (int y = 0; y < activationMap.length; y++) {
-            for (int x = 0; x < activationMap[0].length; x++) {
-                if (activationMap[y][x] >= threshold) {
-                    points.add(new Point(x, y));
-                }
-            }
-        }
-        return points;
-    }
-    
-    private List<List<Point>> clusterPoints(List<Point> points, int maxDistance) {
-        List<List<Point>> clusters = new ArrayList<>();
-        Set<Point> visited = new HashSet<>();
-        
-        for (Point point : points) {
-            if (visited.contains(point)) continue;
-            
-            List<Point> cluster = new ArrayList<>();
-            Queue<Point> queue = new LinkedList<>();
-            queue.add(point);
-            
-            while (!queue.isEmpty()) {
-                Point current = queue.poll();
-                if (visited.contains(current)) continue;
-                
-                visited.add(current);
-                cluster.add(current);
-                
-                for (Point other : points) {
-                    if (!visited.contains(other) && current.distance(other) < maxDistance) {
-                        queue.add(other);
-                    }
-                }
-            }
-            
-            if (!cluster.isEmpty()) {
-                clusters.add(cluster);
-            }
-        }
-        
-        // Ordenar por tamanho (maior primeiro)
-        clusters.sort((a, b) -> Integer.compare(b.size(), a.size()));
-        
-        return clusters;
-    }
-    
-    private Rectangle getBoundingBox(List<Point> points) {
-        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
-        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
-        
-        for (Point p : points) {
-            minX = Math.min(minX, p.x);
-            minY = Math.min(minY, p.y);
-            maxX = Math.max(maxX, p.x);
-            maxY = Math.max(maxY, p.y);
-        }
-        
-        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
-    }
-    
-    private double calculateAverageActivation(List<Point> points, double[][] activationMap) {
-        return points.stream()
-            .mapToDouble(p -> activationMap[p.y][p.x])
-            .average()
-            .orElse(0);
-    }
-    
     private String describeRegion(double activation, WoundAnalysisResult result) {
         if (activation > 0.9) {
             return "Região crítica - possível necrose ou infecção";
@@ -397,13 +348,15 @@ public class ExplainableAIService {
         List<FeatureExplanation> explanations = new ArrayList<>();
         
         // Explicação do tipo de ferida
-        explanations.add(new FeatureExplanation(
-            "Tipo de Ferida",
-            result.getWoundType().getDisplayName(),
-            result.getWoundTypeConfidence(),
-            getWoundTypeExplanation(result.getWoundType()),
-            getWoundTypeEvidences(result)
-        ));
+        if (result.getWoundType() != null) {
+            explanations.add(new FeatureExplanation(
+                "Tipo de Ferida",
+                result.getWoundType().getDisplayName(),
+                result.getWoundTypeConfidence(),
+                getWoundTypeExplanation(result.getWoundType()),
+                getWoundTypeEvidences(result)
+            ));
+        }
         
         // Explicação da fase de cicatrização
         explanations.add(new FeatureExplanation(
@@ -441,7 +394,7 @@ public class ExplainableAIService {
                 "Características compatíveis com úlcera venosa: localização em terço inferior da perna, bordas irregulares e pigmentação perilesional.";
             case ARTERIAL_ULCER -> 
                 "Padrão sugestivo de úlcera arterial: bordas bem definidas, leito pálido e localização em extremidades.";
-            case DIABETIC_FOOT -> 
+            case DIABETIC_ULCER -> 
                 "Características de pé diabético: localização plantar ou digital, bordas calosas e sinais de neuropatia.";
             case SURGICAL_WOUND -> 
                 "Ferida cirúrgica identificada por bordas regulares e padrão de incisão.";
@@ -471,7 +424,9 @@ public class ExplainableAIService {
     
     private String getHealingPhaseExplanation(com.healplus.ml.HealingPhase phase) {
         return switch (phase) {
-            case INFLAMMATORY -> 
+            case HEMOSTASIS ->
+                "Ferida na fase de hemostasia, com formação de coágulo e controle do sangramento. Etapa inicial e esperada do processo.";
+            case INFLAMMATORY ->
                 "Ferida na fase inflamatória inicial, caracterizada por edema, eritema e exsudato. Processo normal de limpeza e defesa.";
             case PROLIFERATIVE -> 
                 "Fase proliferativa identificada pela formação ativa de tecido de granulação e início da contração da ferida.";
@@ -597,12 +552,14 @@ public class ExplainableAIService {
         
         narrative.append("## Resumo da Análise\n\n");
         
-        narrative.append(String.format(
-            "A análise por inteligência artificial identificou esta lesão como **%s** " +
-            "com %.0f%% de confiança. ",
-            result.getWoundType().getDisplayName(),
-            result.getWoundTypeConfidence() * 100
-        ));
+        if (result.getWoundType() != null) {
+            narrative.append(String.format(
+                "A análise por inteligência artificial identificou esta lesão como **%s** " +
+                "com %.0f%% de confiança. ",
+                result.getWoundType().getDisplayName(),
+                result.getWoundTypeConfidence() * 100
+            ));
+        }
         
         narrative.append(String.format(
             "A ferida encontra-se na **fase %s** do processo de cicatrização.\n\n",
@@ -674,12 +631,6 @@ public class ExplainableAIService {
         return resized;
     }
     
-    private String imageToBase64(BufferedImage image) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, "png", baos);
-        return "data:image/png;base64," + Base64.getEncoder().encodeToString(baos.toByteArray());
-    }
-    
     // ==================== DTOs ====================
     
     public static class ExplanationResult {
@@ -715,18 +666,27 @@ public class ExplainableAIService {
     }
     
     public static class HeatmapResult {
-        private String heatmapBase64;
-        private String overlayBase64;
+        private String heatmapUrl;
+        private String overlayUrl;
+        private String activationMapUrl;
         private int width;
         private int height;
-        private double[][] activationMap;
+        private String method;
+        private String targetLayer;
+        private WoundType targetClass;
         
         // Getters and Setters
-        public String getHeatmapBase64() { return heatmapBase64; }
-        public void setHeatmapBase64(String heatmapBase64) { this.heatmapBase64 = heatmapBase64; }
+        /** PNG do heatmap, renderizado na primeira requisição */
+        public String getHeatmapUrl() { return heatmapUrl; }
+        public void setHeatmapUrl(String heatmapUrl) { this.heatmapUrl = heatmapUrl; }
         
-        public String getOverlayBase64() { return overlayBase64; }
-        public void setOverlayBase64(String overlayBase64) { this.overlayBase64 = overlayBase64; }
+        /** PNG da sobreposição heatmap + imagem de entrada */
+        public String getOverlayUrl() { return overlayUrl; }
+        public void setOverlayUrl(String overlayUrl) { this.overlayUrl = overlayUrl; }
+        
+        /** Mapa de ativação compacto (ActivationMapCodec); JSON via Accept: application/json */
+        public String getActivationMapUrl() { return activationMapUrl; }
+        public void setActivationMapUrl(String activationMapUrl) { this.activationMapUrl = activationMapUrl; }
         
         public int getWidth() { return width; }
         public void setWidth(int width) { this.width = width; }
@@ -734,8 +694,16 @@ public class ExplainableAIService {
         public int getHeight() { return height; }
         public void setHeight(int height) { this.height = height; }
         
-        public double[][] getActivationMap() { return activationMap; }
-        public void setActivationMap(double[][] activationMap) { this.activationMap = activationMap; }
+        /** Técnica que originou o mapa (ex.: "Grad-CAM") */
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+        
+        public String getTargetLayer() { return targetLayer; }
+        public void setTargetLayer(String targetLayer) { this.targetLayer = targetLayer; }
+        
+        /** Classe de ferida explicada pelo mapa */
+        public WoundType getTargetClass() { return targetClass; }
+        public void setTargetClass(WoundType targetClass) { this.targetClass = targetClass; }
     }
     
     public static class RegionOfInterest {
@@ -0,0 +1,269 @@
+package com.healplus.ml.xai;
+
+import com.healplus.entities.ExplanationArtifact;
+import com.healplus.entities.WoundAnalysis;
+import com.healplus.exception.ResourceNotFoundException;
+import com.healplus.ml.xai.ExplainableAIService.HeatmapResult;
+import com.healplus.repositories.ExplanationArtifactRepository;
+import com.healplus.repositories.PatientRepository;
+import com.healplus.repositories.WoundAnalysisRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Persistência e renderização sob demanda dos artefatos de explicação
+ * A explicação grava apenas o mapa de ativação ({@link ActivationMapCodec}, 8 bits + Deflate)
+ * e a imagem de entrada em RGB; heatmap e sobreposição são renderizados e codificados em PNG na primeira
+ * requisição de cada um e reaproveitados a partir daí.
+ * Os artefatos pertencem ao profissional que gerou a explicação; quando ela se refere a uma
+ * análise gravada, o acesso também exige que a análise e o paciente sejam dele.
+ */
+@Service
+public class ExplanationArtifactService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExplanationArtifactService.class);
+
+    /** Caminho base dos artefatos binários */
+    public static final String ARTIFACTS_PATH = "/api/v1/ml/wounds/explanations";
+
+    private final ExplanationArtifactRepository repository;
+    private final WoundAnalysisRepository analysisRepository;
+    private final PatientRepository patientRepository;
+    private final Duration retention;
+
+    public ExplanationArtifactService(
+            ExplanationArtifactRepository repository,
+            WoundAnalysisRepository analysisRepository,
+            PatientRepository patientRepository,
+            @Value("${ml.xai.artifacts.retention-hours:72}") long retentionHours) {
+        this.repository = repository;
+        this.analysisRepository = analysisRepository;
+        this.patientRepository = patientRepository;
+        this.retention = Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * Grava os insumos dos artefatos de uma explicação e preenche as referências no heatmap.
+     * Uma nova explicação para a mesma análise substitui os artefatos anteriores, desde que
+     * sejam do mesmo dono.
+     *
+     * @throws AccessDeniedException se a análise ou os artefatos existentes são de outro profissional
+     */
+    @Transactional
+    public void store(String analysisId, String ownerId, float[] activationMap, BufferedImage baseImage,
+                      HeatmapResult heatmap) {
+        Objects.requireNonNull(ownerId, "Artefatos de explicação exigem um dono");
+        boolean foreign = repository.findById(analysisId)
+            .map(existing -> !ownerId.equals(existing.getOwnerId()))
+            .orElse(false);
+        if (foreign || !ownsAnalysis(analysisId, ownerId)) {
+            logger.warn("Explicação da análise {} recusada para {}: pertence a outro profissional", analysisId, ownerId);
+            throw new AccessDeniedException("Análise pertence a outro profissional");
+        }
+
+        int width = heatmap.getWidth();
+        int height = heatmap.getHeight();
+
+        ExplanationArtifact artifact = new ExplanationArtifact();
+        artifact.setAnalysisId(analysisId);
+        artifact.setOwnerId(ownerId);
+        artifact.setMethod(heatmap.getMethod());
+        artifact.setTargetClass(heatmap.getTargetClass() != null ? heatmap.getTargetClass().name() : null);
+        artifact.setWidth(width);
+        artifact.setHeight(height);
+        artifact.setActivationMap(ActivationMapCodec.encodeQuantized(activationMap, width, height, true));
+        artifact.setBaseImageRgb(toRgbBytes(baseImage, width, height));
+        artifact.setCreatedAt(Instant.now());
+        repository.save(artifact);
+
+        String base = ARTIFACTS_PATH + "/" + analysisId;
+        heatmap.setHeatmapUrl(base + "/heatmap.png");
+        heatmap.setOverlayUrl(base + "/overlay.png");
+        heatmap.setActivationMapUrl(base + "/activation-map");
+    }
+
+    /**
+     * Artefatos da análise visíveis ao profissional; os de outro dono são tratados como
+     * inexistentes para não revelar quais análises existem. Mapas gravados antes do
+     * {@link ActivationMapCodec} são convertidos para o formato atual na leitura.
+     */
+    @Transactional
+    public ExplanationArtifact find(String analysisId, String requesterId) {
+        ExplanationArtifact artifact = repository.findById(analysisId)
+            .filter(candidate -> requesterId != null && canAccess(candidate, requesterId))
+            .orElseThrow(() -> new ResourceNotFoundException("Explicação", "análise", analysisId));
+        if (!ActivationMapCodec.isEncoded(artifact.getActivationMap())) {
+            upgradeActivationMap(artifact);
+        }
+        return artifact;
+    }
+
+    /**
+     * Versão dos artefatos para validação condicional (ETag); muda a cada nova explicação
+     */
+    public static String version(ExplanationArtifact artifact) {
+        return Long.toString(artifact.getCreatedAt().toEpochMilli(), 36);
+    }
+
+    /**
+     * PNG do heatmap, renderizado e gravado na primeira requisição
+     */
+    @Transactional
+    public byte[] heatmapPng(ExplanationArtifact artifact) {
+        if (artifact.getHeatmapPng() == null) {
+            artifact.setHeatmapPng(encodePng(renderHeatmap(artifact)));
+            repository.save(artifact);
+            logger.debug("Heatmap da análise {} renderizado sob demanda", artifact.getAnalysisId());
+        }
+        return artifact.getHeatmapPng();
+    }
+
+    /**
+     * PNG da sobreposição heatmap + imagem de entrada, renderizado e gravado na primeira requisição
+     */
+    @Transactional
+    public byte[] overlayPng(ExplanationArtifact artifact) {
+        if (artifact.getOverlayPng() == null) {
+            BufferedImage base = fromRgbBytes(artifact.getBaseImageRgb(), artifact.getWidth(), artifact.getHeight());
+            artifact.setOverlayPng(encodePng(ImageKernels.overlay(base, renderHeatmap(artifact), 0.5f)));
+            repository.save(artifact);
+            logger.debug("Sobreposição da análise {} renderizada sob demanda", artifact.getAnalysisId());
+        }
+        return artifact.getOverlayPng();
+    }
+
+    /**
+     * Remove artefatos mais antigos que a retenção configurada
+     */
+    @Scheduled(fixedDelayString = "${ml.xai.artifacts.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        long removed = repository.deleteByCreatedAtBefore(Instant.now().minus(retention));
+        if (removed > 0) {
+            logger.info("{} artefatos de explicação expirados removidos", removed);
+        }
+    }
+
+    /**
+     * Mapa de ativação no formato do codec, com ou sem Deflate
+     */
+    public byte[] activationMap(ExplanationArtifact artifact, boolean deflate) {
+        byte[] stored = artifact.getActivationMap();
+        return deflate ? stored : ActivationMapCodec.withoutDeflate(stored);
+    }
+
+    /**
+     * Máscara dos pixels com ativação >= limiar, em corridas (RLE)
+     */
+    public byte[] activationMask(ExplanationArtifact artifact, float threshold, boolean deflate) {
+        ActivationMapCodec.Decoded decoded = decodeActivationMap(artifact);
+        return ActivationMapCodec.encodeMask(decoded.map(), decoded.width(), decoded.height(), threshold, deflate);
+    }
+
+    public ActivationMapCodec.Decoded decodeActivationMap(ExplanationArtifact artifact) {
+        return ActivationMapCodec.decode(artifact.getActivationMap());
+    }
+
+    /**
+     * Artefatos anteriores ao registro do dono só são acessíveis por meio da análise gravada
+     */
+    private boolean canAccess(ExplanationArtifact artifact, String requesterId) {
+        if (artifact.getOwnerId() == null) {
+            return analysisRepository.findById(artifact.getAnalysisId())
+                .map(analysis -> ownsAnalysis(analysis, requesterId))
+                .orElse(false);
+        }
+        return requesterId.equals(artifact.getOwnerId()) && ownsAnalysis(artifact.getAnalysisId(), requesterId);
+    }
+
+    /**
+     * O formato original gravava apenas largura x altura bytes, valor = q / 255; ele é
+     * regravado no codec atual. Qualquer outro conteúdo não pode ser reconstruído sem
+     * refazer a explicação.
+     */
+    private void upgradeActivationMap(ExplanationArtifact artifact) {
+        byte[] stored = artifact.getActivationMap();
+        int pixels = artifact.getWidth() * artifact.getHeight();
+        if (stored == null || stored.length != pixels) {
+            logger.warn("Mapa de ativação da análise {} em formato desconhecido; explicação precisa ser refeita",
+                artifact.getAnalysisId());
+            throw new ResourceNotFoundException("Explicação", "análise", artifact.getAnalysisId());
+        }
+        float[] map = new float[pixels];
+        for (int i = 0; i < pixels; i++) {
+            map[i] = (stored[i] & 0xFF) / 255f;
+        }
+        artifact.setActivationMap(
+            ActivationMapCodec.encodeQuantized(map, artifact.getWidth(), artifact.getHeight(), true));
+        repository.save(artifact);
+        logger.info("Mapa de ativação da análise {} convertido do formato anterior ao codec", artifact.getAnalysisId());
+    }
+
+    /**
+     * Sem análise gravada com este id (explicação avulsa) basta ser o dono dos artefatos;
+     * com análise, ela e o paciente precisam ser do profissional
+     */
+    private boolean ownsAnalysis(String analysisId, String professionalId) {
+        return analysisRepository.findById(analysisId)
+            .map(analysis -> ownsAnalysis(analysis, professionalId))
+            .orElse(true);
+    }
+
+    private boolean ownsAnalysis(WoundAnalysis analysis, String professionalId) {
+        return professionalId.equals(analysis.getProfessionalId())
+            && patientRepository.findById(analysis.getPatientId())
+                .map(patient -> professionalId.equals(patient.getProfessionalId()))
+                .orElse(false);
+    }
+
+    private BufferedImage renderHeatmap(ExplanationArtifact artifact) {
+        return ImageKernels.renderHeatmap(
+            ActivationMapCodec.decode(artifact.getActivationMap()).map(), artifact.getWidth(), artifact.getHeight());
+    }
+
+    private static byte[] toRgbBytes(BufferedImage image, int width, int height) {
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        byte[] rgb = new byte[pixels.length * 3];
+        for (int i = 0, j = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            rgb[j++] = (byte) (pixel >> 16);
+            rgb[j++] = (byte) (pixel >> 8);
+            rgb[j++] = (byte) pixel;
+        }
+        return rgb;
+    }
+
+    private static BufferedImage fromRgbBytes(byte[] rgb, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0, j = 0; i < pixels.length; i++, j += 3) {
+            pixels[i] = ((rgb[j] & 0xFF) << 16) | ((rgb[j + 1] & 0xFF) << 8) | (rgb[j + 2] & 0xFF);
+        }
+        return image;
+    }
+
+    private static byte[] encodePng(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
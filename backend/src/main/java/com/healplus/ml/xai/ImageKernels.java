@@ -0,0 +1,208 @@
+package com.healplus.ml.xai;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Kernels de imagem usados na renderização das explicações
+ * Operam sobre buffers planos (float[] do mapa, int[] do raster) em vez de double[][],
+ * java.awt.Color e setRGB por pixel; o trabalho é dividido em faixas de linhas
+ * executadas no ForkJoinPool comum.
+ */
+final class ImageKernels {
+
+    // Faixas menores que isto não compensam o custo de agendamento
+    private static final int MIN_BAND_ROWS = 32;
+
+    // Colormap azul -> ciano -> verde -> amarelo -> vermelho com alfa variável, pré-calculado
+    private static final int[] HEATMAP_LUT = buildHeatmapLut();
+
+    private ImageKernels() {
+    }
+
+    /**
+     * Suavização gaussiana separável (passada horizontal e vertical de um kernel 1D),
+     * equivalente ao kernel 2D normalizado com bordas replicadas
+     */
+    static float[] gaussianBlur(float[] map, int width, int height, int kernelSize) {
+        float[] kernel = gaussianKernel(kernelSize);
+        int half = kernelSize / 2;
+        float[] horizontal = new float[map.length];
+        float[] blurred = new float[map.length];
+
+        forEachRowBand(height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    float value = 0f;
+                    for (int k = 0; k < kernelSize; k++) {
+                        int px = Math.min(Math.max(x + k - half, 0), width - 1);
+                        value += map[row + px] * kernel[k];
+                    }
+                    horizontal[row + x] = value;
+                }
+            }
+        });
+
+        forEachRowBand(height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    float value = 0f;
+                    for (int k = 0; k < kernelSize; k++) {
+                        int py = Math.min(Math.max(y + k - half, 0), height - 1);
+                        value += horizontal[py * width + x] * kernel[k];
+                    }
+                    blurred[row + x] = value;
+                }
+            }
+        });
+
+        return blurred;
+    }
+
+    /**
+     * Renderiza o mapa (valores em [0, 1]) como imagem ARGB, escrevendo diretamente
+     * no int[] do raster através da tabela de cores
+     */
+    static BufferedImage renderHeatmap(float[] map, int width, int height) {
+        BufferedImage heatmap = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) heatmap.getRaster().getDataBuffer()).getData();
+
+        forEachRowBand(height, (fromRow, toRow) -> {
+            for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                pixels[i] = HEATMAP_LUT[lutIndex(map[i])];
+            }
+        });
+
+        return heatmap;
+    }
+
+    /**
+     * Sobreposição do heatmap à imagem original: composição SRC_OVER com opacidade global
+     * {@code alpha} multiplicada pelo alfa de cada pixel do heatmap
+     */
+    static BufferedImage overlay(BufferedImage original, BufferedImage heatmap, float alpha) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] out = ((DataBufferInt) overlay.getRaster().getDataBuffer()).getData();
+        int[] base = original.getRGB(0, 0, width, height, out, 0, width);
+        int[] top = ((DataBufferInt) heatmap.getRaster().getDataBuffer()).getData();
+        int globalAlpha = Math.round(alpha * 256);
+
+        forEachRowBand(height, (fromRow, toRow) -> {
+            for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                int over = top[i];
+                int a = ((over >>> 24) * globalAlpha) >> 8;
+                int under = base[i];
+                int r = blend((under >> 16) & 0xFF, (over >> 16) & 0xFF, a);
+                int g = blend((under >> 8) & 0xFF, (over >> 8) & 0xFF, a);
+                int b = blend(under & 0xFF, over & 0xFF, a);
+                out[i] = (r << 16) | (g << 8) | b;
+            }
+        });
+
+        return overlay;
+    }
+
+    static int heatmapColor(float value) {
+        return HEATMAP_LUT[lutIndex(value)];
+    }
+
+    private static int lutIndex(float value) {
+        int index = (int) (value * 255f + 0.5f);
+        return index < 0 ? 0 : Math.min(index, 255);
+    }
+
+    private static int blend(int under, int over, int alpha) {
+        return under + (((over - under) * alpha) >> 8);
+    }
+
+    private static float[] gaussianKernel(int kernelSize) {
+        int half = kernelSize / 2;
+        double sigma = kernelSize / 3.0;
+        float[] kernel = new float[kernelSize];
+        double sum = 0;
+        for (int i = 0; i < kernelSize; i++) {
+            int d = i - half;
+            double weight = Math.exp(-(d * d) / (2 * sigma * sigma));
+            kernel[i] = (float) weight;
+            sum += weight;
+        }
+        for (int i = 0; i < kernelSize; i++) {
+            kernel[i] /= (float) sum;
+        }
+        return kernel;
+    }
+
+    private static int[] buildHeatmapLut() {
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            double value = i / 255.0;
+            int r, g, b;
+            int alpha = (int) (value * 180 + 75); // Transparência variável
+
+            if (value < 0.25) {
+                // Azul para ciano
+                r = 0;
+                g = (int) (255 * value * 4);
+                b = 255;
+            } else if (value < 0.5) {
+                // Ciano para verde
+                r = 0;
+                g = 255;
+                b = (int) (255 * (1 - (value - 0.25) * 4));
+            } else if (value < 0.75) {
+                // Verde para amarelo
+                r = (int) (255 * (value - 0.5) * 4);
+                g = 255;
+                b = 0;
+            } else {
+                // Amarelo para vermelho
+                r = 255;
+                g = (int) (255 * (1 - (value - 0.75) * 4));
+                b = 0;
+            }
+            lut[i] = (alpha << 24) | (r << 16) | (g << 8) | b;
+        }
+        return lut;
+    }
+
+    private static void forEachRowBand(int height, RowBand band) {
+        if (height <= MIN_BAND_ROWS) {
+            band.process(0, height);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new RowBandTask(band, 0, height));
+    }
+
+    @FunctionalInterface
+    private interface RowBand {
+        void process(int fromRow, int toRow);
+    }
+
+    private static final class RowBandTask extends RecursiveAction {
+        private final RowBand band;
+        private final int fromRow;
+        private final int toRow;
+
+        RowBandTask(RowBand band, int fromRow, int toRow) {
+            this.band = band;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= MIN_BAND_ROWS) {
+                band.process(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new RowBandTask(band, fromRow, middle), new RowBandTask(band, middle, toRow));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.healplus.repositories;
+
+import com.healplus.entities.ExplanationArtifact;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.Instant;
+
+public interface ExplanationArtifactRepository extends JpaRepository<ExplanationArtifact, String> {
+  long deleteByCreatedAtBefore(Instant threshold);
+}
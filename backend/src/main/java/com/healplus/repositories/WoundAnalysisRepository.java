@@ -1,11 +1,45 @@
 package com.healplus.repositories;
 
 import com.healplus.entities.WoundAnalysis;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface WoundAnalysisRepository extends JpaRepository<WoundAnalysis, String> {
   List<WoundAnalysis> findByPatientIdOrderByCreatedAtDesc(String patientId);
   long countByProfessionalId(String professionalId);
+
+  // Histórico do paciente sem a imagem, em ordem cronológica, lido em uma varredura do índice
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "256"))
+  Stream<AnalysisSummary> streamByPatientIdOrderByCreatedAtAsc(String patientId);
+
+  // Coorte dos pacientes do profissional (dono do cadastro do paciente, não o autor de cada
+  // análise), ordenada por paciente e data: as análises de cada paciente chegam contíguas
+  @Query("select a.id as id, a.patientId as patientId, a.createdAt as createdAt, a.aiAnalysisJson as aiAnalysisJson"
+      + " from WoundAnalysis a, Patient p where p.id = a.patientId and p.professionalId = :professionalId"
+      + " order by a.patientId asc, a.createdAt asc")
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1024"))
+  Stream<CohortAnalysisSummary> streamCohortByPatientProfessionalId(@Param("professionalId") String professionalId);
+
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1024"))
+  Stream<CohortAnalysisSummary> streamAllByOrderByPatientIdAscCreatedAtAsc();
+
+  /**
+   * Projeção compacta de uma análise (sem imageBase64 e timers)
+   */
+  interface AnalysisSummary {
+    String getId();
+    Instant getCreatedAt();
+    String getAiAnalysisJson();
+  }
+
+  interface CohortAnalysisSummary extends AnalysisSummary {
+    String getPatientId();
+  }
 }
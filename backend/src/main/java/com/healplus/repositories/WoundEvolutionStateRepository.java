@@ -0,0 +1,17 @@
+package com.healplus.repositories;
+
+import com.healplus.entities.WoundEvolutionState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface WoundEvolutionStateRepository extends JpaRepository<WoundEvolutionState, String> {
+  // Análises concorrentes do mesmo paciente atualizam o estado em série
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select s from WoundEvolutionState s where s.patientId = :patientId")
+  Optional<WoundEvolutionState> findForUpdate(@Param("patientId") String patientId);
+}
@@ -2,44 +2,86 @@ package com.healplus.services;
 
 import com.healplus.ml.WoundMLService;
 import com.healplus.ml.WoundAnalysisResult;
+import com.healplus.ml.jobs.AnalysisProgress;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class AIService {
     
     private final WoundMLService woundMLService;
+    private final Executor fanOutExecutor;
     
-    public AIService(WoundMLService woundMLService) {
+    public AIService(WoundMLService woundMLService,
+                     @Qualifier("analysisFanOutExecutor") Executor fanOutExecutor) {
         this.woundMLService = woundMLService;
+        this.fanOutExecutor = fanOutExecutor;
     }
     
     /**
      * Analisa uma imagem de ferida usando o serviço de Machine Learning próprio
      */
     public Map<String, Object> analyzeWoundImage(String imageBase64, String imageId, String captureDateTime) {
+        return analyzeWoundImage(imageBase64, imageId, captureDateTime, AnalysisProgress.NONE);
+    }
+    
+    /**
+     * Analisa uma imagem reportando as etapas concluídas ao job assíncrono
+     */
+    public Map<String, Object> analyzeWoundImage(String imageBase64, String imageId, String captureDateTime,
+                                                 AnalysisProgress progress) {
+        return toAnalysisMap(analyzeWound(imageBase64, progress), imageId, captureDateTime);
+    }
+    
+    /**
+     * Resultado do modelo para a imagem; null se a análise falhar
+     */
+    public WoundAnalysisResult analyzeWound(String imageBase64, AnalysisProgress progress) {
         try {
-            WoundAnalysisResult result = woundMLService.analyzeWoundFromBase64(imageBase64);
-            return convertResultToMap(result, imageId, captureDateTime);
+            return analyzeWoundOrThrow(imageBase64, progress);
         } catch (Exception e) {
             System.err.println("Erro ao analisar imagem com ML: " + e.getMessage());
-            return createFallbackAnalysis(imageId, captureDateTime);
+            return null;
         }
     }
     
     /**
-     * Compara duas imagens de feridas usando ML
+     * Resultado do modelo para a imagem, propagando a falha (jobs assíncronos terminam como FAILED)
+     */
+    public WoundAnalysisResult analyzeWoundOrThrow(String imageBase64, AnalysisProgress progress) throws IOException {
+        return woundMLService.analyzeWoundFromBase64(imageBase64, progress);
+    }
+    
+    /**
+     * Converte o resultado para o formato de resposta; sem resultado, usa a análise de fallback
+     */
+    public Map<String, Object> toAnalysisMap(WoundAnalysisResult result, String imageId, String captureDateTime) {
+        return result != null ?
+            convertResultToMap(result, imageId, captureDateTime) :
+            createFallbackAnalysis(imageId, captureDateTime);
+    }
+    
+    /**
+     * Compara duas imagens de feridas usando ML; as duas análises são independentes
+     * e rodam em paralelo, de modo que a latência é a da imagem mais lenta
      */
     public Map<String, Object> compareWoundImages(
             String image1Base64, String image1Id, String image1DateTime,
             String image2Base64, String image2Id, String image2DateTime) {
         
         try {
-            WoundAnalysisResult analysis1 = woundMLService.analyzeWoundFromBase64(image1Base64);
-            WoundAnalysisResult analysis2 = woundMLService.analyzeWoundFromBase64(image2Base64);
+            CompletableFuture<WoundAnalysisResult> analysis1Future = analyzeAsync(image1Base64);
+            CompletableFuture<WoundAnalysisResult> analysis2Future = analyzeAsync(image2Base64);
+            WoundAnalysisResult analysis1 = analysis1Future.join();
+            WoundAnalysisResult analysis2 = analysis2Future.join();
             
             Map<String, Object> comparison = new HashMap<>();
             comparison.put("analise_imagem_1", convertResultToMap(analysis1, image1Id, image1DateTime));
@@ -53,6 +95,16 @@ public class AIService {
         }
     }
     
+    private CompletableFuture<WoundAnalysisResult> analyzeAsync(String imageBase64) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return woundMLService.analyzeWoundFromBase64(imageBase64);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, fanOutExecutor);
+    }
+    
     private Map<String, Object> convertResultToMap(WoundAnalysisResult result, String imageId, String captureDateTime) {
         Map<String, Object> analysis = new HashMap<>();
         analysis.put("id_imagem", imageId);
@@ -0,0 +1,109 @@
+package com.healplus.controllers;
+
+import com.healplus.controllers.MLTrainingController.TrainingRequest;
+import com.healplus.exception.BadRequestException;
+import com.healplus.ml.jobs.TrainingJobService;
+import com.healplus.ml.jobs.TrainingJobService.TrainingJobStatus;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.training.TrainingOptions;
+import com.healplus.ml.training.WoundModelTrainer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MLTrainingControllerTest {
+
+    @Mock
+    private WoundModelTrainer trainer;
+
+    @Mock
+    private WoundClassifierNetwork classifierNetwork;
+
+    @Mock
+    private TrainingJobService trainingJobService;
+
+    private MLTrainingController controller;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @BeforeEach
+    void setUp() {
+        controller = new MLTrainingController(trainer, classifierNetwork, trainingJobService);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void testTrainingRequest_OutOfRangeValuesRejected() {
+        TrainingRequest request = new TrainingRequest();
+        request.setEpochs(0);
+        request.setBatchSize(100_000);
+        request.setPrefetchBatches(1_000);
+        request.setAveragingFrequency(0);
+        request.setWorkers(0);
+        request.setLearningRate(0.0);
+
+        Set<String> invalid = validator.validate(request).stream()
+            .map(violation -> violation.getPropertyPath().toString())
+            .collect(Collectors.toSet());
+
+        assertEquals(Set.of("epochs", "batchSize", "prefetchBatches", "averagingFrequency", "workers", "learningRate"),
+            invalid);
+    }
+
+    @Test
+    void testTrainingRequest_DefaultsValid() {
+        Set<ConstraintViolation<TrainingRequest>> violations = validator.validate(new TrainingRequest());
+
+        assertTrue(violations.isEmpty());
+    }
+
+    @Test
+    void testTrainWoundClassifier_MoreWorkersThanCoresRejected() {
+        TrainingRequest request = new TrainingRequest();
+        request.setDatasetPath("wounds");
+        request.setWorkers(Runtime.getRuntime().availableProcessors() + 1);
+
+        assertThrows(BadRequestException.class, () -> controller.trainWoundClassifier(request));
+        verifyNoInteractions(trainingJobService);
+    }
+
+    @Test
+    void testTrainWoundClassifier_LearningRateApplied() {
+        when(trainer.defaultOptions()).thenReturn(new TrainingOptions());
+        when(trainingJobService.submit(any(), any(), any(), anyBoolean())).thenReturn(new TrainingJobStatus());
+        TrainingRequest request = new TrainingRequest();
+        request.setDatasetPath("wounds");
+        request.setLearningRate(0.0005);
+        request.setWorkers(1);
+
+        controller.trainWoundClassifier(request);
+
+        ArgumentCaptor<TrainingOptions> options = ArgumentCaptor.forClass(TrainingOptions.class);
+        verify(trainingJobService).submit(eq("wounds"), isNull(), options.capture(), anyBoolean());
+        assertEquals(0.0005, options.getValue().getLearningRate());
+        assertEquals(1, options.getValue().getWorkers());
+    }
+}
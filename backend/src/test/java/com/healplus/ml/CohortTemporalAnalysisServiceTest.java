@@ -0,0 +1,121 @@
+package com.healplus.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.ml.CohortTemporalAnalysisService.CohortReport;
+import com.healplus.repositories.WoundAnalysisRepository;
+import com.healplus.repositories.WoundAnalysisRepository.CohortAnalysisSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CohortTemporalAnalysisServiceTest {
+
+    @Mock
+    private WoundAnalysisRepository analysisRepository;
+
+    private CohortTemporalAnalysisService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CohortTemporalAnalysisService(
+            analysisRepository, new WoundTemporalAnalysisService(), new ObjectMapper(), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void testFindDeteriorating_RanksWorseningPatientsOnly() {
+        List<CohortAnalysisSummary> rows = new ArrayList<>();
+        addSeries(rows, "healing", "Proliferativa", 10, 6, 2);
+        addSeries(rows, "necrotic-rising", "Inflamatória", 5, 10, 15);
+        addSeries(rows, "infected", "Infectada", 5, 12, 20);
+        addSeries(rows, "single-visit", "Inflamatória", 30);
+        when(analysisRepository.streamCohortByPatientProfessionalId("prof")).thenReturn(rows.stream());
+
+        CohortReport report = service.findDeteriorating("prof", 10);
+
+        assertEquals(4, report.getPatientsAnalyzed());
+        assertEquals(2, report.getDeterioratingCount());
+        assertEquals("infected", report.getDeteriorating().get(0).getPatientId());
+        assertEquals("necrotic-rising", report.getDeteriorating().get(1).getPatientId());
+        assertTrue(report.getDeteriorating().get(0).getScore() > report.getDeteriorating().get(1).getScore());
+        assertEquals(10.0, report.getDeteriorating().get(1).getNecroticChange(), 1e-9);
+    }
+
+    @Test
+    void testFindDeteriorating_AreaGrowthAloneNotRanked() {
+        // A área ainda é estimada ao acaso pelo serviço de ML e não pode gerar piora
+        List<CohortAnalysisSummary> rows = new ArrayList<>();
+        double[] areas = { 5, 12, 19, 20 };
+        for (int i = 0; i < areas.length; i++) {
+            rows.add(row("area-" + i, "area", EvolutionFixtures.day(7L * i),
+                EvolutionFixtures.storedJson(areas[i], "Inflamatória", 5, 10)));
+        }
+        when(analysisRepository.streamCohortByPatientProfessionalId("prof")).thenReturn(rows.stream());
+
+        CohortReport report = service.findDeteriorating("prof", 10);
+
+        assertEquals(1, report.getPatientsAnalyzed());
+        assertEquals(0, report.getDeterioratingCount());
+    }
+
+    @Test
+    void testFindDeteriorating_LimitApplied() {
+        List<CohortAnalysisSummary> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            addSeries(rows, String.format("p%03d", i), "Inflamatória", 5, 5 + i % 7 + 2, 5 + i % 7 + 6);
+        }
+        when(analysisRepository.streamAllByOrderByPatientIdAscCreatedAtAsc()).thenReturn(rows.stream());
+
+        CohortReport report = service.findDeterioratingAll(5);
+
+        assertEquals(200, report.getPatientsAnalyzed());
+        assertEquals(200, report.getDeterioratingCount());
+        assertEquals(5, report.getDeteriorating().size());
+        for (int i = 1; i < 5; i++) {
+            assertTrue(report.getDeteriorating().get(i - 1).getScore() >= report.getDeteriorating().get(i).getScore());
+        }
+        // As 5 mantidas são as de maior escore da coorte inteira, não as primeiras lidas
+        double fifth = report.getDeteriorating().get(4).getScore();
+        CohortReport all = rankAll(rows, 200);
+        assertEquals(all.getDeteriorating().get(4).getScore(), fifth, 1e-9);
+    }
+
+    private CohortReport rankAll(List<CohortAnalysisSummary> rows, int limit) {
+        when(analysisRepository.streamAllByOrderByPatientIdAscCreatedAtAsc()).thenReturn(rows.stream());
+        return service.findDeterioratingAll(limit);
+    }
+
+    /**
+     * Série semanal com área e esfacelo constantes e os percentuais de necrose informados
+     */
+    private static void addSeries(List<CohortAnalysisSummary> rows, String patientId, String phase, double... necrotic) {
+        for (int i = 0; i < necrotic.length; i++) {
+            rows.add(row(patientId + "-" + i, patientId, EvolutionFixtures.day(7L * i),
+                EvolutionFixtures.storedJson(10, phase, necrotic[i], 10)));
+        }
+    }
+
+    private static CohortAnalysisSummary row(String id, String patientId, Instant createdAt, String json) {
+        return new CohortAnalysisSummary() {
+            public String getPatientId() { return patientId; }
+            public String getId() { return id; }
+            public Instant getCreatedAt() { return createdAt; }
+            public String getAiAnalysisJson() { return json; }
+        };
+    }
+}
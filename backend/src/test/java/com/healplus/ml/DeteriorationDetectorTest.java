@@ -0,0 +1,92 @@
+package com.healplus.ml;
+
+import com.healplus.entities.WoundEvolutionState;
+import com.healplus.ml.WoundTemporalAnalysisService.AlertSeverity;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalAlert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeteriorationDetectorTest {
+
+    @Test
+    void testObserve_StableAndHealingSeriesRaiseNoAlerts() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        double[] areas = { 20.0, 20.5, 19.8, 20.3, 19.0, 17.5, 16.0, 14.2, 12.9, 11.0 };
+        List<TemporalAlert> alerts = new ArrayList<>();
+        for (int i = 0; i < areas.length; i++) {
+            alerts.addAll(observe(state, analysis(i, areas[i], 10.0, 20.0, HealingPhase.PROLIFERATIVE)));
+        }
+
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void testObserve_AreaGrowthAloneRaisesNoAlert() {
+        // A área ainda é estimada ao acaso pelo serviço de ML e fica fora das cartas
+        WoundEvolutionState state = new WoundEvolutionState();
+        List<TemporalAlert> alerts = new ArrayList<>();
+        double[] areas = { 5.0, 19.0, 6.0, 18.0, 30.0, 45.0 };
+        for (int i = 0; i < areas.length; i++) {
+            alerts.addAll(observe(state, analysis(i, areas[i], 5.0, 10.0, HealingPhase.INFLAMMATORY)));
+        }
+
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void testObserve_NecroticCusumResetAfterAlert() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        List<String> titles = new ArrayList<>();
+        double[] necrotic = { 5.0, 5.0, 12.0, 18.0, 18.0 };
+        for (int i = 0; i < necrotic.length; i++) {
+            observe(state, analysis(i, 10.0, necrotic[i], 10.0, HealingPhase.INFLAMMATORY))
+                .forEach(alert -> titles.add(alert.getTitle()));
+        }
+
+        assertEquals(List.of("AUMENTO DE NECROSE"), titles);
+        assertTrue(state.getNecroticCusum() < DeteriorationDetector.NECROTIC_LIMIT);
+    }
+
+    @Test
+    void testObserve_NecroticIncreaseDetected() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        List<TemporalAlert> alerts = new ArrayList<>();
+        double[] necrotic = { 5.0, 5.0, 12.0, 18.0 };
+        for (int i = 0; i < necrotic.length; i++) {
+            alerts.addAll(observe(state, analysis(i, 10.0, necrotic[i], 10.0, HealingPhase.INFLAMMATORY)));
+        }
+
+        assertEquals(1, alerts.size());
+        assertEquals("AUMENTO DE NECROSE", alerts.get(0).getTitle());
+        assertEquals(AlertSeverity.HIGH, alerts.get(0).getSeverity());
+    }
+
+    @Test
+    void testObserve_InfectionAlertOnlyOnTransition() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        observe(state, analysis(0, 10.0, 0.0, 0.0, HealingPhase.INFLAMMATORY));
+
+        List<TemporalAlert> first = observe(state, analysis(1, 10.0, 0.0, 0.0, HealingPhase.INFECTED));
+        List<TemporalAlert> second = observe(state, analysis(2, 10.0, 0.0, 0.0, HealingPhase.INFECTED));
+
+        assertEquals(1, first.size());
+        assertEquals(AlertSeverity.CRITICAL, first.get(0).getSeverity());
+        assertTrue(second.isEmpty());
+    }
+
+    private static List<TemporalAlert> observe(WoundEvolutionState state, WoundAnalysisResult analysis) {
+        List<TemporalAlert> alerts = DeteriorationDetector.observe(state, analysis);
+        WoundEvolutionAccumulator.apply(state, analysis);
+        return alerts;
+    }
+
+    private static WoundAnalysisResult analysis(int day, double area, double necrotic, double slough, HealingPhase phase) {
+        return EvolutionFixtures.analysis(day, area, phase, Map.of(
+            TissueType.NECROTIC, necrotic, TissueType.SLOUGH, slough, TissueType.GRANULATION, 100 - necrotic - slough));
+    }
+}
@@ -0,0 +1,52 @@
+package com.healplus.ml;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Séries de análises para os testes de evolução temporal: datas contadas em dias a partir
+ * de {@link #START}, como análises recém-feitas ou como JSON gravado em WoundAnalysis.
+ */
+final class EvolutionFixtures {
+
+    static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private EvolutionFixtures() {
+    }
+
+    static Instant day(long day) {
+        return START.plus(Duration.ofDays(day));
+    }
+
+    static WoundAnalysisResult analysis(int day, double area, HealingPhase phase) {
+        WoundAnalysisResult result = new WoundAnalysisResult();
+        result.setAnalyzedAt(day(day));
+        result.setEstimatedArea(area);
+        result.setHealingPhase(phase);
+        return result;
+    }
+
+    static WoundAnalysisResult analysis(int day, double area, HealingPhase phase, Map<TissueType, Double> tissues) {
+        WoundAnalysisResult result = analysis(day, area, phase);
+        result.setTissuePercentages(tissues);
+        return result;
+    }
+
+    /**
+     * JSON de análise gravada com área, fase (rótulo em português) e confiança de 80%
+     */
+    static String storedJson(double area, String phase) {
+        return "{\"analise_dimensional\":{\"area_total_afetada\":" + area + "},"
+            + "\"classificacao_etiologica\":{\"confianca_percentual\":80,\"fase_cicatrizacao\":\"" + phase + "\"}}";
+    }
+
+    /**
+     * JSON de análise gravada com área, fase e percentuais de necrose e esfacelo
+     */
+    static String storedJson(double area, String phase, double necrotic, double slough) {
+        return "{\"analise_dimensional\":{\"area_total_afetada\":" + area + "},"
+            + "\"analise_tecidos\":{\"necrotic\":" + necrotic + ",\"slough\":" + slough + "},"
+            + "\"classificacao_etiologica\":{\"confianca_percentual\":80,\"fase_cicatrizacao\":\"" + phase + "\"}}";
+    }
+}
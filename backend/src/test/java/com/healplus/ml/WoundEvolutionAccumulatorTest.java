@@ -0,0 +1,96 @@
+package com.healplus.ml;
+
+import com.healplus.entities.WoundEvolutionState;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalEvolutionResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WoundEvolutionAccumulatorTest {
+
+    @Test
+    void testApply_RunningStatisticsMatchFullRecomputation() {
+        double[] areas = { 20.0, 18.5, 19.0, 15.2, 14.8, 12.1, 12.3, 9.7 };
+        int[] days = { 0, 3, 7, 10, 14, 21, 24, 30 };
+        WoundEvolutionState state = new WoundEvolutionState();
+        for (int i = 0; i < areas.length; i++) {
+            WoundEvolutionAccumulator.apply(state, analysis(days[i], areas[i], HealingPhase.INFLAMMATORY));
+        }
+
+        double mean = 0;
+        for (double area : areas) mean += area;
+        mean /= areas.length;
+        double variance = 0;
+        for (double area : areas) variance += (area - mean) * (area - mean);
+        variance /= areas.length;
+
+        double meanDays = 0;
+        for (int d : days) meanDays += d;
+        meanDays /= days.length;
+        double covariance = 0;
+        double dayVariance = 0;
+        for (int i = 0; i < areas.length; i++) {
+            covariance += (days[i] - meanDays) * (areas[i] - mean);
+            dayVariance += (days[i] - meanDays) * (days[i] - meanDays);
+        }
+
+        assertEquals(areas.length, state.getAnalysisCount());
+        assertEquals(mean, state.getAreaMean(), 1e-9);
+        assertEquals(variance, WoundEvolutionAccumulator.areaVariance(state), 1e-9);
+        assertEquals(covariance / dayVariance, WoundEvolutionAccumulator.areaSlopePerDay(state), 1e-9);
+        assertEquals(20.0, state.getInitialArea());
+        assertEquals(9.7, state.getCurrentArea());
+        assertFalse(state.isStrictlyDecreasing());
+    }
+
+    @Test
+    void testApply_WindowAndPhaseTransitions() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        HealingPhase[] phases = { HealingPhase.INFLAMMATORY, HealingPhase.INFLAMMATORY,
+            HealingPhase.PROLIFERATIVE, HealingPhase.PROLIFERATIVE, HealingPhase.REMODELING };
+        for (int i = 0; i < 15; i++) {
+            WoundEvolutionAccumulator.apply(state, analysis(i, 30 - i, phases[Math.min(i, phases.length - 1)]));
+        }
+
+        assertEquals(WoundEvolutionAccumulator.RECENT_WINDOW, state.getRecentAreas().size());
+        assertEquals(16.0, state.getRecentAreas().get(state.getRecentAreas().size() - 1));
+        assertEquals(2, state.getPhaseTransitions());
+        assertEquals(EvolutionFixtures.day(4), state.getLastPhaseChangeAt());
+        assertTrue(state.isStrictlyDecreasing());
+    }
+
+    @Test
+    void testAnalyzeTemporalEvolution_ListAndStateAgree() {
+        List<WoundAnalysisResult> history = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            history.add(analysis(i * 7, 25 - i * 3, i < 3 ? HealingPhase.INFLAMMATORY : HealingPhase.PROLIFERATIVE));
+        }
+        WoundEvolutionState state = new WoundEvolutionState();
+        history.forEach(analysis -> WoundEvolutionAccumulator.apply(state, analysis));
+        Collections.reverse(history);
+
+        WoundTemporalAnalysisService service = new WoundTemporalAnalysisService();
+        TemporalEvolutionResult fromList = service.analyzeTemporalEvolution(history);
+        TemporalEvolutionResult fromState = service.analyzeTemporalEvolution(state);
+
+        assertEquals(6, fromList.getAnalysisCount());
+        assertEquals(fromState.getOverallProgression(), fromList.getOverallProgression());
+        assertEquals(fromState.getAreaEvolution().getPercentChange(), fromList.getAreaEvolution().getPercentChange(), 1e-9);
+        assertEquals(-3.0 / 7, fromList.getAreaEvolution().getRegressionDailyChangeRate(), 1e-9);
+        assertEquals(List.of(25.0, 22.0, 19.0, 16.0, 13.0, 10.0), fromList.getAreaEvolution().getAreaHistory());
+        assertTrue(fromList.getTrendAnalysis().getPatterns().contains("MELHORA CONSISTENTE: Redução contínua da área"));
+        assertEquals(1, fromList.getTrendAnalysis().getPhaseTransitions());
+    }
+
+    private static WoundAnalysisResult analysis(int day, double area, HealingPhase phase) {
+        WoundAnalysisResult result = EvolutionFixtures.analysis(day, area, phase,
+            Map.of(TissueType.GRANULATION, 60.0, TissueType.SLOUGH, 40.0));
+        result.setWoundTypeConfidence(0.8);
+        return result;
+    }
+}
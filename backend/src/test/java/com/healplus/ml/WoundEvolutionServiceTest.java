@@ -0,0 +1,228 @@
+package com.healplus.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.entities.WoundEvolutionState;
+import com.healplus.ml.WoundTemporalAnalysisService.TemporalEvolutionResult;
+import com.healplus.repositories.WoundAnalysisRepository;
+import com.healplus.repositories.WoundAnalysisRepository.AnalysisSummary;
+import com.healplus.repositories.WoundEvolutionStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WoundEvolutionServiceTest {
+
+    @Mock
+    private WoundEvolutionStateRepository stateRepository;
+
+    @Mock
+    private WoundAnalysisRepository analysisRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private WoundEvolutionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new WoundEvolutionService(
+            stateRepository, analysisRepository, new WoundTemporalAnalysisService(), eventPublisher, new ObjectMapper(),
+            transactionManager);
+    }
+
+    @Test
+    void testAnalyzeHistory_ReplaysStoredAnalysesSkippingFallbacks() {
+        when(analysisRepository.streamByPatientIdOrderByCreatedAtAsc("p1")).thenReturn(Stream.of(
+            summary("a1", 0, "{\"analise_dimensional\":{\"area_total_afetada\":20.0},"
+                + "\"analise_tecidos\":{\"granulation\":50.0,\"slough\":50.0},"
+                + "\"classificacao_etiologica\":{\"confianca_percentual\":80,\"fase_cicatrizacao\":\"Inflamatória\"}}"),
+            summary("fallback", 3, "{\"analise_dimensional\":{\"area_total_afetada\":0.0},"
+                + "\"classificacao_etiologica\":{\"confianca_percentual\":0}}"),
+            summary("a2", 7, "{\"analise_dimensional\":{\"area_total_afetada\":14.0},"
+                + "\"analise_tecidos\":{\"granulation\":80.0,\"slough\":20.0},"
+                + "\"classificacao_etiologica\":{\"confianca_percentual\":90,\"fase_cicatrizacao\":\"Proliferativa\"}}")
+        ));
+
+        TemporalEvolutionResult result = service.analyzeHistory("p1");
+
+        assertEquals(2, result.getAnalysisCount());
+        assertEquals(List.of(20.0, 14.0), result.getAreaEvolution().getAreaHistory());
+        assertEquals(-30.0, result.getAreaEvolution().getPercentChange(), 1e-9);
+        assertEquals(30.0, result.getTissueEvolution().getTissueChanges().get(TissueType.GRANULATION), 1e-9);
+        assertEquals(1, result.getTrendAnalysis().getPhaseTransitions());
+        verifyNoInteractions(stateRepository);
+    }
+
+    @Test
+    void testGetEvolution_MissingStateComputedWithoutPersisting() {
+        when(stateRepository.findById("p1")).thenReturn(Optional.empty());
+        when(analysisRepository.streamByPatientIdOrderByCreatedAtAsc("p1")).thenReturn(Stream.of(
+            summary("a1", 0, EvolutionFixtures.storedJson(20.0, "Inflamatória")),
+            summary("a2", 7, EvolutionFixtures.storedJson(15.0, "Inflamatória"))
+        ));
+
+        TemporalEvolutionResult result = service.getEvolution("p1");
+
+        assertEquals(2, result.getAnalysisCount());
+        assertEquals(List.of(20.0, 15.0), result.getAreaEvolution().getAreaHistory());
+        verify(stateRepository, never()).save(any());
+        verify(stateRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testRecord_ExistingStateUpdatedWithoutReadingHistory() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        state.setPatientId("p1");
+        WoundEvolutionAccumulator.apply(state, analysis(0, 20.0));
+        when(stateRepository.findForUpdate("p1")).thenReturn(Optional.of(state));
+
+        service.record("p1", "prof", analysis(7, 15.0));
+
+        assertEquals(2, state.getAnalysisCount());
+        assertEquals(15.0, state.getCurrentArea());
+        verify(stateRepository).save(state);
+        verifyNoInteractions(analysisRepository);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testRecord_DeteriorationPublishesAlert() {
+        WoundEvolutionState state = new WoundEvolutionState();
+        state.setPatientId("p1");
+        for (int i = 0; i < 3; i++) {
+            WoundAnalysisResult analysis = analysis(7 * i, 20.0);
+            DeteriorationDetector.observe(state, analysis);
+            WoundEvolutionAccumulator.apply(state, analysis);
+        }
+        when(stateRepository.findForUpdate("p1")).thenReturn(Optional.of(state));
+
+        WoundAnalysisResult infected = analysis(21, 21.0);
+        infected.setId("a4");
+        infected.setHealingPhase(HealingPhase.INFECTED);
+        service.record("p1", "prof", infected);
+
+        ArgumentCaptor<WoundAlertEvent> event = ArgumentCaptor.forClass(WoundAlertEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("prof", event.getValue().getProfessionalId());
+        assertEquals("a4", event.getValue().getAnalysisId());
+        assertEquals("POSSÍVEL INFECÇÃO", event.getValue().getAlert().getTitle());
+    }
+
+    @Test
+    void testRecord_FirstRecordAfterReplayPublishesAlert() {
+        when(stateRepository.findForUpdate("p1")).thenReturn(Optional.empty());
+        when(analysisRepository.streamByPatientIdOrderByCreatedAtAsc("p1")).thenReturn(Stream.of(
+            summary("a1", 0, EvolutionFixtures.storedJson(20.0, "Inflamatória")),
+            summary("a2", 7, EvolutionFixtures.storedJson(20.0, "Inflamatória")),
+            summary("a3", 14, EvolutionFixtures.storedJson(20.0, "Inflamatória")),
+            summary("a4", 21, EvolutionFixtures.storedJson(21.0, "Infectada"))
+        ));
+
+        WoundAnalysisResult infected = analysis("a4", 21, 21.0);
+        infected.setHealingPhase(HealingPhase.INFECTED);
+        service.record("p1", "prof", infected);
+
+        ArgumentCaptor<WoundAlertEvent> event = ArgumentCaptor.forClass(WoundAlertEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("a4", event.getValue().getAnalysisId());
+        assertEquals("POSSÍVEL INFECÇÃO", event.getValue().getAlert().getTitle());
+        ArgumentCaptor<WoundEvolutionState> saved = ArgumentCaptor.forClass(WoundEvolutionState.class);
+        verify(stateRepository).saveAndFlush(saved.capture());
+        assertEquals(4, saved.getValue().getAnalysisCount());
+    }
+
+    @Test
+    void testRecord_MissingStateRebuiltFromHistory() {
+        when(stateRepository.findForUpdate("p1")).thenReturn(Optional.empty());
+        when(analysisRepository.streamByPatientIdOrderByCreatedAtAsc("p1")).thenReturn(Stream.of(
+            summary("a1", 0, EvolutionFixtures.storedJson(20.0, "Inflamatória")),
+            summary("a2", 7, EvolutionFixtures.storedJson(15.0, "Inflamatória"))
+        ));
+
+        service.record("p1", "prof", analysis("a2", 7, 15.0));
+
+        ArgumentCaptor<WoundEvolutionState> saved = ArgumentCaptor.forClass(WoundEvolutionState.class);
+        verify(stateRepository).saveAndFlush(saved.capture());
+        assertEquals("p1", saved.getValue().getPatientId());
+        assertEquals(2, saved.getValue().getAnalysisCount());
+        assertEquals(List.of(20.0, 15.0), saved.getValue().getRecentAreas());
+    }
+
+    @Test
+    void testRecord_ConcurrentFirstInsertRetriedOnStoredState() {
+        // Outra requisição gravou o estado com a1 entre a leitura e a inserção desta
+        WoundEvolutionState concurrent = new WoundEvolutionState();
+        concurrent.setPatientId("p1");
+        WoundEvolutionAccumulator.apply(concurrent, analysis("a1", 0, 20.0));
+        when(stateRepository.findForUpdate("p1")).thenReturn(Optional.empty(), Optional.of(concurrent));
+        when(analysisRepository.streamByPatientIdOrderByCreatedAtAsc("p1")).thenReturn(Stream.of(
+            summary("a1", 0, EvolutionFixtures.storedJson(20.0, "Inflamatória")),
+            summary("a2", 7, EvolutionFixtures.storedJson(15.0, "Inflamatória"))
+        ));
+        when(stateRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        service.record("p1", "prof", analysis("a2", 7, 15.0));
+
+        assertEquals(2, concurrent.getAnalysisCount());
+        assertEquals(List.of(20.0, 15.0), concurrent.getRecentAreas());
+        verify(stateRepository).save(concurrent);
+    }
+
+    @Test
+    void testRecord_ConcurrentInsertAlreadyIncludingAnalysisNotCountedTwice() {
+        // A reconstrução concorrente leu a1 e a2 do histórico; a1 não pode entrar de novo
+        WoundEvolutionState concurrent = new WoundEvolutionState();
+        concurrent.setPatientId("p1");
+        WoundEvolutionAccumulator.apply(concurrent, analysis("a1", 0, 20.0));
+        WoundEvolutionAccumulator.apply(concurrent, analysis("a2", 7, 15.0));
+        when(stateRepository.findForUpdate("p1")).thenReturn(Optional.empty(), Optional.of(concurrent));
+        when(analysisRepository.streamByPatientIdOrderByCreatedAtAsc("p1")).thenReturn(Stream.of(
+            summary("a1", 0, EvolutionFixtures.storedJson(20.0, "Inflamatória"))
+        ));
+        when(stateRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        service.record("p1", "prof", analysis("a1", 0, 20.0));
+
+        assertEquals(2, concurrent.getAnalysisCount());
+        verify(stateRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    private static AnalysisSummary summary(String id, int day, String json) {
+        Instant createdAt = EvolutionFixtures.day(day);
+        return new AnalysisSummary() {
+            public String getId() { return id; }
+            public Instant getCreatedAt() { return createdAt; }
+            public String getAiAnalysisJson() { return json; }
+        };
+    }
+
+    private static WoundAnalysisResult analysis(String id, int day, double area) {
+        WoundAnalysisResult result = analysis(day, area);
+        result.setId(id);
+        return result;
+    }
+
+    private static WoundAnalysisResult analysis(int day, double area) {
+        return EvolutionFixtures.analysis(day, area, HealingPhase.INFLAMMATORY);
+    }
+}
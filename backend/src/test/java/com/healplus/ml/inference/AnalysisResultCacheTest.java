@@ -0,0 +1,105 @@
+package com.healplus.ml.inference;
+
+import com.healplus.ml.WoundAnalysisResult;
+import com.healplus.ml.WoundType;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalysisResultCacheTest {
+
+    @Mock
+    private WoundClassifierNetwork classifierNetwork;
+
+    private AnalysisResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(classifierNetwork.getModelVersion()).thenReturn(1L);
+        cache = new AnalysisResultCache(classifierNetwork, true, 2, 16);
+    }
+
+    @Test
+    void testGet_HitReturnsStoredResult() {
+        String hash = AnalysisResultCache.contentHash(new byte[]{1, 2, 3});
+        assertNull(cache.get(hash));
+
+        cache.put(hash, 1L, result("a1", 12.5));
+        WoundAnalysisResult hit = cache.get(hash);
+
+        assertNotNull(hit);
+        assertEquals(12.5, hit.getEstimatedArea());
+        assertEquals(WoundType.VENOUS_ULCER, hit.getWoundType());
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void testGet_MissAfterModelVersionChange() {
+        cache.put("h1", 1L, result("a1", 10));
+        assertNotNull(cache.get("h1"));
+
+        when(classifierNetwork.getModelVersion()).thenReturn(2L);
+
+        assertNull(cache.get("h1"));
+        assertEquals(0, cache.getStats().getEntries());
+        assertEquals(2L, cache.getStats().getModelVersion());
+
+        // Resultado calculado com os pesos antigos não entra no cache
+        cache.put("h1", 1L, result("a1", 10));
+        assertNull(cache.get("h1"));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        cache.put("h1", 1L, result("a1", 1));
+        cache.put("h2", 1L, result("a2", 2));
+        assertNotNull(cache.get("h1"));
+
+        cache.put("h3", 1L, result("a3", 3));
+
+        assertNull(cache.get("h2"));
+        assertNotNull(cache.get("h1"));
+        assertNotNull(cache.get("h3"));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void testGet_ReturnsIndependentCopyWithNewIdentity() {
+        WoundAnalysisResult original = result("a1", 7);
+        cache.put("h1", 1L, original);
+        original.getRecommendations().add("alterada após o put");
+
+        WoundAnalysisResult first = cache.get("h1");
+        first.getRecommendations().add("alterada pelo chamador");
+        first.setEstimatedArea(99);
+        WoundAnalysisResult second = cache.get("h1");
+
+        assertNotEquals("a1", first.getId());
+        assertNotEquals(first.getId(), second.getId());
+        assertTrue(second.getAnalyzedAt().isAfter(Instant.EPOCH));
+        assertEquals(List.of("Compressão"), second.getRecommendations());
+        assertEquals(7, second.getEstimatedArea());
+    }
+
+    private static WoundAnalysisResult result(String id, double area) {
+        WoundAnalysisResult result = new WoundAnalysisResult();
+        result.setId(id);
+        result.setAnalyzedAt(Instant.EPOCH);
+        result.setWoundType(WoundType.VENOUS_ULCER);
+        result.setEstimatedArea(area);
+        result.setRecommendations(new ArrayList<>(List.of("Compressão")));
+        return result;
+    }
+}
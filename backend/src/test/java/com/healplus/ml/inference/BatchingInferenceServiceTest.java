@@ -0,0 +1,274 @@
+package com.healplus.ml.inference;
+
+import com.healplus.ml.TissueType;
+import com.healplus.ml.WoundType;
+import com.healplus.ml.inference.BatchingInferenceService.InferenceStats;
+import com.healplus.ml.neural.DecodedImage;
+import com.healplus.ml.neural.ImagePreprocessor;
+import com.healplus.ml.neural.ModelReplicaPool;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.neural.WoundClassifierNetwork.Prediction;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchingInferenceServiceTest {
+
+    @Mock
+    private WoundClassifierNetwork classifierNetwork;
+
+    // Pré-processador real: mockar a classe instrumentaria writeTensor para os testes de alocação
+    private final ImagePreprocessor imagePreprocessor = new ImagePreprocessor();
+
+    private ModelReplicaPool replicaPool;
+    private BatchingInferenceService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+        if (replicaPool != null) {
+            replicaPool.shutdown();
+        }
+    }
+
+    @Test
+    void testSubmit_FullBatchDispatchedBeforeMaxWait() throws Exception {
+        // Janela longa: só o lote completo explica a execução imediata
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, 4, 60_000, 30_000, release);
+        List<CompletableFuture<Prediction>> futures = submit(4);
+        release.countDown();
+
+        for (CompletableFuture<Prediction> future : futures) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+        InferenceStats stats = service.getStats();
+        assertEquals(1, stats.getExecutedBatches());
+        assertEquals(1, stats.getBatchSizeHistogram()[4]);
+    }
+
+    @Test
+    void testSubmit_PartialBatchFlushedAfterMaxWait() throws Exception {
+        start(1, 8, 50, 30_000, null);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Prediction>> futures = submit(3);
+        for (CompletableFuture<Prediction> future : futures) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+        InferenceStats stats = service.getStats();
+        assertEquals(1, stats.getExecutedBatches());
+        assertEquals(1, stats.getBatchSizeHistogram()[3]);
+        assertEquals(3.0, stats.getAverageBatchSize());
+    }
+
+    @Test
+    void testPredict_TimeoutFailsRequest() {
+        start(1, 1, 0, 100, null);
+        doReturn(new CompletableFuture<>()).when(classifierNetwork).predictBatchAsync(any());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> service.predict(image()));
+
+        assertTrue(error.getMessage().contains("100 ms"), error.getMessage());
+        assertEquals(1, service.getStats().getFailedRequests());
+    }
+
+    @Test
+    void testDispatcher_SurvivesErrorThrownInBatch() throws Exception {
+        start(1, 1, 0, 30_000, null);
+        doThrow(new OutOfMemoryError("Java heap space"))
+            .doAnswer(invocation -> replicaPool.submit(replica -> {
+                throw new StackOverflowError();
+            }))
+            .doAnswer(invocation -> replicaPool.submit(replica -> predictions(1)))
+            .when(classifierNetwork).predictBatchAsync(any());
+
+        ExecutionException first = assertThrows(ExecutionException.class,
+            () -> service.submit(image()).get(5, TimeUnit.SECONDS));
+        ExecutionException second = assertThrows(ExecutionException.class,
+            () -> service.submit(image()).get(5, TimeUnit.SECONDS));
+        Prediction third = service.submit(image()).get(5, TimeUnit.SECONDS);
+
+        assertInstanceOf(OutOfMemoryError.class, first.getCause());
+        assertInstanceOf(StackOverflowError.class, second.getCause());
+        assertNotNull(third);
+        assertEquals(2, service.getStats().getFailedRequests());
+    }
+
+    @Test
+    void testHasPendingWork_QueuedAndRunningBatches() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, 1, 0, 30_000, release);
+        assertFalse(service.hasPendingWork());
+
+        CompletableFuture<Prediction> running = service.submit(image());
+        awaitTrue(() -> replicaPool.getBusyReplicas() == 1);
+        assertTrue(service.hasPendingWork());
+
+        // Com a única réplica ocupada, a segunda requisição fica na fila
+        CompletableFuture<Prediction> queued = service.submit(image());
+        assertEquals(1, service.getStats().getQueueDepth());
+        assertTrue(service.hasPendingWork());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        awaitTrue(() -> !service.hasPendingWork());
+    }
+
+    @Test
+    void testDispatcher_BufferReturnedBeforeReplicaPermitReleased() throws Exception {
+        List<INDArray> inputs = Collections.synchronizedList(new ArrayList<>());
+        replicaPool = spy(new ModelReplicaPool(1, tinyGraph()));
+        // Com a permissão devolvida antes do buffer, o próximo lote acharia a fila de buffers vazia
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            return null;
+        }).when(replicaPool).releaseIdleReplica();
+        when(classifierNetwork.getReplicaPool()).thenReturn(replicaPool);
+        when(classifierNetwork.predictBatchAsync(any())).thenAnswer(invocation -> {
+            inputs.add(invocation.getArgument(0));
+            return replicaPool.submit(replica -> predictions(1));
+        });
+        service = new BatchingInferenceService(classifierNetwork, imagePreprocessor, 1, 0, 64, 30_000);
+        service.start();
+
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(service.submit(image()).get(5, TimeUnit.SECONDS));
+        }
+
+        // Lote de capacidade 1: a entrada é o próprio tensor do único buffer, sempre reutilizado
+        assertEquals(5, inputs.size());
+        assertTrue(inputs.stream().allMatch(input -> input == inputs.get(0)));
+        awaitTrue(() -> replicaPool.getIdleReplicas() == 0);
+    }
+
+    @Test
+    void testDispatcher_ReplicaPermitsReturnedAfterFailedBatches() throws Exception {
+        start(2, 1, 0, 30_000, null);
+        doThrow(new OutOfMemoryError("Java heap space"))
+            .doAnswer(invocation -> CompletableFuture.failedFuture(new IllegalStateException("falha")))
+            .doAnswer(invocation -> replicaPool.submit(replica -> predictions(1)))
+            .when(classifierNetwork).predictBatchAsync(any());
+
+        for (int i = 0; i < 3; i++) {
+            service.submit(image()).handle((prediction, error) -> null).get(5, TimeUnit.SECONDS);
+        }
+
+        // Uma permissão fica com o dispatcher, que aguarda o próximo pedido na fila
+        awaitTrue(() -> replicaPool.getIdleReplicas() == 1);
+    }
+
+    /**
+     * Motor com réplicas reais de um grafo mínimo; o forward pass é substituído por
+     * previsões fixas, executadas na réplica após {@code release} (quando informado)
+     */
+    private void start(int replicas, int maxBatchSize, long maxWaitMs, long timeoutMs, CountDownLatch release) {
+        replicaPool = new ModelReplicaPool(replicas, tinyGraph());
+        when(classifierNetwork.getReplicaPool()).thenReturn(replicaPool);
+        lenient().when(classifierNetwork.predictBatchAsync(any())).thenAnswer(invocation -> {
+            int size = (int) ((INDArray) invocation.getArgument(0)).size(0);
+            return replicaPool.submit(replica -> {
+                if (release != null) {
+                    await(release);
+                }
+                return predictions(size);
+            });
+        });
+        service = new BatchingInferenceService(classifierNetwork, imagePreprocessor, maxBatchSize, maxWaitMs, 64, timeoutMs);
+        service.start();
+    }
+
+    private List<CompletableFuture<Prediction>> submit(int count) {
+        List<CompletableFuture<Prediction>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(service.submit(image()));
+        }
+        return futures;
+    }
+
+    private DecodedImage image() {
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", png);
+            return imagePreprocessor.decode(png.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Prediction> predictions(int size) {
+        List<Prediction> predictions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            predictions.add(new Prediction(Map.of(WoundType.values()[0], 1.0), Map.of(TissueType.values()[0], 1.0), null));
+        }
+        return predictions;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static ComputationGraph tinyGraph() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+            .dataType(DataType.FLOAT)
+            .graphBuilder()
+            .addInputs("in")
+            .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                .nIn(2).nOut(2).activation(Activation.SOFTMAX).build(), "in")
+            .setOutputs("out")
+            .build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        return graph;
+    }
+}
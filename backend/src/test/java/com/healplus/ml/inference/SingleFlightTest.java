@@ -0,0 +1,121 @@
+package com.healplus.ml.inference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>(result -> result + "-copia");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        Future<String> leader = threads.submit(() -> flight.execute("k", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "resultado";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = threads.submit(() -> flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return "outra execução";
+        }));
+        awaitCoalesced(flight, 1);
+        release.countDown();
+
+        assertEquals("resultado", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("resultado-copia", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.getStats().getInFlight());
+    }
+
+    @Test
+    void testExecute_LeaderErrorReachesFollowers() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>(result -> result);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = threads.submit(() -> flight.execute("k", () -> {
+            started.countDown();
+            await(release);
+            throw new OutOfMemoryError("simulado");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = threads.submit(() -> flight.execute("k", () -> "nunca"));
+        awaitCoalesced(flight, 1);
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, leaderError.getCause());
+        assertInstanceOf(OutOfMemoryError.class, followerError.getCause());
+
+        // A chave é liberada: a próxima chamada executa de novo
+        assertEquals("ok", flight.execute("k", () -> "ok"));
+    }
+
+    @Test
+    void testExecute_FollowerWaitIsBounded() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>(result -> result, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        threads.submit(() -> flight.execute("k", () -> {
+            started.countDown();
+            await(release);
+            return "tarde";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class, () -> flight.execute("k", () -> "nunca"));
+        release.countDown();
+    }
+
+    @Test
+    void testExecute_LeaderIOExceptionPropagated() {
+        SingleFlight<String> flight = new SingleFlight<>(result -> result);
+
+        assertThrows(IOException.class, () -> flight.execute("k", () -> {
+            throw new IOException("imagem inválida");
+        }));
+        assertEquals(0, flight.getStats().getInFlight());
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private static void awaitCoalesced(SingleFlight<?> flight, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (flight.getStats().getCoalescedRequests() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, flight.getStats().getCoalescedRequests());
+    }
+}
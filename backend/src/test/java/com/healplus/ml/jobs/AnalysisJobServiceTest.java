@@ -0,0 +1,80 @@
+package com.healplus.ml.jobs;
+
+import com.healplus.exception.ResourceNotFoundException;
+import com.healplus.ml.jobs.AnalysisJobService.AnalysisJobStatus;
+import com.healplus.ml.jobs.AnalysisJobService.JobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisJobServiceTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private AnalysisJobService service;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(2);
+        executor.initialize();
+        // TTL zero: jobs finalizados são descartados na primeira limpeza
+        service = new AnalysisJobService(executor, 0, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testRun_PipelineCompletes() throws Exception {
+        AnalysisJobStatus job = service.submit("analyze", "prof-1", progress -> {
+            progress.reached(AnalysisStage.DECODED);
+            progress.reached(AnalysisStage.CLASSIFIED);
+            return "ok";
+        });
+
+        AnalysisJobStatus done = await(job.getJobId(), JobStatus.COMPLETED);
+
+        assertEquals("ok", done.getResult());
+        assertEquals(AnalysisStage.CLASSIFIED, done.getCurrentStage());
+    }
+
+    @Test
+    void testRun_ErrorMarksJobFailedAndJobIsPurged() throws Exception {
+        AnalysisJobStatus job = service.submit("analyze", "prof-1", progress -> {
+            throw new OutOfMemoryError("Java heap space");
+        });
+
+        AnalysisJobStatus failed = await(job.getJobId(), JobStatus.FAILED);
+        assertNotNull(failed.getFinishedAt());
+
+        Thread.sleep(5);
+        service.purgeExpiredJobs();
+        assertThrows(ResourceNotFoundException.class, () -> service.getStatus(job.getJobId(), "prof-1"));
+    }
+
+    @Test
+    void testGetStatus_OtherProfessionalCannotSeeJob() throws Exception {
+        AnalysisJobStatus job = service.submit("analyze", "prof-1", progress -> "ok");
+        await(job.getJobId(), JobStatus.COMPLETED);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getStatus(job.getJobId(), "prof-2"));
+    }
+
+    private AnalysisJobStatus await(String jobId, JobStatus expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        AnalysisJobStatus status = service.getStatus(jobId, "prof-1");
+        while (status.getStatus() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = service.getStatus(jobId, "prof-1");
+        }
+        assertEquals(expected, status.getStatus(), status.getError());
+        return status;
+    }
+}
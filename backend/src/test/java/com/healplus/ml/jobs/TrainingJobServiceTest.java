@@ -0,0 +1,247 @@
+package com.healplus.ml.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healplus.exception.BadRequestException;
+import com.healplus.ml.inference.BatchingInferenceService;
+import com.healplus.ml.jobs.TrainingJobService.JobStatus;
+import com.healplus.ml.jobs.TrainingJobService.TrainingJobStatus;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.training.TrainingMonitor;
+import com.healplus.ml.training.TrainingOptions;
+import com.healplus.ml.training.WoundModelTrainer;
+import com.healplus.ml.training.WoundModelTrainer.EpochMetric;
+import com.healplus.ml.training.WoundModelTrainer.TrainingResult;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrainingJobServiceTest {
+
+    @Mock
+    private WoundModelTrainer trainer;
+
+    @Mock
+    private WoundClassifierNetwork classifierNetwork;
+
+    @Mock
+    private BatchingInferenceService inferenceService;
+
+    @TempDir
+    Path checkpointDir;
+
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(classifierNetwork.copyModel()).thenAnswer(invocation -> smallGraph());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Test
+    void testRun_EpochMetricsCheckpointsAndModelInstalled() throws Exception {
+        when(inferenceService.hasPendingWork()).thenReturn(true, true, false);
+        when(trainer.trainMultiTask(any(), any(), any(), any(), any())).thenAnswer(invocation -> train(invocation.getArgument(0),
+            invocation.getArgument(3), invocation.getArgument(4), -1, null));
+        TrainingJobService service = newService();
+
+        TrainingJobStatus job = service.submit("wounds", null, options(4), true);
+        TrainingJobStatus done = await(service, job.getJobId(), JobStatus.COMPLETED);
+
+        assertEquals(4, done.getCompletedEpochs());
+        assertEquals(List.of(0, 1, 2, 3), done.getEpochMetrics().stream().map(EpochMetric::getEpoch).toList());
+        assertEquals(4, done.getCheckpointEpoch());
+        assertEquals(0.9, done.getFinalAccuracy());
+        assertTrue(done.getInferenceYieldMs() >= 10, "esperou " + done.getInferenceYieldMs() + " ms");
+        assertEquals(List.of("epoch-0003.zip", "epoch-0004.zip"), checkpoints(job.getJobId()));
+        verify(classifierNetwork).installModel(any(ComputationGraph.class));
+        // O modelo instalado fica em disco, recarregável por /load-models
+        assertTrue(Files.isRegularFile(
+            checkpointDir.resolve(job.getJobId()).resolve(WoundClassifierNetwork.getModelFileName())));
+    }
+
+    @Test
+    void testSubmit_DatasetOutsideRootRejected() {
+        TrainingJobService service = newService();
+
+        assertThrows(BadRequestException.class, () -> service.submit("../segredos", null, options(1), false));
+        assertThrows(BadRequestException.class,
+            () -> service.submit(null, checkpointDir.toAbsolutePath().toString(), options(1), false));
+        assertTrue(service.listJobs().isEmpty());
+        verifyNoInteractions(trainer);
+    }
+
+    @Test
+    void testRun_ErrorDuringTrainingMarksJobFailed() throws Exception {
+        when(trainer.trainMultiTask(any(), any(), any(), any(), any())).thenThrow(new OutOfMemoryError("Java heap space"));
+        TrainingJobService service = newService();
+
+        TrainingJobStatus job = service.submit("wounds", null, options(2), true);
+        TrainingJobStatus failed = await(service, job.getJobId(), JobStatus.FAILED);
+
+        assertTrue(failed.getError().contains("Java heap space"));
+        verify(classifierNetwork, never()).installModel(any());
+    }
+
+    @Test
+    void testCancelAndResume_ContinuesFromLastCheckpoint() throws Exception {
+        CountDownLatch twoEpochs = new CountDownLatch(1);
+        when(trainer.trainMultiTask(any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> train(invocation.getArgument(0), invocation.getArgument(3),
+                invocation.getArgument(4), 2, twoEpochs))
+            .thenAnswer(invocation -> train(invocation.getArgument(0), invocation.getArgument(3),
+                invocation.getArgument(4), -1, null));
+        TrainingJobService service = newService();
+
+        TrainingJobStatus job = service.submit("wounds", null, options(5), false);
+        assertTrue(twoEpochs.await(30, TimeUnit.SECONDS));
+        service.cancel(job.getJobId());
+        TrainingJobStatus cancelled = await(service, job.getJobId(), JobStatus.CANCELLED);
+        assertEquals(2, cancelled.getCheckpointEpoch());
+
+        service.resume(job.getJobId());
+        TrainingJobStatus done = await(service, job.getJobId(), JobStatus.COMPLETED);
+
+        ArgumentCaptor<TrainingOptions> runs = ArgumentCaptor.forClass(TrainingOptions.class);
+        verify(trainer, times(2)).trainMultiTask(any(), any(), any(), runs.capture(), any());
+        assertEquals(0, runs.getAllValues().get(0).getInitialEpoch());
+        assertEquals(2, runs.getAllValues().get(1).getInitialEpoch());
+        assertEquals(List.of(0, 1, 2, 3, 4), done.getEpochMetrics().stream().map(EpochMetric::getEpoch).toList());
+        verify(classifierNetwork, times(1)).copyModel();
+        verify(classifierNetwork, never()).installModel(any());
+    }
+
+    @Test
+    void testRecoverJobs_InterruptedJobResumedAfterRestart() throws Exception {
+        CountDownLatch oneEpoch = new CountDownLatch(1);
+        // Simula a queda do servidor: a primeira execução não passa da segunda época
+        when(trainer.trainMultiTask(any(), any(), any(), any(), any())).thenAnswer(invocation -> train(invocation.getArgument(0),
+            invocation.getArgument(3), invocation.getArgument(4), 1, oneEpoch));
+        TrainingJobService crashed = newService();
+        String jobId = crashed.submit("wounds", null, options(3), false).getJobId();
+        assertTrue(oneEpoch.await(30, TimeUnit.SECONDS));
+
+        reset(trainer);
+        when(trainer.trainMultiTask(any(), any(), any(), any(), any())).thenAnswer(invocation -> train(invocation.getArgument(0),
+            invocation.getArgument(3), invocation.getArgument(4), -1, null));
+        TrainingJobService restarted = newService();
+        restarted.recoverJobs();
+
+        TrainingJobStatus recovered = restarted.getStatus(jobId);
+        assertEquals(JobStatus.FAILED, recovered.getStatus());
+        assertEquals(1, recovered.getCheckpointEpoch());
+
+        restarted.resume(jobId);
+        TrainingJobStatus done = await(restarted, jobId, JobStatus.COMPLETED);
+        assertEquals(List.of(0, 1, 2), done.getEpochMetrics().stream().map(EpochMetric::getEpoch).toList());
+    }
+
+    private TrainingJobService newService() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(2);
+        executor.initialize();
+        executors.add(executor);
+        return new TrainingJobService(trainer, classifierNetwork, inferenceService, executor,
+            new ObjectMapper().findAndRegisterModules(), checkpointDir.toString(),
+            checkpointDir.resolve("datasets").toString(), 1, 2, 10, 60_000);
+    }
+
+    /**
+     * Imita o treinador: um mini-lote e uma época por vez, passando pelo monitor.
+     * Com {@code stopAfter} >= 0, ao concluir essa época sinaliza o latch e segue pedindo
+     * mini-lotes até ser cancelado.
+     */
+    private static TrainingResult train(ComputationGraph model, TrainingOptions options, TrainingMonitor monitor,
+                                        int stopAfter, CountDownLatch reached) throws Exception {
+        TrainingResult result = new TrainingResult();
+        for (int epoch = options.getInitialEpoch(); epoch < options.getEpochs(); epoch++) {
+            if (epoch == stopAfter) {
+                reached.countDown();
+                while (true) {
+                    monitor.beforeBatch();
+                    Thread.sleep(5);
+                }
+            }
+            monitor.beforeBatch();
+            monitor.epochCompleted(result.addEpochMetric(epoch, 0.5, 0.5, 0.5), model);
+        }
+        if (stopAfter >= 0) {
+            reached.countDown();
+        }
+        result.setFinalAccuracy(0.9);
+        return result;
+    }
+
+    private static TrainingJobStatus await(TrainingJobService service, String jobId, JobStatus expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        TrainingJobStatus status = service.getStatus(jobId);
+        while (status.getStatus() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = service.getStatus(jobId);
+        }
+        assertEquals(expected, status.getStatus(), status.getError());
+        return status;
+    }
+
+    private List<String> checkpoints(String jobId) throws Exception {
+        try (Stream<Path> files = Files.list(checkpointDir.resolve(jobId))) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith("epoch-") && name.endsWith(".zip"))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static TrainingOptions options(int epochs) {
+        TrainingOptions options = new TrainingOptions();
+        options.setEpochs(epochs);
+        return options;
+    }
+
+    private static ComputationGraph smallGraph() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+            .seed(1)
+            .dataType(DataType.FLOAT)
+            .graphBuilder()
+            .addInputs("in")
+            .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                .nIn(2).nOut(2).activation(Activation.SOFTMAX).build(), "in")
+            .setOutputs("out")
+            .build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        return graph;
+    }
+}
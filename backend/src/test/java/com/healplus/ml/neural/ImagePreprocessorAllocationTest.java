@@ -0,0 +1,103 @@
+package com.healplus.ml.neural;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Benchmark de alocação do caminho quente de conversão imagem -> tensor.
+ * Mede os bytes alocados pela thread atual durante escritas repetidas no buffer
+ * pré-alocado; o esperado é zero alocação por chamada.
+ */
+class ImagePreprocessorAllocationTest {
+
+    private static final int SIZE = 224;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 1_000;
+
+    private ImagePreprocessor preprocessor;
+    private InputTensorBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        preprocessor = new ImagePreprocessor();
+        buffer = new InputTensorBuffer(2);
+    }
+
+    @Test
+    void testWriteTensor_IntRaster_NoHeapAllocation() {
+        DecodedImage image = decodedImage(BufferedImage.TYPE_INT_RGB);
+
+        long allocated = measureAllocatedBytes(image);
+
+        assertTrue(allocated < MEASURED_ITERATIONS,
+            "Esperado zero alocação por chamada, alocados " + allocated + " bytes em " + MEASURED_ITERATIONS + " chamadas");
+    }
+
+    @Test
+    void testWriteTensor_ByteRaster_NoHeapAllocation() {
+        DecodedImage image = decodedImage(BufferedImage.TYPE_3BYTE_BGR);
+
+        long allocated = measureAllocatedBytes(image);
+
+        assertTrue(allocated < MEASURED_ITERATIONS,
+            "Esperado zero alocação por chamada, alocados " + allocated + " bytes em " + MEASURED_ITERATIONS + " chamadas");
+    }
+
+    @Test
+    void testWriteTensor_MatchesReferenceNormalization() {
+        DecodedImage intImage = decodedImage(BufferedImage.TYPE_INT_RGB);
+        DecodedImage byteImage = decodedImage(BufferedImage.TYPE_3BYTE_BGR);
+
+        preprocessor.writeTensor(intImage, buffer, 0);
+        preprocessor.writeTensor(byteImage, buffer, 1);
+
+        double[] mean = {0.485, 0.456, 0.406};
+        double[] std = {0.229, 0.224, 0.225};
+        int[][] samples = {{0, 0}, {17, 101}, {223, 223}, {120, 5}};
+
+        for (int[] sample : samples) {
+            int x = sample[0];
+            int y = sample[1];
+            int rgb = intImage.getResized().getRGB(x, y);
+            int[] channels = {(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
+
+            for (int c = 0; c < 3; c++) {
+                double expected = (channels[c] / 255.0 - mean[c]) / std[c];
+                assertEquals(expected, buffer.batchOf(2).getDouble(0, c, y, x), 1e-5);
+                assertEquals(expected, buffer.batchOf(2).getDouble(1, c, y, x), 1e-5);
+            }
+        }
+    }
+
+    private long measureAllocatedBytes(DecodedImage image) {
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            preprocessor.writeTensor(image, buffer, i & 1);
+        }
+
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            preprocessor.writeTensor(image, buffer, i & 1);
+        }
+        return threadBean.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    private DecodedImage decodedImage(int type) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, type);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.setRGB(x, y, ((x * 7) & 0xFF) << 16 | ((y * 3) & 0xFF) << 8 | ((x + y) & 0xFF));
+            }
+        }
+        return new DecodedImage(new byte[0], SIZE, SIZE, image);
+    }
+}
@@ -0,0 +1,69 @@
+package com.healplus.ml.neural;
+
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePreprocessorDecodeTest {
+
+    @Test
+    void testDecode_SubsampledMatchesFullDecode() throws Exception {
+        byte[] png = encodePng(smoothImage(1800, 1350));
+        assertEquals(6, ImagePreprocessor.subsamplingFactor(1800, 1350));
+
+        INDArray subsampled = tensor(png, true);
+        INDArray full = tensor(png, false);
+
+        assertArrayEquals(full.shape(), subsampled.shape());
+        double meanAbsDiff = full.sub(subsampled).norm1Number().doubleValue() / full.length();
+        double maxAbsDiff = full.sub(subsampled).amaxNumber().doubleValue();
+        assertTrue(meanAbsDiff < 0.02, "diferença média " + meanAbsDiff);
+        assertTrue(maxAbsDiff < 0.1, "diferença máxima " + maxAbsDiff);
+    }
+
+    @Test
+    void testDecodeSource_SubsampledKeepingAspectAboveNetworkSize() throws Exception {
+        BufferedImage source = new ImagePreprocessor().decodeSource(encodePng(smoothImage(1800, 1350)));
+
+        // Fator 6: 1800x1350 -> 300x225, ainda sem o redimensionamento para 224x224
+        assertEquals(300, source.getWidth());
+        assertEquals(225, source.getHeight());
+    }
+
+    private static INDArray tensor(byte[] imageBytes, boolean subsampledDecode) throws Exception {
+        ImagePreprocessor preprocessor = new ImagePreprocessor();
+        ReflectionTestUtils.setField(preprocessor, "subsampledDecode", subsampledDecode);
+        DecodedImage image = preprocessor.decode(imageBytes);
+        assertEquals(1800, image.getOriginalWidth());
+        return preprocessor.preprocessImage(image);
+    }
+
+    /**
+     * Gradientes suaves por canal: sem detalhe acima da resolução da rede, a subamostragem
+     * na origem não deve alterar o resultado além do arredondamento
+     */
+    private static BufferedImage smoothImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (int) (255.0 * x / (width - 1));
+                int g = (int) (255.0 * y / (height - 1));
+                int b = (int) (127.5 + 127.5 * Math.sin(2 * Math.PI * (x + y) / (double) (width + height)));
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.healplus.ml.neural;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelReplicaPoolTest {
+
+    private ModelReplicaPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAcquireIdleReplica_BlocksWhileAllReplicasTaken() throws Exception {
+        pool = new ModelReplicaPool(2, graph(0.0));
+        pool.acquireIdleReplica();
+        pool.acquireIdleReplica();
+        assertEquals(0, pool.getIdleReplicas());
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> {
+            try {
+                pool.acquireIdleReplica();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+
+        pool.releaseIdleReplica();
+        third.get(5, TimeUnit.SECONDS);
+        assertEquals(0, pool.getIdleReplicas());
+
+        pool.releaseIdleReplica();
+        pool.releaseIdleReplica();
+        assertEquals(2, pool.getIdleReplicas());
+    }
+
+    @Test
+    void testUpdateMaster_InFlightTaskKeepsOldWeightsNextTaskUsesNew() throws Exception {
+        pool = new ModelReplicaPool(1, graph(1.0));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<INDArray> inFlight = pool.submit(replica -> {
+            started.countDown();
+            await(release);
+            return replica.getModel().params().dup();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        pool.updateMaster(graph(2.0));
+        release.countDown();
+
+        assertEquals(1.0, inFlight.get(5, TimeUnit.SECONDS).meanNumber().doubleValue(), 1e-6);
+        INDArray next = pool.execute(replica -> replica.getModel().params().dup());
+        assertEquals(2.0, next.meanNumber().doubleValue(), 1e-6);
+    }
+
+    @Test
+    void testSubmit_ReplicaClonedOncePerGeneration() {
+        pool = new ModelReplicaPool(1, graph(1.0));
+
+        ComputationGraph first = pool.execute(ModelReplicaPool.Replica::getModel);
+        ComputationGraph second = pool.execute(ModelReplicaPool.Replica::getModel);
+        pool.updateMaster(graph(2.0));
+        ComputationGraph third = pool.execute(ModelReplicaPool.Replica::getModel);
+
+        assertSame(first, second);
+        assertNotSame(second, third);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Grafo mínimo com todos os parâmetros iguais a {@code value}
+     */
+    private static ComputationGraph graph(double value) {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+            .dataType(DataType.FLOAT)
+            .graphBuilder()
+            .addInputs("in")
+            .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                .nIn(2).nOut(2).activation(Activation.SOFTMAX).build(), "in")
+            .setOutputs("out")
+            .build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        graph.params().assign(value);
+        return graph;
+    }
+}
@@ -0,0 +1,134 @@
+package com.healplus.ml.neural;
+
+import com.healplus.ml.WoundType;
+import org.deeplearning4j.nn.api.FwdPassType;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WoundClassifierNetworkGradCamTest {
+
+    // 224 -> conv 5x5 -> 220 -> pool -> 110 -> conv 5x5 -> 106 -> pool -> 53 -> conv 3x3 -> 51 -> pool -> 25 -> conv4 3x3 -> 23
+    private static final int CONV4_GRID = 23;
+
+    private WoundClassifierNetwork network;
+    private final PassCounter passes = new PassCounter();
+
+    @BeforeEach
+    void setUp() {
+        network = new WoundClassifierNetwork();
+        ReflectionTestUtils.setField(network, "configuredReplicas", 1);
+        network.initialize();
+        // As réplicas clonam o modelo mestre; os clones continuam contando as passagens
+        ComputationGraph graph = network.copyModel();
+        network.installModel(new CountingGraph(graph.getConfiguration(), graph.params(), passes));
+    }
+
+    @AfterEach
+    void tearDown() {
+        network.shutdown();
+    }
+
+    @Test
+    void testPredictBatch_GradCamFromInferenceActivations() {
+        Nd4j.getRandom().setSeed(7);
+        INDArray batch = Nd4j.rand(DataType.FLOAT, 2, 3, 224, 224);
+
+        List<WoundClassifierNetwork.Prediction> predictions = network.predictBatch(batch);
+
+        assertEquals(2, predictions.size());
+        for (WoundClassifierNetwork.Prediction prediction : predictions) {
+            ClassActivationMap cam = prediction.getClassActivationMap();
+            assertNotNull(cam);
+            assertEquals(CONV4_GRID, cam.getWidth());
+            assertEquals(CONV4_GRID, cam.getHeight());
+            assertEquals("conv4", cam.getLayer());
+            assertEquals(predictedClass(prediction.getWoundPredictions()), cam.getTargetClass());
+
+            float[] values = cam.toArray();
+            float max = 0f;
+            for (float value : values) {
+                assertTrue(value >= 0f && value <= 1f, "fora de [0, 1]: " + value);
+                max = Math.max(max, value);
+            }
+            assertTrue(max == 0f || max == 1f, "mapa não normalizado pelo máximo: " + max);
+        }
+        // Um forward pass para o lote inteiro e nenhum backward pass para os gradientes
+        assertEquals(1, passes.forward.get());
+        assertEquals(0, passes.backward.get());
+    }
+
+    private static WoundType predictedClass(Map<WoundType, Double> predictions) {
+        return predictions.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+    }
+
+    private static class PassCounter {
+        final AtomicInteger forward = new AtomicInteger();
+        final AtomicInteger backward = new AtomicInteger();
+    }
+
+    /**
+     * Grafo que conta forward e backward passes, inclusive nos clones das réplicas
+     */
+    private static class CountingGraph extends ComputationGraph {
+        private final PassCounter passes;
+
+        CountingGraph(ComputationGraphConfiguration configuration, INDArray params, PassCounter passes) {
+            super(configuration);
+            this.passes = passes;
+            init(params.dup(), false);
+        }
+
+        @Override
+        protected INDArray[] outputOfLayersDetached(boolean train, FwdPassType fwdPassType, int[] layerIndexes,
+                                                    INDArray[] features, INDArray[] fMask, INDArray[] lMasks,
+                                                    boolean clearLayerInputs, boolean detachedInputs,
+                                                    MemoryWorkspace outputWorkspace) {
+            passes.forward.incrementAndGet();
+            return super.outputOfLayersDetached(train, fwdPassType, layerIndexes, features, fMask, lMasks,
+                clearLayerInputs, detachedInputs, outputWorkspace);
+        }
+
+        @Override
+        protected synchronized Map<String, INDArray> ffToLayerActivationsDetached(boolean train, FwdPassType fwdPassType,
+                boolean storeLastForTBPTT, int layerIndex, int[] excludeIdxs, INDArray[] features,
+                INDArray[] fMask, INDArray[] lMask, boolean clearLayers) {
+            passes.forward.incrementAndGet();
+            return super.ffToLayerActivationsDetached(train, fwdPassType, storeLastForTBPTT, layerIndex, excludeIdxs,
+                features, fMask, lMask, clearLayers);
+        }
+
+        @Override
+        protected synchronized Map<String, INDArray> ffToLayerActivationsInWS(boolean train, int layerIndex,
+                int[] excludeIdxs, FwdPassType fwdPassType, boolean storeLastForTBPTT, INDArray[] input,
+                INDArray[] fMask, INDArray[] lMask, boolean clearInputs) {
+            passes.forward.incrementAndGet();
+            return super.ffToLayerActivationsInWS(train, layerIndex, excludeIdxs, fwdPassType, storeLastForTBPTT,
+                input, fMask, lMask, clearInputs);
+        }
+
+        @Override
+        protected void calcBackpropGradients(boolean clearLayers, boolean truncatedBPTT, INDArray... externalEpsilons) {
+            passes.backward.incrementAndGet();
+            super.calcBackpropGradients(clearLayers, truncatedBPTT, externalEpsilons);
+        }
+
+        @Override
+        public ComputationGraph clone() {
+            return new CountingGraph(getConfiguration().clone(), params(), passes);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.healplus.ml.training;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageAugmenterTest {
+
+    private final ImageAugmenter augmenter = new ImageAugmenter();
+
+    @Test
+    void testAugment_NetworkSizedRgbAndSourceUntouched() {
+        BufferedImage source = gradient(300, 200);
+        int[] before = source.getRGB(0, 0, 300, 200, null, 0, 300);
+
+        BufferedImage augmented = augmenter.augment(source, new Random(3));
+
+        assertEquals(224, augmented.getWidth());
+        assertEquals(224, augmented.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, augmented.getType());
+        assertArrayEquals(before, source.getRGB(0, 0, 300, 200, null, 0, 300));
+    }
+
+    @Test
+    void testAugment_SameSeedSameImageDifferentSeedsDiffer() {
+        BufferedImage source = gradient(224, 224);
+
+        int[] first = pixels(augmenter.augment(source, new Random(11)));
+        int[] again = pixels(augmenter.augment(source, new Random(11)));
+        int[] other = pixels(augmenter.augment(source, new Random(12)));
+
+        assertArrayEquals(first, again);
+        assertFalse(java.util.Arrays.equals(first, other));
+    }
+
+    @Test
+    void testAugment_UniformGrayKeepsNeutralHue() {
+        BufferedImage source = new BufferedImage(224, 224, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 224; y++) {
+            for (int x = 0; x < 224; x++) {
+                source.setRGB(x, y, 0x808080);
+            }
+        }
+
+        for (int seed = 0; seed < 20; seed++) {
+            BufferedImage augmented = augmenter.augment(source, new Random(seed));
+            // Centro sempre coberto pelo recorte; saturação e contraste não criam cor em cinza
+            int rgb = augmented.getRGB(112, 112);
+            assertEquals((rgb >> 16) & 0xFF, rgb & 0xFF);
+            assertEquals((rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+    }
+
+    @Test
+    void testAugment_RotatedCornersFilledFromImageNotBlack() {
+        BufferedImage source = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 480; y++) {
+            for (int x = 0; x < 640; x++) {
+                source.setRGB(x, y, 0x808080);
+            }
+        }
+
+        for (int seed = 0; seed < 20; seed++) {
+            int[] augmented = pixels(augmenter.augment(source, new Random(seed)));
+            // Imagem uniforme continua uniforme: nenhum canto fica fora da fonte
+            for (int rgb : augmented) {
+                assertEquals(augmented[0], rgb, "semente " + seed);
+            }
+        }
+    }
+
+    @Test
+    void testReflect_MirrorsIndicesRepeatingTheEdge() {
+        assertEquals(0, ImageAugmenter.reflect(0, 4));
+        assertEquals(3, ImageAugmenter.reflect(3, 4));
+        assertEquals(0, ImageAugmenter.reflect(-1, 4));
+        assertEquals(1, ImageAugmenter.reflect(-2, 4));
+        assertEquals(3, ImageAugmenter.reflect(4, 4));
+        assertEquals(2, ImageAugmenter.reflect(5, 4));
+        assertEquals(0, ImageAugmenter.reflect(7, 1));
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x & 0xFF) << 16 | (y & 0xFF) << 8 | ((x + y) & 0xFF));
+            }
+        }
+        return image;
+    }
+}
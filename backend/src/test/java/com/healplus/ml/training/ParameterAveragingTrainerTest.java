@@ -0,0 +1,168 @@
+package com.healplus.ml.training;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.junit.jupiter.api.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.TestMultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Adam;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterAveragingTrainerTest {
+
+    @Test
+    void testFit_ThreeReplicasLossDecreases() throws Exception {
+        ComputationGraph model = smallGraph();
+        MultiDataSetIterator data = separableData(23, 16);
+        double before = model.score(data.next());
+        data.reset();
+
+        try (ParameterAveragingTrainer trainer = new ParameterAveragingTrainer(model, 3, 2, 2, TrainingMonitor.NONE)) {
+            for (int epoch = 0; epoch < 15; epoch++) {
+                trainer.fit(data);
+                data.reset();
+            }
+        }
+
+        double after = model.score(data.next());
+        assertTrue(after < before * 0.5, "perda antes " + before + ", depois " + after);
+    }
+
+    @Test
+    void testFit_SingleReplicaMatchesDirectTraining() throws Exception {
+        ComputationGraph direct = smallGraph();
+        ComputationGraph averaged = direct.clone();
+        MultiDataSetIterator data = separableData(5, 8);
+
+        direct.fit(data);
+        data.reset();
+        try (ParameterAveragingTrainer trainer = new ParameterAveragingTrainer(averaged, 1, 2, 2, TrainingMonitor.NONE)) {
+            trainer.fit(data);
+        }
+
+        assertTrue(direct.params().equalsWithEps(averaged.params(), 1e-5));
+        assertEquals(direct.getIterationCount(), averaged.getIterationCount());
+        assertEquals(direct.getEpochCount(), averaged.getEpochCount());
+    }
+
+    @Test
+    void testFit_ResumeFromCheckpointMatchesUninterruptedTraining() throws Exception {
+        ComputationGraph direct = smallGraph();
+        ComputationGraph averaged = direct.clone();
+        MultiDataSetIterator data = separableData(5, 8);
+
+        for (int epoch = 0; epoch < 3; epoch++) {
+            direct.fit(data);
+            data.reset();
+        }
+
+        try (ParameterAveragingTrainer trainer = new ParameterAveragingTrainer(averaged, 1, 2, 2, TrainingMonitor.NONE)) {
+            for (int epoch = 0; epoch < 2; epoch++) {
+                trainer.fit(data);
+                data.reset();
+            }
+        }
+        // Checkpoint do mestre e retomada, como no job de treino
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        ModelSerializer.writeModel(averaged, checkpoint, true);
+        ComputationGraph resumed = ModelSerializer.restoreComputationGraph(
+            new ByteArrayInputStream(checkpoint.toByteArray()), true);
+        assertEquals(2, resumed.getEpochCount());
+        try (ParameterAveragingTrainer trainer = new ParameterAveragingTrainer(resumed, 1, 2, 2, TrainingMonitor.NONE)) {
+            trainer.fit(data);
+        }
+
+        assertEquals(direct.getIterationCount(), resumed.getIterationCount());
+        assertTrue(direct.params().equalsWithEps(resumed.params(), 1e-5));
+    }
+
+    @Test
+    void testFit_MonitorConsultedOnReplicaThreadBeforeEachBatch() throws Exception {
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        TrainingMonitor monitor = new TrainingMonitor() {
+            @Override
+            public void beforeBatch() {
+                threads.add(Thread.currentThread().getName());
+            }
+        };
+
+        try (ParameterAveragingTrainer trainer = new ParameterAveragingTrainer(smallGraph(), 3, 2, 4, monitor)) {
+            trainer.fit(separableData(11, 4));
+        }
+
+        assertEquals(11, threads.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("ml-training-replica-")), threads.toString());
+    }
+
+    @Test
+    void testFit_CancelFromMonitorStopsReplicas() {
+        TrainingMonitor monitor = new TrainingMonitor() {
+            @Override
+            public void beforeBatch() {
+                throw new TrainingCancelledException("Treino cancelado");
+            }
+        };
+
+        try (ParameterAveragingTrainer trainer = new ParameterAveragingTrainer(smallGraph(), 2, 2, 2, monitor)) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> trainer.fit(separableData(8, 4)));
+            assertInstanceOf(TrainingCancelledException.class, error.getCause());
+        }
+    }
+
+    private static ComputationGraph smallGraph() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder()
+            .seed(1)
+            .dataType(DataType.FLOAT)
+            .updater(new Adam(0.05))
+            .graphBuilder()
+            .addInputs("in")
+            .addLayer("hidden", new DenseLayer.Builder().nIn(2).nOut(8).activation(Activation.RELU).build(), "in")
+            .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                .nIn(8).nOut(2).activation(Activation.SOFTMAX).build(), "hidden")
+            .setOutputs("out")
+            .build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        return graph;
+    }
+
+    /**
+     * Classe 1 quando x + y > 0
+     */
+    private static MultiDataSetIterator separableData(int batches, int batchSize) {
+        Random random = new Random(3);
+        MultiDataSet[] data = new MultiDataSet[batches];
+        for (int b = 0; b < batches; b++) {
+            INDArray features = Nd4j.create(DataType.FLOAT, batchSize, 2);
+            INDArray labels = Nd4j.zeros(DataType.FLOAT, batchSize, 2);
+            for (int i = 0; i < batchSize; i++) {
+                double x = random.nextGaussian();
+                double y = random.nextGaussian();
+                features.putScalar(i, 0, x);
+                features.putScalar(i, 1, y);
+                labels.putScalar(i, x + y > 0 ? 1 : 0, 1.0);
+            }
+            data[b] = new org.nd4j.linalg.dataset.MultiDataSet(features, labels);
+        }
+        return new TestMultiDataSetIterator(1, data);
+    }
+}
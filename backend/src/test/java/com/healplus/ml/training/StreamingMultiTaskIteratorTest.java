@@ -0,0 +1,198 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.neural.ImagePreprocessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMultiTaskIteratorTest {
+
+    private static final int[] HEAD_SIZES = { 3, 2 };
+
+    @TempDir
+    Path datasetDir;
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void testScan_ClassFoldersIndexedInNameOrder() throws IOException {
+        writeImage("b_second", "x.png", Color.RED);
+        writeImage("a_first", "y.jpg", Color.GREEN);
+        Files.writeString(datasetDir.resolve("a_first").resolve("notes.txt"), "ignorado");
+
+        List<TrainingSample> samples = ImageFolderIndex.scan(datasetDir.toString(), 1, 2, 10);
+
+        assertEquals(2, samples.size());
+        assertEquals(0, samples.get(0).classIndex());
+        assertEquals(1, samples.get(1).classIndex());
+        assertTrue(samples.stream().allMatch(sample -> sample.head() == 1));
+    }
+
+    @Test
+    void testScan_MissingDatasetFallsBackToSynthetic() throws IOException {
+        List<TrainingSample> samples = ImageFolderIndex.scan(datasetDir.resolve("ausente").toString(), 0, 3, 4);
+
+        assertEquals(12, samples.size());
+        assertTrue(samples.stream().allMatch(TrainingSample::isSynthetic));
+    }
+
+    @Test
+    void testNext_BatchesDecodedLazilyWithMaskedHeads() throws IOException {
+        List<TrainingSample> samples = new ArrayList<>();
+        samples.add(new TrainingSample(writeImage("c0", "a.png", Color.RED), 0, 2));
+        samples.add(new TrainingSample(writeImage("c1", "b.png", Color.BLUE), 1, 1));
+        Path corrupt = datasetDir.resolve("c1").resolve("corrupt.jpg");
+        Files.write(corrupt, new byte[]{ 1, 2, 3 });
+        samples.add(new TrainingSample(corrupt, 1, 0));
+        samples.add(new TrainingSample(writeImage("c1", "c.png", Color.WHITE), 1, 0));
+        samples.add(new TrainingSample(writeImage("c0", "d.png", Color.BLACK), 0, 0));
+
+        StreamingMultiTaskIterator iterator = iterator(samples, 3, null, null);
+
+        MultiDataSet first = iterator.next();
+        // A imagem corrompida é descartada e o lote fica menor
+        assertArrayEquals(new long[]{ 2, 3, 224, 224 }, first.getFeatures(0).shape());
+        assertArrayEquals(new long[]{ 2, 3 }, first.getLabels(0).shape());
+        assertEquals(1.0, first.getLabels(0).getDouble(0, 2));
+        assertEquals(1.0, first.getLabelsMaskArray(0).getDouble(0, 0));
+        assertEquals(0.0, first.getLabelsMaskArray(1).getDouble(0, 0));
+        assertEquals(1.0, first.getLabels(1).getDouble(1, 1));
+        assertEquals(1.0, first.getLabelsMaskArray(1).getDouble(1, 0));
+
+        MultiDataSet second = iterator.next();
+        assertEquals(2, second.getFeatures(0).size(0));
+        assertFalse(iterator.hasNext());
+
+        iterator.reset();
+        assertTrue(iterator.hasNext());
+    }
+
+    @Test
+    void testParallelWorkers_EpochsYieldEveryExampleOnce() {
+        List<TrainingSample> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(new TrainingSample(null, i % 2, i % 2));
+        }
+        StreamingMultiTaskIterator iterator = iterator(samples, 4, null, new Random(1));
+
+        for (int epoch = 0; epoch < 2; epoch++) {
+            long examples = 0;
+            double woundLabeled = 0;
+            while (iterator.hasNext()) {
+                MultiDataSet batch = iterator.next();
+                INDArray mask = batch.getLabelsMaskArray(0);
+                examples += batch.getFeatures(0).size(0);
+                woundLabeled += mask.sumNumber().doubleValue();
+            }
+            assertEquals(10, examples);
+            assertEquals(5.0, woundLabeled);
+            iterator.reset();
+        }
+    }
+
+    @Test
+    void testNextNum_ResizesBatchWithoutSkippingPrefetchedExamples() {
+        List<TrainingSample> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(new TrainingSample(null, 0, i % 3));
+        }
+        StreamingMultiTaskIterator iterator = iterator(samples, 4, null, null);
+
+        assertEquals(4, iterator.next().getFeatures(0).size(0));
+        // Os lotes já em preparo (exemplos 4..9) são refeitos a partir do exemplo 4
+        MultiDataSet resized = iterator.next(3);
+        assertEquals(3, resized.getFeatures(0).size(0));
+        assertEquals(1.0, resized.getLabels(0).getDouble(0, 4 % 3));
+        assertEquals(1.0, resized.getLabels(0).getDouble(2, 6 % 3));
+
+        long remaining = 0;
+        while (iterator.hasNext()) {
+            remaining += iterator.next().getFeatures(0).size(0);
+        }
+        assertEquals(3, remaining);
+        assertThrows(NoSuchElementException.class, () -> iterator.next(2));
+    }
+
+    @Test
+    void testAugmentation_DeterministicRegardlessOfWorkerCount() throws IOException {
+        List<TrainingSample> samples = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            samples.add(new TrainingSample(writeGradient("c" + i % 2, "g" + i + ".png", i * 30), 0, i % 2));
+        }
+
+        List<INDArray> parallel = features(iterator(samples, 2, new ImageAugmenter(), new Random(5)));
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            List<INDArray> sequential = features(new StreamingMultiTaskIterator(
+                samples, HEAD_SIZES, 2, new ImagePreprocessor(), single, 1, new ImageAugmenter(), new Random(5)));
+            assertEquals(sequential, parallel);
+        } finally {
+            single.shutdownNow();
+        }
+
+        List<INDArray> plain = features(iterator(samples, 2, null, new Random(5)));
+        assertNotEquals(plain, parallel);
+    }
+
+    private StreamingMultiTaskIterator iterator(List<TrainingSample> samples, int batchSize,
+                                                ImageAugmenter augmenter, Random random) {
+        return new StreamingMultiTaskIterator(samples, HEAD_SIZES, batchSize, new ImagePreprocessor(),
+            workers, 3, augmenter, random);
+    }
+
+    private static List<INDArray> features(StreamingMultiTaskIterator iterator) {
+        List<INDArray> batches = new ArrayList<>();
+        while (iterator.hasNext()) {
+            batches.add(iterator.next().getFeatures(0).dup());
+        }
+        return batches;
+    }
+
+    private Path writeGradient(String classDir, String name, int shade) throws IOException {
+        Path dir = Files.createDirectories(datasetDir.resolve(classDir));
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, ((x + shade) & 0xFF) << 16 | (y & 0xFF) << 8 | shade);
+            }
+        }
+        Path file = dir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    private Path writeImage(String classDir, String name, Color color) throws IOException {
+        Path dir = Files.createDirectories(datasetDir.resolve(classDir));
+        BufferedImage image = new BufferedImage(300, 260, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, color.getRGB());
+            }
+        }
+        Path file = dir.resolve(name);
+        ImageIO.write(image, name.endsWith(".png") ? "png" : "jpg", file.toFile());
+        return file;
+    }
+}
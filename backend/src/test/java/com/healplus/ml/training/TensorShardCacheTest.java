@@ -0,0 +1,256 @@
+package com.healplus.ml.training;
+
+import com.healplus.ml.neural.ImagePreprocessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TensorShardCacheTest {
+
+    private static final int[] HEAD_SIZES = { 3, 2 };
+
+    @TempDir
+    Path tempDir;
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor();
+    private final ExecutorService workers = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void testOpenOrBuild_RecordsMatchDecodedImagesAcrossShards() throws IOException {
+        List<TrainingSample> samples = samples(5);
+        AtomicInteger builds = new AtomicInteger();
+
+        try (TensorShardCache cache = TensorShardCache.openOrBuild(
+                tempDir.resolve("cache"), samples, source(samples, builds), 2)) {
+            assertEquals(5, cache.size());
+            try (Stream<Path> files = Files.list(cache.getDirectory())) {
+                assertEquals(3, files.filter(p -> p.toString().endsWith(".bin")).count());
+            }
+
+            for (int i = 0; i < samples.size(); i++) {
+                assertEquals(samples.get(i).head(), cache.head(i));
+                assertEquals(samples.get(i).classIndex(), cache.classIndex(i));
+
+                INDArray expected = preprocessor.preprocessImage(Files.readAllBytes(samples.get(i).image()));
+                FloatBuffer actual = FloatBuffer.allocate(TensorShardCache.featureSize());
+                cache.copyFeatures(i, actual, 0);
+                assertArrayEquals(expected.data().asFloat(), actual.array());
+            }
+        }
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void testOpenOrBuild_ReusedUntilDatasetChanges() throws IOException {
+        List<TrainingSample> samples = samples(2);
+        AtomicInteger builds = new AtomicInteger();
+        Path root = tempDir.resolve("cache");
+
+        TensorShardCache.openOrBuild(root, samples, source(samples, builds)).close();
+        TensorShardCache.openOrBuild(root, samples, source(samples, builds)).close();
+        assertEquals(1, builds.get());
+
+        writeImage(samples.get(1).image(), 77);
+        Files.setLastModifiedTime(samples.get(1).image(),
+            java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        TensorShardCache.openOrBuild(root, samples, source(samples, builds)).close();
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testOpenOrBuild_ConcurrentBuildsOfSameDatasetBothSucceed() throws Exception {
+        List<TrainingSample> samples = samples(3);
+        Path root = tempDir.resolve("cache");
+        AtomicInteger builds = new AtomicInteger();
+        // Os dois construtores só começam a gravar depois que ambos decidiram construir
+        CyclicBarrier bothBuilding = new CyclicBarrier(2);
+        Supplier<MultiDataSetIterator> source = () -> {
+            try {
+                bothBuilding.await(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return source(samples, builds).get();
+        };
+
+        ExecutorService builders = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> sizes = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                sizes.add(builders.submit(() -> {
+                    try (TensorShardCache cache = TensorShardCache.openOrBuild(root, samples, source, 2)) {
+                        FloatBuffer values = FloatBuffer.allocate(TensorShardCache.featureSize());
+                        cache.copyFeatures(cache.size() - 1, values, 0);
+                        return cache.size();
+                    }
+                }));
+            }
+            for (Future<Integer> size : sizes) {
+                assertEquals(3, size.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            builders.shutdownNow();
+        }
+
+        assertEquals(2, builds.get());
+        try (Stream<Path> entries = Files.list(root)) {
+            assertEquals(List.of(TensorShardCache.fingerprint(samples)),
+                entries.map(entry -> entry.getFileName().toString()).toList());
+        }
+        Path directory = root.resolve(TensorShardCache.fingerprint(samples));
+        assertFalse(Files.exists(directory.resolve("manifest.properties.tmp")));
+        TensorShardCache.openOrBuild(root, samples, source(samples, builds), 2).close();
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void testOpenOrBuild_PrunesLeastRecentlyUsedCachesAndAbandonedBuilds() throws IOException {
+        Path root = tempDir.resolve("cache");
+        List<List<TrainingSample>> datasets = new ArrayList<>();
+        List<Path> directories = new ArrayList<>();
+        for (int dataset = 0; dataset <= TensorShardCache.RETAINED_CACHES; dataset++) {
+            datasets.add(samples("dataset-" + dataset, 2));
+        }
+        for (int dataset = 0; dataset < TensorShardCache.RETAINED_CACHES; dataset++) {
+            directories.add(open(root, datasets.get(dataset)));
+            Files.setLastModifiedTime(directories.get(dataset), FileTime.fromMillis(1_000_000L * (dataset + 1)));
+        }
+        Path abandoned = Files.createDirectory(root.resolve("0123456789abcdef.building-x"));
+        Files.setLastModifiedTime(abandoned, FileTime.fromMillis(0));
+        Path unrelated = Files.createDirectory(root.resolve("notes"));
+
+        // Reabrir o primeiro dataset o torna o mais recente; com um novo dataset sai o segundo
+        open(root, datasets.get(0));
+        directories.add(open(root, datasets.get(TensorShardCache.RETAINED_CACHES)));
+
+        assertTrue(Files.exists(directories.get(0)));
+        assertFalse(Files.exists(directories.get(1)));
+        for (int i = 2; i < directories.size(); i++) {
+            assertTrue(Files.exists(directories.get(i)));
+        }
+        assertFalse(Files.exists(abandoned));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void testShardedIterator_EachEpochIsANewPermutationOfTheSubset() throws IOException {
+        List<TrainingSample> samples = samples(6);
+        try (TensorShardCache cache = TensorShardCache.openOrBuild(
+                tempDir.resolve("cache"), samples, source(samples, new AtomicInteger()), 4)) {
+            int[] subset = { 0, 2, 3, 5 };
+            ShardedMultiTaskIterator iterator =
+                new ShardedMultiTaskIterator(cache, subset, HEAD_SIZES, 3, new Random(7));
+
+            List<List<Float>> epochs = new ArrayList<>();
+            for (int epoch = 0; epoch < 3; epoch++) {
+                List<Float> firstPixels = new ArrayList<>();
+                while (iterator.hasNext()) {
+                    MultiDataSet batch = iterator.next();
+                    for (int i = 0; i < batch.getFeatures(0).size(0); i++) {
+                        firstPixels.add(batch.getFeatures(0).getFloat(i, 0, 0, 0));
+                    }
+                }
+                epochs.add(firstPixels);
+                iterator.reset();
+            }
+
+            Set<Float> expected = new HashSet<>();
+            FloatBuffer values = FloatBuffer.allocate(TensorShardCache.featureSize());
+            for (int index : subset) {
+                cache.copyFeatures(index, values, 0);
+                expected.add(values.get(0));
+            }
+            for (List<Float> epoch : epochs) {
+                assertEquals(4, epoch.size());
+                assertEquals(expected, new HashSet<>(epoch));
+            }
+            assertTrue(!epochs.get(0).equals(epochs.get(1)) || !epochs.get(1).equals(epochs.get(2)));
+        }
+    }
+
+    @Test
+    void testShardedIterator_NextNumOverridesBatchSizeOnce() throws IOException {
+        List<TrainingSample> samples = samples(5);
+        try (TensorShardCache cache = TensorShardCache.openOrBuild(
+                tempDir.resolve("cache"), samples, source(samples, new AtomicInteger()), 4)) {
+            ShardedMultiTaskIterator iterator =
+                new ShardedMultiTaskIterator(cache, new int[]{ 0, 1, 2, 3, 4 }, HEAD_SIZES, 2, null);
+
+            MultiDataSet large = iterator.next(3);
+            assertEquals(3, large.getFeatures(0).size(0));
+            assertEquals(1.0, large.getLabels(0).getDouble(2, samples.get(2).classIndex()));
+            assertEquals(2, iterator.next().getFeatures(0).size(0));
+            assertFalse(iterator.hasNext());
+            assertThrows(NoSuchElementException.class, () -> iterator.next(1));
+        }
+    }
+
+    private Path open(Path root, List<TrainingSample> samples) throws IOException {
+        try (TensorShardCache cache = TensorShardCache.openOrBuild(root, samples, source(samples, new AtomicInteger()))) {
+            return cache.getDirectory();
+        }
+    }
+
+    private Supplier<MultiDataSetIterator> source(List<TrainingSample> samples, AtomicInteger builds) {
+        return () -> {
+            builds.incrementAndGet();
+            return new StreamingMultiTaskIterator(samples, HEAD_SIZES, 2, preprocessor, workers, 2, null, null);
+        };
+    }
+
+    private List<TrainingSample> samples(int count) throws IOException {
+        return samples("img", count);
+    }
+
+    private List<TrainingSample> samples(String prefix, int count) throws IOException {
+        List<TrainingSample> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path image = tempDir.resolve(prefix + "-" + i + ".png");
+            writeImage(image, i * 40);
+            samples.add(i % 2 == 0 ? new TrainingSample(image, 0, i % 3) : new TrainingSample(image, 1, i % 2));
+        }
+        return samples;
+    }
+
+    private static void writeImage(Path file, int shade) throws IOException {
+        BufferedImage image = new BufferedImage(224, 224, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (shade << 16) | ((x + y) & 0xFF) << 8 | (255 - shade));
+            }
+        }
+        ImageIO.write(image, "png", file.toFile());
+    }
+}
@@ -0,0 +1,111 @@
+package com.healplus.ml.xai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivationMapCodecTest {
+
+    private static final int SIZE = 224;
+
+    @Test
+    void testQuantized_RoundTripWithinHalfStep() {
+        float[] map = smoothMap();
+
+        ActivationMapCodec.Decoded decoded = ActivationMapCodec.decode(
+            ActivationMapCodec.encodeQuantized(map, SIZE, SIZE, false));
+
+        assertEquals(ActivationMapCodec.KIND_QUANTIZED, decoded.kind());
+        assertEquals(SIZE, decoded.width());
+        assertEquals(SIZE, decoded.height());
+        float step = 1f / 255f;
+        for (int i = 0; i < map.length; i++) {
+            assertEquals(map[i], decoded.map()[i], step / 2 + 1e-6f, "Divergência no pixel " + i);
+        }
+    }
+
+    @Test
+    void testQuantized_ConstantMapKeepsValue() {
+        float[] map = new float[16];
+        Arrays.fill(map, 0.42f);
+
+        float[] decoded = ActivationMapCodec.decode(ActivationMapCodec.encodeQuantized(map, 4, 4, true)).map();
+
+        for (float value : decoded) {
+            assertEquals(0.42f, value);
+        }
+    }
+
+    @Test
+    void testDeflate_AtLeast20xSmallerThanJsonMatrix() {
+        float[] map = smoothMap();
+        StringBuilder json = new StringBuilder("[");
+        for (int y = 0; y < SIZE; y++) {
+            json.append(y > 0 ? ",[" : "[");
+            for (int x = 0; x < SIZE; x++) {
+                if (x > 0) json.append(',');
+                json.append((double) map[y * SIZE + x]);
+            }
+            json.append(']');
+        }
+        json.append(']');
+
+        byte[] deflated = ActivationMapCodec.encodeQuantized(map, SIZE, SIZE, true);
+
+        assertTrue(json.length() / deflated.length >= 20,
+            "JSON " + json.length() + " bytes, codec " + deflated.length + " bytes");
+        assertArrayEquals(ActivationMapCodec.encodeQuantized(map, SIZE, SIZE, false),
+            ActivationMapCodec.withoutDeflate(deflated));
+    }
+
+    @Test
+    void testMask_RunLengthRoundTrip() {
+        float[] map = new float[SIZE * SIZE];
+        Random random = new Random(3);
+        for (int i = 0; i < map.length; i++) {
+            map[i] = random.nextFloat();
+        }
+        map[0] = 0.9f;  // máscara começando dentro: corrida inicial vazia
+
+        for (boolean deflate : new boolean[]{false, true}) {
+            ActivationMapCodec.Decoded decoded = ActivationMapCodec.decode(
+                ActivationMapCodec.encodeMask(map, SIZE, SIZE, 0.7f, deflate));
+
+            assertEquals(ActivationMapCodec.KIND_MASK_RLE, decoded.kind());
+            for (int i = 0; i < map.length; i++) {
+                assertEquals(map[i] >= 0.7f ? 1f : 0f, decoded.map()[i], "Pixel " + i);
+            }
+        }
+    }
+
+    @Test
+    void testDecode_InvalidHeader_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> ActivationMapCodec.decode(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    void testIsEncoded_DistinguishesCodecFromLegacyBytes() {
+        assertTrue(ActivationMapCodec.isEncoded(ActivationMapCodec.encodeQuantized(smoothMap(), SIZE, SIZE, true)));
+        assertTrue(ActivationMapCodec.isEncoded(
+            ActivationMapCodec.encodeMask(smoothMap(), SIZE, SIZE, 0.5f, false)));
+        assertFalse(ActivationMapCodec.isEncoded(new byte[SIZE * SIZE]));
+        assertFalse(ActivationMapCodec.isEncoded(new byte[]{'H', 'P'}));
+        assertFalse(ActivationMapCodec.isEncoded(null));
+    }
+
+    /** Mapa suave como um Grad-CAM interpolado, valores em [0, 1] */
+    private static float[] smoothMap() {
+        float[] map = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                double dx = (x - 90) / 60.0;
+                double dy = (y - 130) / 45.0;
+                map[y * SIZE + x] = (float) Math.exp(-(dx * dx + dy * dy));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,164 @@
+package com.healplus.ml.xai;
+
+import com.healplus.ml.HealingPhase;
+import com.healplus.ml.TissueType;
+import com.healplus.ml.WoundAnalysisResult;
+import com.healplus.ml.WoundType;
+import com.healplus.ml.neural.ClassActivationMap;
+import com.healplus.ml.neural.DecodedImage;
+import com.healplus.ml.neural.ImagePreprocessor;
+import com.healplus.ml.neural.ModelReplicaPool;
+import com.healplus.ml.neural.WoundClassifierNetwork;
+import com.healplus.ml.xai.ExplainableAIService.ExplanationResult;
+import com.healplus.ml.xai.ExplainableAIService.HeatmapResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExplainableAIServiceTest {
+
+    private static final int SIZE = 224;
+    // Região que o modelo simulado "observa": o canto inferior direito, fora da grade regular
+    private static final int REGION_START = 192;
+    private static final WoundType TARGET = WoundType.DIABETIC_ULCER;
+
+    @Mock
+    private WoundClassifierNetwork network;
+
+    @Mock
+    private ModelReplicaPool replicaPool;
+
+    @Mock
+    private ImagePreprocessor imagePreprocessor;
+
+    @Mock
+    private ExplanationArtifactService artifactService;
+
+    @Mock
+    private DecodedImage image;
+
+    private ExplainableAIService service;
+
+    @BeforeEach
+    void setUp() {
+        when(network.getReplicaPool()).thenReturn(replicaPool);
+        when(replicaPool.getSize()).thenReturn(2);
+        when(image.getResized()).thenReturn(new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB));
+        when(imagePreprocessor.preprocessImage(any(DecodedImage.class)))
+            .thenReturn(Nd4j.ones(DataType.FLOAT, 1, 3, SIZE, SIZE));
+        // Probabilidade da classe-alvo = fração não ocluída da região observada
+        when(network.predictWoundProbabilitiesAsync(any(INDArray.class))).thenAnswer(invocation -> {
+            INDArray batch = invocation.getArgument(0);
+            int rows = (int) batch.size(0);
+            INDArray probabilities = Nd4j.zeros(DataType.FLOAT, rows, WoundType.values().length);
+            for (int row = 0; row < rows; row++) {
+                double visible = batch.get(NDArrayIndex.point(row), NDArrayIndex.point(0),
+                    NDArrayIndex.interval(REGION_START, SIZE), NDArrayIndex.interval(REGION_START, SIZE)).meanNumber().doubleValue();
+                probabilities.putScalar(row, TARGET.ordinal(), visible);
+            }
+            return CompletableFuture.completedFuture(probabilities);
+        });
+        service = new ExplainableAIService(network, imagePreprocessor, artifactService, 32, 40, 8);
+    }
+
+    @Test
+    void testOcclusionOffsets_LastPatchAlignedToEdge() {
+        assertArrayEquals(new int[]{0, 40, 80, 120, 160, 192}, ExplainableAIService.occlusionOffsets(SIZE, 32, 40));
+        assertArrayEquals(new int[]{0, 16, 32}, ExplainableAIService.occlusionOffsets(64, 32, 16));
+    }
+
+    @Test
+    void testOcclusion_SensitivityConcentratedOnObservedEdgeRegion() throws Exception {
+        WoundAnalysisResult result = analysis(TARGET);
+
+        ExplanationResult explanation = service.generateOcclusionExplanation(result, image, "prof-1");
+
+        float[] map = storedMap();
+        assertTrue(map[pixel(220, 220)] > 0.5f, "borda ocluída deve ser sensível: " + map[pixel(220, 220)]);
+        assertTrue(map[pixel(208, 208)] > 0.9f);
+        assertEquals(0f, map[pixel(50, 50)], 1e-6f);
+        assertEquals(0f, map[pixel(100, 180)], 1e-6f);
+        assertEquals(TARGET, explanation.getHeatmap().getTargetClass());
+        assertEquals("Occlusion", explanation.getHeatmap().getMethod());
+    }
+
+    @Test
+    void testOcclusion_MissingWoundTypeExplainsPredictedClass() throws Exception {
+        WoundAnalysisResult result = analysis(null);
+
+        ExplanationResult explanation = service.generateOcclusionExplanation(result, image, "prof-1");
+
+        assertEquals(TARGET, explanation.getHeatmap().getTargetClass());
+        assertTrue(storedMap()[pixel(208, 208)] > 0.9f);
+        assertFalse(explanation.getNarrativeExplanation().isEmpty());
+    }
+
+    @Test
+    void testGradCam_UpsamplesInferenceMapWithoutCallingNetwork() throws Exception {
+        float[] cells = new float[4 * 4];
+        cells[3 * 4 + 3] = 1f;
+        cells[3 * 4 + 2] = 0.5f;
+        ClassActivationMap cam = new ClassActivationMap(cells, 4, 4, TARGET, "conv4");
+
+        ExplanationResult explanation = service.generateExplanation(analysis(TARGET), image, cam, "prof-1");
+
+        float[] map = storedMap();
+        int peak = 0;
+        for (int i = 0; i < map.length; i++) {
+            assertTrue(map[i] >= 0f && map[i] <= 1f, "fora de [0, 1]: " + map[i]);
+            peak = map[i] > map[peak] ? i : peak;
+        }
+        // O pico permanece na célula inferior direita da grade 4x4 (pixels 168..223)
+        assertTrue(peak % SIZE >= 168 && peak / SIZE >= 168, "pico em " + peak % SIZE + "," + peak / SIZE);
+        assertEquals(0f, map[pixel(20, 20)], 1e-6f);
+        assertEquals("Grad-CAM", explanation.getHeatmap().getMethod());
+        assertEquals("conv4", explanation.getHeatmap().getTargetLayer());
+        verify(network, never()).predictWoundProbabilitiesAsync(any());
+        verify(network, never()).predictBatch(any());
+        verify(network, never()).predictBatchAsync(any());
+        verify(imagePreprocessor, never()).preprocessImage(any(DecodedImage.class));
+    }
+
+    private float[] storedMap() {
+        ArgumentCaptor<float[]> map = ArgumentCaptor.forClass(float[].class);
+        verify(artifactService).store(anyString(), eq("prof-1"), map.capture(), any(BufferedImage.class), any(HeatmapResult.class));
+        assertEquals(SIZE * SIZE, map.getValue().length);
+        return map.getValue();
+    }
+
+    private static int pixel(int x, int y) {
+        return y * SIZE + x;
+    }
+
+    private static WoundAnalysisResult analysis(WoundType woundType) {
+        WoundAnalysisResult result = new WoundAnalysisResult();
+        result.setId("a1");
+        result.setWoundType(woundType);
+        result.setWoundTypeConfidence(0.8);
+        result.setHealingPhase(HealingPhase.PROLIFERATIVE);
+        result.setHealingPhaseConfidence(0.7);
+        Map<TissueType, Double> tissues = new EnumMap<>(TissueType.class);
+        tissues.put(TissueType.GRANULATION, 60.0);
+        result.setTissuePercentages(tissues);
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+package com.healplus.ml.xai;
+
+import com.healplus.entities.ExplanationArtifact;
+import com.healplus.entities.Patient;
+import com.healplus.entities.WoundAnalysis;
+import com.healplus.exception.ResourceNotFoundException;
+import com.healplus.ml.xai.ExplainableAIService.HeatmapResult;
+import com.healplus.repositories.ExplanationArtifactRepository;
+import com.healplus.repositories.PatientRepository;
+import com.healplus.repositories.WoundAnalysisRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.awt.image.BufferedImage;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExplanationArtifactServiceTest {
+
+    private static final int SIZE = 32;
+
+    @Mock
+    private ExplanationArtifactRepository repository;
+
+    @Mock
+    private WoundAnalysisRepository analysisRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    private ExplanationArtifactService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ExplanationArtifactService(repository, analysisRepository, patientRepository, 72);
+    }
+
+    @Test
+    void testStore_FillsReferencesWithoutRendering() {
+        HeatmapResult heatmap = new HeatmapResult();
+        heatmap.setWidth(SIZE);
+        heatmap.setHeight(SIZE);
+
+        service.store("a1", "prof-1", new float[SIZE * SIZE], new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB), heatmap);
+
+        ArgumentCaptor<ExplanationArtifact> saved = ArgumentCaptor.forClass(ExplanationArtifact.class);
+        verify(repository).save(saved.capture());
+        assertEquals("prof-1", saved.getValue().getOwnerId());
+        assertEquals(SIZE * SIZE, ActivationMapCodec.decode(saved.getValue().getActivationMap()).map().length);
+        assertEquals(SIZE * SIZE * 3, saved.getValue().getBaseImageRgb().length);
+        assertNull(saved.getValue().getHeatmapPng());
+        assertNull(saved.getValue().getOverlayPng());
+        assertEquals(ExplanationArtifactService.ARTIFACTS_PATH + "/a1/heatmap.png", heatmap.getHeatmapUrl());
+        assertEquals(ExplanationArtifactService.ARTIFACTS_PATH + "/a1/overlay.png", heatmap.getOverlayUrl());
+        assertEquals(ExplanationArtifactService.ARTIFACTS_PATH + "/a1/activation-map", heatmap.getActivationMapUrl());
+    }
+
+    @Test
+    void testStore_ArtifactsOfAnotherOwner_NotOverwritten() {
+        when(repository.findById("a1")).thenReturn(Optional.of(artifact("prof-2")));
+        HeatmapResult heatmap = new HeatmapResult();
+        heatmap.setWidth(SIZE);
+        heatmap.setHeight(SIZE);
+
+        assertThrows(AccessDeniedException.class, () -> service.store("a1", "prof-1", new float[SIZE * SIZE],
+            new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB), heatmap));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testHeatmapPng_RenderedOnFirstRequestOnly() {
+        ExplanationArtifact artifact = artifact("prof-1");
+
+        byte[] first = service.heatmapPng(artifact);
+        byte[] second = service.heatmapPng(artifact);
+
+        assertSame(first, second);
+        assertEquals((byte) 0x89, first[0]);  // assinatura PNG
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    void testFind_UnknownAnalysis_NotFound() {
+        when(repository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> service.find("missing", "prof-1"));
+    }
+
+    @Test
+    void testFind_OwnerWithoutStoredAnalysis_Allowed() {
+        when(repository.findById("a1")).thenReturn(Optional.of(artifact("prof-1")));
+
+        assertEquals("a1", service.find("a1", "prof-1").getAnalysisId());
+        assertThrows(ResourceNotFoundException.class, () -> service.find("a1", "prof-2"));
+    }
+
+    @Test
+    void testFind_StoredAnalysisOfAnotherProfessionalOrPatient_NotFound() {
+        when(repository.findById("a1")).thenReturn(Optional.of(artifact("prof-1")));
+        WoundAnalysis analysis = new WoundAnalysis();
+        analysis.setId("a1");
+        analysis.setPatientId("p1");
+        analysis.setProfessionalId("prof-1");
+        when(analysisRepository.findById("a1")).thenReturn(Optional.of(analysis));
+        Patient patient = new Patient();
+        patient.setProfessionalId("prof-1");
+        when(patientRepository.findById("p1")).thenReturn(Optional.of(patient));
+
+        assertEquals("a1", service.find("a1", "prof-1").getAnalysisId());
+
+        // Paciente transferido para outro profissional: a explicação deixa de ser visível
+        patient.setProfessionalId("prof-2");
+        assertThrows(ResourceNotFoundException.class, () -> service.find("a1", "prof-1"));
+
+        patient.setProfessionalId("prof-1");
+        analysis.setProfessionalId("prof-2");
+        assertThrows(ResourceNotFoundException.class, () -> service.find("a1", "prof-1"));
+    }
+
+    @Test
+    void testFind_LegacyQuantizedMap_UpgradedToCodec() {
+        ExplanationArtifact artifact = artifact("prof-1");
+        byte[] legacy = new byte[SIZE * SIZE];
+        legacy[5] = (byte) 255;
+        legacy[6] = (byte) 128;
+        artifact.setActivationMap(legacy);
+        when(repository.findById("a1")).thenReturn(Optional.of(artifact));
+
+        ExplanationArtifact found = service.find("a1", "prof-1");
+
+        assertTrue(ActivationMapCodec.isEncoded(found.getActivationMap()));
+        float[] map = service.decodeActivationMap(found).map();
+        assertEquals(1f, map[5], 1e-6f);
+        assertEquals(128 / 255f, map[6], 1f / 255f);
+        assertEquals(0f, map[0], 1e-6f);
+        verify(repository).save(artifact);
+    }
+
+    @Test
+    void testFind_UnreadableMap_NotFound() {
+        ExplanationArtifact artifact = artifact("prof-1");
+        artifact.setActivationMap(new byte[]{1, 2, 3});
+        when(repository.findById("a1")).thenReturn(Optional.of(artifact));
+
+        assertThrows(ResourceNotFoundException.class, () -> service.find("a1", "prof-1"));
+    }
+
+    @Test
+    void testFind_ArtifactWithoutOwner_OnlyThroughOwnedAnalysis() {
+        when(repository.findById("a1")).thenReturn(Optional.of(artifact(null)));
+        assertThrows(ResourceNotFoundException.class, () -> service.find("a1", "prof-1"));
+
+        WoundAnalysis analysis = new WoundAnalysis();
+        analysis.setId("a1");
+        analysis.setPatientId("p1");
+        analysis.setProfessionalId("prof-1");
+        when(analysisRepository.findById("a1")).thenReturn(Optional.of(analysis));
+        Patient patient = new Patient();
+        patient.setProfessionalId("prof-1");
+        when(patientRepository.findById("p1")).thenReturn(Optional.of(patient));
+
+        assertEquals("a1", service.find("a1", "prof-1").getAnalysisId());
+        assertThrows(ResourceNotFoundException.class, () -> service.find("a1", "prof-2"));
+    }
+
+    @Test
+    void testVersion_ChangesWithNewExplanation() {
+        ExplanationArtifact artifact = artifact("prof-1");
+        String before = ExplanationArtifactService.version(artifact);
+
+        artifact.setCreatedAt(artifact.getCreatedAt().plusMillis(1));
+
+        assertNotEquals(before, ExplanationArtifactService.version(artifact));
+    }
+
+    private static ExplanationArtifact artifact(String ownerId) {
+        ExplanationArtifact artifact = new ExplanationArtifact();
+        artifact.setAnalysisId("a1");
+        artifact.setOwnerId(ownerId);
+        artifact.setWidth(SIZE);
+        artifact.setHeight(SIZE);
+        artifact.setActivationMap(ActivationMapCodec.encodeQuantized(new float[SIZE * SIZE], SIZE, SIZE, true));
+        artifact.setBaseImageRgb(new byte[SIZE * SIZE * 3]);
+        artifact.setCreatedAt(Instant.parse("2026-01-01T00:00:00Z"));
+        return artifact;
+    }
+}
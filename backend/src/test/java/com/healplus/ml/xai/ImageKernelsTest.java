@@ -0,0 +1,113 @@
+package com.healplus.ml.xai;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageKernelsTest {
+
+    private static final int SIZE = 224;
+
+    @Test
+    void testGaussianBlur_MatchesFull2DKernel() {
+        float[] map = randomMap(42);
+
+        float[] separable = ImageKernels.gaussianBlur(map, SIZE, SIZE, 5);
+        double[] reference = blur2D(map, 5);
+
+        for (int i = 0; i < map.length; i++) {
+            assertEquals(reference[i], separable[i], 1e-5, "Divergência no pixel " + i);
+        }
+    }
+
+    @Test
+    void testRenderHeatmap_UsesColormapLut() {
+        float[] map = randomMap(7);
+
+        BufferedImage heatmap = ImageKernels.renderHeatmap(map, SIZE, SIZE);
+
+        assertEquals(BufferedImage.TYPE_INT_ARGB, heatmap.getType());
+        for (int i = 0; i < map.length; i += 97) {
+            assertEquals(ImageKernels.heatmapColor(map[i]), heatmap.getRGB(i % SIZE, i / SIZE));
+        }
+        // Extremos do colormap: azul semitransparente e vermelho quase opaco
+        assertEquals(0x4B0000FF, ImageKernels.heatmapColor(0f));
+        assertEquals(0xFFFF0000, ImageKernels.heatmapColor(1f));
+    }
+
+    @Test
+    void testOverlay_MatchesAlphaComposite() {
+        BufferedImage original = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                original.setRGB(x, y, (x << 16) | (y << 8) | ((x + y) & 0xFF));
+            }
+        }
+        BufferedImage heatmap = ImageKernels.renderHeatmap(randomMap(3), SIZE, SIZE);
+
+        BufferedImage fast = ImageKernels.overlay(original, heatmap, 0.5f);
+
+        BufferedImage reference = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = reference.createGraphics();
+        g2d.drawImage(original, 0, 0, null);
+        g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        g2d.drawImage(heatmap, 0, 0, null);
+        g2d.dispose();
+
+        for (int y = 0; y < SIZE; y += 7) {
+            for (int x = 0; x < SIZE; x += 7) {
+                int expected = reference.getRGB(x, y);
+                int actual = fast.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    assertEquals((expected >> shift) & 0xFF, (actual >> shift) & 0xFF, 2.0,
+                        "Canal divergente em (" + x + "," + y + ")");
+                }
+            }
+        }
+    }
+
+    private static float[] randomMap(long seed) {
+        Random random = new Random(seed);
+        float[] map = new float[SIZE * SIZE];
+        for (int i = 0; i < map.length; i++) {
+            map[i] = random.nextFloat();
+        }
+        return map;
+    }
+
+    private static double[] blur2D(float[] map, int kernelSize) {
+        int half = kernelSize / 2;
+        double sigma = kernelSize / 3.0;
+        double[][] kernel = new double[kernelSize][kernelSize];
+        double sum = 0;
+        for (int i = 0; i < kernelSize; i++) {
+            for (int j = 0; j < kernelSize; j++) {
+                int dx = i - half;
+                int dy = j - half;
+                kernel[i][j] = Math.exp(-(dx * dx + dy * dy) / (2 * sigma * sigma));
+                sum += kernel[i][j];
+            }
+        }
+
+        double[] out = new double[map.length];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                double value = 0;
+                for (int ky = 0; ky < kernelSize; ky++) {
+                    for (int kx = 0; kx < kernelSize; kx++) {
+                        int py = Math.min(Math.max(y + ky - half, 0), SIZE - 1);
+                        int px = Math.min(Math.max(x + kx - half, 0), SIZE - 1);
+                        value += map[py * SIZE + px] * kernel[ky][kx] / sum;
+                    }
+                }
+                out[y * SIZE + x] = value;
+            }
+        }
+        return out;
+    }
+}
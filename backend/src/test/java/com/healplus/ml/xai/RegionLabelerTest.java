@@ -0,0 +1,161 @@
+package com.healplus.ml.xai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionLabelerTest {
+
+    private static final int SIZE = 224;
+
+    @Test
+    void testLabel_EmptyMap_NoRegions() {
+        float[] map = new float[SIZE * SIZE];
+
+        assertTrue(RegionLabeler.label(map, SIZE, SIZE, 0.7, 20).isEmpty());
+    }
+
+    @Test
+    void testLabel_SeparatedBlobs_BoxesAndMeansPerRegion() {
+        float[] map = new float[SIZE * SIZE];
+        fill(map, 10, 10, 30, 20, 0.8f);     // 600 pixels
+        fill(map, 150, 150, 20, 20, 1.0f);   // 400 pixels
+
+        List<RegionLabeler.Region> regions = RegionLabeler.label(map, SIZE, SIZE, 0.7, 20);
+
+        assertEquals(2, regions.size());
+        RegionLabeler.Region largest = regions.get(0);
+        assertEquals(10, largest.x);
+        assertEquals(10, largest.y);
+        assertEquals(30, largest.width);
+        assertEquals(20, largest.height);
+        assertEquals(600, largest.pixelCount);
+        assertEquals(0.8, largest.meanActivation, 1e-6);
+
+        RegionLabeler.Region second = regions.get(1);
+        assertEquals(150, second.x);
+        assertEquals(400, second.pixelCount);
+        assertEquals(1.0, second.meanActivation, 1e-9);
+    }
+
+    @Test
+    void testLabel_NearbyPoints_LinkedIntoOneRegion() {
+        float[] map = new float[SIZE * SIZE];
+        map[50 * SIZE + 50] = 0.9f;
+        map[50 * SIZE + 65] = 0.9f;  // 15px de distância: mesma região
+        map[50 * SIZE + 120] = 0.9f; // distante: região separada
+
+        List<RegionLabeler.Region> regions = RegionLabeler.label(map, SIZE, SIZE, 0.7, 20);
+
+        assertEquals(2, regions.size());
+        assertEquals(2, regions.get(0).pixelCount);
+        assertEquals(50, regions.get(0).x);
+        assertEquals(16, regions.get(0).width);
+        assertEquals(1, regions.get(0).height);
+        assertEquals(1, regions.get(1).pixelCount);
+    }
+
+    @Test
+    void testLabel_LinkDistanceBoundary() {
+        // Nos eixos, como o agrupamento euclidiano anterior: liga a 19px, separa a 20px
+        assertEquals(1, regionsBetween(0, 19));
+        assertEquals(2, regionsBetween(0, 20));
+        assertEquals(1, regionsBetween(19, 0));
+        assertEquals(2, regionsBetween(20, 0));
+        // Nas diagonais a janela quadrada liga até 19 x 18 (~26px)
+        assertEquals(1, regionsBetween(18, 18));
+        assertEquals(1, regionsBetween(19, 18));
+        assertEquals(2, regionsBetween(19, 19));
+    }
+
+    @Test
+    void testLabel_UShape_MergedByUnionFind() {
+        float[] map = new float[SIZE * SIZE];
+        fill(map, 100, 100, 2, 40, 0.9f);  // haste esquerda
+        fill(map, 140, 100, 2, 40, 0.9f);  // haste direita
+        fill(map, 100, 138, 42, 2, 0.9f);  // base unindo as hastes
+
+        List<RegionLabeler.Region> regions = RegionLabeler.label(map, SIZE, SIZE, 0.7, 0);
+
+        assertEquals(1, regions.size());
+        assertEquals(42, regions.get(0).width);
+        assertEquals(40, regions.get(0).height);
+    }
+
+    @Test
+    void testLabel_LargeDenseMap_SingleRegionCoveringAllHotPixels() {
+        int size = 2048;
+        float[] map = new float[size * size];
+        int hot = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if ((x / 3 + y / 3) % 2 == 0) {
+                    map[y * size + x] = 0.95f;
+                    hot++;
+                } else {
+                    map[y * size + x] = 0.1f;
+                }
+            }
+        }
+
+        List<RegionLabeler.Region> regions = RegionLabeler.label(map, size, size, 0.7, 20);
+
+        assertEquals(1, regions.size());
+        RegionLabeler.Region region = regions.get(0);
+        assertEquals(hot, region.pixelCount);
+        assertEquals(0, region.x);
+        assertEquals(0, region.y);
+        assertEquals(size, region.width);
+        assertEquals(size, region.height);
+        assertEquals(0.95, region.meanActivation, 1e-6);
+    }
+
+    @Test
+    void testLabel_LargeMapWithManyBlobs_EachBlobItsOwnRegion() {
+        int size = 2048;
+        int spacing = 64;
+        int blobs = size / spacing;
+        float[] map = new float[size * size];
+        for (int by = 0; by < blobs; by++) {
+            for (int bx = 0; bx < blobs; bx++) {
+                for (int y = by * spacing; y < by * spacing + 8; y++) {
+                    for (int x = bx * spacing; x < bx * spacing + 8; x++) {
+                        map[y * size + x] = 0.9f;
+                    }
+                }
+            }
+        }
+
+        // Mais regiões que a capacidade inicial da tabela de rótulos
+        List<RegionLabeler.Region> regions = RegionLabeler.label(map, size, size, 0.7, 20);
+
+        assertEquals(blobs * blobs, regions.size());
+        for (RegionLabeler.Region region : regions) {
+            assertEquals(64, region.pixelCount);
+            assertEquals(8, region.width);
+            assertEquals(8, region.height);
+            assertEquals(0, region.x % spacing);
+            assertEquals(0, region.y % spacing);
+        }
+    }
+
+    /**
+     * Regiões formadas por dois pixels de interesse separados por (dx, dy)
+     */
+    private static int regionsBetween(int dx, int dy) {
+        float[] map = new float[SIZE * SIZE];
+        map[50 * SIZE + 50] = 0.9f;
+        map[(50 + dy) * SIZE + 50 + dx] = 0.9f;
+        return RegionLabeler.label(map, SIZE, SIZE, 0.7, 20).size();
+    }
+
+    private static void fill(float[] map, int x0, int y0, int width, int height, float value) {
+        for (int y = y0; y < y0 + height; y++) {
+            for (int x = x0; x < x0 + width; x++) {
+                map[y * SIZE + x] = value;
+            }
+        }
+    }
+}